@@ -75,6 +75,7 @@ CREATE TABLE binders
     binder_name     VARCHAR(50),
     user_id         INT UNSIGNED NOT NULL,
     binder_color_id INT UNSIGNED,
+    updated_at      TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     PRIMARY KEY (binder_id),
     FOREIGN KEY (user_id) REFERENCES users (user_id)
         ON DELETE CASCADE,
@@ -96,6 +97,7 @@ CREATE TABLE tabs
     tab_name     VARCHAR(50),
     binder_id    INT UNSIGNED NOT NULL,
     tab_color_id INT UNSIGNED,
+    updated_at   TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     PRIMARY KEY (tab_id),
     FOREIGN KEY (binder_id) REFERENCES binders (binder_id)
         ON DELETE CASCADE,
@@ -118,12 +120,14 @@ VALUES ('Java', 1, 2),
 
 CREATE TABLE notes
 (
-    note_id        INT UNSIGNED NOT NULL AUTO_INCREMENT,
-    note_name      VARCHAR(50),
-    note_content   LONGTEXT     DEFAULT "",
-    tab_id         INT UNSIGNED NOT NULL,
-    note_label1_id INT UNSIGNED DEFAULT NULL,
-    note_label2_id INT UNSIGNED DEFAULT NULL,
+    note_id         INT UNSIGNED NOT NULL AUTO_INCREMENT,
+    note_name       VARCHAR(50),
+    note_content    LONGTEXT     DEFAULT "",
+    tab_id          INT UNSIGNED NOT NULL,
+    note_label1_id  INT UNSIGNED DEFAULT NULL,
+    note_label2_id  INT UNSIGNED DEFAULT NULL,
+    content_version INT UNSIGNED NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     PRIMARY KEY (note_id),
     FOREIGN KEY (tab_id) REFERENCES tabs (tab_id)
         ON DELETE CASCADE
@@ -267,6 +271,55 @@ ALTER TABLE labels
     ADD CONSTRAINT UC_label_name UNIQUE (label_name);
 
 
+-- Create the table of pending note content edits, folded into notes.note_content by compaction
+CREATE TABLE note_deltas
+(
+    delta_id            INT UNSIGNED NOT NULL AUTO_INCREMENT,
+    note_id             INT UNSIGNED NOT NULL,
+    delta_offset        INT UNSIGNED NOT NULL,
+    delta_delete_length INT UNSIGNED NOT NULL,
+    delta_base_length   INT UNSIGNED NOT NULL,
+    delta_base_version  INT UNSIGNED NOT NULL DEFAULT 0,
+    delta_text          LONGTEXT     NOT NULL,
+    PRIMARY KEY (delta_id),
+    FOREIGN KEY (note_id) REFERENCES notes (note_id)
+        ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX IDX_note_deltas_note ON note_deltas (note_id, delta_id);
+
+
+-- Index the change timestamps and record deletions, so that clients only fetch what changed since their last sync
+CREATE INDEX IDX_binders_user_updated ON binders (user_id, updated_at);
+CREATE INDEX IDX_tabs_updated ON tabs (updated_at);
+CREATE INDEX IDX_notes_updated ON notes (updated_at);
+
+
+-- Index the label columns with the tab, so that filtering the notebook by label only reads the matching notes
+CREATE INDEX IDX_notes_label1 ON notes (note_label1_id, tab_id);
+CREATE INDEX IDX_notes_label2 ON notes (note_label2_id, tab_id);
+
+
+-- Index the notes of a tab by name, so that a page of a large tab is read from where the previous page ended
+CREATE INDEX IDX_notes_tab_name ON notes (tab_id, note_name, note_id);
+
+CREATE TABLE deleted_rows
+(
+    deletion_id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+    user_id     INT UNSIGNED NOT NULL,
+    entity_type CHAR(1)      NOT NULL,
+    entity_id   INT UNSIGNED NOT NULL,
+    deleted_at  TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (deletion_id),
+    FOREIGN KEY (user_id) REFERENCES users (user_id)
+        ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX IDX_deleted_rows_user ON deleted_rows (user_id, deleted_at);
+
+
 -- Create a view to get all notes from all users
 CREATE VIEW viewAllUserNotes AS
 SELECT binders.binder_id,
@@ -0,0 +1,21 @@
+-- Adds the table of pending note content edits to an existing NotesManager database.
+-- Each save of a long note inserts a row here instead of rewriting notes.note_content;
+-- the application folds the rows back into notes.note_content once enough of them have accumulated.
+
+USE NotesManager;
+
+CREATE TABLE note_deltas
+(
+    delta_id            INT UNSIGNED NOT NULL AUTO_INCREMENT,
+    note_id             INT UNSIGNED NOT NULL,
+    delta_offset        INT UNSIGNED NOT NULL,
+    delta_delete_length INT UNSIGNED NOT NULL,
+    delta_base_length   INT UNSIGNED NOT NULL,
+    delta_text          LONGTEXT     NOT NULL,
+    PRIMARY KEY (delta_id),
+    FOREIGN KEY (note_id) REFERENCES notes (note_id)
+        ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX IDX_note_deltas_note ON note_deltas (note_id, delta_id);
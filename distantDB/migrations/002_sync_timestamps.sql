@@ -0,0 +1,31 @@
+-- Adds change tracking to an existing NotesManager database.
+-- binders, tabs and notes get an updated_at timestamp maintained by the server, and deleted_rows records
+-- the deletions made by the application, so that clients only fetch the rows changed since their last sync.
+
+USE NotesManager;
+
+ALTER TABLE binders
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE tabs
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE notes
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+CREATE INDEX IDX_binders_user_updated ON binders (user_id, updated_at);
+CREATE INDEX IDX_tabs_updated ON tabs (updated_at);
+CREATE INDEX IDX_notes_updated ON notes (updated_at);
+
+CREATE TABLE deleted_rows
+(
+    deletion_id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+    user_id     INT UNSIGNED NOT NULL,
+    entity_type CHAR(1)      NOT NULL,
+    entity_id   INT UNSIGNED NOT NULL,
+    deleted_at  TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (deletion_id),
+    FOREIGN KEY (user_id) REFERENCES users (user_id)
+        ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX IDX_deleted_rows_user ON deleted_rows (user_id, deleted_at);
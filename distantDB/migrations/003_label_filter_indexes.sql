@@ -0,0 +1,8 @@
+-- Adds the indexes used to filter the notebook by label on the server.
+-- The notebook filter reads notes through note_label1_id = ? OR note_label2_id = ?, which MariaDB resolves
+-- as an index merge over these two indexes; tab_id is included to resolve the join to tabs from the index.
+
+USE NotesManager;
+
+CREATE INDEX IDX_notes_label1 ON notes (note_label1_id, tab_id);
+CREATE INDEX IDX_notes_label2 ON notes (note_label2_id, tab_id);
@@ -0,0 +1,7 @@
+-- Adds the index used to read the notes of a tab page by page.
+-- Each page resumes after the last note of the previous one with (note_name > ? OR (note_name = ? AND note_id > ?))
+-- ordered by note_name, note_id, which MariaDB reads as a range of this index, whatever the position of the page in the tab.
+
+USE NotesManager;
+
+CREATE INDEX IDX_notes_tab_name ON notes (tab_id, note_name, note_id);
@@ -0,0 +1,11 @@
+-- Adds a version number to note contents on an existing NotesManager database.
+-- notes.content_version is incremented by every save of a note content, full or as a delta. A delta is only inserted
+-- if content_version still holds the version it was computed from, which note_deltas.delta_base_version records,
+-- so two writers can no longer append deltas computed from the same base content.
+
+USE NotesManager;
+
+ALTER TABLE notes
+    ADD COLUMN content_version INT UNSIGNED NOT NULL DEFAULT 0;
+ALTER TABLE note_deltas
+    ADD COLUMN delta_base_version INT UNSIGNED NOT NULL DEFAULT 0;
@@ -0,0 +1,211 @@
+package fr.serfa.notesmanager;
+
+import javafx.application.Platform;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * La classe AsyncDatabaseManager est une façade asynchrone de DatabaseManager.
+ * Les opérations sont exécutées sur des threads virtuels, dans la limite d'un nombre maximal d'opérations simultanées,
+ * et renvoient des CompletableFuture. Les futures sont complétées sur l'exécuteur de rappel configuré,
+ * par défaut le thread de l'interface JavaFX, ce qui permet de mettre à jour l'interface directement dans les rappels.
+ */
+public abstract class AsyncDatabaseManager {
+
+
+    /**
+     * Interface fonctionnelle représentant une opération sur la base de données pouvant lever une exception.
+     *
+     * @param <T> Le type du résultat de l'opération.
+     */
+    @FunctionalInterface
+    public interface DatabaseTask<T> {
+
+        /**
+         * Exécute l'opération.
+         *
+         * @return Le résultat de l'opération.
+         * @throws Exception Si l'opération échoue.
+         */
+        T run() throws Exception;
+    }
+
+
+    /**
+     * L'exécuteur qui lance chaque opération sur un nouveau thread virtuel.
+     */
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+
+    /**
+     * Les permis limitant le nombre d'opérations exécutées simultanément.
+     * Par défaut, il y en a autant que de connexions dans le pool, pour ne pas accumuler des threads en attente d'une connexion.
+     */
+    private static final Semaphore permits = new Semaphore(
+            (int) Math.max(1, DatabaseManager.longProperty("asyncMaxConcurrency", DatabaseManager.longProperty("poolMaxSize", 8)))
+    );
+
+
+    /**
+     * L'exécuteur sur lequel les futures sont complétées.
+     */
+    private static volatile Executor callbackExecutor = Platform::runLater;
+
+
+    /**
+     * Définit l'exécuteur sur lequel les futures sont complétées par défaut.
+     *
+     * @param executor L'exécuteur de rappel, par exemple Platform::runLater ou Runnable::run.
+     */
+    public static void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+
+    /**
+     * Exécute une opération de manière asynchrone.
+     * La future est complétée sur l'exécuteur de rappel par défaut.
+     *
+     * @param task L'opération à exécuter.
+     * @param <T>  Le type du résultat de l'opération.
+     * @return Une future complétée avec le résultat de l'opération, ou avec l'exception qu'elle a levée.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(DatabaseTask<T> task) {
+        return supplyAsync(task, callbackExecutor);
+    }
+
+
+    /**
+     * Exécute une opération de manière asynchrone et complète la future sur l'exécuteur fourni.
+     * Une future annulée avant le début de l'opération ne l'exécute pas.
+     *
+     * @param task             L'opération à exécuter.
+     * @param completionExecutor L'exécuteur sur lequel la future est complétée.
+     * @param <T>              Le type du résultat de l'opération.
+     * @return Une future complétée avec le résultat de l'opération, ou avec l'exception qu'elle a levée.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(DatabaseTask<T> task, Executor completionExecutor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                completionExecutor.execute(() -> future.completeExceptionally(e));
+                return;
+            }
+
+            try {
+                if (future.isDone()) {
+                    return;
+                }
+                T result = task.run();
+                completionExecutor.execute(() -> future.complete(result));
+            } catch (Throwable t) {
+                completionExecutor.execute(() -> future.completeExceptionally(t));
+            } finally {
+                permits.release();
+            }
+        });
+
+        return future;
+    }
+
+
+    /**
+     * Exécute une opération sans résultat de manière asynchrone.
+     *
+     * @param task L'opération à exécuter.
+     * @return Une future complétée à la fin de l'opération, ou avec l'exception qu'elle a levée.
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return supplyAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+
+    /**
+     * Exécute une requête SELECT précompilée de manière asynchrone.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @return Une future complétée avec le résultat de la requête, ou avec une SQLException si la requête a échoué.
+     */
+    public static CompletableFuture<ResultSet> select(QueryTemplate template, String... parameters) {
+        return supplyAsync(() -> {
+            ResultSet resultSet = DatabaseManager.select(template, parameters);
+            if (resultSet == null) {
+                throw new SQLException("Échec de la requête " + template);
+            }
+            return resultSet;
+        });
+    }
+
+
+    /**
+     * Exécute une requête INSERT précompilée de manière asynchrone.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs à insérer, dans l'ordre.
+     * @return Une future complétée avec l'ID de la ligne insérée (0 en cas de violation de contrainte d'intégrité),
+     * ou avec une SQLException si la requête a échoué.
+     */
+    public static CompletableFuture<Integer> insert(QueryTemplate template, String... parameters) {
+        return supplyAsync(() -> checkResult(template, DatabaseManager.insert(template, parameters)));
+    }
+
+
+    /**
+     * Exécute une requête UPDATE ou DELETE précompilée de manière asynchrone.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @return Une future complétée avec le nombre de lignes affectées (0 en cas de violation de contrainte d'intégrité),
+     * ou avec une SQLException si la requête a échoué.
+     */
+    public static CompletableFuture<Integer> execute(QueryTemplate template, String... parameters) {
+        return supplyAsync(() -> checkResult(template, DatabaseManager.execute(template, parameters)));
+    }
+
+
+    /**
+     * Exécute une procédure stockée précompilée de manière asynchrone.
+     *
+     * @param template     L'appel de procédure à exécuter.
+     * @param inParameters Les paramètres d'entrée pour la procédure stockée.
+     * @return Une future complétée avec la valeur du paramètre de sortie, ou avec une SQLException si l'appel a échoué.
+     */
+    public static CompletableFuture<Integer> call(QueryTemplate template, String... inParameters) {
+        return supplyAsync(() -> checkResult(template, DatabaseManager.call(template, inParameters)));
+    }
+
+
+    /**
+     * Arrête l'exécuteur. Les opérations en cours se terminent, les nouvelles sont refusées.
+     * Appelée à l'arrêt de l'application.
+     */
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+
+    /**
+     * Convertit le code d'erreur -1 de DatabaseManager en SQLException.
+     */
+    private static int checkResult(QueryTemplate template, int result) throws SQLException {
+        if (result == -1) {
+            throw new SQLException("Échec de la requête " + template);
+        }
+        return result;
+    }
+
+}
@@ -1,8 +1,11 @@
 package fr.serfa.notesmanager;
 
 
-import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 
 /**
@@ -25,6 +28,25 @@ public class Binder {
     private ArrayList<Tab> tabs = new ArrayList<>();
 
 
+    /**
+     * Les onglets de ce classeur indexés par ID, tenus à jour avec la liste des onglets.
+     */
+    private final Map<Integer, Tab> tabsByID = new HashMap<>();
+
+
+    /**
+     * Les onglets de ce classeur indexés par nom, tenus à jour avec la liste des onglets et le renommage des onglets.
+     */
+    private final Map<String, Tab> tabsByName = new HashMap<>();
+
+
+    /**
+     * Indique si les onglets de ce classeur ont été lus en base de données. Un classeur lu par le chargement à la demande
+     * du carnet de notes n'a pas encore ses onglets, qui sont lus à son dépliage dans l'arborescence (loadTabs).
+     */
+    private boolean tabsLoaded = true;
+
+
     /**
      * L'identifiant unique pour ce classeur.
      */
@@ -71,6 +93,16 @@ public class Binder {
     }
 
 
+    /**
+     * Récupère le carnet de notes parent de ce classeur.
+     *
+     * @return Le carnet de notes parent.
+     */
+    public Notebook getNotebook() {
+        return this.notebook;
+    }
+
+
     /**
      * Récupère l'identifiant unique du classeur.
      *
@@ -118,61 +150,160 @@ public class Binder {
      */
     public void addTabToList(Tab tab) {
         tabs.add(tab);
+        tabsByID.put(tab.getTabID(), tab);
+        tabsByName.put(tab.getTabName(), tab);
+        notebook.registerTab(this, tab);
     }
 
 
     /**
-     * Récupère tous les onglets associés à ce classeur à partir de la base de données.
+     * Indique si les onglets de ce classeur ont été lus en base de données.
      *
-     * @return Une ArrayList contenant tous les objets Tab associés à ce classeur.
+     * @return true si la liste des onglets est complète.
+     */
+    public boolean isTabsLoaded() {
+        return tabsLoaded;
+    }
+
+
+    /**
+     * Marque les onglets de ce classeur comme pas encore lus, pour le chargement à la demande du carnet de notes.
+     */
+    void markTabsNotLoaded() {
+        this.tabsLoaded = false;
+    }
+
+
+    /**
+     * Lit les onglets de ce classeur en base de données, s'ils n'ont pas encore été lus.
+     *
+     * @return Le nombre d'onglets du classeur, ou -1 en cas d'erreur.
+     */
+    public int loadTabs() {
+        if (tabsLoaded) {
+            return tabs.size();
+        }
+        return applyFetchedTabs(fetchAllTabs());
+    }
+
+
+    /**
+     * Ajoute à ce classeur les onglets lus par fetchAllTabs(), par exemple sur un autre thread par le préchargement de l'arborescence.
+     * Les onglets déjà présents, créés pendant la session, ne sont pas ajoutés une seconde fois.
+     * Sans effet si les onglets ont déjà été lus entre-temps. Doit être appelée sur le thread de l'interface.
+     *
+     * @param fetchedTabs Les onglets lus, ou null en cas d'erreur de lecture.
+     * @return Le nombre d'onglets du classeur, ou -1 en cas d'erreur.
+     */
+    int applyFetchedTabs(List<Tab> fetchedTabs) {
+        if (tabsLoaded) {
+            return tabs.size();
+        }
+        if (fetchedTabs == null) {
+            return -1;
+        }
+        for (Tab tab : fetchedTabs) {
+            if (!tabsByID.containsKey(tab.getTabID())) {
+                addTabToList(tab);
+            }
+        }
+        tabsLoaded = true;
+        return tabs.size();
+    }
+
+
+    /**
+     * Met à jour le nom et la couleur de ce classeur à partir d'une ligne lue par la synchronisation du carnet de notes.
+     *
+     * @param binderName    Le nom du classeur.
+     * @param binderColorID L'identifiant de la couleur du classeur.
+     */
+    void applyChange(String binderName, int binderColorID) {
+        rename(binderName);
+        this.binderColorID = binderColorID;
+    }
+
+
+    /**
+     * Recherche un onglet de ce classeur par son identifiant.
+     *
+     * @param tabID L'identifiant de l'onglet à rechercher.
+     * @return L'onglet trouvé, ou null si aucun onglet n'a cet identifiant.
      */
-    private ArrayList<Tab> fetchAllTabs() {
+    public Tab findTabByID(int tabID) {
+        return tabsByID.get(tabID);
+    }
+
+
+    /**
+     * Retire un onglet de la liste des onglets de ce classeur, sans le supprimer de la base de données.
+     *
+     * @param tabID L'identifiant de l'onglet à retirer.
+     * @return true si l'onglet a été retiré.
+     */
+    boolean removeTabFromList(int tabID) {
+        Tab tab = tabsByID.remove(tabID);
+        if (tab == null) {
+            return false;
+        }
+        tabsByName.remove(tab.getTabName(), tab);
+        tabs.remove(tab);
+        notebook.unregisterTab(tab);
+        return true;
+    }
+
+
+    /**
+     * Met à jour les index des onglets par nom, de ce classeur et du carnet de notes, après le renommage d'un onglet de ce classeur.
+     *
+     * @param tab     L'onglet renommé.
+     * @param oldName L'ancien nom de l'onglet.
+     */
+    void tabRenamed(Tab tab, String oldName) {
+        if (tabsByID.get(tab.getTabID()) == tab) {
+            tabsByName.remove(oldName, tab);
+            tabsByName.put(tab.getTabName(), tab);
+            notebook.tabRenamed(tab, oldName);
+        }
+    }
+
+
+    /**
+     * Renomme ce classeur en mémoire et met à jour l'index des classeurs par nom du carnet de notes.
+     */
+    private void rename(String newName) {
+        String oldName = this.binderName;
+        this.binderName = newName;
+        if (!Objects.equals(newName, oldName)) {
+            notebook.binderRenamed(this, oldName);
+        }
+    }
+
+
+    /**
+     * Récupère tous les onglets associés à ce classeur à partir de la base de données, sans les ajouter au classeur.
+     * Leurs notes ne sont pas lues : elles le sont au dépliage de chaque onglet (Tab.loadNotes).
+     * Ne modifie pas le classeur, et peut donc être appelée sur un autre thread que celui de l'interface.
+     *
+     * @return Une ArrayList contenant tous les objets Tab associés à ce classeur, ou null en cas d'erreur.
+     */
+    ArrayList<Tab> fetchAllTabs() {
         System.out.println("\n***");
         System.out.println("fetchAllTabs() for userID " + this.userID + " / binder " + binderID);
 
-        // Les champs à récupérer de la table 'tabs'.
-        String[] fields = {
-                "tabs.tab_id",
-                "tabs.tab_name",
-                "tabs.tab_color_id"
-        };
-
-        // Le champ de condition pour la requête SELECT.
-        String[] conditionFields = {"binder_id"};
-
-        // La valeur de condition pour la requête SELECT.
-        String[] conditionValues = {String.valueOf(binderID)};
-
-        // Exécute la requête SELECT et récupère le ResultSet.
-        ResultSet resultSet = DatabaseManager.select(
-                "tabs",
-                fields,
-                conditionFields,
-                conditionValues
-        );
-
-        // Crée une ArrayList pour stocker tous les objets Tab.
-        ArrayList<Tab> tabs = new ArrayList<>();
-
-        // Analyse les résultats de la requête pour créer de nouveaux objets Tab et les stocker dans l'ArrayList.
-        try {
-            while (resultSet.next()) {
-                // Récupère les données du resultSet.
-                int tabID = resultSet.getInt(1);
-                String tabName = resultSet.getString(2);
-                int tabColorID = resultSet.getInt(3);
-
-                // Imprime les données du resultSet.
-                System.out.println("\t> " + tabID + " / " + tabName + " / " + tabColorID);
-
-                // Crée un nouvel objet Tab avec les données analysées et l'ajoute à l'ArrayList.
-                tabs.add(new Tab(this, tabID, tabName, tabColorID));
-            }
-        } catch (Exception e) {
-            System.out.println("Error : " + e);
+        // Exécute la requête SELECT et crée un objet Tab pour chaque ligne, lue par position (tab_id, tab_name, tab_color_id).
+        List<Tab> tabs = TypedQuery.of(QueryTemplate.BINDER_SELECT_TABS)
+                .setInt(binderID)
+                .list(row -> new Tab(this, row.getInt(1), row.getString(2), row.getInt(3)));
+
+        if (tabs == null) {
             return null;
         }
-        return tabs;
+        for (Tab tab : tabs) {
+            System.out.println("\t> " + tab.getTabID() + " / " + tab.getTabName() + " / " + tab.getTabColorID());
+            tab.markNotesNotLoaded();
+        }
+        return new ArrayList<>(tabs);
     }
 
 
@@ -183,17 +314,36 @@ public class Binder {
      * @return Le résultat de la mise à jour dans la base de données. Si le résultat est supérieur à 0, la mise à jour a réussi.
      */
     public int editName(String newName) {
-        int result = DatabaseManager.update(
-                "binders",
-                "binder_name",
-                newName,
-                "binder_id",
-                String.valueOf(this.binderID));
+        return nameEdited(newName, updateName(newName));
+    }
+
+
+    /**
+     * Modifie le nom du classeur dans la base de données, sans le modifier dans l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param newName Le nouveau nom du classeur.
+     * @return Le résultat de la mise à jour dans la base de données.
+     */
+    int updateName(String newName) {
+        return TypedQuery.of(QueryTemplate.BINDER_UPDATE_NAME)
+                .setString(newName)
+                .setInt(this.binderID)
+                .execute();
+    }
+
 
+    /**
+     * Renomme le classeur dans l'objet après updateName(), si la mise à jour a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param newName Le nouveau nom du classeur.
+     * @param result  Le résultat de updateName().
+     * @return Le résultat de la mise à jour.
+     */
+    int nameEdited(String newName, int result) {
         if (result > 0) {
-            this.binderName = newName;
+            rename(newName);
         }
-
         return result;
     }
 
@@ -205,18 +355,36 @@ public class Binder {
      * @return Le résultat de la mise à jour dans la base de données. Si le résultat est supérieur à 0, la mise à jour a réussi.
      */
     public int editColor(int newColorID) {
-        int result = DatabaseManager.update(
-                "binders",
-                "binder_color_id",
-                String.valueOf(newColorID),
-                "binder_id",
-                String.valueOf(this.binderID)
-        );
+        return colorEdited(newColorID, updateColor(newColorID));
+    }
 
+
+    /**
+     * Modifie la couleur du classeur dans la base de données, sans la modifier dans l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param newColorID Le nouvel identifiant de couleur du classeur.
+     * @return Le résultat de la mise à jour dans la base de données.
+     */
+    int updateColor(int newColorID) {
+        return TypedQuery.of(QueryTemplate.BINDER_UPDATE_COLOR)
+                .setInt(newColorID)
+                .setInt(this.binderID)
+                .execute();
+    }
+
+
+    /**
+     * Modifie la couleur du classeur dans l'objet après updateColor(), si la mise à jour a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param newColorID Le nouvel identifiant de couleur du classeur.
+     * @param result     Le résultat de updateColor().
+     * @return Le résultat de la mise à jour.
+     */
+    int colorEdited(int newColorID, int result) {
         if (result > 0) {
             this.binderColorID = newColorID;
         }
-
         return result;
     }
 
@@ -236,41 +404,87 @@ public class Binder {
             return null;
         }
 
+        return tabCreated(insertTab(tabName, tabColorID), tabName, tabColorID);
+    }
+
+
+    /**
+     * Insère un nouvel onglet dans la base de données, sans l'ajouter au classeur.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param tabName    Le nom du nouvel onglet.
+     * @param tabColorID L'identifiant de couleur du nouvel onglet.
+     * @return L'identifiant du nouvel onglet, ou une valeur inférieure ou égale à 0 en cas d'échec.
+     */
+    int insertTab(String tabName, int tabColorID) {
         System.out.println("\n***");
         System.out.println("createTab() : " + tabName + " / binderID " + binderID + " / colorID " + tabColorID);
 
-        String[] fields = {"tab_name", "binder_id", "tab_color_id"};
-        String[] values = {tabName, String.valueOf(binderID), String.valueOf(tabColorID)};
+        return TypedQuery.of(QueryTemplate.BINDER_INSERT_TAB)
+                .setString(tabName)
+                .setInt(binderID)
+                .setInt(tabColorID)
+                .insert();
+    }
 
-        int tabID = DatabaseManager.insert("tabs", fields, values);
 
+    /**
+     * Ajoute au classeur un onglet inséré par insertTab(). Doit être appelée sur le thread de l'interface.
+     *
+     * @param tabID      L'identifiant du nouvel onglet.
+     * @param tabName    Le nom du nouvel onglet.
+     * @param tabColorID L'identifiant de couleur du nouvel onglet.
+     * @return Le nouvel onglet.
+     */
+    Tab tabCreated(int tabID, String tabName, int tabColorID) {
         Tab tab = new Tab(this, tabID, tabName, tabColorID);
-        tabs.add(tab);
-
+        addTabToList(tab);
         return tab;
     }
 
 
     /**
      * Supprime un onglet de la base de données.
+     * La suppression est enregistrée dans deleted_rows dans la même transaction, pour la synchronisation des autres sessions.
      *
      * @param tabID L'identifiant unique de l'onglet à supprimer.
      * @return Le résultat de la suppression dans la base de données. Si le résultat est supérieur à 0, la suppression a réussi.
      */
     public int deleteTab(int tabID) {
+        return tabDeleted(tabID, deleteTabRows(tabID));
+    }
+
+
+    /**
+     * Supprime un onglet de la base de données et enregistre sa suppression dans deleted_rows, sans le retirer du classeur.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param tabID L'identifiant unique de l'onglet à supprimer.
+     * @return Le résultat de la suppression dans la base de données, ou -1 en cas d'échec.
+     */
+    int deleteTabRows(int tabID) {
         System.out.println("\n***");
         System.out.println("deleteTab() : " + " tabID " + tabID);
 
-        int result = DatabaseManager.delete("tabs", "tab_id", String.valueOf(tabID));
+        Integer deleted = DatabaseManager.transaction(() -> {
+            TypedQuery.of(QueryTemplate.SYNC_RECORD_TAB_DELETION).setInt(tabID).execute();
+            return TypedQuery.of(QueryTemplate.BINDER_DELETE_TAB).setInt(tabID).execute();
+        });
+        return deleted == null ? -1 : deleted;
+    }
+
 
-        // Si la requête est réussie, supprime l'objet Binder de l'ArrayList
+    /**
+     * Retire du classeur un onglet supprimé par deleteTabRows(), si la suppression a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param tabID  L'identifiant de l'onglet supprimé.
+     * @param result Le résultat de deleteTabRows().
+     * @return Le résultat de la suppression.
+     */
+    int tabDeleted(int tabID, int result) {
+        // Si la requête est réussie, supprime l'objet Tab de l'ArrayList et des index du carnet de notes
         if (result > 0) {
-            for (Tab tab : tabs) {
-                if (tab.getTabID() == tabID) {
-                    tabs.remove(tab);
-                    break;
-                }
-            }
+            removeTabFromList(tabID);
         }
         return result;
     }
@@ -293,12 +507,7 @@ public class Binder {
      * @return L'onglet trouvé. Si aucun onglet n'est trouvé, retourne null.
      */
     public Tab findTabByName(String tabName) {
-        for (Tab tab : this.tabs) {
-            if (tab.getTabName().equals(tabName)) {
-                return tab;
-            }
-        }
-        return null;
+        return tabsByName.get(tabName);
     }
 
 }
\ No newline at end of file
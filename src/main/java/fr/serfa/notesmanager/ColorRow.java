@@ -0,0 +1,26 @@
+package fr.serfa.notesmanager;
+
+/**
+ * Une ligne de la table colors (requête QueryTemplate.COLOR_SELECT_ALL).
+ *
+ * @param colorID   L'ID de la couleur.
+ * @param colorName Le nom de la couleur.
+ * @param colorHex  La valeur hexadécimale de la couleur.
+ */
+public record ColorRow(int colorID, String colorName, String colorHex) {
+
+    public static final Column<Integer> COLOR_ID = Column.ofInt(1, "color_id");
+    public static final Column<String> COLOR_NAME = Column.ofString(2, "color_name");
+    public static final Column<String> COLOR_HEX = Column.ofString(3, "color_hex");
+
+
+    /**
+     * Convertit la ligne courante du résultat en ColorRow.
+     */
+    public static final DatabaseManager.RowMapper<ColorRow> MAPPER = row -> new ColorRow(
+            COLOR_ID.getInt(row),
+            COLOR_NAME.get(row),
+            COLOR_HEX.get(row)
+    );
+
+}
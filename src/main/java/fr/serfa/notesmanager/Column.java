@@ -0,0 +1,122 @@
+package fr.serfa.notesmanager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+/**
+ * La classe Column décrit une colonne du résultat d'une requête : sa position, son nom et la méthode de lecture de son type.
+ * Les colonnes sont lues par position, sans recherche du nom dans les métadonnées ni conversion de texte.
+ *
+ * @param <T> Le type Java de la colonne.
+ */
+public final class Column<T> {
+
+
+    /**
+     * Interface fonctionnelle lisant une colonne à une position donnée.
+     */
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(ResultSet row, int index) throws SQLException;
+    }
+
+
+    private final int index;
+    private final String name;
+    private final Reader<T> reader;
+
+
+    private Column(int index, String name, Reader<T> reader) {
+        this.index = index;
+        this.name = name;
+        this.reader = reader;
+    }
+
+
+    /**
+     * Crée une colonne entière, lue avec getInt. Une valeur NULL est lue comme null.
+     *
+     * @param index La position de la colonne, à partir de 1.
+     * @param name  Le nom de la colonne.
+     * @return La colonne.
+     */
+    public static Column<Integer> ofInt(int index, String name) {
+        return new Column<>(index, name, (row, i) -> {
+            int value = row.getInt(i);
+            return row.wasNull() ? null : value;
+        });
+    }
+
+
+    /**
+     * Crée une colonne entière longue, lue avec getLong. Une valeur NULL est lue comme null.
+     *
+     * @param index La position de la colonne, à partir de 1.
+     * @param name  Le nom de la colonne.
+     * @return La colonne.
+     */
+    public static Column<Long> ofLong(int index, String name) {
+        return new Column<>(index, name, (row, i) -> {
+            long value = row.getLong(i);
+            return row.wasNull() ? null : value;
+        });
+    }
+
+
+    /**
+     * Crée une colonne texte, lue avec getString.
+     *
+     * @param index La position de la colonne, à partir de 1.
+     * @param name  Le nom de la colonne.
+     * @return La colonne.
+     */
+    public static Column<String> ofString(int index, String name) {
+        return new Column<>(index, name, ResultSet::getString);
+    }
+
+
+    /**
+     * Lit la valeur de la colonne dans la ligne courante.
+     *
+     * @param row Le ResultSet positionné sur la ligne.
+     * @return La valeur de la colonne.
+     * @throws SQLException Si la colonne ne peut pas être lue.
+     */
+    public T get(ResultSet row) throws SQLException {
+        return reader.read(row, index);
+    }
+
+
+    /**
+     * Lit la valeur d'une colonne entière non NULL dans la ligne courante, sans conversion en Integer.
+     *
+     * @param row Le ResultSet positionné sur la ligne.
+     * @return La valeur de la colonne, 0 si elle est NULL.
+     * @throws SQLException Si la colonne ne peut pas être lue.
+     */
+    public int getInt(ResultSet row) throws SQLException {
+        return row.getInt(index);
+    }
+
+
+    /**
+     * Récupère la position de la colonne.
+     *
+     * @return La position de la colonne, à partir de 1.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+
+    /**
+     * Récupère le nom de la colonne.
+     *
+     * @return Le nom de la colonne.
+     */
+    public String getName() {
+        return name;
+    }
+
+}
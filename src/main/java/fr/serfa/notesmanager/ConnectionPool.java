@@ -0,0 +1,799 @@
+package fr.serfa.notesmanager;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * La classe ConnectionPool gère un ensemble borné de connexions JDBC réutilisables.
+ * Elle évite de payer l'établissement et l'authentification d'une connexion à chaque requête.
+ * Les connexions inactives sont validées avant d'être prêtées, évincées après un délai d'inactivité
+ * et remplacées lorsqu'elles dépassent leur durée de vie maximale.
+ * Une connexion empruntée trop longtemps est signalée comme une fuite probable.
+ * Chaque connexion conserve un cache LRU de ses instructions préparées, indexé par le texte SQL.
+ */
+public final class ConnectionPool {
+
+
+    /**
+     * Interface fonctionnelle utilisée par le pool pour ouvrir une nouvelle connexion physique.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+
+        /**
+         * Ouvre une nouvelle connexion physique à la base de données.
+         *
+         * @return La nouvelle connexion.
+         * @throws SQLException Si la connexion ne peut pas être établie.
+         */
+        Connection create() throws SQLException;
+    }
+
+
+    /**
+     * Instantané des statistiques du pool à un instant donné.
+     *
+     * @param active          Le nombre de connexions actuellement empruntées.
+     * @param idle            Le nombre de connexions inactives disponibles.
+     * @param total           Le nombre total de connexions ouvertes ou en cours d'ouverture.
+     * @param waiting         Le nombre de threads en attente d'une connexion.
+     * @param borrows         Le nombre total d'emprunts depuis la création du pool.
+     * @param averageWaitMicros Le temps d'attente moyen d'un emprunt, en microsecondes.
+     * @param maxWaitMicros   Le temps d'attente maximal d'un emprunt, en microsecondes.
+     * @param timeouts        Le nombre d'emprunts ayant échoué faute de connexion disponible à temps.
+     * @param created         Le nombre de connexions physiques ouvertes.
+     * @param closed          Le nombre de connexions physiques fermées.
+     * @param leaks           Le nombre de fuites de connexion détectées.
+     * @param statementCacheHits   Le nombre d'instructions préparées réutilisées depuis le cache.
+     * @param statementCacheMisses Le nombre d'instructions préparées compilées faute d'être en cache.
+     */
+    public record Stats(
+            int active,
+            int idle,
+            int total,
+            int waiting,
+            long borrows,
+            long averageWaitMicros,
+            long maxWaitMicros,
+            long timeouts,
+            long created,
+            long closed,
+            long leaks,
+            long statementCacheHits,
+            long statementCacheMisses
+    ) {
+    }
+
+
+    /**
+     * Une instruction prêtée par le pool, à fermer après usage (try-with-resources).
+     * La fermeture laisse ouverte une instruction conservée dans le cache de la connexion, pour sa réutilisation,
+     * et ferme les autres : cache désactivé, connexion qui n'est pas empruntée au pool, ou instruction exclue du cache par l'appelant.
+     *
+     * @param statement L'instruction.
+     * @param cached    Indique si l'instruction appartient au cache de la connexion.
+     */
+    public record PooledStatement<S extends Statement>(S statement, boolean cached) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            if (!cached) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+
+    /**
+     * Une connexion physique et les informations de suivi associées.
+     */
+    private static final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, Statement> statementCache;
+        private final long createdAt = System.currentTimeMillis();
+        private long lastUsedAt = createdAt;
+        private long borrowedAt;
+        private Throwable borrowSite;
+        private boolean leakReported;
+
+        private PooledConnection(Connection connection, int statementCacheSize) {
+            this.connection = connection;
+            // Cache LRU en ordre d'accès : l'instruction la moins récemment utilisée est fermée au-delà de la capacité
+            this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+                    if (size() > statementCacheSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+
+    /**
+     * Le nom du pool, utilisé dans les messages de la console.
+     */
+    private final String poolName;
+
+
+    /**
+     * La fabrique utilisée pour ouvrir les connexions physiques.
+     */
+    private final ConnectionFactory factory;
+
+
+    /**
+     * Le nombre minimal de connexions inactives maintenues par le pool.
+     */
+    private final int minIdle;
+
+
+    /**
+     * Le nombre maximal de connexions ouvertes simultanément.
+     */
+    private final int maxSize;
+
+
+    /**
+     * Le délai maximal d'attente d'une connexion, en millisecondes.
+     */
+    private final long connectionTimeoutMs;
+
+
+    /**
+     * La durée d'inactivité au-delà de laquelle une connexion est validée avant d'être prêtée, en millisecondes.
+     */
+    private final long validationIntervalMs;
+
+
+    /**
+     * La durée d'inactivité au-delà de laquelle une connexion excédentaire est fermée, en millisecondes.
+     */
+    private final long idleTimeoutMs;
+
+
+    /**
+     * La durée de vie maximale d'une connexion physique, en millisecondes.
+     */
+    private final long maxLifetimeMs;
+
+
+    /**
+     * La durée d'emprunt au-delà de laquelle une fuite est signalée, en millisecondes (0 pour désactiver).
+     */
+    private final long leakThresholdMs;
+
+
+    /**
+     * Le nombre maximal d'instructions préparées conservées par connexion (0 pour désactiver le cache).
+     */
+    private final int statementCacheSize;
+
+
+    /**
+     * Les connexions inactives, la plus récemment utilisée en tête.
+     */
+    private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<>();
+
+
+    /**
+     * Les connexions empruntées, indexées par la connexion physique.
+     */
+    private final Map<Connection, PooledConnection> activeConnections = new IdentityHashMap<>();
+
+
+    /**
+     * Le verrou protégeant l'état du pool.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+
+    /**
+     * La condition signalée lorsqu'une connexion est rendue au pool.
+     */
+    private final Condition connectionAvailable = lock.newCondition();
+
+
+    /**
+     * La tâche de maintenance périodique (éviction, durée de vie, détection de fuites, préchauffage).
+     */
+    private final ScheduledExecutorService housekeeper;
+
+
+    private int totalConnections;
+    private int waitingThreads;
+    private boolean closed;
+    private long borrowCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long timeoutCount;
+    private long createdCount;
+    private long closedCount;
+    private long leakCount;
+    private long statementCacheHits;
+    private long statementCacheMisses;
+
+
+    /**
+     * Constructeur de la classe ConnectionPool.
+     *
+     * @param poolName              Le nom du pool.
+     * @param factory               La fabrique utilisée pour ouvrir les connexions physiques.
+     * @param minIdle               Le nombre minimal de connexions inactives.
+     * @param maxSize               Le nombre maximal de connexions.
+     * @param connectionTimeoutMs   Le délai maximal d'attente d'une connexion, en millisecondes.
+     * @param validationIntervalMs  La durée d'inactivité au-delà de laquelle une connexion est validée, en millisecondes.
+     * @param idleTimeoutMs         La durée d'inactivité au-delà de laquelle une connexion excédentaire est fermée, en millisecondes.
+     * @param maxLifetimeMs         La durée de vie maximale d'une connexion, en millisecondes.
+     * @param leakThresholdMs       La durée d'emprunt au-delà de laquelle une fuite est signalée, en millisecondes (0 pour désactiver).
+     * @param housekeepingPeriodMs  La période de la tâche de maintenance, en millisecondes.
+     * @param statementCacheSize    Le nombre maximal d'instructions préparées conservées par connexion.
+     */
+    public ConnectionPool(
+            String poolName,
+            ConnectionFactory factory,
+            int minIdle,
+            int maxSize,
+            long connectionTimeoutMs,
+            long validationIntervalMs,
+            long idleTimeoutMs,
+            long maxLifetimeMs,
+            long leakThresholdMs,
+            long housekeepingPeriodMs,
+            int statementCacheSize
+    ) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize doit être supérieur ou égal à 1");
+        }
+        this.poolName = poolName;
+        this.factory = factory;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.maxSize = maxSize;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, poolName + "-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingPeriodMs, housekeepingPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Ouvre des connexions jusqu'à atteindre le nombre minimal de connexions inactives.
+     * Cette méthode est appelée au démarrage pour que la première requête ne paie pas l'établissement de la connexion.
+     */
+    public void warmUp() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idleConnections.size() >= minIdle || totalConnections >= maxSize) {
+                    return;
+                }
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                PooledConnection pooledConnection = new PooledConnection(factory.create(), statementCacheSize);
+                lock.lock();
+                try {
+                    createdCount++;
+                    idleConnections.addLast(pooledConnection);
+                    connectionAvailable.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                lock.lock();
+                try {
+                    totalConnections--;
+                } finally {
+                    lock.unlock();
+                }
+                System.out.println("Pool " + poolName + " : échec du préchauffage : " + e);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Emprunte une connexion au pool.
+     * Une connexion inactive est réutilisée si possible, sinon une nouvelle connexion est ouverte tant que la taille maximale n'est pas atteinte.
+     * Au-delà, l'appel attend qu'une connexion soit rendue, jusqu'au délai maximal configuré.
+     *
+     * @return Une connexion prête à l'emploi, à rendre avec {@link #release(Connection)}.
+     * @throws SQLException Si aucune connexion n'a pu être obtenue.
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMs);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean mustCreate = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Le pool " + poolName + " est fermé");
+                    }
+                    candidate = idleConnections.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        mustCreate = true;
+                        break;
+                    }
+                    if (remainingNanos <= 0) {
+                        timeoutCount++;
+                        throw new SQLTimeoutException("Aucune connexion disponible dans le pool " + poolName
+                                + " après " + connectionTimeoutMs + " ms");
+                    }
+                    waitingThreads++;
+                    try {
+                        remainingNanos = connectionAvailable.awaitNanos(remainingNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Attente d'une connexion interrompue", e);
+                    } finally {
+                        waitingThreads--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mustCreate) {
+                try {
+                    candidate = new PooledConnection(factory.create(), statementCacheSize);
+                } catch (SQLException | RuntimeException e) {
+                    lock.lock();
+                    try {
+                        totalConnections--;
+                        connectionAvailable.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+                lock.lock();
+                try {
+                    createdCount++;
+                } finally {
+                    lock.unlock();
+                }
+            } else if (!isUsable(candidate)) {
+                discard(candidate);
+                continue;
+            }
+
+            return activate(candidate, System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Rend une connexion au pool.
+     * Une transaction laissée ouverte est annulée et le mode auto-commit est rétabli avant la réutilisation.
+     * Une connexion qui n'appartient pas au pool est simplement fermée.
+     *
+     * @param connection La connexion à rendre.
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        PooledConnection pooledConnection;
+        lock.lock();
+        try {
+            pooledConnection = activeConnections.remove(connection);
+        } finally {
+            lock.unlock();
+        }
+
+        if (pooledConnection == null) {
+            closeQuietly(connection);
+            return;
+        }
+
+        boolean reusable;
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            reusable = !connection.isClosed() && !isExpired(pooledConnection, System.currentTimeMillis());
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (!reusable) {
+            discard(pooledConnection);
+            return;
+        }
+
+        lock.lock();
+        try {
+            pooledConnection.lastUsedAt = System.currentTimeMillis();
+            pooledConnection.borrowSite = null;
+            if (closed) {
+                totalConnections--;
+                closedCount++;
+                closeQuietly(connection);
+            } else {
+                idleConnections.addFirst(pooledConnection);
+                connectionAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Récupère une instruction préparée pour une connexion empruntée, depuis son cache si possible.
+     * Les paramètres d'une instruction réutilisée sont effacés. L'instruction prêtée doit être fermée par l'appelant,
+     * ce qui ne ferme que les instructions qui ne sont pas conservées dans le cache.
+     *
+     * @param connection           La connexion empruntée au pool.
+     * @param sql                  Le texte SQL de l'instruction.
+     * @param returnGeneratedKeys  Indique si l'instruction doit retourner les clés générées.
+     * @return L'instruction préparée.
+     * @throws SQLException Si l'instruction ne peut pas être préparée.
+     */
+    public PooledStatement<PreparedStatement> prepareStatement(Connection connection, String sql, boolean returnGeneratedKeys) throws SQLException {
+        return prepareStatement(connection, sql, returnGeneratedKeys, true);
+    }
+
+
+    /**
+     * Récupère une instruction préparée pour une connexion empruntée, en ne la conservant dans le cache que si cacheable est vrai.
+     * Une instruction dont le texte SQL ne sera probablement pas réutilisé (par exemple le dernier paquet, plus court, d'une insertion par lots)
+     * n'évince ainsi pas du cache les instructions utiles.
+     *
+     * @param connection           La connexion empruntée au pool.
+     * @param sql                  Le texte SQL de l'instruction.
+     * @param returnGeneratedKeys  Indique si l'instruction doit retourner les clés générées.
+     * @param cacheable            Indique si l'instruction peut être conservée dans le cache de la connexion.
+     * @return L'instruction préparée.
+     * @throws SQLException Si l'instruction ne peut pas être préparée.
+     */
+    public PooledStatement<PreparedStatement> prepareStatement(Connection connection, String sql, boolean returnGeneratedKeys, boolean cacheable) throws SQLException {
+        String key = returnGeneratedKeys ? "K:" + sql : sql;
+        Statement cached = cacheable ? lookupStatement(connection, key) : null;
+        if (cached != null) {
+            PreparedStatement statement = (PreparedStatement) cached;
+            statement.clearParameters();
+            return new PooledStatement<>(statement, true);
+        }
+
+        PreparedStatement statement = returnGeneratedKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+        return new PooledStatement<>(statement, cacheable && cacheStatement(connection, key, statement));
+    }
+
+
+    /**
+     * Récupère une instruction d'appel de procédure stockée pour une connexion empruntée, depuis son cache si possible.
+     * L'instruction prêtée doit être fermée par l'appelant, ce qui ne ferme que les instructions qui ne sont pas conservées dans le cache.
+     *
+     * @param connection La connexion empruntée au pool.
+     * @param sql        Le texte SQL de l'appel.
+     * @return L'instruction d'appel.
+     * @throws SQLException Si l'instruction ne peut pas être préparée.
+     */
+    public PooledStatement<CallableStatement> prepareCall(Connection connection, String sql) throws SQLException {
+        String key = "C:" + sql;
+        Statement cached = lookupStatement(connection, key);
+        if (cached != null) {
+            CallableStatement statement = (CallableStatement) cached;
+            statement.clearParameters();
+            return new PooledStatement<>(statement, true);
+        }
+
+        CallableStatement statement = connection.prepareCall(sql);
+        return new PooledStatement<>(statement, cacheStatement(connection, key, statement));
+    }
+
+
+    /**
+     * Recherche une instruction dans le cache de la connexion et met à jour les compteurs du cache.
+     */
+    private Statement lookupStatement(Connection connection, String key) {
+        PooledConnection pooledConnection;
+        lock.lock();
+        try {
+            pooledConnection = activeConnections.get(connection);
+        } finally {
+            lock.unlock();
+        }
+        if (pooledConnection == null || statementCacheSize == 0) {
+            return null;
+        }
+
+        // La connexion empruntée n'est utilisée que par un seul thread : son cache n'a pas besoin de verrou
+        Statement statement = pooledConnection.statementCache.get(key);
+        if (statement != null) {
+            try {
+                if (statement.isClosed()) {
+                    pooledConnection.statementCache.remove(key);
+                    statement = null;
+                }
+            } catch (SQLException e) {
+                pooledConnection.statementCache.remove(key);
+                statement = null;
+            }
+        }
+
+        lock.lock();
+        try {
+            if (statement != null) {
+                statementCacheHits++;
+            } else {
+                statementCacheMisses++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return statement;
+    }
+
+
+    /**
+     * Ajoute une instruction au cache de la connexion.
+     *
+     * @return true si l'instruction a été ajoutée au cache, false si la connexion n'a pas de cache.
+     */
+    private boolean cacheStatement(Connection connection, String key, Statement statement) {
+        PooledConnection pooledConnection;
+        lock.lock();
+        try {
+            pooledConnection = activeConnections.get(connection);
+        } finally {
+            lock.unlock();
+        }
+        if (pooledConnection == null || statementCacheSize == 0) {
+            return false;
+        }
+        pooledConnection.statementCache.put(key, statement);
+        return true;
+    }
+
+
+    /**
+     * Récupère un instantané des statistiques du pool.
+     *
+     * @return Les statistiques du pool.
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(
+                    activeConnections.size(),
+                    idleConnections.size(),
+                    totalConnections,
+                    waitingThreads,
+                    borrowCount,
+                    borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos / borrowCount),
+                    TimeUnit.NANOSECONDS.toMicros(maxWaitNanos),
+                    timeoutCount,
+                    createdCount,
+                    closedCount,
+                    leakCount,
+                    statementCacheHits,
+                    statementCacheMisses
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Ferme le pool et toutes ses connexions inactives.
+     * Les connexions encore empruntées sont fermées lorsqu'elles sont rendues.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+            totalConnections -= toClose.size();
+            closedCount += toClose.size();
+            connectionAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        housekeeper.shutdownNow();
+        for (PooledConnection pooledConnection : toClose) {
+            closeQuietly(pooledConnection.connection);
+        }
+        System.out.println("Pool " + poolName + " fermé");
+    }
+
+
+    /**
+     * Marque une connexion comme empruntée et met à jour les statistiques d'attente.
+     */
+    private Connection activate(PooledConnection pooledConnection, long waitNanos) {
+        lock.lock();
+        try {
+            pooledConnection.borrowedAt = System.currentTimeMillis();
+            pooledConnection.leakReported = false;
+            if (leakThresholdMs > 0) {
+                pooledConnection.borrowSite = new Throwable("Connexion empruntée par " + Thread.currentThread().getName());
+            }
+            activeConnections.put(pooledConnection.connection, pooledConnection);
+            borrowCount++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        } finally {
+            lock.unlock();
+        }
+        return pooledConnection.connection;
+    }
+
+
+    /**
+     * Vérifie qu'une connexion inactive peut être prêtée.
+     * La validation réseau n'est effectuée que si la connexion est restée inactive plus longtemps que l'intervalle de validation.
+     */
+    private boolean isUsable(PooledConnection pooledConnection) {
+        long now = System.currentTimeMillis();
+        if (isExpired(pooledConnection, now)) {
+            return false;
+        }
+        if (now - pooledConnection.lastUsedAt < validationIntervalMs) {
+            return true;
+        }
+        try {
+            return pooledConnection.connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Indique si une connexion a dépassé sa durée de vie maximale.
+     */
+    private boolean isExpired(PooledConnection pooledConnection, long now) {
+        return maxLifetimeMs > 0 && now - pooledConnection.createdAt >= maxLifetimeMs;
+    }
+
+
+    /**
+     * Ferme définitivement une connexion et libère sa place dans le pool.
+     */
+    private void discard(PooledConnection pooledConnection) {
+        closeQuietly(pooledConnection.connection);
+        lock.lock();
+        try {
+            totalConnections--;
+            closedCount++;
+            connectionAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Tâche de maintenance périodique.
+     * Elle ferme les connexions inactives expirées ou excédentaires, signale les fuites et rétablit le nombre minimal de connexions inactives.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> toClose = new ArrayList<>();
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            // Parcourt les connexions de la moins récemment utilisée à la plus récente
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooledConnection = iterator.next();
+                boolean idleTooLong = idleTimeoutMs > 0
+                        && now - pooledConnection.lastUsedAt >= idleTimeoutMs
+                        && idleConnections.size() - 1 >= minIdle;
+                if (isExpired(pooledConnection, now) || idleTooLong) {
+                    iterator.remove();
+                    toClose.add(pooledConnection);
+                }
+            }
+            totalConnections -= toClose.size();
+            closedCount += toClose.size();
+
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pooledConnection : activeConnections.values()) {
+                    if (!pooledConnection.leakReported && now - pooledConnection.borrowedAt >= leakThresholdMs) {
+                        pooledConnection.leakReported = true;
+                        leakCount++;
+                        System.out.println("Pool " + poolName + " : fuite de connexion probable, empruntée depuis "
+                                + (now - pooledConnection.borrowedAt) + " ms");
+                        if (pooledConnection.borrowSite != null) {
+                            pooledConnection.borrowSite.printStackTrace(System.out);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pooledConnection : toClose) {
+            closeQuietly(pooledConnection.connection);
+        }
+
+        warmUp();
+    }
+
+
+    /**
+     * Ferme une instruction en ignorant les erreurs.
+     */
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Erreur lors de la fermeture d'une instruction : " + e);
+        }
+    }
+
+
+    /**
+     * Ferme une connexion physique en ignorant les erreurs.
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Erreur lors de la fermeture d'une connexion : " + e);
+        }
+    }
+
+}
@@ -1,9 +1,21 @@
 package fr.serfa.notesmanager;
 
-import java.io.FileInputStream;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -13,6 +25,96 @@ import java.util.*;
 public abstract class DatabaseManager {
 
 
+    /**
+     * Interface fonctionnelle recevant les lignes d'une requête de lecture en flux, une par une.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * Traite la ligne courante. Le ResultSet ne doit pas être avancé ni conservé après l'appel.
+         *
+         * @param row Le ResultSet positionné sur la ligne courante.
+         * @throws SQLException Si la lecture de la ligne échoue.
+         */
+        void handle(ResultSet row) throws SQLException;
+    }
+
+
+    /**
+     * Interface fonctionnelle convertissant la ligne courante d'un ResultSet en objet.
+     *
+     * @param <T> Le type de l'objet produit.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+
+        /**
+         * Convertit la ligne courante. Le ResultSet ne doit pas être avancé ni conservé après l'appel.
+         *
+         * @param row Le ResultSet positionné sur la ligne courante.
+         * @return L'objet correspondant à la ligne.
+         * @throws SQLException Si la lecture de la ligne échoue.
+         */
+        T map(ResultSet row) throws SQLException;
+    }
+
+
+    /**
+     * Interface fonctionnelle représentant une unité de travail exécutée dans une transaction.
+     *
+     * @param <T> Le type du résultat de l'unité de travail.
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+
+        /**
+         * Exécute l'unité de travail. Les appels à DatabaseManager faits pendant l'exécution utilisent la connexion de la transaction.
+         *
+         * @return Le résultat de l'unité de travail.
+         * @throws Exception Si l'unité de travail échoue, ce qui annule la transaction.
+         */
+        T run() throws Exception;
+    }
+
+
+    /**
+     * Une transaction en cours sur un thread : sa connexion et la pile de ses niveaux d'imbrication.
+     */
+    private static final class Transaction {
+
+        private final Connection connection;
+        private final int previousIsolation;
+        private final Deque<TransactionScope> scopes = new ArrayDeque<>();
+
+        private Transaction(Connection connection, int previousIsolation) {
+            this.connection = connection;
+            this.previousIsolation = previousIsolation;
+        }
+    }
+
+
+    /**
+     * Un niveau d'imbrication d'une transaction : le point de sauvegarde qui le délimite (null pour le niveau le plus externe)
+     * et l'indicateur d'échec d'une instruction exécutée à ce niveau.
+     */
+    private static final class TransactionScope {
+
+        private final Savepoint savepoint;
+        private boolean rollbackOnly;
+
+        private TransactionScope(Savepoint savepoint) {
+            this.savepoint = savepoint;
+        }
+    }
+
+
+    /**
+     * La transaction en cours sur chaque thread.
+     */
+    private static final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+
+
     /**
      * Les propriétés de la base de données, chargées à partir d'un fichier de propriétés.
      */
@@ -20,33 +122,34 @@ public abstract class DatabaseManager {
 
 
     /**
-     * L'hôte de la base de données.
+     * Le stockage utilisé, choisi par la propriété storageBackend.
      */
-    static private String dbHost;
+    final static private StorageBackend storageBackend = loadStorageBackend();
 
 
     /**
-     * Le numéro de port de la base de données.
+     * Le nom de la procédure dans le texte SQL d'un appel.
      */
-    static private String dbPort;
+    final static private Pattern procedureCall = Pattern.compile("CALL\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
 
 
     /**
-     * Le nom d'utilisateur utilisé pour se connecter à la base de données.
+     * Le pool de connexions partagé par toutes les opérations sur la base de données.
+     * Il est créé après le chargement des propriétés, dont il lit la configuration.
      */
-    static private String dbUsername;
+    final static private ConnectionPool connectionPool = createConnectionPool();
 
 
     /**
-     * Le mot de passe utilisé pour se connecter à la base de données.
+     * Les répliques en lecture, configurées par la propriété dbReplicas. Sans réplique, toutes les lectures vont au primaire.
      */
-    static private String dbPassword;
+    final static private ReplicaSet replicaSet = createReplicaSet();
 
 
     /**
-     * Le nom de la base de données.
+     * La fabrique des ResultSet déconnectés renvoyés par les requêtes de lecture.
      */
-    static private String dbName;
+    final static private RowSetFactory rowSetFactory = createRowSetFactory();
 
 
     /**
@@ -56,13 +159,8 @@ public abstract class DatabaseManager {
      */
     private static Properties loadProperties() {
         Properties properties = new Properties();
-        try (FileInputStream fileInputStream = new FileInputStream("src/main/java/fr/serfa/notesmanager/database.properties")) {
-            properties.load(fileInputStream);
-            dbHost = properties.getProperty("dbHost");
-            dbPort = properties.getProperty("dbPort");
-            dbUsername = properties.getProperty("dbUsername");
-            dbPassword = properties.getProperty("dbPassword");
-            dbName = properties.getProperty("dbName");
+        try (InputStream inputStream = openPropertiesFile()) {
+            properties.load(inputStream);
         } catch (IOException e) {
             System.out.println("Error : " + e);
         }
@@ -71,290 +169,1489 @@ public abstract class DatabaseManager {
 
 
     /**
-     * Ouvre une connexion à la base de données.
+     * Ouvre le fichier de propriétés : celui des sources en développement, sinon celui du classpath de l'application packagée.
      *
-     * @return La connexion à la base de données.
-     * @throws SQLException Si une erreur SQL se produit lors de l'ouverture de la connexion.
+     * @return Le flux du fichier de propriétés.
+     * @throws IOException Si le fichier n'est trouvé à aucun des deux emplacements.
      */
-    public static Connection openDatabaseConnection() throws SQLException {
-        return DriverManager.getConnection("jdbc:mariadb://" + dbHost + ":" + dbPort + "/" + dbName, dbUsername, dbPassword);
+    private static InputStream openPropertiesFile() throws IOException {
+        Path sourceFile = Path.of("src/main/java/fr/serfa/notesmanager/database.properties");
+        if (Files.exists(sourceFile)) {
+            return Files.newInputStream(sourceFile);
+        }
+        InputStream resource = DatabaseManager.class.getResourceAsStream("database.properties");
+        if (resource == null) {
+            throw new FileNotFoundException("database.properties introuvable dans les sources et le classpath");
+        }
+        return resource;
     }
 
+
     /**
-     * Ferme une connexion à la base de données.
+     * Charge le stockage nommé par la propriété storageBackend (mariadb par défaut) parmi les implémentations de StorageBackend
+     * déclarées au ServiceLoader, puis le prépare.
      *
-     * @param connection La connexion à fermer.
-     * @throws SQLException Si une erreur SQL se produit lors de la fermeture de la connexion.
+     * @return Le stockage préparé.
      */
-    public static void closeDatabaseConnection(Connection connection) throws SQLException {
-        connection.close();
+    private static StorageBackend loadStorageBackend() {
+        StorageBackend backend = loadStorageBackend(stringProperty("storageBackend", "mariadb"), properties);
+        System.out.println("Stockage utilisé : " + backend.getName());
+        return backend;
     }
 
 
     /**
-     * Exécute une requête SELECT sur la base de données.
+     * Charge un stockage par son nom parmi les implémentations de StorageBackend déclarées au ServiceLoader, puis le prépare.
+     * Chaque appel crée une nouvelle instance, si bien qu'un même type de stockage peut servir au primaire et aux répliques.
      *
-     * @param table           Le nom de la table à partir de laquelle sélectionner.
-     * @param fields          Les champs à sélectionner.
-     * @param conditionFields Les champs de condition pour la clause WHERE.
-     * @param conditionValues Les valeurs de condition pour la clause WHERE.
-     * @return Un ResultSet contenant les résultats de la requête. Retourne null si une exception SQL se produit.
+     * @param name              Le nom du stockage.
+     * @param backendProperties Les propriétés utilisées pour préparer le stockage.
+     * @return Le stockage préparé.
      */
-    public static ResultSet select(String table, String[] fields, String[] conditionFields, String[] conditionValues) {
-        System.out.println("Sélection à partir de la table " + table);
-
-        try {
-            // Ouvre une connexion à la base de données
-            Connection connection = openDatabaseConnection();
-
-            // Crée une chaîne de caractères séparée par des virgules des noms de champs
-            String fieldPlaceholders = String.join(", ", fields);
-
-            // Construit la requête SQL SELECT
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append("SELECT ").append(fieldPlaceholders).append(" FROM ").append(table);
-
-            // Ajoute la clause WHERE si des conditions sont fournies
-            if (conditionFields != null && conditionFields.length > 0 && conditionValues != null && conditionValues.length > 0) {
-                queryBuilder.append(" WHERE ");
-                for (int i = 0; i < Math.min(conditionFields.length, conditionValues.length); i++) {
-                    if (i > 0) {
-                        queryBuilder.append(" AND ");
-                    }
-                    queryBuilder.append(conditionFields[i]).append(" = ?");
+    private static StorageBackend loadStorageBackend(String name, Properties backendProperties) {
+        for (StorageBackend backend : ServiceLoader.load(StorageBackend.class)) {
+            if (backend.getName().equalsIgnoreCase(name)) {
+                try {
+                    backend.initialize(backendProperties);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Impossible de préparer le stockage " + name, e);
                 }
+                return backend;
             }
+        }
+        throw new IllegalStateException("Stockage inconnu : " + name);
+    }
 
-            // Prépare l'instruction SQL
-            PreparedStatement statement = connection.prepareStatement(queryBuilder.toString());
-            System.out.println("Exécution de la REQUÊTE : " + statement.toString());
 
-            // Définit les valeurs pour les champs de condition dans l'instruction préparée
-            if (conditionValues != null && conditionValues.length > 0) {
-                for (int i = 0; i < conditionValues.length; i++) {
-                    statement.setString(i + 1, conditionValues[i]);
-                }
-            }
+    /**
+     * Lit une propriété entière du fichier de propriétés, avec une valeur par défaut.
+     *
+     * @param name         Le nom de la propriété.
+     * @param defaultValue La valeur utilisée si la propriété est absente ou invalide.
+     * @return La valeur de la propriété.
+     */
+    static long longProperty(String name, long defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Propriété " + name + " invalide : " + value);
+            return defaultValue;
+        }
+    }
 
-            // Exécute l'instruction et obtient le ResultSet
-            ResultSet resultSet = statement.executeQuery();
 
-            // Ferme la connexion à la base de données
-            closeDatabaseConnection(connection);
+    /**
+     * Lit une propriété texte du fichier de propriétés, avec une valeur par défaut.
+     *
+     * @param name         Le nom de la propriété.
+     * @param defaultValue La valeur utilisée si la propriété est absente ou vide.
+     * @return La valeur de la propriété.
+     */
+    static String stringProperty(String name, String defaultValue) {
+        String value = properties.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
 
-            return resultSet;
 
+    /**
+     * Crée la fabrique des ResultSet déconnectés.
+     *
+     * @return La fabrique des ResultSet déconnectés.
+     */
+    private static RowSetFactory createRowSetFactory() {
+        try {
+            return RowSetProvider.newFactory();
         } catch (SQLException e) {
-            System.out.println("Erreur SQL : " + e);
-            return null;
+            throw new IllegalStateException("Impossible de créer la fabrique de RowSet", e);
         }
     }
 
 
     /**
-     * Exécute une requête INSERT sur la base de données.
+     * Crée le pool de connexions à partir des propriétés de la base de données.
      *
-     * @param table  Le nom de la table dans laquelle insérer.
-     * @param fields Les champs dans lesquels insérer les valeurs.
-     * @param values Les valeurs à insérer.
-     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     * @return Le pool de connexions.
      */
-    public static int insert(String table, String[] fields, String[] values) {
+    private static ConnectionPool createConnectionPool() {
+        return new ConnectionPool(
+                storageBackend.getName(),
+                storageBackend::openConnection,
+                (int) longProperty("poolMinIdle", 2),
+                (int) longProperty("poolMaxSize", 8),
+                longProperty("poolConnectionTimeoutMs", 10_000),
+                longProperty("poolValidationIntervalMs", 5_000),
+                longProperty("poolIdleTimeoutMs", 300_000),
+                longProperty("poolMaxLifetimeMs", 1_800_000),
+                longProperty("poolLeakThresholdMs", 60_000),
+                longProperty("poolHousekeepingPeriodMs", 30_000),
+                (int) longProperty("statementCacheSize", 64)
+        );
+    }
 
-        try {
-            // Ouvre une connexion à la base de données
-            Connection connection = openDatabaseConnection();
 
-            // Crée des espaces réservés pour les noms de champs et les valeurs
-            String fieldPlaceholders = String.join(", ", fields);
-            String valuePlaceholders = String.join(", ", Collections.nCopies(fields.length, "?"));
+    /**
+     * Crée les répliques en lecture nommées par la propriété dbReplicas (par exemple dbReplicas=replica1,replica2).
+     * Chaque réplique est configurée par les propriétés replica.&lt;nom&gt;.*, qui remplacent celles du primaire :
+     * replica.&lt;nom&gt;.storageBackend choisit son stockage (celui du primaire par défaut) et replica.&lt;nom&gt;.dbHost,
+     * replica.&lt;nom&gt;.dbPort ou replica.&lt;nom&gt;.embeddedUrl désignent la base, si bien qu'une seconde instance MariaDB locale
+     * ou une base embarquée peut servir de réplique de substitution.
+     * Une réplique qui ne peut pas être préparée est ignorée.
+     *
+     * @return Les répliques en lecture, éventuellement vides.
+     */
+    private static ReplicaSet createReplicaSet() {
+        List<ReplicaSet.Replica> replicas = new ArrayList<>();
+        for (String name : stringProperty("dbReplicas", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
 
-            // Construit la requête SQL INSERT
-            String query = "INSERT INTO " + table + " (" + fieldPlaceholders + ") VALUES (" + valuePlaceholders + ")";
-            PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-            System.out.println("Exécution de la REQUÊTE : " + statement.toString());
+            // Les propriétés de la réplique remplacent celles du primaire
+            Properties replicaProperties = new Properties();
+            replicaProperties.putAll(properties);
+            String prefix = "replica." + name + ".";
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    replicaProperties.setProperty(key.substring(prefix.length()), properties.getProperty(key));
+                }
+            }
 
-            // Définit les valeurs pour l'instruction préparée
-            for (int i = 0; i < values.length; i++) {
-                statement.setString(i + 1, values[i]);
+            try {
+                StorageBackend backend = loadStorageBackend(
+                        replicaProperties.getProperty("storageBackend", storageBackend.getName()).trim(),
+                        replicaProperties
+                );
+                ConnectionPool pool = new ConnectionPool(
+                        "replica-" + name,
+                        backend::openConnection,
+                        (int) longProperty("replicaPoolMinIdle", 1),
+                        (int) longProperty("replicaPoolMaxSize", longProperty("poolMaxSize", 8)),
+                        longProperty("replicaConnectionTimeoutMs", 2_000),
+                        longProperty("poolValidationIntervalMs", 5_000),
+                        longProperty("poolIdleTimeoutMs", 300_000),
+                        longProperty("poolMaxLifetimeMs", 1_800_000),
+                        longProperty("poolLeakThresholdMs", 60_000),
+                        longProperty("poolHousekeepingPeriodMs", 30_000),
+                        (int) longProperty("statementCacheSize", 64)
+                );
+                replicas.add(new ReplicaSet.Replica(name, backend, pool));
+                System.out.println("Réplique en lecture : " + name + " (" + backend.getName() + ")");
+            } catch (IllegalStateException e) {
+                System.out.println("Réplique " + name + " ignorée : " + e + (e.getCause() == null ? "" : " / " + e.getCause()));
             }
+        }
 
-            // Exécute l'instruction
-            int queryResult = statement.executeUpdate();
-            System.out.println("Exécution de la REQUÊTE : " + statement.toString());
+        return new ReplicaSet(
+                replicas,
+                longProperty("replicaMaxLagSeconds", 2),
+                longProperty("replicaRetryAfterMs", 30_000),
+                longProperty("readYourWritesMs", 5_000),
+                longProperty("replicaLagCheckMs", 5_000)
+        );
+    }
 
-            // Obtient le dernier ID inséré
-            ResultSet rs = statement.getGeneratedKeys();
-            rs.next();
-            int lastInsertedID = rs.getInt(1);
 
-            // Ferme la connexion à la base de données
-            closeDatabaseConnection(connection);
+    /**
+     * Ouvre les connexions minimales du pool à l'avance.
+     * Appelée à l'affichage de la fenêtre de connexion pour que la connexion de l'utilisateur ne paie pas l'établissement de la connexion.
+     */
+    public static void warmUpConnectionPool() {
+        connectionPool.warmUp();
+        replicaSet.warmUp();
+    }
+
 
-            // Affiche un message indiquant la fin du processus d'insertion
-            System.out.println("   > Insertion terminée avec le résultat " + queryResult + ". ID de la ligne insérée : " + lastInsertedID);
+    /**
+     * Résume l'état des répliques en lecture (lectures envoyées au primaire, lectures, échecs et retard de chaque réplique).
+     *
+     * @return Le résumé, ou null si aucune réplique n'est configurée.
+     */
+    public static String getReplicaSummary() {
+        return replicaSet.isEmpty() ? null : replicaSet.getSummary();
+    }
 
-            // Retourne l'ID de la ligne insérée
-            return lastInsertedID;
 
-        } catch (SQLIntegrityConstraintViolationException e) {
-            System.out.println("Violation de contrainte d'intégrité SQL : " + e);
-            return 0;
+    /**
+     * Récupère les statistiques du pool de connexions (connexions actives, inactives, temps d'attente).
+     *
+     * @return Un instantané des statistiques du pool.
+     */
+    public static ConnectionPool.Stats getConnectionPoolStats() {
+        return connectionPool.getStats();
+    }
 
-        } catch (SQLException e) {
-            System.out.println("Erreur SQL : " + e);
-            return -1;
-        }
+
+    /**
+     * Ferme les pools de connexions du primaire et des répliques. Appelée à l'arrêt de l'application.
+     */
+    public static void shutdown() {
+        replicaSet.close();
+        connectionPool.close();
+        storageBackend.close();
     }
 
 
     /**
-     * Exécute une requête UPDATE sur la base de données.
+     * Emprunte une connexion au pool de connexions.
+     * Si une transaction est en cours sur le thread, sa connexion est renvoyée à la place.
      *
-     * @param table          Le nom de la table à mettre à jour.
-     * @param field          Le champ à mettre à jour.
-     * @param value          La nouvelle valeur pour le champ.
-     * @param conditionField Le champ de condition pour la clause WHERE.
-     * @param conditionValue La valeur de condition pour la clause WHERE.
-     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     * @return La connexion à la base de données.
+     * @throws SQLException Si une erreur SQL se produit lors de l'ouverture de la connexion.
      */
-    public static int update(String table, String field, String value, String conditionField, String conditionValue) {
+    public static Connection openDatabaseConnection() throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return transaction.connection;
+        }
+        return connectionPool.borrow();
+    }
+
+    /**
+     * Rend une connexion au pool de connexions.
+     * La connexion d'une transaction en cours n'est rendue qu'à la fin de la transaction.
+     *
+     * @param connection La connexion à rendre.
+     */
+    public static void closeDatabaseConnection(Connection connection) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null && transaction.connection == connection) {
+            return;
+        }
+        connectionPool.release(connection);
+    }
 
-        System.out.println("Mise à jour de la table " + table + " avec " + field + " = " + value + " où " + conditionField + " = " + conditionValue);
 
-        try {
-            // Ouvre une connexion à la base de données
-            Connection connection = openDatabaseConnection();
+    /**
+     * Exécute une unité de travail dans une transaction, avec le niveau d'isolation par défaut
+     * (propriété transactionIsolation, READ COMMITTED par défaut).
+     *
+     * @param work L'unité de travail à exécuter.
+     * @param <T>  Le type du résultat de l'unité de travail.
+     * @return Le résultat de l'unité de travail. Retourne null si la transaction a été annulée.
+     * @see #transaction(int, TransactionWork)
+     */
+    public static <T> T transaction(TransactionWork<T> work) {
+        return transaction((int) longProperty("transactionIsolation", Connection.TRANSACTION_READ_COMMITTED), work);
+    }
 
-            // Construit la requête SQL UPDATE
-            String query = "UPDATE " + table + " SET " + field + " = ?" + " WHERE " + conditionField + " = ?";
 
-            PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+    /**
+     * Exécute une unité de travail dans une transaction.
+     * Tous les appels à DatabaseManager faits par l'unité de travail sur le même thread utilisent une seule connexion
+     * et sont validés ensemble par un unique COMMIT. La transaction est annulée si l'unité de travail lève une exception
+     * ou si l'une de ses requêtes a échoué (résultat -1 ou null).
+     * Appelée pendant une autre transaction, l'unité de travail est délimitée par un point de sauvegarde :
+     * en cas d'échec, seules ses modifications sont annulées et la transaction englobante continue.
+     *
+     * @param isolation Le niveau d'isolation (constantes Connection.TRANSACTION_*), ignoré pour une transaction imbriquée.
+     * @param work      L'unité de travail à exécuter.
+     * @param <T>       Le type du résultat de l'unité de travail.
+     * @return Le résultat de l'unité de travail. Retourne null si la transaction a été annulée.
+     */
+    public static <T> T transaction(int isolation, TransactionWork<T> work) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return nestedTransaction(transaction, work);
+        }
 
-            // Définit les valeurs pour l'instruction préparée
-            statement.setString(1, value);
-            statement.setString(2, conditionValue);
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool et ouvre la transaction
+            connection = connectionPool.borrow();
+            transaction = new Transaction(connection, connection.getTransactionIsolation());
+            if (isolation != transaction.previousIsolation) {
+                connection.setTransactionIsolation(isolation);
+            }
+            connection.setAutoCommit(false);
+
+        } catch (SQLException e) {
+            QueryLog.error("transaction", () -> "Erreur SQL : " + e);
+            if (connection != null) {
+                connectionPool.release(connection);
+            }
+            return null;
+        }
 
-            // Exécute l'instruction et obtient le nombre de lignes affectées
-            int queryResult = statement.executeUpdate();
-            System.out.println("Exécution de la REQUÊTE : " + statement.toString());
+        TransactionScope scope = new TransactionScope(null);
+        transaction.scopes.push(scope);
+        currentTransaction.set(transaction);
+        try {
+            T result = work.run();
 
-            // Ferme la connexion à la base de données
-            closeDatabaseConnection(connection);
+            if (scope.rollbackOnly) {
+                QueryLog.warn("transaction", () -> "Transaction annulée : une requête a échoué");
+                connection.rollback();
+                return null;
+            }
 
-            // Affiche un message indiquant la fin du processus de mise à jour
-            System.out.println("   > Mise à jour terminée avec le résultat " + queryResult);
+            connection.commit();
+            replicaSet.recordWrite();
+            QueryLog.debug("transaction", () -> "Transaction validée");
+            return result;
+
+        } catch (Exception e) {
+            QueryLog.warn("transaction", () -> "Transaction annulée : " + e);
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                QueryLog.error("transaction", () -> "Erreur SQL : " + rollbackException);
+            }
+            return null;
 
-            // Retourne le nombre de lignes affectées
-            return queryResult;
+        } finally {
+            currentTransaction.remove();
+            try {
+                if (connection.getTransactionIsolation() != transaction.previousIsolation) {
+                    connection.setTransactionIsolation(transaction.previousIsolation);
+                }
+            } catch (SQLException e) {
+                QueryLog.error("transaction", () -> "Erreur SQL : " + e);
+            }
+            // Rend la connexion au pool, qui rétablit la validation automatique
+            connectionPool.release(connection);
+        }
+    }
 
-        } catch (SQLIntegrityConstraintViolationException e) {
-            System.out.println("Violation de contrainte d'intégrité SQL : " + e);
-            return 0;
 
-        } catch (SQLException e) {
-            System.out.println("Erreur SQL : " + e);
-            return -1;
+    /**
+     * Marque le niveau de transaction en cours comme devant être annulé, sans interrompre l'unité de travail.
+     * Sans effet en dehors d'une transaction.
+     */
+    public static void setRollbackOnly() {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.scopes.peek().rollbackOnly = true;
         }
     }
 
 
     /**
-     * Exécute une requête DELETE sur la base de données.
+     * Indique si une transaction est en cours sur le thread.
      *
-     * @param table          Le nom de la table à partir de laquelle supprimer.
-     * @param conditionField Le champ de condition pour la clause WHERE.
-     * @param conditionValue La valeur de condition pour la clause WHERE.
-     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     * @return true si une transaction est en cours.
      */
-    public static int delete(String table, String conditionField, String conditionValue) {
+    public static boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+
 
-        System.out.println("Suppression de la table " + table + " où " + conditionField + " = " + conditionValue);
+    /**
+     * Exécute une unité de travail imbriquée dans la transaction en cours, délimitée par un point de sauvegarde.
+     */
+    private static <T> T nestedTransaction(Transaction transaction, TransactionWork<T> work) {
+        Savepoint savepoint;
+        try {
+            savepoint = transaction.connection.setSavepoint();
+        } catch (SQLException e) {
+            QueryLog.error("transaction", () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return null;
+        }
 
+        TransactionScope scope = new TransactionScope(savepoint);
+        transaction.scopes.push(scope);
         try {
-            // Ouvre une connexion à la base de données
-            Connection connection = openDatabaseConnection();
+            T result = work.run();
 
-            // Construit la requête SQL DELETE
-            String query = "DELETE FROM " + table + " WHERE " + conditionField + " = ?";
+            if (!scope.rollbackOnly) {
+                transaction.connection.releaseSavepoint(savepoint);
+                return result;
+            }
+            QueryLog.warn("transaction", () -> "Transaction imbriquée annulée : une requête a échoué");
+
+        } catch (Exception e) {
+            QueryLog.warn("transaction", () -> "Transaction imbriquée annulée : " + e);
 
-            PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        } finally {
+            transaction.scopes.pop();
+        }
 
-            // Définit les valeurs pour l'instruction préparée
-            statement.setString(1, conditionValue);
+        // Annule les modifications de l'unité de travail imbriquée uniquement
+        try {
+            transaction.connection.rollback(savepoint);
+        } catch (SQLException e) {
+            QueryLog.error("transaction", () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+        }
+        return null;
+    }
 
-            // Exécute l'instruction et obtient le nombre de lignes affectées
-            int queryResult = statement.executeUpdate();
-            System.out.println("Exécution de la REQUÊTE : " + statement.toString());
 
-            // Ferme la connexion à la base de données
-            closeDatabaseConnection(connection);
+    /**
+     * Exécute une requête SELECT sur la base de données.
+     *
+     * @param table           Le nom de la table à partir de laquelle sélectionner.
+     * @param fields          Les champs à sélectionner.
+     * @param conditionFields Les champs de condition pour la clause WHERE.
+     * @param conditionValues Les valeurs de condition pour la clause WHERE.
+     * @return Un ResultSet contenant les résultats de la requête. Retourne null si une exception SQL se produit.
+     */
+    public static ResultSet select(String table, String[] fields, String[] conditionFields, String[] conditionValues) {
+        String statementName = "SELECT " + table;
+        QueryLog.debug(statementName, () -> "Sélection à partir de la table " + table);
+
+        // Crée une chaîne de caractères séparée par des virgules des noms de champs
+        String fieldPlaceholders = String.join(", ", fields);
+
+        // Construit la requête SQL SELECT
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ").append(fieldPlaceholders).append(" FROM ").append(table);
+
+        // Ajoute la clause WHERE si des conditions sont fournies
+        String[] parameters = new String[0];
+        if (conditionFields != null && conditionFields.length > 0 && conditionValues != null && conditionValues.length > 0) {
+            int conditionCount = Math.min(conditionFields.length, conditionValues.length);
+            queryBuilder.append(" WHERE ");
+            for (int i = 0; i < conditionCount; i++) {
+                if (i > 0) {
+                    queryBuilder.append(" AND ");
+                }
+                queryBuilder.append(conditionFields[i]).append(" = ?");
+            }
+            parameters = Arrays.copyOf(conditionValues, conditionCount);
+        }
 
-            // Affiche un message indiquant la fin du processus de suppression
-            System.out.println("   > Suppression terminée avec le résultat " + queryResult);
+        return executeQuery(statementName, queryBuilder.toString(), SqlParam.ofStrings(parameters));
+    }
 
-            // Retourne le nombre de lignes affectées
-            return queryResult;
 
-        } catch (SQLIntegrityConstraintViolationException e) {
-            System.out.println("Violation de contrainte d'intégrité SQL : " + e);
-            return 0;
+    /**
+     * Exécute une requête SELECT précompilée sur la base de données.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @return Un ResultSet contenant les résultats de la requête. Retourne null si une exception SQL se produit.
+     */
+    public static ResultSet select(QueryTemplate template, String... parameters) {
+        QueryLog.debug(template.name(), () -> "Sélection");
+        return executeQuery(template.name(), template.getSql(), SqlParam.ofStrings(parameters));
+    }
+
+
+    /**
+     * Exécute une requête SELECT précompilée en flux et transmet chaque ligne au gestionnaire fourni.
+     * La connexion reste ouverte pendant la lecture et le pilote ne récupère les lignes que par paquets de fetchSize,
+     * si bien que la mémoire utilisée ne dépend pas du nombre de lignes. La connexion est rendue au pool à la fin de la lecture.
+     *
+     * @param template   La requête à exécuter.
+     * @param fetchSize  Le nombre de lignes récupérées par aller-retour réseau.
+     * @param handler    Le gestionnaire appelé pour chaque ligne.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @return Le nombre de lignes lues. Retourne -1 si une exception SQL se produit.
+     */
+    public static int forEachRow(QueryTemplate template, int fetchSize, RowHandler handler, String... parameters) {
+        return forEachRow(template, fetchSize, handler, SqlParam.ofStrings(parameters));
+    }
+
+
+    /**
+     * Exécute une requête SELECT précompilée en flux, avec des paramètres typés, et transmet chaque ligne au gestionnaire fourni.
+     *
+     * @param template   La requête à exécuter.
+     * @param fetchSize  Le nombre de lignes récupérées par aller-retour réseau.
+     * @param handler    Le gestionnaire appelé pour chaque ligne.
+     * @param parameters Les paramètres de la requête, dans l'ordre.
+     * @return Le nombre de lignes lues. Retourne -1 si une exception SQL se produit.
+     */
+    static int forEachRow(QueryTemplate template, int fetchSize, RowHandler handler, SqlParam[] parameters) {
+        QueryLog.debug(template.name(), () -> "Lecture en flux, fetchSize=" + fetchSize);
+
+        // Une lecture en flux n'est reprise sur le primaire que si la réplique a échoué avant de transmettre une ligne
+        int[] rowCount = new int[1];
+        ReplicaSet.Replica replica = chooseReadReplica();
+        if (replica != null) {
+            try {
+                return streamRows(replica.getPool(), template, fetchSize, handler, parameters, rowCount);
+            } catch (SQLException e) {
+                replicaSet.recordFailure(replica, e);
+                if (rowCount[0] > 0) {
+                    QueryLog.error(template.name(), () -> "Erreur SQL sur la réplique " + replica.getName() + " : " + e);
+                    return -1;
+                }
+                QueryLog.warn(template.name(), () -> "Lecture en échec sur la réplique " + replica.getName() + ", reprise sur le primaire : " + e);
+            }
+        }
 
+        try {
+            return streamRows(null, template, fetchSize, handler, parameters, rowCount);
         } catch (SQLException e) {
-            System.out.println("Erreur SQL : " + e);
+            QueryLog.error(template.name(), () -> "Erreur SQL : " + e);
+            setRollbackOnly();
             return -1;
         }
     }
 
 
     /**
-     * Exécute une procédure stockée sur la base de données.
+     * Lit en flux le résultat d'une requête sur le pool d'une réplique, ou sur le primaire si replicaPool est null.
      *
-     * @param procedureName Le nom de la procédure stockée à exécuter.
-     * @param inParameters  Les paramètres d'entrée pour la procédure stockée.
-     * @param outParameter  Le paramètre de sortie de la procédure stockée.
-     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     * @param rowCount Le nombre de lignes transmises au gestionnaire, mis à jour pendant la lecture.
+     * @return Le nombre de lignes lues.
+     * @throws SQLException Si la requête ou la lecture échoue.
      */
-    public static int call(String procedureName, String[] inParameters, String outParameter) {
-
-        System.out.println("Appel de " + procedureName + " avec les paramètres " + Arrays.toString(inParameters));
+    private static int streamRows(ConnectionPool replicaPool, QueryTemplate template, int fetchSize, RowHandler handler, SqlParam[] parameters, int[] rowCount) throws SQLException {
+        long startNanos = System.nanoTime();
+        rowCount[0] = 0;
+        boolean failed = true;
 
+        Connection connection = null;
         try {
-            // Ouvre une connexion à la base de données
-            Connection connection = openDatabaseConnection();
+            // Emprunte une connexion au pool
+            connection = replicaPool == null ? openDatabaseConnection() : replicaPool.borrow();
+
+            try (PreparedStatement statement = prepareStreamingStatement(connection, template.getSql(), fetchSize, parameters);
+                 ResultSet resultSet = statement.executeQuery()) {
 
-            // Construit la requête SQL CALL
-            String query = "{CALL " + procedureName + "(" + String.join(", ", Collections.nCopies(inParameters.length + 1, "?")) + ")}";
-            System.out.println("Chaîne de requête avant l'instruction préparée : " + query);
-            CallableStatement statement = connection.prepareCall(query);
+                // Transmet chaque ligne au gestionnaire au fur et à mesure de la lecture
+                while (resultSet.next()) {
+                    handler.handle(resultSet);
+                    rowCount[0]++;
+                }
 
-            // Définit les valeurs pour l'instruction préparée
-            for (int i = 0; i < inParameters.length; i++) {
-                statement.setString(i + 1, inParameters[i]);
+                int readRows = rowCount[0];
+                QueryLog.debug(template.name(), () -> "Lecture en flux terminée : " + readRows + " lignes");
+                failed = false;
+                return readRows;
             }
 
-            // Enregistre le paramètre OUT
-            statement.registerOutParameter(inParameters.length + 1, Types.INTEGER);
+        } finally {
+            // Rend la connexion au pool et enregistre la durée de la lecture
+            releaseReadConnection(replicaPool, connection);
+            QueryMetrics.recordStatement(template.name(), startNanos, rowCount[0], 0, failed);
+        }
+    }
+
 
-            // Exécute l'instruction
-            statement.execute();
+    /**
+     * Choisit la réplique d'une lecture. Les lectures d'une transaction restent sur sa connexion au primaire.
+     *
+     * @return La réplique choisie, ou null si la lecture doit aller au primaire.
+     */
+    private static ReplicaSet.Replica chooseReadReplica() {
+        return isInTransaction() ? null : replicaSet.choose();
+    }
 
-            // Récupère la valeur du paramètre OUT
-            int success = statement.getInt(inParameters.length + 1);
 
-            // Ferme l'instruction et la connexion à la base de données
-            statement.close();
+    /**
+     * Rend la connexion d'une lecture au pool de sa réplique, ou au pool du primaire si replicaPool est null.
+     */
+    private static void releaseReadConnection(ConnectionPool replicaPool, Connection connection) {
+        if (replicaPool == null) {
             closeDatabaseConnection(connection);
+        } else if (connection != null) {
+            replicaPool.release(connection);
+        }
+    }
 
-            // Affiche un message indiquant la fin de l'appel de la procédure
-            System.out.println("Procédure appelée et retournée " + success);
 
-            return success;
+    /**
+     * Exécute une requête SELECT précompilée en flux et renvoie ses lignes sous forme de Stream.
+     * La connexion reste empruntée tant que le Stream n'est pas fermé : il doit être utilisé dans un bloc try-with-resources.
+     * La lecture va toujours au primaire, car une réplique en échec ne pourrait pas être remplacée en cours de lecture.
+     * Une erreur SQL pendant la lecture est relancée sous forme d'UncheckedSQLException.
+     *
+     * @param template   La requête à exécuter.
+     * @param fetchSize  Le nombre de lignes récupérées par aller-retour réseau.
+     * @param mapper     La fonction convertissant chaque ligne en objet.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @param <T>        Le type des objets produits.
+     * @return Un Stream des objets produits, à fermer après utilisation.
+     * @throws SQLException Si la requête ne peut pas être exécutée.
+     */
+    public static <T> Stream<T> stream(QueryTemplate template, int fetchSize, RowMapper<T> mapper, String... parameters) throws SQLException {
+        QueryLog.debug(template.name(), () -> "Lecture en flux, fetchSize=" + fetchSize);
 
-        } catch (SQLException e) {
-            System.out.println("Erreur SQL : " + e);
-            return -1;
+        long startNanos = System.nanoTime();
+        Connection connection = openDatabaseConnection();
+        PreparedStatement statement = null;
+        ResultSet resultSet;
+        try {
+            statement = prepareStreamingStatement(connection, template.getSql(), fetchSize, SqlParam.ofStrings(parameters));
+            resultSet = statement.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeStreamResources(null, statement, connection);
+            QueryMetrics.recordStatement(template.name(), startNanos, 0, 0, true);
+            throw e;
+        }
+
+        PreparedStatement openStatement = statement;
+        long[] rowCount = new long[1];
+        boolean[] failed = new boolean[1];
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(resultSet));
+                    rowCount[0]++;
+                    return true;
+                } catch (SQLException e) {
+                    failed[0] = true;
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+
+        // La connexion d'une transaction n'est pas rendue à la fermeture du Stream, la transaction s'en charge
+        Connection borrowedConnection = isInTransaction() ? null : connection;
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    closeStreamResources(resultSet, openStatement, borrowedConnection);
+                    QueryMetrics.recordStatement(template.name(), startNanos, rowCount[0], 0, failed[0]);
+                });
+    }
+
+
+    /**
+     * Exception non vérifiée encapsulant une SQLException levée pendant la lecture d'un Stream.
+     */
+    public static class UncheckedSQLException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructeur de la classe UncheckedSQLException.
+         *
+         * @param cause La SQLException d'origine.
+         */
+        public UncheckedSQLException(SQLException cause) {
+            super(cause);
+        }
+    }
+
+
+    /**
+     * Prépare une instruction de lecture en flux, en lecture seule et à parcours unique.
+     * Elle n'est pas mise en cache car sa taille de récupération lui est propre.
+     */
+    private static PreparedStatement prepareStreamingStatement(Connection connection, String query, int fetchSize, SqlParam[] parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(Math.max(1, fetchSize));
+            bindParameters(statement, parameters);
+            return statement;
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Ferme les ressources d'une lecture en flux et rend la connexion au pool.
+     */
+    private static void closeStreamResources(ResultSet resultSet, Statement statement, Connection connection) {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            QueryLog.error("stream", () -> "Erreur SQL : " + e);
+        } finally {
+            closeDatabaseConnection(connection);
+        }
+    }
+
+
+    /**
+     * Exécute une requête INSERT sur la base de données.
+     *
+     * @param table  Le nom de la table dans laquelle insérer.
+     * @param fields Les champs dans lesquels insérer les valeurs.
+     * @param values Les valeurs à insérer.
+     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public static int insert(String table, String[] fields, String[] values) {
+
+        // Crée des espaces réservés pour les noms de champs et les valeurs
+        String fieldPlaceholders = String.join(", ", fields);
+        String valuePlaceholders = String.join(", ", Collections.nCopies(fields.length, "?"));
+
+        // Construit la requête SQL INSERT
+        String query = "INSERT INTO " + table + " (" + fieldPlaceholders + ") VALUES (" + valuePlaceholders + ")";
+
+        QueryLog.debug("INSERT " + table, () -> "Insertion dans la table " + table);
+
+        return executeInsert("INSERT " + table, query, SqlParam.ofStrings(values));
+    }
+
+
+    /**
+     * Exécute une requête INSERT précompilée sur la base de données.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs à insérer, dans l'ordre.
+     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public static int insert(QueryTemplate template, String... parameters) {
+        QueryLog.debug(template.name(), () -> "Insertion");
+        return executeInsert(template.name(), template.getSql(), SqlParam.ofStrings(parameters));
+    }
+
+
+    /**
+     * Insère plusieurs lignes dans une table en regroupant les lignes en requêtes INSERT multi-lignes.
+     * Les lignes sont envoyées par paquets de taille configurable (propriété batchChunkSize par défaut),
+     * dans une seule transaction : soit toutes les lignes sont insérées, soit aucune.
+     *
+     * @param table  Le nom de la table dans laquelle insérer.
+     * @param fields Les champs dans lesquels insérer les valeurs.
+     * @param rows   Les valeurs de chaque ligne, dans l'ordre des champs.
+     * @return Les ID des lignes insérées, dans l'ordre des lignes. Retourne null si une exception SQL se produit.
+     */
+    public static int[] insertBatch(String table, String[] fields, List<String[]> rows) {
+        return insertBatch(table, fields, rows, (int) longProperty("batchChunkSize", 500));
+    }
+
+
+    /**
+     * Insère plusieurs lignes dans une table en regroupant les lignes en requêtes INSERT multi-lignes.
+     * Les lignes sont envoyées par paquets de chunkSize lignes, dans une seule transaction
+     * (celle en cours sur le thread s'il y en a une) : soit toutes les lignes sont insérées, soit aucune.
+     *
+     * @param table     Le nom de la table dans laquelle insérer.
+     * @param fields    Les champs dans lesquels insérer les valeurs.
+     * @param rows      Les valeurs de chaque ligne, dans l'ordre des champs.
+     * @param chunkSize Le nombre maximal de lignes par requête INSERT.
+     * @return Les ID des lignes insérées, dans l'ordre des lignes. Retourne null si une exception SQL se produit.
+     */
+    public static int[] insertBatch(String table, String[] fields, List<String[]> rows, int chunkSize) {
+        QueryLog.debug("INSERT BATCH " + table, () -> "Insertion par lots de " + rows.size() + " lignes dans la table " + table);
+
+        int[] insertedIDs = new int[rows.size()];
+        if (rows.isEmpty()) {
+            return insertedIDs;
+        }
+
+        // MariaDB limite le nombre de paramètres d'une instruction préparée à 65535
+        int rowsPerChunk = Math.max(1, Math.min(chunkSize, 65_535 / fields.length));
+        String rowPlaceholders = "(" + String.join(", ", Collections.nCopies(fields.length, "?")) + ")";
+        String queryPrefix = "INSERT INTO " + table + " (" + String.join(", ", fields) + ") VALUES ";
+
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool et ouvre une transaction, sauf si une transaction est déjà en cours
+            connection = openDatabaseConnection();
+            boolean ownTransaction = !isInTransaction();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+
+            for (int start = 0; start < rows.size(); start += rowsPerChunk) {
+                int count = Math.min(rowsPerChunk, rows.size() - start);
+
+                // Construit la requête INSERT multi-lignes du paquet
+                String query = queryPrefix + String.join(", ", Collections.nCopies(count, rowPlaceholders));
+
+                // Seule la requête des paquets complets est conservée dans le cache : celle du dernier paquet, plus court, ne sert qu'une fois
+                try (ConnectionPool.PooledStatement<PreparedStatement> pooled = connectionPool.prepareStatement(connection, query, true, count == rowsPerChunk)) {
+                    PreparedStatement statement = pooled.statement();
+
+                    // Définit les valeurs de chaque ligne du paquet
+                    int parameterIndex = 1;
+                    for (int row = start; row < start + count; row++) {
+                        String[] values = rows.get(row);
+                        for (String value : values) {
+                            statement.setString(parameterIndex++, value);
+                        }
+                    }
+                    statement.executeUpdate();
+
+                    // Récupère les ID générés pour le paquet
+                    readGeneratedKeys(statement, insertedIDs, start, count);
+                }
+            }
+
+            if (ownTransaction) {
+                connection.commit();
+            }
+            QueryLog.debug("INSERT BATCH " + table, () -> "Insertion par lots terminée : " + rows.size() + " lignes");
+            failed = false;
+            replicaSet.recordWrite();
+            return insertedIDs;
+
+        } catch (SQLException e) {
+            QueryLog.error("INSERT BATCH " + table, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return null;
+
+        } finally {
+            // Rend la connexion au pool, qui annule la transaction si elle n'a pas été validée
+            closeDatabaseConnection(connection);
+            QueryMetrics.recordStatement("INSERT BATCH " + table, startNanos, failed ? 0 : rows.size(), 0, failed);
+        }
+    }
+
+
+    /**
+     * Met à jour un champ sur plusieurs lignes d'une table avec le traitement par lots de JDBC.
+     * Les mises à jour sont envoyées par paquets de taille configurable (propriété batchChunkSize par défaut),
+     * dans une seule transaction : soit toutes les mises à jour sont appliquées, soit aucune.
+     *
+     * @param table          Le nom de la table à mettre à jour.
+     * @param field          Le champ à mettre à jour.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param rows           Pour chaque ligne, la nouvelle valeur suivie de la valeur de condition.
+     * @return Le nombre total de lignes affectées. Retourne -1 si une exception SQL se produit.
+     */
+    public static int updateBatch(String table, String field, String conditionField, List<String[]> rows) {
+        return updateBatch(table, field, conditionField, rows, (int) longProperty("batchChunkSize", 500));
+    }
+
+
+    /**
+     * Met à jour un champ sur plusieurs lignes d'une table avec le traitement par lots de JDBC.
+     * Les mises à jour sont envoyées par paquets de chunkSize lignes, dans une seule transaction :
+     * soit toutes les mises à jour sont appliquées, soit aucune.
+     *
+     * @param table          Le nom de la table à mettre à jour.
+     * @param field          Le champ à mettre à jour.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param rows           Pour chaque ligne, la nouvelle valeur suivie de la valeur de condition.
+     * @param chunkSize      Le nombre maximal de mises à jour par envoi au serveur.
+     * @return Le nombre total de lignes affectées. Retourne -1 si une exception SQL se produit.
+     */
+    public static int updateBatch(String table, String field, String conditionField, List<String[]> rows, int chunkSize) {
+        return executeUpdateBatch(table, field + " = ?", conditionField, rows, chunkSize);
+    }
+
+
+    /**
+     * Met à jour un champ sur plusieurs lignes d'une table avec le traitement par lots de JDBC, en incrémentant le numéro de version de chaque ligne.
+     * Les mises à jour sont envoyées par paquets de taille configurable (propriété batchChunkSize par défaut),
+     * dans une seule transaction : soit toutes les mises à jour sont appliquées, soit aucune.
+     *
+     * @param table          Le nom de la table à mettre à jour.
+     * @param field          Le champ à mettre à jour.
+     * @param versionField   Le champ du numéro de version, incrémenté sur chaque ligne mise à jour.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param rows           Pour chaque ligne, la nouvelle valeur suivie de la valeur de condition.
+     * @return Le nombre total de lignes affectées. Retourne -1 si une exception SQL se produit.
+     */
+    public static int updateVersionedBatch(String table, String field, String versionField, String conditionField, List<String[]> rows) {
+        return executeUpdateBatch(table, field + " = ?, " + versionField + " = " + versionField + " + 1", conditionField, rows,
+                (int) longProperty("batchChunkSize", 500));
+    }
+
+
+    /**
+     * Exécute par lots une requête UPDATE dont la clause SET prend la nouvelle valeur de chaque ligne,
+     * par paquets de chunkSize lignes, dans une seule transaction.
+     *
+     * @param table          Le nom de la table à mettre à jour.
+     * @param assignments    La clause SET, avec un seul paramètre pour la nouvelle valeur.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param rows           Pour chaque ligne, la nouvelle valeur suivie de la valeur de condition.
+     * @param chunkSize      Le nombre maximal de mises à jour par envoi au serveur.
+     * @return Le nombre total de lignes affectées. Retourne -1 si une exception SQL se produit.
+     */
+    private static int executeUpdateBatch(String table, String assignments, String conditionField, List<String[]> rows, int chunkSize) {
+        QueryLog.debug("UPDATE BATCH " + table, () -> "Mise à jour par lots de " + rows.size() + " lignes dans la table " + table);
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        int rowsPerChunk = Math.max(1, chunkSize);
+        String query = "UPDATE " + table + " SET " + assignments + " WHERE " + conditionField + " = ?";
+
+        long startNanos = System.nanoTime();
+        int affectedRows = 0;
+        boolean failed = true;
+
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool et ouvre une transaction, sauf si une transaction est déjà en cours
+            connection = openDatabaseConnection();
+            boolean ownTransaction = !isInTransaction();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+
+            try (ConnectionPool.PooledStatement<PreparedStatement> pooled = connectionPool.prepareStatement(connection, query, false)) {
+                PreparedStatement statement = pooled.statement();
+
+                for (int start = 0; start < rows.size(); start += rowsPerChunk) {
+                    int end = Math.min(start + rowsPerChunk, rows.size());
+
+                    // Ajoute chaque mise à jour du paquet au lot
+                    for (int row = start; row < end; row++) {
+                        statement.setString(1, rows.get(row)[0]);
+                        statement.setString(2, rows.get(row)[1]);
+                        statement.addBatch();
+                    }
+
+                    // Envoie le paquet et additionne les lignes affectées connues
+                    for (int result : statement.executeBatch()) {
+                        if (result > 0) {
+                            affectedRows += result;
+                        }
+                    }
+                }
+            }
+
+            if (ownTransaction) {
+                connection.commit();
+            }
+            int updatedRows = affectedRows;
+            QueryLog.debug("UPDATE BATCH " + table, () -> "Mise à jour par lots terminée avec le résultat " + updatedRows);
+            failed = false;
+            replicaSet.recordWrite();
+            return affectedRows;
+
+        } catch (SQLException e) {
+            QueryLog.error("UPDATE BATCH " + table, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return -1;
+
+        } finally {
+            // Rend la connexion au pool, qui annule la transaction si elle n'a pas été validée
+            closeDatabaseConnection(connection);
+            QueryMetrics.recordStatement("UPDATE BATCH " + table, startNanos, affectedRows, 0, failed);
+        }
+    }
+
+
+    /**
+     * Lit les ID générés par une requête INSERT multi-lignes.
+     * Le pilote doit renvoyer un ID par ligne insérée : les ID ne sont jamais déduits du premier,
+     * l'allocation n'étant pas forcément consécutive (insertions concurrentes, réplication multi-primaire).
+     *
+     * @param statement   L'instruction INSERT exécutée.
+     * @param insertedIDs Le tableau des ID à remplir.
+     * @param start       L'indice de la première ligne du paquet.
+     * @param count       Le nombre de lignes du paquet.
+     * @throws SQLException Si le nombre d'ID générés renvoyés ne correspond pas au nombre de lignes insérées.
+     */
+    private static void readGeneratedKeys(PreparedStatement statement, int[] insertedIDs, int start, int count) throws SQLException {
+        int read = 0;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next()) {
+                if (read < count) {
+                    insertedIDs[start + read] = keys.getInt(1);
+                }
+                read++;
+            }
+        }
+        if (read != count) {
+            throw new SQLException("L'insertion multi-lignes a renvoyé " + read + " ID générés pour " + count + " lignes");
+        }
+    }
+
+
+    /**
+     * Exécute une requête UPDATE sur la base de données.
+     *
+     * @param table          Le nom de la table à mettre à jour.
+     * @param field          Le champ à mettre à jour.
+     * @param value          La nouvelle valeur pour le champ.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param conditionValue La valeur de condition pour la clause WHERE.
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public static int update(String table, String field, String value, String conditionField, String conditionValue) {
+
+        // La valeur n'est pas journalisée : elle peut contenir le contenu complet d'une note
+        QueryLog.debug("UPDATE " + table, () -> "Mise à jour de la table " + table + " : " + field + " où " + conditionField + " = ?");
+
+        // Construit la requête SQL UPDATE
+        String query = "UPDATE " + table + " SET " + field + " = ?" + " WHERE " + conditionField + " = ?";
+
+        return executeUpdate("UPDATE " + table, query, SqlParam.ofStrings(new String[]{value, conditionValue}));
+    }
+
+
+    /**
+     * Exécute une requête DELETE sur la base de données.
+     *
+     * @param table          Le nom de la table à partir de laquelle supprimer.
+     * @param conditionField Le champ de condition pour la clause WHERE.
+     * @param conditionValue La valeur de condition pour la clause WHERE.
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public static int delete(String table, String conditionField, String conditionValue) {
+
+        QueryLog.debug("DELETE " + table, () -> "Suppression de la table " + table + " où " + conditionField + " = ?");
+
+        // Construit la requête SQL DELETE
+        String query = "DELETE FROM " + table + " WHERE " + conditionField + " = ?";
+
+        return executeUpdate("DELETE " + table, query, new SqlParam[]{SqlParam.ofString(conditionValue)});
+    }
+
+
+    /**
+     * Exécute une requête UPDATE ou DELETE précompilée sur la base de données.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les valeurs des paramètres de la requête, dans l'ordre.
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public static int execute(QueryTemplate template, String... parameters) {
+        QueryLog.debug(template.name(), () -> "Exécution");
+        return executeUpdate(template.name(), template.getSql(), SqlParam.ofStrings(parameters));
+    }
+
+
+    /**
+     * Exécute une procédure stockée sur la base de données.
+     *
+     * @param procedureName Le nom de la procédure stockée à exécuter.
+     * @param inParameters  Les paramètres d'entrée pour la procédure stockée.
+     * @param outParameter  Le paramètre de sortie de la procédure stockée.
+     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     */
+    public static int call(String procedureName, String[] inParameters, String outParameter) {
+
+        QueryLog.debug("CALL " + procedureName, () -> "Appel de " + procedureName + ", " + QueryLog.describeParameters(inParameters));
+
+        // Construit la requête SQL CALL
+        String query = "{CALL " + procedureName + "(" + String.join(", ", Collections.nCopies(inParameters.length + 1, "?")) + ")}";
+
+        return executeCall("CALL " + procedureName, query, SqlParam.ofStrings(inParameters));
+    }
+
+
+    /**
+     * Exécute une procédure stockée précompilée, dont le dernier paramètre est un paramètre de sortie entier.
+     *
+     * @param template     L'appel de procédure à exécuter.
+     * @param inParameters Les paramètres d'entrée pour la procédure stockée.
+     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     */
+    public static int call(QueryTemplate template, String... inParameters) {
+        QueryLog.debug(template.name(), () -> "Appel, " + QueryLog.describeParameters(inParameters));
+        return executeCall(template.name(), template.getSql(), SqlParam.ofStrings(inParameters));
+    }
+
+
+    /**
+     * Exécute une requête SELECT précompilée avec des paramètres typés et convertit chaque ligne avec la fonction fournie,
+     * sans copier le résultat dans un ResultSet déconnecté.
+     *
+     * @param template   La requête à exécuter.
+     * @param mapper     La fonction convertissant chaque ligne en objet.
+     * @param parameters Les paramètres de la requête, dans l'ordre.
+     * @param <T>        Le type des objets produits.
+     * @return La liste des objets produits. Retourne null si une exception SQL se produit.
+     */
+    static <T> List<T> query(QueryTemplate template, RowMapper<T> mapper, SqlParam[] parameters) {
+        QueryLog.debug(template.name(), () -> "Sélection typée");
+        return executeMappedQuery(template.name(), template.getSql(), parameters, mapper);
+    }
+
+
+    /**
+     * Exécute une requête INSERT précompilée avec des paramètres typés.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les paramètres de la requête, dans l'ordre.
+     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    static int insert(QueryTemplate template, SqlParam[] parameters) {
+        QueryLog.debug(template.name(), () -> "Insertion typée");
+        return executeInsert(template.name(), template.getSql(), parameters);
+    }
+
+
+    /**
+     * Exécute une requête UPDATE ou DELETE précompilée avec des paramètres typés.
+     *
+     * @param template   La requête à exécuter.
+     * @param parameters Les paramètres de la requête, dans l'ordre.
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    static int execute(QueryTemplate template, SqlParam[] parameters) {
+        QueryLog.debug(template.name(), () -> "Exécution typée");
+        return executeUpdate(template.name(), template.getSql(), parameters);
+    }
+
+
+    /**
+     * Exécute une procédure stockée précompilée avec des paramètres d'entrée typés.
+     *
+     * @param template     La procédure à appeler.
+     * @param inParameters Les paramètres d'entrée, dans l'ordre.
+     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     */
+    static int call(QueryTemplate template, SqlParam[] inParameters) {
+        QueryLog.debug(template.name(), () -> "Appel typé, " + QueryLog.describeParameters(inParameters));
+        return executeCall(template.name(), template.getSql(), inParameters);
+    }
+
+
+    /**
+     * Lie les paramètres typés à une requête préparée, dans l'ordre.
+     */
+    private static void bindParameters(PreparedStatement statement, SqlParam[] parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i].bind(statement, i + 1);
+        }
+    }
+
+
+    /**
+     * Convertit des paramètres typés en texte, pour les stockages qui exécutent eux-mêmes les procédures.
+     */
+    private static String[] asStrings(SqlParam[] parameters) {
+        String[] values = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            values[i] = parameters[i].asString();
+        }
+        return values;
+    }
+
+
+    /**
+     * Exécute une requête de lecture et copie son résultat dans un ResultSet déconnecté.
+     * La copie permet de rendre la connexion au pool et de réutiliser l'instruction préparée en cache
+     * sans invalider le résultat renvoyé à l'appelant.
+     *
+     * @param statementName Le nom de la requête dans les statistiques.
+     * @param query         Le texte SQL de la requête.
+     * @param parameters    Les paramètres de la requête.
+     * @return Le résultat de la requête, ou null si une exception SQL se produit.
+     */
+    private static ResultSet executeQuery(String statementName, String query, SqlParam[] parameters) {
+        return executeQuery(statementName, query, parameters, (resultSet, counts) -> {
+            CachedRowSet rowSet = rowSetFactory.createCachedRowSet();
+            rowSet.populate(resultSet);
+            counts.rows = rowSet.size();
+            // Le comptage des octets relit tout le résultat : il n'est fait que s'il est activé dans les statistiques
+            if (QueryMetrics.isBytesEnabled()) {
+                counts.bytes = estimateBytes(rowSet);
+            }
+            return rowSet;
+        });
+    }
+
+
+    /**
+     * Exécute une requête de lecture et convertit chaque ligne de son résultat avec la fonction fournie,
+     * directement depuis le ResultSet, sans copie intermédiaire.
+     *
+     * @param statementName Le nom de la requête dans les statistiques.
+     * @param query         Le texte SQL de la requête.
+     * @param parameters    Les paramètres de la requête.
+     * @param mapper        La fonction convertissant chaque ligne en objet.
+     * @return La liste des objets produits, ou null si une exception SQL se produit.
+     */
+    private static <T> List<T> executeMappedQuery(String statementName, String query, SqlParam[] parameters, RowMapper<T> mapper) {
+        return executeQuery(statementName, query, parameters, (resultSet, counts) -> {
+            List<T> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(mapper.map(resultSet));
+            }
+            counts.rows = rows.size();
+            return rows;
+        });
+    }
+
+
+    /**
+     * Les compteurs d'une lecture, renseignés par le ResultReader pour les statistiques.
+     */
+    private static final class ReadCounts {
+        private long rows;
+        private long bytes;
+    }
+
+
+    /**
+     * Interface fonctionnelle lisant le résultat complet d'une requête avant que la connexion ne soit rendue au pool.
+     */
+    @FunctionalInterface
+    private interface ResultReader<R> {
+        R read(ResultSet resultSet, ReadCounts counts) throws SQLException;
+    }
+
+
+    /**
+     * Exécute une requête de lecture et lit son résultat avec le lecteur fourni.
+     * Hors transaction, la lecture est envoyée à une réplique si possible, et reprise sur le primaire si la réplique échoue.
+     *
+     * @return Le résultat du lecteur, ou null si une exception SQL se produit.
+     */
+    private static <R> R executeQuery(String statementName, String query, SqlParam[] parameters, ResultReader<R> reader) {
+        ReplicaSet.Replica replica = chooseReadReplica();
+        if (replica != null) {
+            try {
+                return readQuery(replica.getPool(), statementName, query, parameters, reader);
+            } catch (SQLException e) {
+                replicaSet.recordFailure(replica, e);
+                QueryLog.warn(statementName, () -> "Lecture en échec sur la réplique " + replica.getName() + ", reprise sur le primaire : " + e);
+            }
+        }
+
+        try {
+            return readQuery(null, statementName, query, parameters, reader);
+        } catch (SQLException e) {
+            QueryLog.error(statementName, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return null;
+        }
+    }
+
+
+    /**
+     * Exécute une requête de lecture sur le pool d'une réplique, ou sur le primaire si replicaPool est null.
+     *
+     * @return Le résultat du lecteur.
+     * @throws SQLException Si la requête échoue.
+     */
+    private static <R> R readQuery(ConnectionPool replicaPool, String statementName, String query, SqlParam[] parameters, ResultReader<R> reader) throws SQLException {
+        long startNanos = System.nanoTime();
+        ReadCounts counts = new ReadCounts();
+        boolean failed = true;
+
+        ConnectionPool pool = replicaPool == null ? connectionPool : replicaPool;
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool
+            connection = replicaPool == null ? openDatabaseConnection() : replicaPool.borrow();
+
+            // Récupère l'instruction préparée depuis le cache de la connexion
+            try (ConnectionPool.PooledStatement<PreparedStatement> pooled = pool.prepareStatement(connection, query, false)) {
+                PreparedStatement statement = pooled.statement();
+
+                // Définit les valeurs pour les champs de condition dans l'instruction préparée
+                bindParameters(statement, parameters);
+                QueryLog.trace(statementName, () -> "sql=" + query + " " + QueryLog.describeParameters(parameters));
+
+                // Exécute l'instruction et lit le ResultSet
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    R result = reader.read(resultSet, counts);
+                    failed = false;
+                    return result;
+                }
+            }
+
+        } finally {
+            // Rend la connexion au pool et enregistre la durée de la requête
+            releaseReadConnection(replicaPool, connection);
+            QueryMetrics.recordStatement(statementName, startNanos, counts.rows, counts.bytes, failed);
+        }
+    }
+
+
+    /**
+     * Exécute une requête INSERT et retourne l'ID de la ligne insérée.
+     *
+     * @param statementName Le nom de la requête dans les statistiques.
+     * @param query         Le texte SQL de la requête.
+     * @param values        Les paramètres à insérer.
+     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    private static int executeInsert(String statementName, String query, SqlParam[] values) {
+        long startNanos = System.nanoTime();
+        long rowCount = 0;
+        boolean failed = true;
+
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool
+            connection = openDatabaseConnection();
+
+            // Récupère l'instruction préparée depuis le cache de la connexion
+            try (ConnectionPool.PooledStatement<PreparedStatement> pooled = connectionPool.prepareStatement(connection, query, true)) {
+                PreparedStatement statement = pooled.statement();
+
+                // Définit les valeurs pour l'instruction préparée
+                bindParameters(statement, values);
+
+                // Exécute l'instruction
+                int queryResult = statement.executeUpdate();
+                QueryLog.trace(statementName, () -> "sql=" + query + " " + QueryLog.describeParameters(values));
+
+                // Obtient le dernier ID inséré
+                int lastInsertedID;
+                try (ResultSet rs = statement.getGeneratedKeys()) {
+                    rs.next();
+                    lastInsertedID = rs.getInt(1);
+                }
+
+                // Affiche un message indiquant la fin du processus d'insertion
+                QueryLog.debug(statementName, () -> "Insertion terminée avec le résultat " + queryResult + ". ID de la ligne insérée : " + lastInsertedID);
+
+                rowCount = queryResult;
+                failed = false;
+                replicaSet.recordWrite();
+
+                // Retourne l'ID de la ligne insérée
+                return lastInsertedID;
+            }
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            QueryLog.warn(statementName, () -> "Violation de contrainte d'intégrité SQL : " + e);
+            return 0;
+
+        } catch (SQLException e) {
+            QueryLog.error(statementName, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return -1;
+
+        } finally {
+            // Rend la connexion au pool et enregistre la durée de la requête
+            closeDatabaseConnection(connection);
+            QueryMetrics.recordStatement(statementName, startNanos, rowCount, 0, failed);
+        }
+    }
+
+
+    /**
+     * Exécute une requête UPDATE ou DELETE et retourne le nombre de lignes affectées.
+     *
+     * @param statementName Le nom de la requête dans les statistiques.
+     * @param query         Le texte SQL de la requête.
+     * @param parameters    Les paramètres de la requête.
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    private static int executeUpdate(String statementName, String query, SqlParam[] parameters) {
+        long startNanos = System.nanoTime();
+        long rowCount = 0;
+        boolean failed = true;
+
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool
+            connection = openDatabaseConnection();
+
+            // Récupère l'instruction préparée depuis le cache de la connexion
+            try (ConnectionPool.PooledStatement<PreparedStatement> pooled = connectionPool.prepareStatement(connection, query, false)) {
+                PreparedStatement statement = pooled.statement();
+
+                // Définit les valeurs pour l'instruction préparée
+                bindParameters(statement, parameters);
+
+                // Exécute l'instruction et obtient le nombre de lignes affectées
+                int queryResult = statement.executeUpdate();
+                QueryLog.trace(statementName, () -> "sql=" + query + " " + QueryLog.describeParameters(parameters));
+
+                // Affiche un message indiquant la fin du processus
+                QueryLog.debug(statementName, () -> "Requête terminée avec le résultat " + queryResult);
+
+                rowCount = queryResult;
+                failed = false;
+                replicaSet.recordWrite();
+
+                // Retourne le nombre de lignes affectées
+                return queryResult;
+            }
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            QueryLog.warn(statementName, () -> "Violation de contrainte d'intégrité SQL : " + e);
+            return 0;
+
+        } catch (SQLException e) {
+            QueryLog.error(statementName, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return -1;
+
+        } finally {
+            // Rend la connexion au pool et enregistre la durée de la requête
+            closeDatabaseConnection(connection);
+            QueryMetrics.recordStatement(statementName, startNanos, rowCount, 0, failed);
+        }
+    }
+
+
+    /**
+     * Exécute un appel de procédure stockée dont le dernier paramètre est un paramètre de sortie entier.
+     *
+     * @param statementName Le nom de la requête dans les statistiques.
+     * @param query         Le texte SQL de l'appel.
+     * @param inParameters  Les paramètres d'entrée pour la procédure stockée.
+     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     */
+    private static int executeCall(String statementName, String query, SqlParam[] inParameters) {
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+
+        Connection connection = null;
+        try {
+            // Emprunte une connexion au pool
+            connection = openDatabaseConnection();
+
+            // Le stockage exécute lui-même les procédures que son moteur ne connaît pas
+            if (!storageBackend.supportsStoredProcedures()) {
+                Matcher procedureMatcher = procedureCall.matcher(query);
+                if (!procedureMatcher.find()) {
+                    throw new SQLException("Appel de procédure invalide : " + query);
+                }
+                int result = storageBackend.callProcedure(connection, procedureMatcher.group(1), asStrings(inParameters));
+                QueryLog.debug(statementName, () -> "Procédure exécutée par le stockage et retournée " + result);
+                failed = false;
+                replicaSet.recordWrite();
+                return result;
+            }
+
+            // Récupère l'instruction d'appel depuis le cache de la connexion
+            try (ConnectionPool.PooledStatement<CallableStatement> pooled = connectionPool.prepareCall(connection, query)) {
+                CallableStatement statement = pooled.statement();
+
+                // Définit les valeurs pour l'instruction préparée
+                bindParameters(statement, inParameters);
+
+                // Enregistre le paramètre OUT
+                statement.registerOutParameter(inParameters.length + 1, Types.INTEGER);
+
+                // Exécute l'instruction
+                statement.execute();
+
+                // Récupère la valeur du paramètre OUT
+                int success = statement.getInt(inParameters.length + 1);
+
+                // Affiche un message indiquant la fin de l'appel de la procédure
+                QueryLog.debug(statementName, () -> "Procédure appelée et retournée " + success);
+
+                failed = false;
+                replicaSet.recordWrite();
+                return success;
+            }
+
+        } catch (SQLException e) {
+            QueryLog.error(statementName, () -> "Erreur SQL : " + e);
+            setRollbackOnly();
+            return -1;
+
+        } finally {
+            // Rend la connexion au pool et enregistre la durée de la requête
+            closeDatabaseConnection(connection);
+            QueryMetrics.recordStatement(statementName, startNanos, 0, 0, failed);
+        }
+    }
+
+
+    /**
+     * Estime le nombre d'octets lus par une requête à partir de la longueur des valeurs de son résultat.
+     * Le curseur du résultat est replacé avant la première ligne.
+     */
+    private static long estimateBytes(CachedRowSet rowSet) throws SQLException {
+        int columnCount = rowSet.getMetaData().getColumnCount();
+        long bytes = 0;
+        while (rowSet.next()) {
+            for (int column = 1; column <= columnCount; column++) {
+                String value = rowSet.getString(column);
+                if (value != null) {
+                    bytes += value.length();
+                }
+            }
         }
+        rowSet.beforeFirst();
+        return bytes;
     }
 
 }
@@ -0,0 +1,281 @@
+package fr.serfa.notesmanager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * La classe EmbeddedBackend est un stockage local, exécuté dans le processus de l'application par le moteur H2 en mode MariaDB.
+ * Elle n'utilise pas le réseau et sert de mode mono-utilisateur ainsi que de base locale pour les mesures et les essais.
+ * À la première ouverture, la base est créée à partir du script distantDB/createDB_NotesManager.sql (propriété embeddedSchemaScript),
+ * adapté au moteur embarqué. Les procédures stockées du script sont exécutées en Java par callProcedure().
+ */
+public class EmbeddedBackend implements StorageBackend {
+
+
+    /**
+     * Les instructions du script ignorées par le moteur embarqué : gestion de la base et des transactions, procédures stockées.
+     */
+    private static final Pattern ignoredStatement = Pattern.compile(
+            "^(SET\\s+AUTOCOMMIT|START\\s+TRANSACTION|COMMIT|DROP\\s+DATABASE|CREATE\\s+DATABASE|USE\\s|CREATE\\s+PROCEDURE)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+
+    /**
+     * Les options de table propres à MariaDB, qui suivent la parenthèse fermante d'un CREATE TABLE.
+     */
+    private static final Pattern tableOptions = Pattern.compile(
+            "\\)\\s*ENGINE\\s*=\\s*\\w+(\\s+DEFAULT\\s+CHARSET\\s*=\\s*\\w+)?",
+            Pattern.CASE_INSENSITIVE
+    );
+
+
+    /**
+     * Une instruction ALTER TABLE comportant plusieurs clauses ADD.
+     */
+    private static final Pattern alterTable = Pattern.compile("^(ALTER\\s+TABLE\\s+\\w+)\\s+(ADD\\s.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+
+    /**
+     * Une directive DELIMITER du client MariaDB.
+     */
+    private static final Pattern delimiterDirective = Pattern.compile("^\\s*DELIMITER\\s+(\\S+)\\s*$", Pattern.CASE_INSENSITIVE);
+
+
+    /**
+     * L'URL JDBC de la base embarquée.
+     */
+    private String jdbcUrl;
+
+
+    /**
+     * Le nom d'utilisateur de la base embarquée.
+     */
+    private String username;
+
+
+    /**
+     * Le mot de passe de la base embarquée.
+     */
+    private String password;
+
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+
+    @Override
+    public void initialize(Properties properties) throws SQLException {
+        String defaultPath = Path.of(System.getProperty("user.home"), ".notesmanager", "notesmanager").toString();
+        jdbcUrl = properties.getProperty("embeddedUrl",
+                "jdbc:h2:" + defaultPath + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+        username = properties.getProperty("embeddedUsername", "sa");
+        password = properties.getProperty("embeddedPassword", "");
+
+        // Crée la base à partir du script si elle ne contient pas encore les tables de l'application
+        try (Connection connection = openConnection()) {
+            if (!schemaExists(connection)) {
+                Path script = Path.of(properties.getProperty("embeddedSchemaScript", "distantDB/createDB_NotesManager.sql"));
+                bootstrap(connection, script);
+            }
+        }
+    }
+
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, username, password);
+    }
+
+
+    @Override
+    public boolean supportsStoredProcedures() {
+        return false;
+    }
+
+
+    /**
+     * Exécute en Java les procédures UpdateNoteLabelToNull et UpdateNoteLabelToNewValue du script de création.
+     */
+    @Override
+    public int callProcedure(Connection connection, String procedureName, String[] inParameters) throws SQLException {
+        return switch (procedureName) {
+            case "UpdateNoteLabelToNull" -> updateNoteLabel(connection, inParameters[0], inParameters[1], true);
+            case "UpdateNoteLabelToNewValue" -> updateNoteLabel(connection, inParameters[0], inParameters[1], false);
+            default -> StorageBackend.super.callProcedure(connection, procedureName, inParameters);
+        };
+    }
+
+
+    /**
+     * Retire une étiquette d'une note, ou l'ajoute dans la première colonne d'étiquette libre, comme les procédures du script.
+     *
+     * @return 1 si une colonne d'étiquette a été modifiée, 0 sinon.
+     */
+    private static int updateNoteLabel(Connection connection, String labelID, String noteID, boolean detach) throws SQLException {
+        Integer label1 = null;
+        Integer label2 = null;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT note_label1_id, note_label2_id FROM notes WHERE note_id = ? LIMIT 1")) {
+            select.setString(1, noteID);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    label1 = resultSet.getObject(1) == null ? null : resultSet.getInt(1);
+                    label2 = resultSet.getObject(2) == null ? null : resultSet.getInt(2);
+                }
+            }
+        }
+
+        String column;
+        if (detach) {
+            int label = Integer.parseInt(labelID);
+            column = label1 != null && label1 == label ? "note_label1_id" : label2 != null && label2 == label ? "note_label2_id" : null;
+        } else {
+            column = label1 == null ? "note_label1_id" : label2 == null ? "note_label2_id" : null;
+        }
+        if (column == null) {
+            return 0;
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE notes SET " + column + " = ? WHERE note_id = ?")) {
+            if (detach) {
+                update.setNull(1, Types.INTEGER);
+            } else {
+                update.setString(1, labelID);
+            }
+            update.setString(2, noteID);
+            update.executeUpdate();
+        }
+        return 1;
+    }
+
+
+    /**
+     * Indique si la base contient déjà les tables de l'application.
+     */
+    private static boolean schemaExists(Connection connection) throws SQLException {
+        for (String tableName : new String[]{"users", "USERS"}) {
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, tableName, null)) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Crée la base à partir du script de création MariaDB, dans une seule transaction.
+     */
+    private static void bootstrap(Connection connection, Path script) throws SQLException {
+        String content;
+        try {
+            content = Files.readString(script, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Script de création " + script + " illisible", e);
+        }
+
+        List<String> statements = parseScript(content);
+        System.out.println("Création de la base embarquée à partir de " + script + " : " + statements.size() + " instructions");
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+
+    /**
+     * Découpe le script de création en instructions exécutables par le moteur embarqué.
+     * Les directives DELIMITER sont prises en compte, les lignes de commentaire et les instructions propres au serveur sont ignorées,
+     * et la syntaxe propre à MariaDB est adaptée.
+     *
+     * @param script Le contenu du script.
+     * @return Les instructions à exécuter, dans l'ordre.
+     */
+    static List<String> parseScript(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String delimiter = ";";
+        boolean inString = false;
+
+        for (String line : script.split("\\R")) {
+            if (!inString) {
+                Matcher delimiterMatcher = delimiterDirective.matcher(line);
+                if (delimiterMatcher.matches()) {
+                    delimiter = delimiterMatcher.group(1);
+                    continue;
+                }
+                if (line.trim().startsWith("--")) {
+                    continue;
+                }
+            }
+
+            current.append(line).append('\n');
+            // Le nombre d'apostrophes de la ligne indique si elle se termine dans une chaîne ('' compte pour deux)
+            inString ^= line.chars().filter(c -> c == '\'').count() % 2 == 1;
+
+            String trimmed = line.trim();
+            if (!inString && trimmed.endsWith(delimiter)) {
+                String sql = current.toString().trim();
+                sql = sql.substring(0, sql.length() - delimiter.length()).trim();
+                current.setLength(0);
+                addStatement(statements, sql);
+            }
+        }
+        addStatement(statements, current.toString().trim());
+        return statements;
+    }
+
+
+    /**
+     * Adapte une instruction du script au moteur embarqué et l'ajoute à la liste, sauf si elle doit être ignorée.
+     */
+    private static void addStatement(List<String> statements, String sql) {
+        if (sql.isEmpty() || ignoredStatement.matcher(sql).find()) {
+            return;
+        }
+
+        sql = tableOptions.matcher(sql).replaceAll(")");
+        sql = sql.replace("DEFAULT \"\"", "DEFAULT ''");
+        sql = sql.replaceAll("(?i)\\bINT\\s+UNSIGNED\\b", "INT");
+
+        // Une instruction ALTER TABLE par clause ADD
+        Matcher alterMatcher = alterTable.matcher(sql);
+        if (alterMatcher.matches()) {
+            for (String clause : alterMatcher.group(2).split(",\\s*(?=ADD\\s)")) {
+                statements.add(alterMatcher.group(1) + " " + clause.trim());
+            }
+            return;
+        }
+        statements.add(sql);
+    }
+
+}
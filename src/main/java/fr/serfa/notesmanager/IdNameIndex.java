@@ -0,0 +1,228 @@
+package fr.serfa.notesmanager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * La classe IdNameIndex associe des ID entiers à des noms, dans les deux sens, pour les données de référence
+ * (étiquettes, couleurs) consultées à chaque nœud de l'arborescence et à chaque opération sur une étiquette.
+ * Les ID et les noms sont rangés dans des tables à adressage ouvert, si bien qu'une recherche par ID ne crée aucun Integer
+ * et qu'une recherche par nom ne parcourt pas toutes les entrées.
+ * Un index est immuable : il est reconstruit à chaque mise à jour, puis publié d'un seul coup à la place de l'ancien.
+ */
+public final class IdNameIndex {
+
+
+    /**
+     * L'index vide, utilisé avant le premier chargement.
+     */
+    public static final IdNameIndex EMPTY = new IdNameIndex(new int[0], new String[0], 0);
+
+
+    /**
+     * Le multiplicateur de Fibonacci utilisé pour répartir les ID et les hachages des noms dans les tables.
+     */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+
+    /**
+     * Les ID et les noms des entrées, dans l'ordre de chargement.
+     */
+    private final int[] ids;
+    private final String[] names;
+
+
+    /**
+     * Les tables à adressage ouvert des ID et des noms : chaque case contient la position de l'entrée plus un, ou 0 si elle est vide.
+     */
+    private final int[] idSlots;
+    private final int[] nameSlots;
+
+
+    /**
+     * Le décalage qui ramène un hachage sur 32 bits à la taille des tables.
+     */
+    private final int shift;
+
+
+    /**
+     * La vue Map des entrées, créée à la première demande.
+     */
+    private volatile Map<Integer, String> mapView;
+
+
+    private IdNameIndex(int[] ids, String[] names, int size) {
+        // Des tables au moins deux fois plus grandes que le nombre d'entrées gardent les séquences de sondage courtes
+        int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        this.idSlots = new int[capacity];
+        this.nameSlots = new int[capacity];
+
+        int unique = 0;
+        for (int row = 0; row < size; row++) {
+            int slot = slot(ids[row]);
+            while (idSlots[slot] != 0 && ids[idSlots[slot] - 1] != ids[row]) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (idSlots[slot] != 0) {
+                // ID en double : seule sa première ligne est indexée
+                continue;
+            }
+            ids[unique] = ids[row];
+            names[unique] = names[row];
+            idSlots[slot] = ++unique;
+
+            // Un nom en double est rangé après le premier, qui est donc celui trouvé par idOf
+            slot = slot(names[unique - 1].hashCode());
+            while (nameSlots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            nameSlots[slot] = unique;
+        }
+        this.ids = Arrays.copyOf(ids, unique);
+        this.names = Arrays.copyOf(names, unique);
+    }
+
+
+    /**
+     * Construit un index à partir de lignes lues en base de données.
+     * Si un ID apparaît plusieurs fois, seule sa première ligne est indexée ; si un nom apparaît plusieurs fois,
+     * idOf renvoie l'ID de sa première ligne. Les lignes sans nom sont ignorées.
+     *
+     * @param rows   Les lignes.
+     * @param idOf   La fonction donnant l'ID d'une ligne.
+     * @param nameOf La fonction donnant le nom d'une ligne.
+     * @param <T>    Le type des lignes.
+     * @return L'index des lignes.
+     */
+    public static <T> IdNameIndex of(List<T> rows, ToIntFunction<? super T> idOf, Function<? super T, String> nameOf) {
+        if (rows == null || rows.isEmpty()) {
+            return EMPTY;
+        }
+
+        int[] ids = new int[rows.size()];
+        String[] names = new String[rows.size()];
+        int size = 0;
+        for (T row : rows) {
+            int id = idOf.applyAsInt(row);
+            String name = nameOf.apply(row);
+            if (name == null) {
+                continue;
+            }
+            ids[size] = id;
+            names[size] = name;
+            size++;
+        }
+        return new IdNameIndex(ids, names, size);
+    }
+
+
+    /**
+     * Récupère le nom associé à un ID.
+     *
+     * @param id L'ID recherché.
+     * @return Le nom associé à l'ID, ou null si l'ID n'est pas indexé.
+     */
+    public String get(int id) {
+        int entry = entryOf(id);
+        return entry < 0 ? null : names[entry];
+    }
+
+
+    /**
+     * Récupère l'ID associé à un nom.
+     *
+     * @param name      Le nom recherché.
+     * @param missingID La valeur renvoyée si le nom n'est pas indexé.
+     * @return L'ID associé au nom, ou missingID.
+     */
+    public int idOf(String name, int missingID) {
+        int entry = name == null ? -1 : entryOf(name);
+        return entry < 0 ? missingID : ids[entry];
+    }
+
+
+    /**
+     * @return Le nombre d'entrées de l'index.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+
+    /**
+     * @return true si l'index ne contient aucune entrée.
+     */
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+
+    /**
+     * @return Les noms indexés, dans l'ordre de chargement, en lecture seule.
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+
+    /**
+     * Présente l'index sous forme de Map en lecture seule, dans l'ordre de chargement, pour les appelants qui parcourent les entrées.
+     *
+     * @return Les entrées de l'index.
+     */
+    public Map<Integer, String> asMap() {
+        Map<Integer, String> view = mapView;
+        if (view == null) {
+            Map<Integer, String> entries = new LinkedHashMap<>();
+            for (int entry = 0; entry < ids.length; entry++) {
+                entries.put(ids[entry], names[entry]);
+            }
+            view = Collections.unmodifiableMap(entries);
+            mapView = view;
+        }
+        return view;
+    }
+
+
+    /**
+     * Recherche la position de l'entrée d'un ID, ou -1.
+     */
+    private int entryOf(int id) {
+        int mask = idSlots.length - 1;
+        for (int slot = slot(id); idSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = idSlots[slot] - 1;
+            if (ids[entry] == id) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Recherche la position de l'entrée d'un nom, ou -1.
+     */
+    private int entryOf(String name) {
+        int mask = nameSlots.length - 1;
+        for (int slot = slot(name.hashCode()); nameSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = nameSlots[slot] - 1;
+            if (names[entry].equals(name)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+
+    private int slot(int hash) {
+        return (hash * HASH_MULTIPLIER) >>> shift;
+    }
+
+}
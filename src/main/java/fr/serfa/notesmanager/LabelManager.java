@@ -1,6 +1,6 @@
 package fr.serfa.notesmanager;
 
-import java.sql.ResultSet;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -10,42 +10,36 @@ public class LabelManager {
 
 
     /**
-     * Map qui stocke les étiquettes récupérées de la base de données.
+     * L'index des étiquettes récupérées de la base de données, par ID et par nom.
+     * Il est remplacé d'un seul coup à chaque mise à jour, si bien que les lectures ne prennent aucun verrou.
      */
-    private static Map<Integer, String> labels = new java.util.HashMap<>();
+    private static volatile IdNameIndex labels = IdNameIndex.EMPTY;
 
 
     /**
      * Récupère toutes les étiquettes de la base de données.
      *
-     * @return Un ResultSet contenant toutes les étiquettes.
+     * @return Les lignes de toutes les étiquettes, ou null en cas d'erreur.
      */
-    private static ResultSet fetchAllLabels() {
-        return DatabaseManager.select(
-                "labels",
-                new String[]{"label_id", "label_name"},
-                new String[]{},
-                new String[]{}
-        );
+    private static List<LabelRow> fetchAllLabels() {
+        return TypedQuery.of(QueryTemplate.LABEL_SELECT_ALL).list(LabelRow.MAPPER);
     }
 
 
     /**
      * Met à jour les étiquettes stockées dans la Map à partir de la base de données.
      */
-    public static void updateLabels() {
-        ResultSet resultSet = fetchAllLabels();
+    public static synchronized void updateLabels() {
         try {
-            // Clear the labels HashMap
-            labels = new java.util.HashMap<>();
-            System.out.println("Mise à jour des étiquettes dans la classe LabelManager");
-            while (resultSet.next()) {
-                int labelID = resultSet.getInt(1);
-                String labelName = resultSet.getString(2);
-                // Ajoute l'étiquette à la Map labels
-                labels.put(labelID, labelName);
-                System.out.println("ID de l'étiquette : " + labelID + " Nom de l'étiquette : " + labelName);
-            }
+            // Construit un nouvel index, publié une fois complet pour les lectures depuis d'autres threads
+            labels = QueryMetrics.time("LabelManager.updateLabels", () -> {
+                List<LabelRow> rows = fetchAllLabels();
+                System.out.println("Mise à jour des étiquettes dans la classe LabelManager");
+                for (LabelRow row : rows) {
+                    System.out.println("ID de l'étiquette : " + row.labelID() + " Nom de l'étiquette : " + row.labelName());
+                }
+                return IdNameIndex.of(rows, LabelRow::labelID, LabelRow::labelName);
+            });
         } catch (Exception e) {
             System.out.println("Erreur : " + e);
         }
@@ -59,26 +53,32 @@ public class LabelManager {
      * @return L'ID de l'étiquette. Retourne -1 si l'étiquette n'est pas trouvée.
      */
     public static int getLabelID(String labelName) {
-        for (Map.Entry<Integer, String> entry : labels.entrySet()) {
-            if (entry.getValue().equals(labelName)) {
-                return entry.getKey();
-            }
-        }
-        return -1;
+        return labels.idOf(labelName, -1);
+    }
+
+
+    /**
+     * Récupère le nom d'une étiquette donnée.
+     *
+     * @param labelID L'ID de l'étiquette.
+     * @return Le nom de l'étiquette. Retourne null si l'étiquette n'est pas trouvée.
+     */
+    public static String getLabelName(int labelID) {
+        return labels.get(labelID);
     }
 
 
     /**
      * Récupère toutes les étiquettes.
      *
-     * @return Une Map contenant toutes les étiquettes.
+     * @return Une Map en lecture seule contenant toutes les étiquettes.
      */
     public static Map<Integer, String> getAllLabels() {
-        // Si la Map labels est vide, la met à jour
+        // Si l'index des étiquettes est vide, le met à jour
         if (labels.isEmpty()) {
             updateLabels();
         }
-        return labels;
+        return labels.asMap();
     }
 
 
@@ -89,42 +89,40 @@ public class LabelManager {
      * @return L'ID de la nouvelle étiquette.
      */
     public static int createLabel(String labelName) {
-        return DatabaseManager.insert("labels",
-                new String[]{"label_name"},
-                new String[]{labelName}
-        );
+        return DatabaseManager.insert(QueryTemplate.LABEL_INSERT, labelName);
     }
 
 
     /**
      * Met à jour une étiquette existante.
+     * Les notes qui portent l'étiquette sont marquées comme modifiées, pour que la synchronisation du carnet de notes les relise.
      *
      * @param labelName    Le nom actuel de l'étiquette.
      * @param newLabelName Le nouveau nom de l'étiquette.
      * @return Le nombre de lignes affectées par l'opération de mise à jour.
      */
     public static int updateLabel(String labelName, String newLabelName) {
-        return DatabaseManager.update(
-                "labels",
-                "label_name",
-                newLabelName,
-                "label_name",
-                labelName
-        );
+        Integer result = DatabaseManager.transaction(() -> {
+            TypedQuery.of(QueryTemplate.LABEL_TOUCH_NOTES).setString(labelName).setString(labelName).execute();
+            return DatabaseManager.execute(QueryTemplate.LABEL_UPDATE_NAME, newLabelName, labelName);
+        });
+        return result == null ? -1 : result;
     }
 
 
     /**
      * Supprime une étiquette existante.
+     * Les notes qui portaient l'étiquette sont marquées comme modifiées, pour que la synchronisation du carnet de notes les relise.
      *
      * @param labelName Le nom de l'étiquette à supprimer.
      * @return Le nombre de lignes affectées par l'opération de suppression.
      */
     public static int deleteLabel(String labelName) {
-        return DatabaseManager.delete("labels",
-                "label_name",
-                labelName
-        );
+        Integer result = DatabaseManager.transaction(() -> {
+            TypedQuery.of(QueryTemplate.LABEL_TOUCH_NOTES).setString(labelName).setString(labelName).execute();
+            return DatabaseManager.execute(QueryTemplate.LABEL_DELETE, labelName);
+        });
+        return result == null ? -1 : result;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package fr.serfa.notesmanager;
+
+/**
+ * Une ligne de la table labels (requête QueryTemplate.LABEL_SELECT_ALL).
+ *
+ * @param labelID   L'ID de l'étiquette.
+ * @param labelName Le nom de l'étiquette.
+ */
+public record LabelRow(int labelID, String labelName) {
+
+    public static final Column<Integer> LABEL_ID = Column.ofInt(1, "label_id");
+    public static final Column<String> LABEL_NAME = Column.ofString(2, "label_name");
+
+
+    /**
+     * Convertit la ligne courante du résultat en LabelRow.
+     */
+    public static final DatabaseManager.RowMapper<LabelRow> MAPPER = row -> new LabelRow(
+            LABEL_ID.getInt(row),
+            LABEL_NAME.get(row)
+    );
+
+}
@@ -0,0 +1,558 @@
+package fr.serfa.notesmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+
+/**
+ * La classe LocalContentStore conserve sur le disque local le contenu des notes lues, pour qu'après un redémarrage
+ * leur ouverture ne télécharge plus le contenu complet depuis la base de données, mais seulement sa version.
+ * Les contenus sont ajoutés à la suite dans des fichiers segments de localContentSegmentBytes octets (16 Mio par défaut),
+ * projetés en mémoire hors du tas Java, dans le dossier localContentStoreDir (~/.notesmanager/content par défaut),
+ * avec un sous-dossier par base de données.
+ * Chaque enregistrement porte l'ID de la note, la version du contenu (content_version de la note et modifications en attente)
+ * et une somme de contrôle CRC32 : un enregistrement incomplet ou altéré, par exemple après un arrêt brutal, est ignoré.
+ * Les segments dont la plupart des enregistrements sont périmés sont compactés, et les plus anciens segments sont supprimés
+ * au-delà de localContentStoreBytes octets (256 Mio par défaut). Le stockage se désactive avec la propriété localContentStore=false.
+ */
+public abstract class LocalContentStore {
+
+
+    /**
+     * La version d'un contenu enregistré en base de données : le numéro de version du contenu de la note,
+     * le nombre de ses modifications en attente dans note_deltas et l'ID de la dernière d'entre elles.
+     *
+     * @param contentVersion La valeur de notes.content_version.
+     * @param deltaCount  Le nombre de modifications en attente.
+     * @param lastDeltaID L'ID de la dernière modification en attente, ou 0.
+     */
+    public record Version(int contentVersion, int deltaCount, int lastDeltaID) {
+
+        /**
+         * Convertit la ligne courante du résultat de QueryTemplate.NOTE_SELECT_VERSION en Version.
+         */
+        public static final DatabaseManager.RowMapper<Version> MAPPER = row -> new Version(
+                row.getInt(1),
+                row.getInt(2),
+                row.getInt(3)
+        );
+    }
+
+
+    /**
+     * Un fichier segment projeté en mémoire.
+     */
+    private static final class Segment {
+
+        private final int number;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+
+        private Segment(int number, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+
+    /**
+     * L'emplacement du dernier enregistrement d'une note.
+     */
+    private record Location(Segment segment, int offset, int length, Version version) {
+
+        private int size() {
+            return recordSize(length);
+        }
+    }
+
+
+    /**
+     * Le marqueur de début d'un enregistrement, écrit en dernier pour qu'un enregistrement interrompu ne soit jamais lu.
+     * Il change avec le format de l'en-tête : les enregistrements d'un ancien format sont ignorés, puis remplacés.
+     */
+    private static final int RECORD_MAGIC = 0x4E4D4C44;
+
+
+    /**
+     * La position de chaque champ de l'en-tête d'un enregistrement, et la taille de l'en-tête.
+     */
+    private static final int NOTE_ID_OFFSET = 4;
+    private static final int CONTENT_VERSION_OFFSET = 8;
+    private static final int DELTA_COUNT_OFFSET = 16;
+    private static final int LAST_DELTA_ID_OFFSET = 20;
+    private static final int LENGTH_OFFSET = 24;
+    private static final int CRC_OFFSET = 28;
+    private static final int HEADER_SIZE = 32;
+
+
+    /**
+     * Le nombre maximal de segments compactés à la fois.
+     */
+    private static final int MAX_COMPACTED_SEGMENTS = 4;
+
+
+    /**
+     * L'activation du stockage local, sa taille maximale et la taille de chaque segment, en octets.
+     */
+    private static final boolean enabled = Boolean.parseBoolean(DatabaseManager.stringProperty("localContentStore", "true"));
+    private static final long maxBytes = Math.max(1, DatabaseManager.longProperty("localContentStoreBytes", 256L * 1024 * 1024));
+    private static final int segmentBytes = (int) Math.clamp(DatabaseManager.longProperty("localContentSegmentBytes", 16L * 1024 * 1024),
+            64L * 1024, Integer.MAX_VALUE - 8L);
+
+
+    /**
+     * Les segments, par numéro croissant, et le segment auquel les enregistrements sont ajoutés.
+     */
+    private static final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private static Segment active;
+
+
+    /**
+     * L'emplacement du dernier enregistrement de chaque note, par ID de note.
+     */
+    private static final Map<Integer, Location> index = new HashMap<>();
+
+
+    /**
+     * Le dossier des segments, le verrou qui le réserve à cette instance de l'application, et l'état d'ouverture du stockage.
+     */
+    private static Path directory;
+    private static FileChannel lockChannel;
+    private static FileLock directoryLock;
+    private static boolean opened;
+    private static boolean unavailable;
+    private static boolean compacting;
+
+
+    /**
+     * Les statistiques du stockage local.
+     */
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder staleCount = new LongAdder();
+    private static final LongAdder corruptCount = new LongAdder();
+    private static final LongAdder compactedSegments = new LongAdder();
+
+
+    /**
+     * Indique si le stockage local est activé.
+     *
+     * @return true si le contenu des notes doit être recherché dans le stockage local.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Récupère le contenu d'une note enregistré localement, s'il correspond à la version indiquée.
+     * Le contenu est lu directement dans le segment projeté en mémoire, dont la somme de contrôle est vérifiée à chaque lecture.
+     *
+     * @param noteID  L'ID de la note.
+     * @param version La version actuelle du contenu en base de données.
+     * @return Le contenu de la note, ou null s'il est absent, périmé ou altéré.
+     */
+    public static synchronized String get(int noteID, Version version) {
+        if (!open()) {
+            return null;
+        }
+
+        Location location = index.get(noteID);
+        if (location == null) {
+            misses.increment();
+            return null;
+        }
+        if (!location.version().equals(version)) {
+            staleCount.increment();
+            drop(noteID, location);
+            return null;
+        }
+
+        ByteBuffer buffer = location.segment().buffer;
+        ByteBuffer content = buffer.slice(location.offset() + HEADER_SIZE, location.length());
+        if (checksum(buffer, location.offset(), content) != buffer.getInt(location.offset() + CRC_OFFSET)) {
+            System.out.println("Erreur : contenu local de la note " + noteID + " altéré dans " + location.segment().path);
+            corruptCount.increment();
+            drop(noteID, location);
+            return null;
+        }
+        hits.increment();
+        return StandardCharsets.UTF_8.decode(content).toString();
+    }
+
+
+    /**
+     * Enregistre localement le contenu d'une note, qui remplace le précédent.
+     * Un contenu plus grand qu'un segment n'est pas enregistré.
+     *
+     * @param noteID  L'ID de la note.
+     * @param version La version du contenu en base de données.
+     * @param content Le contenu de la note.
+     */
+    public static synchronized void put(int noteID, Version version, String content) {
+        if (content == null || !open()) {
+            return;
+        }
+
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (recordSize(bytes.length) > segmentBytes) {
+            return;
+        }
+
+        try {
+            Location location = append(noteID, version, ByteBuffer.wrap(bytes));
+            replace(noteID, location);
+            enforceSizeLimit();
+        } catch (IOException e) {
+            System.out.println("Erreur : enregistrement local du contenu de la note " + noteID + " impossible : " + e);
+        }
+    }
+
+
+    /**
+     * Oublie le contenu local d'une note supprimée. Son enregistrement sera retiré par le compactage.
+     *
+     * @param noteID L'ID de la note.
+     */
+    public static synchronized void remove(int noteID) {
+        Location location = index.get(noteID);
+        if (location != null) {
+            drop(noteID, location);
+        }
+    }
+
+
+    /**
+     * Écrit les segments sur le disque et les ferme, à la fermeture de l'application.
+     */
+    public static synchronized void close() {
+        for (Segment segment : segments.values()) {
+            try {
+                segment.buffer.force();
+                segment.channel.close();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Erreur : fermeture du segment " + segment.path + " : " + e);
+            }
+        }
+        segments.clear();
+        index.clear();
+        active = null;
+        try {
+            if (directoryLock != null) {
+                directoryLock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur : libération du stockage local : " + e);
+        }
+        opened = false;
+        // Une lecture encore en cours à la fermeture de l'application ne rouvre pas le stockage
+        unavailable = true;
+    }
+
+
+    /**
+     * Résume les statistiques du stockage local, pour la console.
+     *
+     * @return Le résumé des statistiques.
+     */
+    public static synchronized String getStatsSummary() {
+        long residentBytes = 0;
+        for (Segment segment : segments.values()) {
+            residentBytes += segment.liveBytes;
+        }
+        return String.format("%d contenus lus localement, %d absents, %d périmés, %d altérés, %d contenus (%d octets) dans %d segments, %d segments compactés",
+                hits.sum(), misses.sum(), staleCount.sum(), corruptCount.sum(), index.size(), residentBytes, segments.size(), compactedSegments.sum());
+    }
+
+
+    /**
+     * Ouvre le stockage au premier appel : réserve le dossier, projette les segments existants en mémoire
+     * et reconstruit l'index à partir de leurs enregistrements valides.
+     *
+     * @return true si le stockage est utilisable.
+     */
+    private static boolean open() {
+        if (opened) {
+            return true;
+        }
+        if (!enabled || unavailable) {
+            return false;
+        }
+
+        try {
+            directory = Path.of(DatabaseManager.stringProperty("localContentStoreDir",
+                    Path.of(System.getProperty("user.home"), ".notesmanager", "content").toString()), databaseKey());
+            Files.createDirectories(directory);
+
+            // Une seule instance de l'application à la fois ajoute des enregistrements aux segments
+            lockChannel = FileChannel.open(directory.resolve("store.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            directoryLock = lockChannel.tryLock();
+            if (directoryLock == null) {
+                lockChannel.close();
+                System.out.println("Stockage local déjà utilisé par une autre instance : " + directory);
+                unavailable = true;
+                return false;
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    int number = Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+                    segments.put(number, mapSegment(number, file));
+                }
+            }
+            for (Segment segment : segments.values()) {
+                recover(segment);
+            }
+            active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+            opened = true;
+            System.out.println("Stockage local : " + index.size() + " contenus dans " + segments.size() + " segments (" + directory + ")");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur : stockage local indisponible : " + e);
+            unavailable = true;
+            return false;
+        }
+    }
+
+
+    /**
+     * Parcourt les enregistrements d'un segment jusqu'au premier emplacement sans marqueur de début ou de longueur invalide,
+     * qui marque la fin du segment : un enregistrement interrompu par un arrêt brutal n'a pas encore de marqueur.
+     * Chaque enregistrement valide remplace dans l'index celui, plus ancien, de la même note.
+     */
+    private static void recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity() && buffer.getInt(position) == RECORD_MAGIC) {
+            int length = buffer.getInt(position + LENGTH_OFFSET);
+            if (length < 0 || length > buffer.capacity() - position - HEADER_SIZE) {
+                break;
+            }
+            // Un enregistrement altéré dont la longueur est plausible est ignoré, sans perdre ceux qui le suivent
+            ByteBuffer content = buffer.slice(position + HEADER_SIZE, length);
+            if (checksum(buffer, position, content) != buffer.getInt(position + CRC_OFFSET)) {
+                corruptCount.increment();
+                position += recordSize(length);
+                continue;
+            }
+
+            Version version = new Version(buffer.getInt(position + CONTENT_VERSION_OFFSET),
+                    buffer.getInt(position + DELTA_COUNT_OFFSET), buffer.getInt(position + LAST_DELTA_ID_OFFSET));
+            replace(buffer.getInt(position + NOTE_ID_OFFSET), new Location(segment, position, length, version));
+            position += recordSize(length);
+        }
+        segment.writePosition = position;
+    }
+
+
+    /**
+     * Ajoute un enregistrement au segment actif, en ouvrant un nouveau segment si celui-ci est plein.
+     * Le marqueur de début est écrit après le reste de l'enregistrement.
+     *
+     * @return L'emplacement de l'enregistrement.
+     */
+    private static Location append(int noteID, Version version, ByteBuffer content) throws IOException {
+        int length = content.remaining();
+        if (active == null || active.writePosition + recordSize(length) > active.buffer.capacity()) {
+            rollSegment();
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.putInt(position + NOTE_ID_OFFSET, noteID);
+        buffer.putInt(position + CONTENT_VERSION_OFFSET, version.contentVersion());
+        buffer.putInt(position + DELTA_COUNT_OFFSET, version.deltaCount());
+        buffer.putInt(position + LAST_DELTA_ID_OFFSET, version.lastDeltaID());
+        buffer.putInt(position + LENGTH_OFFSET, length);
+        buffer.put(position + HEADER_SIZE, content, content.position(), length);
+        buffer.putInt(position + CRC_OFFSET, checksum(buffer, position, buffer.slice(position + HEADER_SIZE, length)));
+        buffer.putInt(position, RECORD_MAGIC);
+
+        active.writePosition += recordSize(length);
+        return new Location(active, position, length, version);
+    }
+
+
+    /**
+     * Scelle le segment actif et en crée un nouveau, puis lance le compactage des segments les plus périmés.
+     */
+    private static void rollSegment() throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        int number = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment = mapSegment(number, directory.resolve(String.format("segment-%06d.dat", number)));
+        segments.put(number, segment);
+        active = segment;
+
+        if (!compacting) {
+            compacting = true;
+            Thread.ofVirtual().name("local-content-compaction").start(LocalContentStore::compact);
+        }
+    }
+
+
+    /**
+     * Recopie dans le segment actif les enregistrements à jour des segments scellés dont moins de la moitié est encore utile,
+     * puis supprime ces segments.
+     */
+    private static void compact() {
+        synchronized (LocalContentStore.class) {
+            try {
+                List<Segment> candidates = new ArrayList<>();
+                for (Segment segment : segments.values()) {
+                    if (segment != active && segment.liveBytes < segment.buffer.capacity() / 2 && candidates.size() < MAX_COMPACTED_SEGMENTS) {
+                        candidates.add(segment);
+                    }
+                }
+
+                for (Segment segment : candidates) {
+                    if (!segments.containsValue(segment)) {
+                        continue;
+                    }
+                    List<Map.Entry<Integer, Location>> live = new ArrayList<>();
+                    for (Map.Entry<Integer, Location> entry : index.entrySet()) {
+                        if (entry.getValue().segment() == segment) {
+                            live.add(entry);
+                        }
+                    }
+                    for (Map.Entry<Integer, Location> entry : live) {
+                        Location location = entry.getValue();
+                        ByteBuffer content = segment.buffer.slice(location.offset() + HEADER_SIZE, location.length());
+                        replace(entry.getKey(), append(entry.getKey(), location.version(), content));
+                    }
+                    deleteSegment(segment);
+                    compactedSegments.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Erreur : compactage du stockage local : " + e);
+            } finally {
+                compacting = false;
+            }
+        }
+    }
+
+
+    /**
+     * Supprime les segments les plus anciens tant que le stockage dépasse sa taille maximale.
+     * Les contenus de ces segments seront de nouveau lus en base de données.
+     */
+    private static void enforceSizeLimit() {
+        while ((long) segments.size() * segmentBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            index.values().removeIf(location -> location.segment() == oldest);
+            deleteSegment(oldest);
+        }
+    }
+
+
+    /**
+     * Retire un segment du stockage et supprime son fichier.
+     */
+    private static void deleteSegment(Segment segment) {
+        segments.remove(segment.number);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // Le fichier encore projeté ne peut pas être supprimé sur certains systèmes : ses enregistrements périmés seront ignorés
+            System.out.println("Erreur : suppression du segment " + segment.path + " : " + e);
+        }
+    }
+
+
+    /**
+     * Enregistre dans l'index le nouvel emplacement du contenu d'une note, et retire l'ancien du volume utile de son segment.
+     */
+    private static void replace(int noteID, Location location) {
+        Location previous = index.put(noteID, location);
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.size();
+        }
+        location.segment().liveBytes += location.size();
+    }
+
+
+    /**
+     * Retire une note de l'index.
+     */
+    private static void drop(int noteID, Location location) {
+        if (index.remove(noteID, location)) {
+            location.segment().liveBytes -= location.size();
+        }
+    }
+
+
+    /**
+     * Ouvre un fichier segment et le projette en mémoire, en le créant à la taille d'un segment s'il n'existe pas.
+     */
+    private static Segment mapSegment(int number, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = Files.size(file) == 0 ? segmentBytes : Math.min(Files.size(file), Integer.MAX_VALUE - 8L);
+            return new Segment(number, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Calcule la somme de contrôle d'un enregistrement, sur son en-tête (hors marqueur et somme de contrôle) et son contenu,
+     * sans recopier le contenu projeté en mémoire dans le tas Java.
+     */
+    private static int checksum(ByteBuffer buffer, int position, ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position + NOTE_ID_OFFSET, CRC_OFFSET - NOTE_ID_OFFSET));
+        crc.update(content.duplicate());
+        return (int) crc.getValue();
+    }
+
+
+    /**
+     * Calcule la taille d'un enregistrement, arrondie au multiple de 8 octets supérieur.
+     */
+    private static int recordSize(int length) {
+        return (HEADER_SIZE + length + 7) & ~7;
+    }
+
+
+    /**
+     * Calcule le nom du sous-dossier de la base de données utilisée, pour que des bases différentes ne partagent pas leurs ID de notes.
+     */
+    private static String databaseKey() {
+        String database = DatabaseManager.stringProperty("storageBackend", "mariadb")
+                + "|" + DatabaseManager.stringProperty("dbHost", "")
+                + "|" + DatabaseManager.stringProperty("dbPort", "")
+                + "|" + DatabaseManager.stringProperty("dbName", "")
+                + "|" + DatabaseManager.stringProperty("embeddedUrl", "");
+        return UUID.nameUUIDFromBytes(database.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+}
@@ -78,6 +78,9 @@ public class LoginWindow extends Application {
         // Définit le stage principal pour cette application
         this.stage = primaryStage;
 
+        // Préchauffe le pool de connexions en arrière-plan pendant que l'utilisateur saisit ses identifiants
+        Thread.ofVirtual().name("pool-warmup").start(DatabaseManager::warmUpConnectionPool);
+
         try {
             // Charge le fichier FXML de la fenêtre de connexion
             FXMLLoader fxmlLoader = new FXMLLoader(LoginWindow.class.getResource("loginWindow.fxml"));
@@ -96,6 +99,34 @@ public class LoginWindow extends Application {
     }
 
 
+    /**
+     * Appelée à la fermeture de l'application.
+     * Elle écrit les sauvegardes automatiques en attente, arrête la façade asynchrone puis ferme le pool de connexions à la base de données.
+     */
+    @Override
+    public void stop() {
+        if (NoteArea.noteArea != null) {
+            NoteArea.captureEdits();
+        }
+        NoteContentCodec.stopMigration();
+        NoteContentPrefetcher.cancelAll();
+        NoteAutosave.shutdown(DatabaseManager.longProperty("autosaveShutdownFlushTimeoutMs", 10_000));
+        System.out.println("Sauvegarde automatique : " + NoteAutosave.getStatsSummary());
+        System.out.println("Compression des notes : " + NoteContentCodec.getStatsSummary());
+        System.out.println("Préchargement des notes : " + NoteContentPrefetcher.getStatsSummary());
+        System.out.println("Cache des contenus : " + NoteContentCache.getStatsSummary());
+        System.out.println("Stockage local des contenus : " + LocalContentStore.getStatsSummary());
+        LocalContentStore.close();
+        QueryMetrics.printSummary();
+        if (DatabaseManager.getReplicaSummary() != null) {
+            System.out.println("Répliques en lecture : " + DatabaseManager.getReplicaSummary());
+        }
+        QueryLog.flush(1_000);
+        AsyncDatabaseManager.shutdown();
+        DatabaseManager.shutdown();
+    }
+
+
     /**
      * Méthode pour gérer l'action de connexion lorsqu'un utilisateur tente de se connecter.
      * Cette méthode récupère l'email et le mot de passe entrés par l'utilisateur, vérifie leur format,
@@ -113,7 +144,7 @@ public class LoginWindow extends Application {
         // Récupère l'email et le mot de passe de l'utilisateur à partir des champs
         String userEmail = inputLoginEmail.getText();
         String userPassword = inputLoginPassword.getText();
-        System.out.println("User : " + userEmail + "  / Password : " + userPassword);
+        System.out.println("User : " + userEmail);
 
         // Vérifie si l'email et le mot de passe sont dans le bon format
         if (FormatChecker.checkEmailFormat(userEmail) && FormatChecker.checkPasswordFormat(userPassword)) {
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 
 /**
@@ -143,6 +145,12 @@ public class MainWindow extends Application {
     Notebook notebook;
 
 
+    /**
+     * Le délai maximal d'écriture des sauvegardes en attente lors de la déconnexion, en millisecondes
+     */
+    private static final long logoutFlushTimeoutMs = DatabaseManager.longProperty("autosaveLogoutFlushTimeoutMs", 5_000);
+
+
     /**
      * Cette méthode est appelée lors du lancement de l'application.
      *
@@ -173,20 +181,56 @@ public class MainWindow extends Application {
         // Définit le texte du label userNameLabel pour saluer l'utilisateur
         userNameLabel.setText(user.getUserName());
 
-        // Initialise le carnet de notes avec l'utilisateur actuel
+        // Charge les étiquettes et les couleurs en parallèle du carnet de notes, sur des threads virtuels
+        CompletableFuture<Object> labelsLoaded = AsyncDatabaseManager.supplyAsync(() -> {
+            LabelManager.getAllLabels();
+            return null;
+        }, Runnable::run);
+        CompletableFuture<Object> colorsLoaded = AsyncDatabaseManager.supplyAsync(() -> {
+            NotebookColor.fetchAllColors();
+            return null;
+        }, Runnable::run);
+
+        // Initialise le carnet de notes avec l'utilisateur actuel, et lit son contenu en parallèle des étiquettes et des couleurs
         notebook = new Notebook(user);
+        CompletableFuture<Notebook.NotebookContent> contentLoaded = AsyncDatabaseManager.supplyAsync(
+                () -> notebook.fetchNotebookContent(null), Runnable::run);
 
         // Initialise la zone de notes vide dans l'éditeur HTML de l'interface utilisateur
         NoteArea.setNoteArea(noteArea, noteSelectedPane, waitingNoteSelectedPane, noteTitle, noteLabels, btnChooseLabel);
 
-        // Définit le contenu du menu déroulant de filtrage des notes
-        setLabelFilterDropdownContent(btnFilterLabel, this::setLabelFilter, false);
+        // Génère la vue en arbre, vide jusqu'à la fin du chargement
+        generateTreeView();
 
-        // Définit le contenu du menu déroulant de sélection des labels de notes
-        setLabelFilterDropdownContent(btnChooseLabel, this::setNoteLabel, false);
+        // Une fois les étiquettes, les couleurs et le contenu lus, remplit les menus et l'arbre sur le thread de l'interface, sans l'avoir bloqué
+        CompletableFuture.allOf(labelsLoaded, colorsLoaded, contentLoaded).exceptionally(e -> {
+            System.out.println("Erreur : " + e);
+            return null;
+        }).thenRunAsync(() -> {
+            notebook.applyNotebookContent(contentLoaded.exceptionally(e -> null).join());
 
-        // Génère la vue en arbre pour le carnet de notes
-        generateTreeView();
+            // Définit le contenu du menu déroulant de filtrage des notes
+            setLabelFilterDropdownContent(btnFilterLabel, this::setLabelFilter, false);
+
+            // Définit le contenu du menu déroulant de sélection des labels de notes
+            setLabelFilterDropdownContent(btnChooseLabel, this::setNoteLabel, false);
+
+            // Génère la vue en arbre pour le carnet de notes
+            generateTreeView();
+        }, Platform::runLater);
+
+        // Capture périodiquement les modifications de l'éditeur pour la sauvegarde automatique
+        NoteAutosave.setFailureListener(note -> Platform.runLater(() -> CustomAlert.create(
+                Alert.AlertType.WARNING,
+                "Erreur",
+                null,
+                "La note " + note.getNoteName() + " n'a pas pu être sauvegardée",
+                "show"
+        )));
+        NoteAutosave.startPeriodicCapture(NoteArea::captureEdits);
+
+        // Compresse en arrière-plan les contenus de notes écrits avant la compression
+        NoteContentCodec.startMigration(user.getUserID());
     }
 
 
@@ -211,6 +255,17 @@ public class MainWindow extends Application {
 
         // Affichage de l'alerte et attente de la réponse de l'utilisateur
         if (alert.showAndWait().get() == ButtonType.OK) {
+            // Arrêt de la capture et écriture des modifications en attente avant de quitter le carnet de notes
+            NoteAutosave.stopPeriodicCapture();
+            NoteContentCodec.stopMigration();
+            NoteContentPrefetcher.cancelAll();
+            NoteArea.saveAllDirtyNotes(logoutFlushTimeoutMs);
+            System.out.println("Sauvegarde automatique : " + NoteAutosave.getStatsSummary());
+            System.out.println("Sauvegardes ignorées car sans modification : " + Note.getSkippedSaveCount());
+            System.out.println("Préchargement des notes : " + NoteContentPrefetcher.getStatsSummary());
+            System.out.println("Cache des contenus : " + NoteContentCache.getStatsSummary());
+            NoteContentCache.clear();
+
             try {
                 // Fermeture de la fenêtre actuelle
                 Stage currentStage = (Stage) userNameLabel.getScene().getWindow();
@@ -233,14 +288,11 @@ public class MainWindow extends Application {
 
     /**
      * Cette méthode est appelée lors de l'enregistrement d'une note.
-     * Elle récupère le contenu de la note dans l'éditeur HTML, met à jour le contenu de la note et affiche une alerte de confirmation.
+     * Elle soumet le contenu de l'éditeur HTML à la sauvegarde automatique et demande son écriture immédiate en arrière-plan.
      */
     public void saveNote() {
-        // Récupération du contenu de la note dans l'éditeur HTML
-        String content = noteArea.getHtmlText();
-
-        // Mise à jour du contenu de la note
-        NoteArea.note.editContent(content);
+        // Soumission du contenu à la sauvegarde automatique, écrit immédiatement en arrière-plan
+        NoteArea.saveNow();
 
         // Affichage d'une alerte de confirmation
         //        CustomAlert.create(
@@ -255,8 +307,10 @@ public class MainWindow extends Application {
 
     /**
      * Cette méthode est appelée lors de l'application d'un filtre de label sur les notes.
-     * Si le label sélectionné est "Tous", elle réinitialise le contenu du carnet de notes pour afficher toutes les notes.
+     * Si le label sélectionné est "Tous", elle affiche toutes les notes du carnet de notes.
      * Sinon, elle filtre les notes par le nom du label et met à jour l'affichage de l'arbre de visualisation.
+     * Le filtre est appliqué à partir de l'index des étiquettes du carnet de notes ; en chargement à la demande,
+     * les notes portant l'étiquette sont d'abord lues sur un autre thread que celui de l'interface.
      *
      * @param e L'événement qui a déclenché cette méthode (sélection d'un label dans le menu déroulant).
      */
@@ -272,25 +326,46 @@ public class MainWindow extends Application {
                 // Réinitialise le style de tous les MenuItems
                 btnFilterLabel.setText("Tous");
 
-                notebook.setNotebookContent();
-                generateTreeView();
+                // Charge le contenu s'il ne l'a pas encore été, sur un autre thread que celui de l'interface
+                if (notebook.applyLabelFilter(null, null)) {
+                    generateTreeView();
+                } else {
+                    loadNotebook(null, this::generateTreeView);
+                }
             } else {
-                // Filtre les notes par le nom du label et met à jour l'affichage de l'arbre de visualisation
-                notebook.setNotebookContent(labelName);
-
                 // Change le texte du label sélectionné pour l'entourer de crochets
                 btnFilterLabel.setText(labelName);
 
-                // Génère l'arbre de visualisation pour le carnet de notes
-                generateTreeView();
+                // Lit les notes portant le label si nécessaire, puis filtre les notes et met à jour l'affichage de l'arbre de visualisation
+                List<Binder> bindersWithoutTabs = notebook.getBindersWithoutTabs();
+                runDatabaseTask("lecture des notes de l'étiquette " + labelName,
+                        () -> notebook.fetchNotesWithLabel(labelName, bindersWithoutTabs),
+                        labelNotes -> {
+                            // Sans contenu chargé, seules les notes portant le label sont lues
+                            if (notebook.applyLabelFilter(labelName, labelNotes)) {
+                                generateFilteredTreeView();
+                            } else {
+                                loadNotebook(labelName, this::generateFilteredTreeView);
+                            }
+                        });
+            }
+        }
+    }
 
-                // Déplie tous les classeurs et les onglets dans l'arbre de visualisation
-                for (TreeItem<String> binder : binderTree.getRoot().getChildren()) {
-                    binder.setExpanded(true);
-                    for (TreeItem<String> tab : binder.getChildren()) {
-                        tab.setExpanded(true);
-                    }
-                }
+
+    /**
+     * Cette méthode est utilisée pour générer la vue en arbre du carnet de notes filtré par un label,
+     * en dépliant tous les classeurs et les onglets.
+     */
+    private void generateFilteredTreeView() {
+        // Génère l'arbre de visualisation pour le carnet de notes
+        generateTreeView();
+
+        // Déplie tous les classeurs et les onglets dans l'arbre de visualisation
+        for (TreeItem<String> binder : binderTree.getRoot().getChildren()) {
+            binder.setExpanded(true);
+            for (TreeItem<String> tab : binder.getChildren()) {
+                tab.setExpanded(true);
             }
         }
     }
@@ -298,30 +373,82 @@ public class MainWindow extends Application {
 
     /**
      * Cette méthode est utilisée pour mettre à jour la zone de notes.
-     * Elle réinitialise le contenu du carnet de notes, génère la vue en arbre pour le carnet de notes,
+     * Elle synchronise le contenu du carnet de notes, génère la vue en arbre pour le carnet de notes,
      * récupère la nouvelle note par son ID, met à jour le contenu de la zone de notes avec la nouvelle note,
      * et met à jour le texte des labels de la note.
      *
      * @param note La note à mettre à jour.
      */
     private void updateNoteArea(Note note) {
-        // Réinitialise le contenu du carnet de notes
-        notebook.setNotebookContent();
-
-        // Génère la vue en arbre pour le carnet de notes
-        generateTreeView();
-
         // Récupère l'ID de la note
         int noteID = note.getNoteID();
 
-        // Récupère la nouvelle note par son ID
-        Note newNote = notebook.getNoteByID(noteID);
+        // Synchronise le contenu du carnet de notes
+        syncNotebook(() -> {
+            // Génère la vue en arbre pour le carnet de notes
+            generateTreeView();
+
+            // Récupère la nouvelle note par son ID
+            Note newNote = notebook.getNoteByID(noteID);
+
+            // Met à jour le contenu de la zone de notes avec la nouvelle note
+            NoteArea.setContentInNoteArea(newNote);
+
+            // Met à jour le texte des labels de la note
+            NoteArea.setLabelsText();
+        });
+    }
+
+
+    /**
+     * Cette méthode est utilisée pour synchroniser le contenu du carnet de notes, sans filtre d'étiquette.
+     * Les modifications sont lues sur un autre thread que celui de l'interface, puis fusionnées sur celui-ci avant l'appel de onSynced.
+     * Si elles n'ont pas pu être fusionnées, le contenu est rechargé entièrement, lui aussi sur un autre thread.
+     *
+     * @param onSynced L'action à effectuer sur le thread de l'interface une fois le carnet de notes synchronisé.
+     */
+    private void syncNotebook(Runnable onSynced) {
+        runDatabaseTask("synchronisation du carnet de notes", notebook::fetchChanges, changes -> {
+            if (notebook.applyFetchedChanges(changes, null)) {
+                onSynced.run();
+            } else {
+                loadNotebook(null, onSynced);
+            }
+        });
+    }
+
+
+    /**
+     * Cette méthode est utilisée pour charger le contenu du carnet de notes : tout le contenu, ou seulement les notes portant un label.
+     * Le contenu est lu sur un autre thread que celui de l'interface, puis appliqué sur celui-ci avant l'appel de onLoaded.
+     *
+     * @param labelNameFilter Le nom du label à utiliser comme filtre, ou null pour charger tout le contenu.
+     * @param onLoaded        L'action à effectuer sur le thread de l'interface une fois le contenu chargé.
+     */
+    private void loadNotebook(String labelNameFilter, Runnable onLoaded) {
+        runDatabaseTask("chargement du carnet de notes", () -> notebook.fetchNotebookContent(labelNameFilter), content -> {
+            notebook.applyNotebookContent(content);
+            onLoaded.run();
+        });
+    }
 
-        // Met à jour le contenu de la zone de notes avec la nouvelle note
-        NoteArea.setContentInNoteArea(newNote);
 
-        // Met à jour le texte des labels de la note
-        NoteArea.setLabelsText();
+    /**
+     * Cette méthode est utilisée pour exécuter une opération de base de données sur un autre thread que celui de l'interface.
+     * Le résultat de l'opération est ensuite traité sur le thread de l'interface ; une erreur est affichée dans la console.
+     *
+     * @param description La description de l'opération, pour le message d'erreur.
+     * @param task        L'opération de base de données.
+     * @param onResult    Le traitement du résultat, sur le thread de l'interface.
+     * @param <T>         Le type du résultat de l'opération.
+     */
+    private static <T> void runDatabaseTask(String description, AsyncDatabaseManager.DatabaseTask<T> task, Consumer<T> onResult) {
+        AsyncDatabaseManager.supplyAsync(task)
+                .thenAccept(onResult)
+                .exceptionally(e -> {
+                    System.out.println("Erreur : " + description + " : " + e);
+                    return null;
+                });
     }
 
 
@@ -353,27 +480,34 @@ public class MainWindow extends Application {
                 System.out.println("Label : " + label.getLabelName());
                 if (label.getLabelName().equals(labelName)) {
                     System.out.println("Label already in note. Removing it.");
-                    int removeLabelResult = note.detachLabelFromNote(labelName);
-                    if (removeLabelResult > 0) {
-                        // Supprime le signe de coche avant le label correspondant dans le menu déroulant
-                        selectedLabel.setGraphic(null);
-                    }
+                    runDatabaseTask("retrait de l'étiquette " + labelName, () -> note.detachLabel(labelName), result -> {
+                        int removeLabelResult = note.labelDetached(labelName, result);
+                        if (removeLabelResult > 0) {
+                            // Supprime le signe de coche avant le label correspondant dans le menu déroulant
+                            selectedLabel.setGraphic(null);
+                        }
 
-                    updateNoteArea(note);
+                        updateNoteArea(note);
+                    });
                     return;
                 }
             }
 
             // Ajoute le label sélectionné à la note
             System.out.println("Adding label " + labelName + " to note " + note.getNoteName());
-            int addLabelResult = note.attachLabelToNote(labelName);
-            if (addLabelResult > 0) {
-                System.out.println("Label added to note.");
-                // Ajoute un signe de coche avant le label correspondant dans le menu déroulant
-                selectedLabel.setGraphic(new Label("✔"));
-
-                updateNoteArea(note);
+            if (!note.canAttachLabel(labelName)) {
+                return;
             }
+            runDatabaseTask("ajout de l'étiquette " + labelName, () -> note.attachLabel(labelName), result -> {
+                int addLabelResult = note.labelAttached(labelName, result);
+                if (addLabelResult > 0) {
+                    System.out.println("Label added to note.");
+                    // Ajoute un signe de coche avant le label correspondant dans le menu déroulant
+                    selectedLabel.setGraphic(new Label("✔"));
+
+                    updateNoteArea(note);
+                }
+            });
         }
 
     }
@@ -468,8 +602,8 @@ public class MainWindow extends Application {
 
     /**
      * Cette méthode est utilisée pour effectuer des actions sur les labels.
-     * Elle crée une alerte, récupère le texte du champ de texte du label, et effectue l'action spécifiée (créer, modifier, supprimer).
-     * Si l'action est réussie, elle met à jour le contenu de la boîte de sélection des labels, le contenu du carnet de notes, et la zone de notes.
+     * Elle crée une alerte, récupère le texte du champ de texte du label, et effectue l'action spécifiée (créer, modifier, supprimer)
+     * sur un autre thread que celui de l'interface. Si l'action est réussie, elle met à jour le contenu de la boîte de sélection des labels, le contenu du carnet de notes, et la zone de notes.
      * Si l'action échoue, elle affiche une alerte d'erreur.
      *
      * @param nameField     Le champ de texte contenant le nom du label.
@@ -489,54 +623,97 @@ public class MainWindow extends Application {
 
         // Récupération du texte du champ de texte du label
         String labelField = nameField.getText();
-        String headerText = null;
-        String contentText = null;
 
         // Vérification du format du label
         if (FormatChecker.checkLabelFormat(labelField)) {
-            int result;
-
-            // Effectue l'action spécifiée
-            if (action.equals("create") && !categoryBox.getItems().contains(labelField))
-                result = LabelManager.createLabel(labelField);
-            else if (action.equals("edit") && !categoryBox.getItems().contains(labelField))
-                result = LabelManager.updateLabel(selectedLabel, labelField);
-            else if (action.equals("delete"))
-                result = LabelManager.deleteLabel(labelField);
-            else
-                result = -1;
-
-            // Si l'action est réussie, met à jour le contenu de la boîte de sélection des labels, le contenu du carnet de notes, et la zone de notes
-            if (result > 0) {
-                switch (action) {
-                    case "create" -> {
-                        // Ajoute le nouveau label à la boîte de sélection
-                        categoryBox.getItems().add(labelField);
-                        headerText = "Ajout effectué";
-                        contentText = "L'étiquette " + labelField + " a bien été ajoutée.";
-                    }
-                    case "edit" -> {
-                        // Met à jour le texte dans la boîte de sélection avec le nouveau nom du label
-                        categoryBox.getItems().set(categoryBox.getItems().indexOf(selectedLabel), labelField);
-                        headerText = "Mise à jour effectuée";
-                        contentText = "L'étiquette " + labelField + " a bien été modifiée.";
-                    }
-                    case "delete" -> {
-                        // Supprime le label sélectionné de la boîte de sélection
-                        categoryBox.getItems().remove(selectedLabel);
-                        headerText = "Suppression effectuée";
-                        contentText = "L'étiquette " + labelField + " a bien été supprimée.";
-                    }
+            boolean labelListed = categoryBox.getItems().contains(labelField);
+
+            // Effectue l'action spécifiée, et relit les labels si elle a réussi, sur un autre thread que celui de l'interface
+            runDatabaseTask("gestion de l'étiquette " + labelField, () -> {
+                int result;
+                if (action.equals("create") && !labelListed)
+                    result = LabelManager.createLabel(labelField);
+                else if (action.equals("edit") && !labelListed)
+                    result = LabelManager.updateLabel(selectedLabel, labelField);
+                else if (action.equals("delete"))
+                    result = LabelManager.deleteLabel(labelField);
+                else
+                    result = -1;
+
+                if (result > 0) {
+                    LabelManager.updateLabels();
                 }
+                return result;
+            }, result -> {
+                labelActionDone(nameField, action, selectedLabel, labelField, result);
 
-                // Définit le texte de l'en-tête et du contenu de l'alerte
-                CustomAlert.setHeader(headerText);
-                CustomAlert.setContent(contentText);
+                // Affiche l'alerte
+                alert.show();
+            });
 
-                setLabelFilterDropdownContent(btnFilterLabel, this::setLabelFilter, true);
-                setLabelFilterDropdownContent(btnChooseLabel, this::setNoteLabel, false);
-                notebook.setNotebookContent();
+        } else {
+            System.out.println("Erreur");
+            categoryBox.getSelectionModel().clearSelection();
+            CustomAlert.setHeader("Format incorrect");
+            CustomAlert.setContent("La longeur du nom de l'étiquette doit être comprise entre 2 et 16 caractères.");
 
+            // Affiche l'alerte
+            alert.show();
+        }
+    }
+
+
+    /**
+     * Cette méthode est utilisée pour mettre à jour l'interface après une action sur les labels effectuée par actionsLabel.
+     * Si l'action est réussie, elle met à jour le contenu de la boîte de sélection des labels, le contenu du carnet de notes, et la zone de notes.
+     * Sinon, elle définit le texte d'erreur de l'alerte.
+     *
+     * @param nameField     Le champ de texte contenant le nom du label.
+     * @param action        L'action effectuée ("create", "edit", "delete").
+     * @param selectedLabel Le label sélectionné dans la boîte de sélection (seulement pour l'action "edit").
+     * @param labelField    Le nom du label saisi.
+     * @param result        Le résultat de l'action.
+     */
+    private void labelActionDone(TextField nameField, String action, String selectedLabel, String labelField, int result) {
+        String headerText = null;
+        String contentText = null;
+
+        // Si l'action est réussie, met à jour le contenu de la boîte de sélection des labels, le contenu du carnet de notes, et la zone de notes
+        if (result > 0) {
+            switch (action) {
+                case "create" -> {
+                    // Ajoute le nouveau label à la boîte de sélection
+                    categoryBox.getItems().add(labelField);
+                    headerText = "Ajout effectué";
+                    contentText = "L'étiquette " + labelField + " a bien été ajoutée.";
+                }
+                case "edit" -> {
+                    // Renomme le label dans les notes et l'index des étiquettes du carnet de notes
+                    notebook.renameLabel(selectedLabel, labelField);
+                    // Met à jour le texte dans la boîte de sélection avec le nouveau nom du label
+                    categoryBox.getItems().set(categoryBox.getItems().indexOf(selectedLabel), labelField);
+                    headerText = "Mise à jour effectuée";
+                    contentText = "L'étiquette " + labelField + " a bien été modifiée.";
+                }
+                case "delete" -> {
+                    // Retire le label des notes et de l'index des étiquettes du carnet de notes
+                    notebook.removeLabel(labelField);
+                    // Supprime le label sélectionné de la boîte de sélection
+                    categoryBox.getItems().remove(selectedLabel);
+                    headerText = "Suppression effectuée";
+                    contentText = "L'étiquette " + labelField + " a bien été supprimée.";
+                }
+            }
+
+            // Définit le texte de l'en-tête et du contenu de l'alerte
+            CustomAlert.setHeader(headerText);
+            CustomAlert.setContent(contentText);
+
+            // Les labels ont déjà été relus par actionsLabel
+            setLabelFilterDropdownContent(btnFilterLabel, this::setLabelFilter, false);
+            setLabelFilterDropdownContent(btnChooseLabel, this::setNoteLabel, false);
+
+            syncNotebook(() -> {
                 // Obtient l'ID de la note dans NoteArea
                 Note currentNote = NoteArea.getNote();
 
@@ -547,30 +724,21 @@ public class MainWindow extends Application {
                     NoteArea.setContentInNoteArea(note);
                     NoteArea.setLabelsText();
                 }
+            });
 
-                // Si l'action échoue, affiche une alerte d'erreur
-            } else if (result == -1) {
-                CustomAlert.setHeader("Erreur");
-                CustomAlert.setContent("L'étiquette " + labelField + " existe déjà dans la liste");
-                nameField.clear();
-                categoryBox.getSelectionModel().clearSelection();
-
-            } else {
-                CustomAlert.setHeader("Erreur");
-                CustomAlert.setContent("L'étiquette " + labelField + " n'a pas pu être ajoutée.");
-                categoryBox.getSelectionModel().clearSelection();
-            }
+            // Si l'action échoue, affiche une alerte d'erreur
+        } else if (result == -1) {
+            CustomAlert.setHeader("Erreur");
+            CustomAlert.setContent("L'étiquette " + labelField + " existe déjà dans la liste");
             nameField.clear();
+            categoryBox.getSelectionModel().clearSelection();
 
         } else {
-            System.out.println("Erreur");
+            CustomAlert.setHeader("Erreur");
+            CustomAlert.setContent("L'étiquette " + labelField + " n'a pas pu être ajoutée.");
             categoryBox.getSelectionModel().clearSelection();
-            CustomAlert.setHeader("Format incorrect");
-            CustomAlert.setContent("La longeur du nom de l'étiquette doit être comprise entre 2 et 16 caractères.");
         }
-
-        // Affiche l'alerte
-        alert.show();
+        nameField.clear();
     }
 
 
@@ -672,23 +840,25 @@ public class MainWindow extends Application {
             if (colorResult.isPresent()) {
                 int binderColorId = NotebookColor.getColorIDByName(colorResult.get());
 
-                Binder newBinder = notebook.createBinder(binderName, binderColorId);
+                runDatabaseTask("création du classeur " + binderName, () -> notebook.insertBinder(binderName, binderColorId), binderID -> {
+                    Binder newBinder = binderID > 0 ? notebook.binderCreated(binderID, binderName, binderColorId) : null;
 
-                if (newBinder != null) {
-                    CustomAlert.create(Alert.AlertType.INFORMATION, "Information", null, "Classeur " + binderName + " créé", "show");
+                    if (newBinder != null) {
+                        CustomAlert.create(Alert.AlertType.INFORMATION, "Information", null, "Classeur " + binderName + " créé", "show");
 
-                    //  code hexadécimal de la couleur du nouveau classeur
-                    String colorHex = NotebookColor.getHexColorByID(binderColorId);
-                    Node circle = NotebookColor.getColorCircle(colorHex);
+                        //  code hexadécimal de la couleur du nouveau classeur
+                        String colorHex = NotebookColor.getHexColorByID(binderColorId);
+                        Node circle = NotebookColor.getColorCircle(colorHex);
 
-                    TreeItem<String> newBinderItem = new TreeItem<>(binderName);
-                    newBinderItem.setGraphic(circle);
+                        TreeItem<String> newBinderItem = new TreeItem<>(binderName);
+                        newBinderItem.setGraphic(circle);
 
-                    // Ajout du nouveau classeur à la racine de l'arbre
-                    binderTree.getRoot().getChildren().add(newBinderItem);
-                } else {
-                    CustomAlert.create(Alert.AlertType.WARNING, "Erreur", null, "Une erreur s'est produite lors de la création du classeur", "show");
-                }
+                        // Ajout du nouveau classeur à la racine de l'arbre
+                        binderTree.getRoot().getChildren().add(newBinderItem);
+                    } else {
+                        CustomAlert.create(Alert.AlertType.WARNING, "Erreur", null, "Une erreur s'est produite lors de la création du classeur", "show");
+                    }
+                });
             }
         }
     }
@@ -718,8 +888,8 @@ public class MainWindow extends Application {
                 nameDialog.setContentText("Nom :");
 
                 Optional<String> nameResult = nameDialog.showAndWait();
-                nameResult.ifPresent(newName -> {
-                    int result = selectedBinder.editName(newName);
+                nameResult.ifPresent(newName -> runDatabaseTask("modification du classeur " + oldBinderName, () -> selectedBinder.updateName(newName), updateResult -> {
+                    int result = selectedBinder.nameEdited(newName, updateResult);
 
                     if (result > 0) {
                         selectedItem.setValue(newName);
@@ -735,21 +905,23 @@ public class MainWindow extends Application {
                         colorResult.ifPresent(newColorName -> {
                             int newColorID = NotebookColor.getColorIDByName(newColorName);
 
-                            int resultColor = selectedBinder.editColor(newColorID);
-                            String colorHex = NotebookColor.getHexColorByID(newColorID);
-                            Node circle = NotebookColor.getColorCircle(colorHex);
-
-                            if (resultColor > 0) {
-                                selectedItem.setGraphic(circle);
+                            runDatabaseTask("modification du classeur " + newName, () -> selectedBinder.updateColor(newColorID), updateColorResult -> {
+                                int resultColor = selectedBinder.colorEdited(newColorID, updateColorResult);
+                                String colorHex = NotebookColor.getHexColorByID(newColorID);
+                                Node circle = NotebookColor.getColorCircle(colorHex);
 
-                                CustomAlert.create(
-                                        Alert.AlertType.INFORMATION,
-                                        "Information",
-                                        null,
-                                        "Mise à jour bien effectuée",
-                                        "show"
-                                );
-                            }
+                                if (resultColor > 0) {
+                                    selectedItem.setGraphic(circle);
+
+                                    CustomAlert.create(
+                                            Alert.AlertType.INFORMATION,
+                                            "Information",
+                                            null,
+                                            "Mise à jour bien effectuée",
+                                            "show"
+                                    );
+                                }
+                            });
                         });
                     } else {
                         CustomAlert.create(
@@ -760,7 +932,7 @@ public class MainWindow extends Application {
                                 "show"
                         );
                     }
-                });
+                }));
 
 
 
@@ -816,20 +988,22 @@ public class MainWindow extends Application {
 
                 // Suppression du classeur
                 int binderID = selectedBinder.getBinderID();
-                int deleteResult = notebook.deleteBinder(binderID);
+                runDatabaseTask("suppression du classeur " + binderName, () -> notebook.deleteBinderRows(binderID), deleteRowsResult -> {
+                    int deleteResult = notebook.binderDeleted(binderID, deleteRowsResult);
 
-                if (deleteResult > 0) {
+                    if (deleteResult > 0) {
 
-                    binderTree.getRoot().getChildren().remove(selectedItem);
-                } else {
-                    CustomAlert.create(
-                            Alert.AlertType.WARNING,
-                            "Erreur",
-                            null,
-                            "Erreur lors de la suppression du classeur",
-                            "showAndWait"
-                    );
-                }
+                        binderTree.getRoot().getChildren().remove(selectedItem);
+                    } else {
+                        CustomAlert.create(
+                                Alert.AlertType.WARNING,
+                                "Erreur",
+                                null,
+                                "Erreur lors de la suppression du classeur",
+                                "showAndWait"
+                        );
+                    }
+                });
             }
         } else {
             CustomAlert.create(
@@ -885,33 +1059,35 @@ public class MainWindow extends Application {
                         int tabColorID = NotebookColor.getColorIDByName(colorResult.get());
 
                         if (tabColorID >= 0) {
-                            Tab newtab = binder.createTab(tabName, tabColorID);
-
-                            if (newtab != null) {
-                                CustomAlert.create(
-                                        Alert.AlertType.INFORMATION,
-                                        "Information",
-                                        null,
-                                        "Intercalaire bien créé",
-                                        "show");
-
-                                //  code hexadécimal de la couleur du nouveau classeur
-                                String colorHex = NotebookColor.getHexColorByID(tabColorID);
-                                Node circle = NotebookColor.getColorCircle(colorHex);
-
-                                TreeItem<String> newTabItem = new TreeItem<>(tabName);
-                                newTabItem.setGraphic(circle);
-
-                                selectedBinder.getChildren().add(newTabItem);
-                            } else {
-                                CustomAlert.create(
-                                        Alert.AlertType.WARNING,
-                                        "Erreur",
-                                        null,
-                                        "Une erreur s'est produite lors de la création de l'intercalaire",
-                                        "show"
-                                );
-                            }
+                            runDatabaseTask("création de l'intercalaire " + tabName, () -> binder.insertTab(tabName, tabColorID), tabID -> {
+                                Tab newtab = tabID > 0 ? binder.tabCreated(tabID, tabName, tabColorID) : null;
+
+                                if (newtab != null) {
+                                    CustomAlert.create(
+                                            Alert.AlertType.INFORMATION,
+                                            "Information",
+                                            null,
+                                            "Intercalaire bien créé",
+                                            "show");
+
+                                    //  code hexadécimal de la couleur du nouveau classeur
+                                    String colorHex = NotebookColor.getHexColorByID(tabColorID);
+                                    Node circle = NotebookColor.getColorCircle(colorHex);
+
+                                    TreeItem<String> newTabItem = new TreeItem<>(tabName);
+                                    newTabItem.setGraphic(circle);
+
+                                    selectedBinder.getChildren().add(newTabItem);
+                                } else {
+                                    CustomAlert.create(
+                                            Alert.AlertType.WARNING,
+                                            "Erreur",
+                                            null,
+                                            "Une erreur s'est produite lors de la création de l'intercalaire",
+                                            "show"
+                                    );
+                                }
+                            });
 
                         } else {
                             CustomAlert.create(
@@ -971,10 +1147,11 @@ public class MainWindow extends Application {
                     nameDialog.setContentText("Nom :");
 
                     Optional<String> nameResult = nameDialog.showAndWait();
-                    nameResult.ifPresent(newName -> {
-                        selectedTab.editName(newName);
-                        selectedItem.setValue(newName);
-                    });
+                    nameResult.ifPresent(newName -> runDatabaseTask("modification de l'intercalaire " + selectedTabName, () -> selectedTab.updateName(newName), result -> {
+                        if (selectedTab.nameEdited(newName, result) > 0) {
+                            selectedItem.setValue(newName);
+                        }
+                    }));
 
 
                     List<String> colorNames = NotebookColor.getAllColorNames();
@@ -987,11 +1164,13 @@ public class MainWindow extends Application {
                     colorResult.ifPresent(newColorName -> {
                         int newColorID = NotebookColor.getColorIDByName(newColorName);
                         if (newColorID >= 0) {
-                            selectedTab.editColor(newColorID);
-
-                            String colorHex = NotebookColor.getHexColorByID(newColorID);
-                            Node circle = NotebookColor.getColorCircle(colorHex);
-                            selectedItem.setGraphic(circle);
+                            runDatabaseTask("modification de l'intercalaire " + selectedTabName, () -> selectedTab.updateColor(newColorID), result -> {
+                                if (selectedTab.colorEdited(newColorID, result) > 0) {
+                                    String colorHex = NotebookColor.getHexColorByID(newColorID);
+                                    Node circle = NotebookColor.getColorCircle(colorHex);
+                                    selectedItem.setGraphic(circle);
+                                }
+                            });
                         }
                     });
                 } else {
@@ -1048,18 +1227,21 @@ public class MainWindow extends Application {
                     Binder binder = notebook.getBinderByName(selectedItem.getParent().getValue());
                     if (binder != null) {
                         int TabID = selectedTab.getTabID();
-                        int deleteResult = binder.deleteTab(TabID);
-                        if (deleteResult > 0) {
-                            selectedItem.getParent().getChildren().remove(selectedItem);
-                        } else {
-                            CustomAlert.create(
-                                    Alert.AlertType.WARNING,
-                                    "Erreur",
-                                    null,
-                                    "Erreur lors de la suppression de l'Intercalaire.",
-                                    "showAndWait"
-                            );
-                        }
+                        TreeItem<String> binderItem = selectedItem.getParent();
+                        runDatabaseTask("suppression de l'intercalaire " + selectedTabName, () -> binder.deleteTabRows(TabID), deleteRowsResult -> {
+                            int deleteResult = binder.tabDeleted(TabID, deleteRowsResult);
+                            if (deleteResult > 0) {
+                                binderItem.getChildren().remove(selectedItem);
+                            } else {
+                                CustomAlert.create(
+                                        Alert.AlertType.WARNING,
+                                        "Erreur",
+                                        null,
+                                        "Erreur lors de la suppression de l'Intercalaire.",
+                                        "showAndWait"
+                                );
+                            }
+                        });
                     }
                 } else if (result.isPresent() && result.get() == ButtonType.CANCEL) {
                     CustomAlert.create(
@@ -1112,9 +1294,9 @@ public class MainWindow extends Application {
                 dialog.setContentText("Nom :");
 
                 Optional<String> result = dialog.showAndWait();
-                result.ifPresent(name -> {
+                result.ifPresent(name -> runDatabaseTask("création de la note " + name, () -> selectedTab.insertNote(name), noteID -> {
 
-                    Note newNote = selectedTab.createNote(name);
+                    Note newNote = noteID > 0 ? selectedTab.noteCreated(noteID, name) : null;
 
                     if (newNote != null) {
                         CustomAlert.create(
@@ -1140,7 +1322,7 @@ public class MainWindow extends Application {
                                 "show"
                         );
                     }
-                });
+                }));
             } else {
                 CustomAlert.create(
                         Alert.AlertType.WARNING,
@@ -1184,9 +1366,7 @@ public class MainWindow extends Application {
 
             if (selectedTab != null) {
 
-                Note selectedNote = selectedTab.getNotes().stream()
-                        .filter(note -> note.getNoteName().equals(selectedItem.getValue()))
-                        .findFirst().orElse(null);
+                Note selectedNote = selectedTab.findNoteByName(selectedItem.getValue());
 
                 if (selectedNote != null) {
 
@@ -1196,9 +1376,9 @@ public class MainWindow extends Application {
                     dialog.setContentText("Nom :");
 
                     Optional<String> result = dialog.showAndWait();
-                    result.ifPresent(newName -> {
+                    result.ifPresent(newName -> runDatabaseTask("modification de la note " + selectedNote.getNoteName(), () -> selectedNote.updateName(newName), nameResult -> {
 
-                        int updateResult = selectedNote.editName(newName);
+                        int updateResult = selectedNote.nameEdited(newName, nameResult);
                         if (updateResult > 0) {
                             selectedItem.setValue(newName);
                             NoteArea.noteTitle.setText(newName);
@@ -1220,7 +1400,7 @@ public class MainWindow extends Application {
                             );
                         }
 
-                    });
+                    }));
                 } else {
                     CustomAlert.create(
                             Alert.AlertType.WARNING,
@@ -1268,9 +1448,7 @@ public class MainWindow extends Application {
             Tab selectedTab = notebook.getTabByName(selectedItem.getParent().getValue());
 
             if (selectedTab != null) {
-                Note selectedNote = selectedTab.getNotes().stream()
-                        .filter(note -> note.getNoteName().equals(selectedItem.getValue()))
-                        .findFirst().orElse(null);
+                Note selectedNote = selectedTab.findNoteByName(selectedItem.getValue());
 
                 if (selectedNote != null) {
 
@@ -1286,32 +1464,35 @@ public class MainWindow extends Application {
                     if (result.isPresent() && result.get() == ButtonType.OK) {
 
                         int noteID = selectedNote.getNoteID();
-                        int deleteResult = selectedTab.deleteNote(noteID);
+                        TreeItem<String> tabItem = selectedItem.getParent();
+                        runDatabaseTask("suppression de la note " + selectedNote.getNoteName(), () -> selectedTab.deleteNoteRows(noteID), deleteRowsResult -> {
+                            int deleteResult = selectedTab.noteDeleted(noteID, deleteRowsResult);
 
-                        if (deleteResult > 0) {
-                            selectedItem.getParent().getChildren().remove(selectedItem);
+                            if (deleteResult > 0) {
+                                tabItem.getChildren().remove(selectedItem);
 
-                            noteSelectedPane.setVisible(false);
-                            waitingNoteSelectedPane.setVisible(true);
-                            NoteArea.btnChooseLabel.setDisable(true);
+                                noteSelectedPane.setVisible(false);
+                                waitingNoteSelectedPane.setVisible(true);
+                                NoteArea.btnChooseLabel.setDisable(true);
 
-                            CustomAlert.create(
-                                    Alert.AlertType.INFORMATION,
-                                    "Information",
-                                    null,
-                                    "Note bien supprimée.",
-                                    "show"
-                            );
+                                CustomAlert.create(
+                                        Alert.AlertType.INFORMATION,
+                                        "Information",
+                                        null,
+                                        "Note bien supprimée.",
+                                        "show"
+                                );
 
-                        } else {
-                            CustomAlert.create(
-                                    Alert.AlertType.WARNING,
-                                    "Erreur",
-                                    null,
-                                    "Erreur lors de la suppression de la Note",
-                                    "show"
-                            );
-                        }
+                            } else {
+                                CustomAlert.create(
+                                        Alert.AlertType.WARNING,
+                                        "Erreur",
+                                        null,
+                                        "Erreur lors de la suppression de la Note",
+                                        "show"
+                                );
+                            }
+                        });
                     } else if (result.isPresent() && result.get() == ButtonType.CANCEL) {
                         CustomAlert.create(
                                 Alert.AlertType.INFORMATION,
@@ -0,0 +1,74 @@
+package fr.serfa.notesmanager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+
+/**
+ * La classe MariaDbBackend est le stockage sur un serveur MariaDB distant, créé par distantDB/createDB_NotesManager.sql.
+ * Les options du pilote (propriété dbUrlOptions) activent par défaut les instructions préparées côté serveur,
+ * dont le pilote MariaDB conserve lui-même un cache par connexion.
+ */
+public class MariaDbBackend implements StorageBackend {
+
+
+    /**
+     * L'URL JDBC de la base de données.
+     */
+    private String jdbcUrl;
+
+
+    /**
+     * Le nom d'utilisateur utilisé pour se connecter à la base de données.
+     */
+    private String dbUsername;
+
+
+    /**
+     * Le mot de passe utilisé pour se connecter à la base de données.
+     */
+    private String dbPassword;
+
+
+    @Override
+    public String getName() {
+        return "mariadb";
+    }
+
+
+    @Override
+    public void initialize(Properties properties) {
+        String urlOptions = properties.getProperty("dbUrlOptions", "useServerPrepStmts=true&prepStmtCacheSize=250");
+        jdbcUrl = "jdbc:mariadb://" + properties.getProperty("dbHost") + ":" + properties.getProperty("dbPort")
+                + "/" + properties.getProperty("dbName") + (urlOptions.isBlank() ? "" : "?" + urlOptions);
+        dbUsername = properties.getProperty("dbUsername");
+        dbPassword = properties.getProperty("dbPassword");
+    }
+
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, dbUsername, dbPassword);
+    }
+
+
+    /**
+     * Lit Seconds_Behind_Master dans l'état de la réplication. Un serveur qui n'est pas une réplique n'a pas de retard.
+     */
+    @Override
+    public long replicationLagSeconds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW SLAVE STATUS")) {
+            if (!status.next()) {
+                return 0;
+            }
+            long lag = status.getLong("Seconds_Behind_Master");
+            return status.wasNull() ? -1 : lag;
+        }
+    }
+
+}
@@ -2,9 +2,18 @@ package fr.serfa.notesmanager;
 
 import javafx.scene.control.Alert;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -14,6 +23,14 @@ import java.util.ArrayList;
 public class Note {
 
 
+    /**
+     * Un contenu lu en base de données, avec la valeur de notes.content_version lue dans la même requête
+     * et le nombre de modifications en attente appliquées au contenu de base.
+     */
+    private record PersistedContent(String content, int contentVersion, int deltaCount) {
+    }
+
+
     /**
      * Liste des étiquettes associées à cette note.
      */
@@ -26,6 +43,12 @@ public class Note {
     private final int noteID;
 
 
+    /**
+     * L'onglet parent de cette note.
+     */
+    private final Tab tab;
+
+
     /**
      * L'identifiant de l'onglet auquel cette note est associée.
      */
@@ -39,15 +62,87 @@ public class Note {
 
 
     /**
-     * Le contenu de cette note.
+     * La longueur du dernier contenu enregistré en base de données (contenu de base et modifications en attente).
+     * Le contenu lui-même est conservé dans NoteContentCache, qui peut le retirer de la mémoire ; il sert de base au calcul des modifications.
+     * Elle peut être mise à jour par une sauvegarde en arrière-plan, d'où sa déclaration volatile.
+     */
+    private volatile int persistedLength;
+
+
+    /**
+     * Le nombre de modifications enregistrées dans note_deltas et pas encore intégrées au contenu de base.
+     * Il est modifié en tenant le verrou de la note, et lu sans verrou pour décider d'une intégration, d'où sa déclaration volatile.
+     */
+    private volatile int pendingDeltaCount;
+
+
+    /**
+     * Le verrou des écritures du contenu de cette note : enregistrements et intégration des modifications.
+     * Il est tenu pendant les requêtes, contrairement au verrou de la note, qui ne protège que l'état en mémoire
+     * (contenu enregistré, version, nombre de modifications en attente) : la synchronisation et l'ouverture de la note
+     * sur le thread de l'interface n'attendent donc jamais la fin d'une écriture en base de données.
+     */
+    private final ReentrantLock saveLock = new ReentrantLock();
+
+
+    /**
+     * Le verrou des lectures du contenu de cette note en base de données : une ouverture pendant le préchargement de la note
+     * attend la fin de sa lecture au lieu de relancer la requête.
+     */
+    private final Object fetchLock = new Object();
+
+
+    /**
+     * L'empreinte FNV-1a du dernier contenu enregistré, comparée au contenu de l'éditeur pour ignorer les sauvegardes sans modification.
+     */
+    private volatile long persistedHash;
+
+
+    /**
+     * La version du dernier contenu enregistré : 0 tant que le contenu n'a pas été lu ni enregistré,
+     * puis incrémentée à chaque lecture ou écriture du contenu.
      */
-    private String noteContent;
+    private volatile int persistedVersion;
 
 
     /**
-     * Le gestionnaire d'étiquettes pour cette note.
+     * La valeur de notes.content_version du dernier contenu enregistré, incrémentée en base de données par chaque sauvegarde.
+     * Une modification n'est enregistrée que si la note est encore à cette version ; sinon son contenu a été modifié ailleurs
+     * et le contenu complet est enregistré à la place.
      */
-    private LabelManager notebookLabel;
+    private volatile int contentVersion;
+
+
+    /**
+     * Indique si les sauvegardes enregistrent des modifications plutôt que le contenu complet (propriété noteDeltas, true par défaut).
+     * La table note_deltas doit exister (distantDB/migrations/001_note_deltas.sql).
+     */
+    private static final boolean deltasEnabled = Boolean.parseBoolean(DatabaseManager.stringProperty("noteDeltas", "true"));
+
+
+    /**
+     * La longueur de contenu à partir de laquelle une sauvegarde enregistre une modification plutôt que le contenu complet.
+     */
+    private static final long deltaMinContentLength = DatabaseManager.longProperty("noteDeltaMinContentLength", 4_096);
+
+
+    /**
+     * Le nombre de modifications en attente à partir duquel elles sont intégrées au contenu de base.
+     */
+    private static final long deltaCompactThreshold = Math.max(1, DatabaseManager.longProperty("noteDeltaCompactThreshold", 32));
+
+
+    /**
+     * Le nombre de sauvegardes ignorées car le contenu n'avait pas changé.
+     */
+    private static final LongAdder skippedSaves = new LongAdder();
+
+
+    /**
+     * Les constantes de l'empreinte FNV-1a sur 64 bits.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
 
 
     /**
@@ -65,6 +160,7 @@ public class Note {
             ArrayList<NoteLabel> labels
     ) {
         this.noteID = noteID;
+        this.tab = tab;
         this.tabID = tab.getTabID();
         this.noteName = noteName;
         this.labels = labels;
@@ -81,6 +177,16 @@ public class Note {
     }
 
 
+    /**
+     * Récupère l'onglet parent de cette note.
+     *
+     * @return L'onglet parent.
+     */
+    public Tab getTab() {
+        return tab;
+    }
+
+
     /**
      * Récupère le nom de cette note.
      *
@@ -102,34 +208,176 @@ public class Note {
 
 
     /**
-     * Récupère le contenu de cette note.
+     * Récupère le contenu de cette note, s'il est en mémoire.
      *
-     * @return Le contenu de cette note.
+     * @return Le contenu de cette note, ou null s'il n'a pas été lu ou a été retiré du cache des contenus.
      */
     public String getNoteContent() {
-        return noteContent;
+        return NoteContentCache.get(this);
     }
 
 
     /**
-     * Récupère le contenu de cette note depuis la base de données si celui-ci est null.
+     * Indique si le contenu de cette note est en mémoire, sans le marquer comme utilisé dans le cache des contenus.
+     *
+     * @return true si le contenu peut être récupéré sans lecture en base de données.
      */
-    public void fetchNoteContent() {
-        if (noteContent == null) {
-            ResultSet resultSet = DatabaseManager.select(
-                    "notes",
-                    new String[]{"note_content"},
-                    new String[]{"note_id"},
-                    new String[]{String.valueOf(this.noteID)}
-            );
+    public boolean isContentLoaded() {
+        return NoteContentCache.contains(this);
+    }
+
 
-            try {
-                resultSet.first();
-                noteContent = resultSet.getString(1);
-            } catch (SQLException e) {
-                System.out.println("Error : " + e);
+    /**
+     * Récupère le contenu de cette note, en le lisant s'il n'est pas en mémoire : dans LocalContentStore si la version
+     * enregistrée localement est celle de la base de données, sinon depuis la base de données.
+     * Les modifications en attente dans note_deltas sont appliquées au contenu de base.
+     * Les requêtes sont faites sans tenir le verrou de la note : une sauvegarde en cours ne bloque pas la lecture, et inversement.
+     *
+     * @return Le contenu de cette note, ou null en cas d'erreur.
+     */
+    public String fetchNoteContent() {
+        String content = NoteContentCache.get(this);
+        if (content != null) {
+            return content;
+        }
+
+        synchronized (fetchLock) {
+            content = NoteContentCache.get(this);
+            if (content != null) {
+                return content;
+            }
+
+            content = QueryMetrics.time("Note.fetchNoteContent", this::readContent);
+
+            // Intègre en arrière-plan les modifications accumulées lors des sessions précédentes.
+            // Une lecture en échec ne la relance pas : l'intégration échouerait sur la même modification.
+            if (content != null && pendingDeltaCount >= deltaCompactThreshold) {
+                AsyncDatabaseManager.runAsync(this::compactDeltas);
             }
         }
+        return content;
+    }
+
+
+    /**
+     * Lit le contenu de cette note, depuis le stockage local si sa version y est encore, sinon depuis la base de données.
+     *
+     * @return Le contenu de cette note, ou null en cas d'erreur.
+     */
+    private String readContent() {
+        // La version est lue avant le contenu : un contenu modifié entre les deux lectures sera simplement relu la prochaine fois
+        LocalContentStore.Version version = LocalContentStore.isEnabled()
+                ? TypedQuery.of(deltasEnabled ? QueryTemplate.NOTE_SELECT_VERSION : QueryTemplate.NOTE_SELECT_VERSION_WITHOUT_DELTAS)
+                        .setInt(this.noteID)
+                        .first(LocalContentStore.Version.MAPPER)
+                : null;
+
+        String content = version == null ? null : LocalContentStore.get(this.noteID, version);
+        if (content != null) {
+            return contentFetched(content, version.contentVersion(), version.deltaCount());
+        }
+
+        PersistedContent persisted = readPersistedContent();
+        if (persisted == null) {
+            return null;
+        }
+        if (version != null && version.contentVersion() == persisted.contentVersion()) {
+            LocalContentStore.put(this.noteID, version, persisted.content());
+        }
+        return contentFetched(persisted.content(), persisted.contentVersion(), persisted.deltaCount());
+    }
+
+
+    /**
+     * Retient un contenu lu en base de données comme dernier contenu enregistré, avec sa version et son nombre de modifications en attente.
+     * Si une sauvegarde de cette session a enregistré une version plus récente pendant la lecture, le contenu lu est ignoré
+     * et le contenu enregistré, encore en mémoire, est renvoyé à sa place.
+     *
+     * @return Le contenu de la note.
+     */
+    private synchronized String contentFetched(String content, int contentVersion, int deltaCount) {
+        if (contentVersion < this.contentVersion) {
+            String saved = NoteContentCache.get(this);
+            return saved != null ? saved : content;
+        }
+        pendingDeltaCount = deltaCount;
+        markPersisted(content, contentVersion);
+        return content;
+    }
+
+
+    /**
+     * Lit le contenu enregistré de cette note : le contenu de base, décompressé, auquel sont appliquées les modifications en attente.
+     *
+     * @return Le contenu enregistré et sa version, ou null en cas d'erreur ou si une modification ne s'applique pas.
+     */
+    private PersistedContent readPersistedContent() {
+        PersistedContent persisted = TypedQuery.of(QueryTemplate.NOTE_SELECT_CONTENT)
+                .setInt(this.noteID)
+                .first(row -> new PersistedContent(NoteContentCodec.decode(row.getString(1)), row.getInt(2), 0));
+        if (persisted == null || persisted.content() == null) {
+            return null;
+        }
+        if (!deltasEnabled) {
+            return persisted;
+        }
+
+        List<NoteDelta> deltas = TypedQuery.of(QueryTemplate.NOTE_DELTA_SELECT).setInt(this.noteID).list(NoteDelta.MAPPER);
+        if (deltas == null) {
+            return null;
+        }
+        String content;
+        try {
+            content = NoteDelta.applyAll(persisted.content(), deltas);
+        } catch (IllegalStateException e) {
+            // Un contenu partiel ne doit être ni affiché, ni retenu comme contenu enregistré, ni servir de base aux modifications
+            System.out.println("Erreur : note " + noteID + " : " + e.getMessage());
+            return null;
+        }
+        return new PersistedContent(content, persisted.contentVersion(), deltas.size());
+    }
+
+
+    /**
+     * Met à jour le nom et les étiquettes de cette note à partir d'une ligne lue par la synchronisation du carnet de notes.
+     * Le contenu en mémoire n'est retiré du cache que si la version du contenu a augmenté, c'est-à-dire s'il a été enregistré ailleurs :
+     * une ligne relue après un renommage, une intégration des modifications ou une réécriture compressée garde son contenu,
+     * qui reste la base des modifications de la note ouverte. Le contenu retiré est relu à la prochaine ouverture de la note.
+     *
+     * @param noteName       Le nom de la note.
+     * @param labels         Les étiquettes de la note.
+     * @param contentVersion La valeur de notes.content_version lue avec la ligne.
+     */
+    synchronized void applyChange(String noteName, ArrayList<NoteLabel> labels, int contentVersion) {
+        rename(noteName);
+        this.labels = labels;
+        // Les versions ne font que croître : une ligne relue avant la dernière sauvegarde de cette session n'apporte rien
+        if (contentVersion > this.contentVersion) {
+            NoteContentCache.remove(this);
+        }
+    }
+
+
+    /**
+     * Renomme une étiquette de cette note en mémoire, après son renommage dans la base de données.
+     *
+     * @param labelName    Le nom actuel de l'étiquette.
+     * @param newLabelName Le nouveau nom de l'étiquette.
+     */
+    void renameLabel(String labelName, String newLabelName) {
+        labels.replaceAll(label -> label.getLabelName().equals(labelName) ? new NoteLabel(newLabelName) : label);
+    }
+
+
+    /**
+     * Renomme cette note en mémoire et met à jour l'index des notes par nom de son onglet.
+     */
+    private void rename(String newName) {
+        String oldName = this.noteName;
+        this.noteName = newName;
+        if (!Objects.equals(newName, oldName)) {
+            tab.noteRenamed(this, oldName);
+        }
     }
 
 
@@ -140,16 +388,35 @@ public class Note {
      * @return Le nombre de lignes affectées par l'opération de mise à jour.
      */
     public int editName(String newName) {
-        int result = DatabaseManager.update(
-                "notes",
-                "note_name",
-                newName,
-                "note_id",
-                String.valueOf(this.noteID)
-        );
+        return nameEdited(newName, updateName(newName));
+    }
+
+
+    /**
+     * Modifie le nom de cette note dans la base de données, sans le modifier dans l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param newName Le nouveau nom de cette note.
+     * @return Le nombre de lignes affectées par l'opération de mise à jour.
+     */
+    int updateName(String newName) {
+        return TypedQuery.of(QueryTemplate.NOTE_UPDATE_NAME)
+                .setString(newName)
+                .setInt(this.noteID)
+                .execute();
+    }
 
+
+    /**
+     * Renomme cette note dans l'objet après updateName(), si la mise à jour a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param newName Le nouveau nom de cette note.
+     * @param result  Le résultat de updateName().
+     * @return Le résultat de la mise à jour.
+     */
+    int nameEdited(String newName, int result) {
         if (result > 0) {
-            this.noteName = newName;
+            rename(newName);
         }
 
         return result;
@@ -158,24 +425,370 @@ public class Note {
 
     /**
      * Modifie le contenu de cette note dans la base de données.
+     * Les écritures de la note sont faites l'une après l'autre, en tenant son verrou d'écriture et non son verrou.
      *
      * @param newContent Le nouveau contenu de cette note.
      * @return Le nombre de lignes affectées par l'opération de mise à jour.
      */
     public int editContent(String newContent) {
-        int result = DatabaseManager.update(
-                "notes",
-                "note_content",
-                newContent,
-                "note_id",
-                String.valueOf(this.noteID)
-        );
+        // Le contenu n'a pas changé depuis le dernier enregistrement : aucune requête n'est envoyée
+        if (!isDirty(newContent)) {
+            skippedSaves.increment();
+            return 1;
+        }
 
-        if (result > 0) {
-            this.noteContent = newContent;
+        saveLock.lock();
+        try {
+            return saveContent(newContent);
+        } finally {
+            saveLock.unlock();
         }
+    }
 
-        return result;
+
+    /**
+     * Enregistre le contenu de cette note, en tenant son verrou d'écriture : une modification si possible, sinon le contenu complet.
+     */
+    private int saveContent(String newContent) {
+        int baseVersion = contentVersion;
+        boolean[] fullSave = {false};
+        int savedVersion = QueryMetrics.time("Note.editContent", () -> {
+            int deltaVersion = saveDelta(newContent);
+            if (deltaVersion >= 0) {
+                return deltaVersion;
+            }
+            fullSave[0] = true;
+            return saveFullContent(newContent);
+        });
+        if (savedVersion <= 0) {
+            return savedVersion;
+        }
+        // Le nombre de modifications en attente n'est mis à jour qu'une fois la transaction de l'enregistrement validée
+        markSaved(newContent, savedVersion, fullSave[0], savedVersion > baseVersion);
+
+        // Intègre les modifications au contenu de base lorsqu'elles sont trop nombreuses
+        if (pendingDeltaCount >= deltaCompactThreshold) {
+            compactDeltas();
+        }
+
+        return 1;
+    }
+
+
+    /**
+     * Indique si un contenu diffère du dernier contenu enregistré de cette note.
+     * La comparaison porte sur la longueur et l'empreinte du contenu, sans le comparer caractère par caractère.
+     *
+     * @param content Le contenu à comparer, par exemple celui de l'éditeur.
+     * @return true si le contenu doit être enregistré, ou si le contenu enregistré n'est pas connu.
+     */
+    public boolean isDirty(String content) {
+        if (persistedVersion == 0 || content == null) {
+            return true;
+        }
+        return content.length() != persistedLength || contentHash(content) != persistedHash;
+    }
+
+
+    /**
+     * Récupère la version du dernier contenu enregistré de cette note.
+     *
+     * @return La version du contenu, ou 0 si le contenu n'a pas encore été lu ni enregistré.
+     */
+    public int getPersistedVersion() {
+        return persistedVersion;
+    }
+
+
+    /**
+     * Enregistre le contenu de plusieurs notes dans une seule transaction. Les notes dont le contenu n'a pas changé sont ignorées.
+     * Les modifications des notes longues sont enregistrées dans note_deltas, et les contenus complets des autres notes
+     * sont envoyés ensemble par le traitement par lots de JDBC.
+     *
+     * @param contents Le nouveau contenu de chaque note, dans l'ordre d'écriture.
+     * @return Le nombre de notes enregistrées, ou -1 en cas d'erreur (aucune note n'est alors enregistrée).
+     */
+    public static int saveContents(Map<Note, String> contents) {
+        Map<Note, String> dirtyContents = new LinkedHashMap<>();
+        contents.forEach((note, content) -> {
+            if (note.isDirty(content)) {
+                dirtyContents.put(note, content);
+            } else {
+                skippedSaves.increment();
+            }
+        });
+
+        if (dirtyContents.isEmpty()) {
+            return 0;
+        }
+        if (dirtyContents.size() == 1) {
+            Map.Entry<Note, String> entry = dirtyContents.entrySet().iterator().next();
+            return entry.getKey().editContent(entry.getValue()) > 0 ? 1 : -1;
+        }
+
+        // Les verrous d'écriture sont pris dans l'ordre des identifiants des notes, si bien que deux enregistrements groupés ne s'interbloquent pas
+        List<Note> lockedNotes = new ArrayList<>(dirtyContents.keySet());
+        lockedNotes.sort(Comparator.comparingInt(Note::getNoteID));
+        lockedNotes.forEach(note -> note.saveLock.lock());
+        try {
+            return saveContentsLocked(dirtyContents);
+        } finally {
+            lockedNotes.forEach(note -> note.saveLock.unlock());
+        }
+    }
+
+
+    /**
+     * Enregistre le contenu de plusieurs notes dans une seule transaction, en tenant leurs verrous d'écriture.
+     */
+    private static int saveContentsLocked(Map<Note, String> dirtyContents) {
+        Map<Note, Integer> savedVersions = new HashMap<>();
+        Set<Note> deltaNotes = new HashSet<>();
+        Boolean committed = QueryMetrics.time("Note.saveContents", () -> DatabaseManager.transaction(() -> {
+            List<String[]> rows = new ArrayList<>();
+            for (Map.Entry<Note, String> entry : dirtyContents.entrySet()) {
+                Note note = entry.getKey();
+                int baseVersion = note.contentVersion;
+                int savedVersion = note.saveDelta(entry.getValue());
+                if (savedVersion >= 0) {
+                    savedVersions.put(note, savedVersion);
+                    if (savedVersion > baseVersion) {
+                        deltaNotes.add(note);
+                    }
+                    continue;
+                }
+                rows.add(new String[]{NoteContentCodec.encode(entry.getValue()), String.valueOf(note.noteID)});
+                if (deltasEnabled) {
+                    TypedQuery.of(QueryTemplate.NOTE_DELTA_DELETE_ALL).setInt(note.noteID).execute();
+                }
+            }
+            if (DatabaseManager.updateVersionedBatch("notes", "note_content", "content_version", "note_id", rows) < 0) {
+                throw new SQLException("Enregistrement groupé des notes impossible");
+            }
+            return true;
+        }));
+        if (committed == null) {
+            return -1;
+        }
+
+        for (Map.Entry<Note, String> entry : dirtyContents.entrySet()) {
+            Note note = entry.getKey();
+            // Une note réécrite a gagné une version ; si elle a été enregistrée ailleurs entre-temps,
+            // la version retenue est fausse et sa prochaine modification sera simplement enregistrée en entier.
+            // Le nombre de modifications en attente n'est mis à jour qu'ici, une fois la transaction groupée validée.
+            Integer savedVersion = savedVersions.get(note);
+            boolean fullSave = savedVersion == null;
+            note.markSaved(entry.getValue(), fullSave ? note.contentVersion + 1 : savedVersion, fullSave, deltaNotes.contains(note));
+            if (note.pendingDeltaCount >= deltaCompactThreshold) {
+                AsyncDatabaseManager.runAsync(note::compactDeltas);
+            }
+        }
+        return dirtyContents.size();
+    }
+
+
+    /**
+     * Récupère le nombre de sauvegardes ignorées car le contenu n'avait pas changé.
+     *
+     * @return Le nombre de sauvegardes ignorées.
+     */
+    public static long getSkippedSaveCount() {
+        return skippedSaves.sum();
+    }
+
+
+    /**
+     * Retient un contenu enregistré par cette session comme dernier contenu enregistré, une fois la transaction validée,
+     * et met à jour le nombre de modifications en attente : remis à zéro par un enregistrement complet, incrémenté par une modification enregistrée.
+     */
+    private synchronized void markSaved(String content, int contentVersion, boolean fullSave, boolean deltaSaved) {
+        if (fullSave) {
+            pendingDeltaCount = 0;
+        } else if (deltaSaved) {
+            pendingDeltaCount++;
+        }
+        markPersisted(content, contentVersion);
+    }
+
+
+    /**
+     * Retient un contenu comme dernier contenu enregistré de cette note, avec sa version en base de données, et incrémente sa version locale.
+     */
+    private synchronized void markPersisted(String content, int contentVersion) {
+        NoteContentCache.put(this, content);
+        this.contentVersion = contentVersion;
+        this.persistedLength = content.length();
+        this.persistedHash = contentHash(content);
+        this.persistedVersion++;
+    }
+
+
+    /**
+     * Calcule l'empreinte FNV-1a sur 64 bits d'un contenu, sur ses caractères UTF-16.
+     */
+    private static long contentHash(String content) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < content.length(); i++) {
+            hash ^= content.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+
+    /**
+     * Enregistre uniquement la modification entre le dernier contenu enregistré et le nouveau contenu,
+     * si la note est assez longue, si son dernier contenu enregistré est encore en mémoire et si la modification est plus petite que la moitié du contenu.
+     * La modification n'est enregistrée que si la note est encore à la version de ce contenu, dont le numéro est incrémenté dans la même transaction :
+     * une modification calculée sur un contenu remplacé entre-temps (autre session, sauvegarde concurrente) n'est jamais enregistrée.
+     * Appelée en tenant le verrou d'écriture de la note ; la version et le nombre de modifications en attente en mémoire sont mis à jour
+     * par l'appelant, une fois la transaction la plus englobante validée.
+     *
+     * @param newContent Le nouveau contenu de cette note.
+     * @return La nouvelle version du contenu (la version actuelle si le contenu n'a pas changé), ou -1 si le contenu complet doit être enregistré.
+     */
+    private int saveDelta(String newContent) {
+        if (!deltasEnabled || newContent == null || persistedLength < deltaMinContentLength) {
+            return -1;
+        }
+        // Le contenu et sa version sont lus ensemble sous le verrou de la note, que la lecture du contenu peut mettre à jour
+        String persistedContent;
+        int baseVersion;
+        synchronized (this) {
+            persistedContent = NoteContentCache.get(this);
+            baseVersion = contentVersion;
+        }
+        if (persistedContent == null) {
+            return -1;
+        }
+
+        NoteDelta delta = NoteDelta.diff(persistedContent, newContent);
+        if (delta == null) {
+            return baseVersion;
+        }
+        if (delta.text().length() > newContent.length() / 2) {
+            return -1;
+        }
+
+        Integer deltaID = DatabaseManager.transaction(() -> {
+            int updated = TypedQuery.of(QueryTemplate.NOTE_INCREMENT_CONTENT_VERSION)
+                    .setInt(this.noteID)
+                    .setInt(baseVersion)
+                    .execute();
+            if (updated <= 0) {
+                return updated;
+            }
+            int insertedID = TypedQuery.of(QueryTemplate.NOTE_DELTA_INSERT)
+                    .setInt(this.noteID)
+                    .setInt(delta.offset())
+                    .setInt(delta.deleteLength())
+                    .setInt(delta.baseLength())
+                    .setString(delta.text())
+                    .setInt(baseVersion)
+                    .insert();
+            if (insertedID <= 0) {
+                throw new SQLException("Enregistrement de la modification de la note " + noteID + " impossible");
+            }
+            return insertedID;
+        });
+        // La note a changé de version depuis le dernier contenu enregistré : la modification ne s'applique plus
+        if (deltaID == null || deltaID <= 0) {
+            return -1;
+        }
+        return baseVersion + 1;
+    }
+
+
+    /**
+     * Enregistre le contenu complet de cette note, incrémente sa version et supprime ses modifications en attente, dans une seule transaction.
+     * Le nombre de modifications en attente en mémoire est remis à zéro par l'appelant.
+     *
+     * @param newContent Le nouveau contenu de cette note.
+     * @return La nouvelle version du contenu, 0 si la note n'existe plus, ou -1 en cas d'erreur.
+     */
+    private int saveFullContent(String newContent) {
+        Integer result = DatabaseManager.transaction(() -> {
+            int updated = TypedQuery.of(QueryTemplate.NOTE_UPDATE_CONTENT)
+                    .setString(NoteContentCodec.encode(newContent))
+                    .setInt(this.noteID)
+                    .execute();
+            if (updated <= 0) {
+                return updated;
+            }
+            if (deltasEnabled) {
+                TypedQuery.of(QueryTemplate.NOTE_DELTA_DELETE_ALL).setInt(this.noteID).execute();
+            }
+            return TypedQuery.of(QueryTemplate.NOTE_SELECT_CONTENT_VERSION)
+                    .setInt(this.noteID)
+                    .first(row -> row.getInt(1));
+        });
+        return result == null ? -1 : result;
+    }
+
+
+    /**
+     * Intègre les modifications en attente au contenu de base de cette note, dans une seule transaction :
+     * le contenu de base est réécrit avec les modifications appliquées, puis les modifications sont supprimées.
+     * La réécriture n'a lieu que si la note est encore à la version lue avec le contenu de base : si une autre session
+     * a enregistré la note entre-temps, la transaction est annulée et son contenu n'est pas remplacé.
+     *
+     * Appelée en tenant le verrou d'écriture de la note, et non son verrou.
+     *
+     * @return true si les modifications ont été intégrées.
+     */
+    public boolean compactDeltas() {
+        if (!deltasEnabled) {
+            return false;
+        }
+
+        saveLock.lock();
+        try {
+            PersistedContent compacted = QueryMetrics.time("Note.compactDeltas", () -> DatabaseManager.transaction(() -> {
+                PersistedContent base = TypedQuery.of(QueryTemplate.NOTE_SELECT_CONTENT)
+                        .setInt(this.noteID)
+                        .first(row -> new PersistedContent(NoteContentCodec.decode(row.getString(1)), row.getInt(2), 0));
+                List<NoteDelta> deltas = TypedQuery.of(QueryTemplate.NOTE_DELTA_SELECT).setInt(this.noteID).list(NoteDelta.MAPPER);
+                if (base == null || base.content() == null || deltas == null) {
+                    throw new SQLException("Contenu de la note " + noteID + " illisible");
+                }
+                if (deltas.isEmpty()) {
+                    return base;
+                }
+
+                // Une modification qui ne s'applique pas annule l'intégration : les modifications restent en attente.
+                // Le contenu obtenu est celui de la version lue, qui n'est donc pas incrémentée.
+                String content = NoteDelta.applyAll(base.content(), deltas);
+                int updated = TypedQuery.of(QueryTemplate.NOTE_UPDATE_BASE_CONTENT)
+                        .setString(NoteContentCodec.encode(content))
+                        .setInt(this.noteID)
+                        .setInt(base.contentVersion())
+                        .execute();
+                if (updated <= 0) {
+                    // La note a été enregistrée ailleurs depuis la lecture : ses modifications restent en attente
+                    DatabaseManager.setRollbackOnly();
+                    return null;
+                }
+                TypedQuery.of(QueryTemplate.NOTE_DELTA_DELETE_UP_TO)
+                        .setInt(this.noteID)
+                        .setInt(deltas.getLast().deltaID())
+                        .execute();
+                return new PersistedContent(content, base.contentVersion(), 0);
+            }));
+
+            if (compacted == null) {
+                return false;
+            }
+            synchronized (this) {
+                pendingDeltaCount = 0;
+                // Le contenu en mémoire n'est remplacé que s'il est de la même version que le contenu intégré
+                if (isContentLoaded() && compacted.contentVersion() == contentVersion) {
+                    NoteContentCache.put(this, compacted.content());
+                }
+            }
+            return true;
+        } finally {
+            saveLock.unlock();
+        }
     }
 
 
@@ -186,11 +799,21 @@ public class Note {
      * @return Le nombre de lignes affectées par l'opération de mise à jour.
      */
     public int attachLabelToNote(String labelName) {
-        // Initialisation du gestionnaire d'étiquettes
-        notebookLabel = new LabelManager();
-        // Récupération de l'ID de l'étiquette à partir du nom de l'étiquette
-        int labelID = notebookLabel.getLabelID(labelName);
+        if (!canAttachLabel(labelName)) {
+            return 0;
+        }
+        return labelAttached(labelName, attachLabel(labelName));
+    }
 
+
+    /**
+     * Vérifie qu'une étiquette peut être attachée à cette note, et affiche une alerte sinon : la note a déjà deux étiquettes,
+     * ou porte déjà celle-ci. Doit être appelée sur le thread de l'interface.
+     *
+     * @param labelName Le nom de l'étiquette à attacher.
+     * @return true si l'étiquette peut être attachée.
+     */
+    boolean canAttachLabel(String labelName) {
         // Vérification si la note a déjà deux étiquettes ou si l'étiquette choisie est déjà appliquée à la note
         if (labels.size() == 2) {
 
@@ -206,7 +829,7 @@ public class Note {
                     "show"
             );
 
-            return 0;
+            return false;
 
         } else if (labels.stream().anyMatch(label -> label.getLabelName().equals(labelName))) {
             // Affichage d'un message indiquant que la note a déjà cette étiquette
@@ -225,32 +848,48 @@ public class Note {
                     "show"
             );
 
-            return 0;
+            return false;
+        }
 
-        } else {
-            // Mise à jour de la note dans la base de données avec la nouvelle étiquette
-            String[] inArgs = {
-                    // ID de l'étiquette à ajouter
-                    String.valueOf(labelID),
-                    // ID de la note à laquelle l'étiquette est ajoutée
-                    String.valueOf(this.noteID)
-            };
-
-            // Appel de la méthode de mise à jour de la base de données
-            int result = DatabaseManager.call(
-                    "UpdateNoteLabelToNewValue",
-                    inArgs,
-                    ""
-            );
+        return true;
+    }
 
-            // Si l'opération de mise à jour a réussi, ajout de l'étiquette à la liste des étiquettes de la note
-            if (result > 0) {
-                labels.add(new NoteLabel(labelName));
-            }
 
-            return result;
-        }
+    /**
+     * Attache une étiquette à cette note dans la base de données, sans l'ajouter à l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param labelName Le nom de l'étiquette à attacher.
+     * @return Le nombre de lignes affectées par l'opération de mise à jour.
+     */
+    int attachLabel(String labelName) {
+        // Récupération de l'ID de l'étiquette à partir du nom de l'étiquette
+        int labelID = LabelManager.getLabelID(labelName);
+
+        // Mise à jour de la note dans la base de données avec la nouvelle étiquette :
+        // ID de l'étiquette à ajouter, puis ID de la note à laquelle l'étiquette est ajoutée
+        return TypedQuery.of(QueryTemplate.NOTE_ATTACH_LABEL)
+                .setInt(labelID)
+                .setInt(this.noteID)
+                .call();
+    }
+
 
+    /**
+     * Ajoute une étiquette à cette note et à l'index des étiquettes après attachLabel(), si la mise à jour a réussi.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param labelName Le nom de l'étiquette attachée.
+     * @param result    Le résultat de attachLabel().
+     * @return Le résultat de la mise à jour.
+     */
+    int labelAttached(String labelName, int result) {
+        // Si l'opération de mise à jour a réussi, ajout de l'étiquette à la liste des étiquettes de la note
+        if (result > 0) {
+            labels.add(new NoteLabel(labelName));
+            tab.getBinder().getNotebook().indexLabel(this, labelName);
+        }
+        return result;
     }
 
 
@@ -261,26 +900,39 @@ public class Note {
      * @return Le nombre de lignes affectées par l'opération de mise à jour.
      */
     public int detachLabelFromNote(String labelName) {
-        // Initialisation du gestionnaire d'étiquettes
-        notebookLabel = new LabelManager();
+        return labelDetached(labelName, detachLabel(labelName));
+    }
+
+
+    /**
+     * Détache une étiquette de cette note dans la base de données, sans la retirer de l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param labelName Le nom de l'étiquette à détacher.
+     * @return Le nombre de lignes affectées par l'opération de mise à jour.
+     */
+    int detachLabel(String labelName) {
         // Récupération de l'ID de l'étiquette à partir du nom de l'étiquette
-        int labelID = notebookLabel.getLabelID(labelName);
-
-        // Préparation des arguments pour la mise à jour de la base de données
-        String[] inArgs = {
-                // ID de l'étiquette à supprimer
-                String.valueOf(labelID),
-                // ID de la note de laquelle l'étiquette est supprimée
-                String.valueOf(this.noteID)
-        };
-
-        // Appel de la méthode de mise à jour de la base de données
-        int result = DatabaseManager.call(
-                "UpdateNoteLabelToNull",
-                inArgs,
-                ""
-        );
+        int labelID = LabelManager.getLabelID(labelName);
+
+        // Appel de la procédure de mise à jour de la base de données :
+        // ID de l'étiquette à supprimer, puis ID de la note de laquelle l'étiquette est supprimée
+        return TypedQuery.of(QueryTemplate.NOTE_DETACH_LABEL)
+                .setInt(labelID)
+                .setInt(this.noteID)
+                .call();
+    }
 
+
+    /**
+     * Retire une étiquette de cette note et de l'index des étiquettes après detachLabel(), si la mise à jour a réussi.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param labelName Le nom de l'étiquette détachée.
+     * @param result    Le résultat de detachLabel().
+     * @return Le résultat de la mise à jour.
+     */
+    int labelDetached(String labelName, int result) {
         // Si l'opération de mise à jour a réussi, suppression de l'étiquette de la liste des étiquettes de la note
         if (result > 0) {
             // Affichage du contenu de la liste des étiquettes avant la suppression
@@ -289,8 +941,9 @@ public class Note {
                 System.out.println(label.getLabelName());
             }
 
-            // Suppression de l'étiquette de la liste
+            // Suppression de l'étiquette de la liste et de l'index des étiquettes du carnet de notes
             labels.removeIf(label -> label.getLabelName().equals(labelName));
+            tab.getBinder().getNotebook().unindexLabel(this, labelName);
 
             // Affichage du contenu de la liste des étiquettes après la suppression
             System.out.println("Après la suppression de l'étiquette " + labelName + " de la note " + this.noteID);
@@ -18,8 +18,9 @@ public class NoteArea {
 
     /**
      * L'objet Note associé à cette NoteArea.
+     * Il est lu hors du thread de l'interface (NoteContentCache, NotePager), d'où sa déclaration volatile.
      */
-    static Note note;
+    static volatile Note note;
 
 
     /**
@@ -46,6 +47,12 @@ public class NoteArea {
     static HTMLEditor noteArea;
 
 
+    /**
+     * Indique si le contenu de l'éditeur a été modifié depuis sa dernière capture par la sauvegarde automatique.
+     */
+    static boolean edited;
+
+
     /**
      * L'objet Pane utilisé pour afficher tous les éléments.
      */
@@ -90,10 +97,28 @@ public class NoteArea {
      * @param note La note dont le contenu doit être affiché dans la zone de note.
      */
     public static void setContentInNoteArea(Note note) {
-        NoteArea.note = note;
-        note.fetchNoteContent();
+        // Soumet les modifications de la note précédente et demande leur écriture immédiate
+        Note previousNote = NoteArea.note;
+        if (previousNote != null && previousNote.getNoteID() != note.getNoteID()) {
+            captureEdits();
+            if (edited) {
+                // File de sauvegarde pleine : écriture directe pour ne pas perdre les modifications
+                previousNote.editContent(noteArea.getHtmlText());
+            }
+            NoteAutosave.flush(previousNote);
+        }
 
-        noteArea.setHtmlText(note.getNoteContent());
+        NoteArea.note = note;
+        edited = false;
+
+        // Le contenu en attente d'écriture est plus récent que celui de la base de données
+        String pendingContent = NoteAutosave.getPendingContent(note);
+        if (pendingContent != null) {
+            noteArea.setHtmlText(pendingContent);
+        } else {
+            NoteContentPrefetcher.recordOpen(note);
+            noteArea.setHtmlText(note.fetchNoteContent());
+        }
         noteTitle.setText(note.getNoteName());
         noteTitle.setStyle("-fx-font-weight: bold; -fx-font-size: 16px;");
         NoteArea.setLabelsText();
@@ -115,6 +140,51 @@ public class NoteArea {
             );
         });
 
+        // Lecture anticipée du contenu des notes susceptibles d'être ouvertes ensuite
+        NoteContentPrefetcher.noteOpened(note);
+    }
+
+
+    /**
+     * Cette méthode soumet le contenu de l'éditeur à la sauvegarde automatique s'il a été modifié depuis la dernière capture.
+     * Elle doit être appelée sur le thread de l'interface JavaFX.
+     */
+    public static void captureEdits() {
+        if (note != null && edited && NoteAutosave.submit(note, noteArea.getHtmlText())) {
+            edited = false;
+        }
+    }
+
+
+    /**
+     * Cette méthode soumet le contenu de l'éditeur à la sauvegarde automatique et demande son écriture immédiate.
+     * Elle doit être appelée sur le thread de l'interface JavaFX.
+     */
+    public static void saveNow() {
+        if (note == null) {
+            return;
+        }
+        if (NoteAutosave.submit(note, noteArea.getHtmlText())) {
+            edited = false;
+        }
+        NoteAutosave.flush(note);
+    }
+
+
+    /**
+     * Cette méthode enregistre toutes les notes modifiées : le contenu de l'éditeur est soumis s'il diffère du dernier contenu enregistré,
+     * puis toutes les sauvegardes en attente sont écrites en un seul lot. Elle attend la fin de l'écriture, dans la limite du délai fourni.
+     * Elle doit être appelée sur le thread de l'interface JavaFX.
+     *
+     * @param timeoutMs Le délai maximal d'attente de l'écriture, en millisecondes.
+     * @return true si toutes les notes modifiées ont été enregistrées.
+     */
+    public static boolean saveAllDirtyNotes(long timeoutMs) {
+        if (note != null && note.isDirty(noteArea.getHtmlText())) {
+            edited = true;
+        }
+        captureEdits();
+        return NoteAutosave.flushAll(timeoutMs);
     }
 
 
@@ -168,6 +238,12 @@ public class NoteArea {
         NoteArea.noteTitle = noteTitle;
         NoteArea.noteLabels = noteLables;
         NoteArea.btnChooseLabel = btnChooseLabel;
+        NoteArea.note = null;
+        NoteArea.edited = false;
+
+        // Toute saisie ou action de la barre d'outils marque le contenu comme modifié pour la prochaine capture
+        noteArea.setOnKeyReleased(event -> edited = true);
+        noteArea.setOnMouseReleased(event -> edited = true);
 
         noteSelectedPane.setVisible(false);
         waitingNoteSelectedPane.setVisible(true);
@@ -0,0 +1,454 @@
+package fr.serfa.notesmanager;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+
+/**
+ * La classe NoteAutosave implémente la sauvegarde automatique différée du contenu des notes.
+ * Le contenu capturé dans l'éditeur est placé dans une file où les sauvegardes successives d'une même note sont fusionnées,
+ * puis écrit en arrière-plan par un thread dédié lorsque la note n'a plus été modifiée pendant le délai d'attente,
+ * ou au plus tard après le délai maximal. L'écriture ne bloque donc jamais la saisie.
+ * La file peut être vidée immédiatement pour une note (changement de note) ou entièrement (déconnexion, arrêt).
+ * Un contenu identique au dernier contenu enregistré n'est pas mis en file, et les notes dues ensemble sont écrites en un seul lot.
+ */
+public abstract class NoteAutosave {
+
+
+    /**
+     * Une sauvegarde en attente pour une note.
+     */
+    private static final class PendingSave {
+
+        private final Note note;
+        private final long firstSubmittedAt;
+        private String content;
+        private long lastSubmittedAt;
+        private boolean forced;
+
+        private PendingSave(Note note, String content, long submittedAt) {
+            this.note = note;
+            this.content = content;
+            this.firstSubmittedAt = submittedAt;
+            this.lastSubmittedAt = submittedAt;
+        }
+    }
+
+
+    /**
+     * Le délai sans modification après lequel une note est écrite, en millisecondes.
+     */
+    private static final long debounceMs = DatabaseManager.longProperty("autosaveDebounceMs", 1_500);
+
+
+    /**
+     * Le délai maximal entre la première modification en attente d'une note et son écriture, en millisecondes.
+     */
+    private static final long maxDelayMs = DatabaseManager.longProperty("autosaveMaxDelayMs", 10_000);
+
+
+    /**
+     * L'intervalle de capture périodique du contenu de l'éditeur, en millisecondes.
+     */
+    private static final long captureIntervalMs = DatabaseManager.longProperty("autosaveCaptureIntervalMs", 2_000);
+
+
+    /**
+     * Le nombre maximal de notes distinctes en attente d'écriture.
+     */
+    private static final int maxPending = (int) DatabaseManager.longProperty("autosaveMaxPending", 64);
+
+
+    /**
+     * Les sauvegardes en attente, indexées par ID de note, dans l'ordre de leur première soumission.
+     */
+    private static final Map<Integer, PendingSave> pending = new LinkedHashMap<>();
+
+
+    /**
+     * Le verrou protégeant la file des sauvegardes en attente.
+     */
+    private static final ReentrantLock lock = new ReentrantLock();
+
+
+    /**
+     * La condition signalée lorsque la file change (nouvelle sauvegarde, vidage demandé, arrêt).
+     */
+    private static final Condition queueChanged = lock.newCondition();
+
+
+    /**
+     * La condition signalée lorsqu'une écriture se termine.
+     */
+    private static final Condition writeCompleted = lock.newCondition();
+
+
+    /**
+     * La tâche de capture périodique du contenu de l'éditeur.
+     */
+    private static final ScheduledExecutorService captureScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "note-autosave-capture");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    private static ScheduledFuture<?> captureTask;
+    private static Thread writerThread;
+    private static int writesInProgress;
+    private static boolean stopping;
+    private static long submittedCount;
+    private static long unchangedCount;
+    private static long coalescedCount;
+    private static long flushedCount;
+    private static long failedCount;
+
+
+    /**
+     * Le gestionnaire appelé lorsqu'une écriture échoue.
+     */
+    private static volatile Consumer<Note> failureListener = note -> {
+    };
+
+
+    /**
+     * Définit le gestionnaire appelé, depuis le thread d'écriture, lorsqu'une écriture échoue.
+     * La sauvegarde en échec reste dans la file et sera retentée.
+     *
+     * @param listener Le gestionnaire recevant la note dont l'écriture a échoué.
+     */
+    public static void setFailureListener(Consumer<Note> listener) {
+        failureListener = listener;
+    }
+
+
+    /**
+     * Soumet le contenu d'une note à la sauvegarde différée.
+     * Si une sauvegarde de la même note est déjà en attente, son contenu est remplacé.
+     * Un contenu identique au dernier contenu enregistré de la note est ignoré si aucune sauvegarde de la note n'est en attente.
+     *
+     * @param note    La note à sauvegarder.
+     * @param content Le nouveau contenu de la note.
+     * @return true si le contenu a été mis en file, false si la file est pleine (le contenu doit être soumis à nouveau plus tard).
+     */
+    public static boolean submit(Note note, String content) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            ensureWriterStarted();
+            submittedCount++;
+
+            PendingSave pendingSave = pending.get(note.getNoteID());
+            if (pendingSave != null) {
+                pendingSave.content = content;
+                pendingSave.lastSubmittedAt = now;
+                coalescedCount++;
+                return true;
+            }
+
+            if (!note.isDirty(content)) {
+                unchangedCount++;
+                return true;
+            }
+
+            if (pending.size() >= maxPending) {
+                // File pleine : réveille le thread d'écriture pour qu'il la vide sans attendre les délais
+                pending.values().forEach(save -> save.forced = true);
+                queueChanged.signal();
+                return false;
+            }
+
+            pending.put(note.getNoteID(), new PendingSave(note, content, now));
+            queueChanged.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Récupère le contenu en attente d'écriture d'une note.
+     *
+     * @param note La note.
+     * @return Le contenu en attente, ou null si aucune sauvegarde de cette note n'est en attente.
+     */
+    public static String getPendingContent(Note note) {
+        lock.lock();
+        try {
+            PendingSave pendingSave = pending.get(note.getNoteID());
+            return pendingSave == null ? null : pendingSave.content;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Demande l'écriture immédiate de la sauvegarde en attente d'une note, sans attendre qu'elle soit terminée.
+     *
+     * @param note La note à écrire.
+     */
+    public static void flush(Note note) {
+        lock.lock();
+        try {
+            PendingSave pendingSave = pending.get(note.getNoteID());
+            if (pendingSave != null) {
+                pendingSave.forced = true;
+                queueChanged.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Écrit toutes les sauvegardes en attente, en un seul lot, et attend la fin des écritures, dans la limite du délai fourni.
+     *
+     * @param timeoutMs Le délai maximal d'attente, en millisecondes.
+     * @return true si la file a été vidée, false si le délai a expiré.
+     */
+    public static boolean flushAll(long timeoutMs) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            pending.values().forEach(save -> save.forced = true);
+            queueChanged.signal();
+
+            while (!pending.isEmpty() || writesInProgress > 0) {
+                if (remainingNanos <= 0) {
+                    System.out.println("Sauvegarde automatique : " + pending.size() + " notes non écrites avant l'expiration du délai");
+                    return false;
+                }
+                try {
+                    remainingNanos = writeCompleted.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Démarre la capture périodique du contenu de l'éditeur.
+     * La capture est exécutée sur le thread de l'interface JavaFX.
+     *
+     * @param capture L'action qui capture le contenu de l'éditeur et le soumet à la sauvegarde.
+     */
+    public static synchronized void startPeriodicCapture(Runnable capture) {
+        stopPeriodicCapture();
+        captureTask = captureScheduler.scheduleWithFixedDelay(
+                () -> Platform.runLater(capture),
+                captureIntervalMs,
+                captureIntervalMs,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+
+    /**
+     * Arrête la capture périodique du contenu de l'éditeur.
+     */
+    public static synchronized void stopPeriodicCapture() {
+        if (captureTask != null) {
+            captureTask.cancel(false);
+            captureTask = null;
+        }
+    }
+
+
+    /**
+     * Écrit toutes les sauvegardes en attente puis arrête le thread d'écriture. Appelée à l'arrêt de l'application.
+     *
+     * @param timeoutMs Le délai maximal d'attente de l'écriture, en millisecondes.
+     */
+    public static void shutdown(long timeoutMs) {
+        stopPeriodicCapture();
+        captureScheduler.shutdownNow();
+        flushAll(timeoutMs);
+
+        lock.lock();
+        try {
+            stopping = true;
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Récupère le nombre de notes en attente d'écriture.
+     *
+     * @return Le nombre de notes en attente d'écriture.
+     */
+    public static int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Récupère le nombre d'écritures effectuées avec succès.
+     *
+     * @return Le nombre d'écritures effectuées.
+     */
+    public static long getFlushedCount() {
+        lock.lock();
+        try {
+            return flushedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Récupère un résumé des compteurs de la sauvegarde automatique.
+     *
+     * @return Le résumé des compteurs, pour la console.
+     */
+    public static String getStatsSummary() {
+        lock.lock();
+        try {
+            return "soumises " + submittedCount + " / fusionnées " + coalescedCount + " / inchangées " + unchangedCount + " / écrites " + flushedCount
+                    + " / échecs " + failedCount + " / en attente " + pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Démarre le thread d'écriture s'il ne l'est pas déjà. Doit être appelée avec le verrou.
+     */
+    private static void ensureWriterStarted() {
+        if (writerThread == null) {
+            stopping = false;
+            writerThread = new Thread(NoteAutosave::writeLoop, "note-autosave-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+
+    /**
+     * Boucle du thread d'écriture : attend que des sauvegardes soient dues, puis les écrit une par une.
+     */
+    private static void writeLoop() {
+        while (true) {
+            List<PendingSave> dueSaves = new ArrayList<>();
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (stopping && pending.isEmpty()) {
+                        writerThread = null;
+                        return;
+                    }
+
+                    long now = System.currentTimeMillis();
+                    long nextDueIn = Long.MAX_VALUE;
+                    Iterator<PendingSave> iterator = pending.values().iterator();
+                    while (iterator.hasNext()) {
+                        PendingSave pendingSave = iterator.next();
+                        long dueAt = Math.min(pendingSave.lastSubmittedAt + debounceMs, pendingSave.firstSubmittedAt + maxDelayMs);
+                        if (pendingSave.forced || stopping || dueAt <= now) {
+                            iterator.remove();
+                            dueSaves.add(pendingSave);
+                        } else {
+                            nextDueIn = Math.min(nextDueIn, dueAt - now);
+                        }
+                    }
+
+                    if (!dueSaves.isEmpty()) {
+                        writesInProgress = dueSaves.size();
+                        break;
+                    }
+
+                    try {
+                        if (nextDueIn == Long.MAX_VALUE) {
+                            queueChanged.await();
+                        } else {
+                            queueChanged.await(nextDueIn, TimeUnit.MILLISECONDS);
+                        }
+                    } catch (InterruptedException e) {
+                        writerThread = null;
+                        return;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            boolean written = write(dueSaves);
+
+            lock.lock();
+            try {
+                writesInProgress = 0;
+                if (written) {
+                    flushedCount += dueSaves.size();
+                } else {
+                    failedCount += dueSaves.size();
+                    // Remet les sauvegardes en file, sauf si un contenu plus récent y a été soumis entre-temps
+                    for (PendingSave pendingSave : dueSaves) {
+                        pending.putIfAbsent(pendingSave.note.getNoteID(), new PendingSave(pendingSave.note, pendingSave.content, System.currentTimeMillis()));
+                    }
+                }
+                writeCompleted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Écrit le contenu des sauvegardes dues dans la base de données, en un seul lot.
+     * Les notes dont le contenu n'a pas changé depuis le dernier enregistrement sont ignorées par Note.saveContents().
+     *
+     * @return true si l'écriture a réussi.
+     */
+    private static boolean write(List<PendingSave> dueSaves) {
+        Map<Note, String> contents = new LinkedHashMap<>();
+        for (PendingSave pendingSave : dueSaves) {
+            contents.put(pendingSave.note, pendingSave.content);
+        }
+
+        try {
+            if (Note.saveContents(contents) >= 0) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Erreur : " + e);
+        }
+        for (PendingSave pendingSave : dueSaves) {
+            System.out.println("Sauvegarde automatique : échec de l'écriture de la note " + pendingSave.note.getNoteID());
+            failureListener.accept(pendingSave.note);
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,392 @@
+package fr.serfa.notesmanager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+
+/**
+ * La classe NoteContentCache conserve en mémoire le contenu des notes lues, dans la limite de noteContentCacheBytes octets
+ * (32 Mio par défaut), pour que la mémoire occupée ne dépende pas du nombre de notes parcourues pendant la session.
+ * Les contenus récemment utilisés sont gardés tels quels, dans la limite de noteContentCacheHotBytes octets (8 Mio par défaut) ;
+ * au-delà, les moins récemment utilisés sont compressés avec Deflate, puis retirés du cache lorsque la limite totale est atteinte.
+ * Le contenu de la note ouverte dans l'éditeur et celui des notes dont une sauvegarde est en attente ne sont jamais retirés.
+ * Un contenu retiré est relu en base de données à la prochaine ouverture de sa note (Note.fetchNoteContent).
+ * Les statistiques du cache sont publiées en JMX sous fr.serfa.notesmanager:type=NoteContentCache.
+ */
+public abstract class NoteContentCache {
+
+
+    /**
+     * Interface JMX des statistiques du cache.
+     */
+    public interface CacheStatsMXBean {
+
+        /**
+         * @return Le nombre de contenus trouvés dans le cache.
+         */
+        long getHitCount();
+
+        /**
+         * @return Le nombre de contenus absents du cache, à relire en base de données.
+         */
+        long getMissCount();
+
+        /**
+         * @return La part des contenus demandés trouvés dans le cache.
+         */
+        double getHitRatio();
+
+        /**
+         * @return Le nombre de contenus retirés du cache pour respecter sa taille maximale.
+         */
+        long getEvictionCount();
+
+        /**
+         * @return Le nombre de contenus compressés en mémoire.
+         */
+        long getCompressionCount();
+
+        /**
+         * @return Le nombre d'octets occupés par les contenus du cache.
+         */
+        long getResidentBytes();
+
+        /**
+         * @return Le nombre de contenus dans le cache.
+         */
+        int getEntryCount();
+    }
+
+
+    /**
+     * Les statistiques du cache.
+     */
+    private static final class CacheStats implements CacheStatsMXBean {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder compressions = new LongAdder();
+
+        @Override
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        @Override
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        @Override
+        public double getHitRatio() {
+            long hitCount = hits.sum();
+            long total = hitCount + misses.sum();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return evictions.sum();
+        }
+
+        @Override
+        public long getCompressionCount() {
+            return compressions.sum();
+        }
+
+        @Override
+        public long getResidentBytes() {
+            synchronized (NoteContentCache.class) {
+                return hotBytes + coldBytes;
+            }
+        }
+
+        @Override
+        public int getEntryCount() {
+            synchronized (NoteContentCache.class) {
+                return hot.size() + cold.size();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d contenus (%d octets), taux de succès %.0f %% (%d succès, %d échecs), %d contenus compressés, %d contenus retirés",
+                    getEntryCount(), getResidentBytes(), getHitRatio() * 100, getHitCount(), getMissCount(), getCompressionCount(), getEvictionCount());
+        }
+    }
+
+
+    /**
+     * Un contenu du cache : le texte, ou sa forme compressée en UTF-8 (le texte est alors null), et le nombre d'octets qu'il occupe.
+     */
+    private record Entry(String content, byte[] compressed, long weight) {
+
+        private static Entry of(String content) {
+            return new Entry(content, null, STRING_OVERHEAD + 2L * content.length());
+        }
+    }
+
+
+    /**
+     * Le nombre d'octets comptés pour un contenu en plus de ses caractères ou de ses octets compressés (objets String, tableau, entrée).
+     */
+    private static final long STRING_OVERHEAD = 64;
+
+
+    /**
+     * La longueur en caractères à partir de laquelle un contenu peu utilisé est compressé.
+     */
+    private static final int COMPRESSION_MIN_LENGTH = 512;
+
+
+    /**
+     * La taille maximale du cache, en octets.
+     */
+    private static final long maxBytes = Math.max(1, DatabaseManager.longProperty("noteContentCacheBytes", 32L * 1024 * 1024));
+
+
+    /**
+     * La taille maximale des contenus non compressés, en octets.
+     */
+    private static final long maxHotBytes = Math.min(maxBytes, DatabaseManager.longProperty("noteContentCacheHotBytes", 8L * 1024 * 1024));
+
+
+    /**
+     * Les statistiques du cache, publiées en JMX.
+     */
+    private static final CacheStats stats = register(new CacheStats());
+
+
+    /**
+     * Les contenus récemment utilisés, non compressés, et les contenus peu utilisés, compressés si possible,
+     * du moins récemment au plus récemment utilisé.
+     */
+    private static final LinkedHashMap<Note, Entry> hot = new LinkedHashMap<>(64, 0.75f, true);
+    private static final LinkedHashMap<Note, Entry> cold = new LinkedHashMap<>(64, 0.75f, true);
+
+
+    /**
+     * Le nombre d'octets occupés par les contenus récemment utilisés et par les contenus peu utilisés.
+     */
+    private static long hotBytes;
+    private static long coldBytes;
+
+
+    /**
+     * Récupère le contenu d'une note. Un contenu compressé est décompressé et redevient récemment utilisé.
+     *
+     * @param note La note.
+     * @return Le contenu de la note, ou null s'il n'est pas dans le cache.
+     */
+    public static synchronized String get(Note note) {
+        Entry entry = hot.get(note);
+        if (entry == null) {
+            entry = cold.remove(note);
+            if (entry == null) {
+                stats.misses.increment();
+                return null;
+            }
+            coldBytes -= entry.weight();
+
+            String content = entry.compressed() == null ? entry.content() : decompress(entry.compressed());
+            if (content == null) {
+                stats.misses.increment();
+                return null;
+            }
+            entry = Entry.of(content);
+            hot.put(note, entry);
+            hotBytes += entry.weight();
+            trim();
+        }
+        stats.hits.increment();
+        return entry.content();
+    }
+
+
+    /**
+     * Indique si le contenu d'une note est dans le cache, sans le marquer comme utilisé.
+     *
+     * @param note La note.
+     * @return true si le contenu de la note est dans le cache.
+     */
+    public static synchronized boolean contains(Note note) {
+        return hot.containsKey(note) || cold.containsKey(note);
+    }
+
+
+    /**
+     * Ajoute ou remplace le contenu d'une note, comme contenu le plus récemment utilisé.
+     *
+     * @param note    La note.
+     * @param content Le contenu de la note.
+     */
+    public static synchronized void put(Note note, String content) {
+        remove(note);
+        if (content == null) {
+            return;
+        }
+        Entry entry = Entry.of(content);
+        hot.put(note, entry);
+        hotBytes += entry.weight();
+        trim();
+    }
+
+
+    /**
+     * Retire le contenu d'une note, par exemple lorsqu'il a été modifié ailleurs ou que la note a été supprimée.
+     *
+     * @param note La note.
+     */
+    public static synchronized void remove(Note note) {
+        Entry entry = hot.remove(note);
+        if (entry != null) {
+            hotBytes -= entry.weight();
+        }
+        entry = cold.remove(note);
+        if (entry != null) {
+            coldBytes -= entry.weight();
+        }
+    }
+
+
+    /**
+     * Vide le cache, à la déconnexion.
+     */
+    public static synchronized void clear() {
+        hot.clear();
+        cold.clear();
+        hotBytes = 0;
+        coldBytes = 0;
+    }
+
+
+    /**
+     * Récupère les statistiques du cache.
+     *
+     * @return Les statistiques du cache.
+     */
+    public static CacheStatsMXBean getStats() {
+        return stats;
+    }
+
+
+    /**
+     * Résume les statistiques du cache, pour la console.
+     *
+     * @return Le résumé des statistiques.
+     */
+    public static String getStatsSummary() {
+        return stats.toString();
+    }
+
+
+    /**
+     * Compresse les contenus non compressés les moins récemment utilisés au-delà de la limite des contenus non compressés,
+     * puis retire les contenus les moins récemment utilisés au-delà de la limite totale. Les contenus protégés sont ignorés.
+     */
+    private static void trim() {
+        Iterator<Map.Entry<Note, Entry>> hotEntries = hot.entrySet().iterator();
+        while (hotBytes > maxHotBytes && hotEntries.hasNext()) {
+            Map.Entry<Note, Entry> eldest = hotEntries.next();
+            if (isPinned(eldest.getKey())) {
+                continue;
+            }
+            hotEntries.remove();
+            hotBytes -= eldest.getValue().weight();
+
+            // Un contenu trop court ou incompressible rejoint les contenus peu utilisés sous sa forme complète
+            Entry entry = eldest.getValue();
+            byte[] compressed = entry.content().length() < COMPRESSION_MIN_LENGTH ? null : compress(entry.content());
+            if (compressed != null) {
+                entry = new Entry(null, compressed, STRING_OVERHEAD + compressed.length);
+                stats.compressions.increment();
+            }
+            cold.put(eldest.getKey(), entry);
+            coldBytes += entry.weight();
+        }
+
+        evict(cold.entrySet().iterator(), false);
+        evict(hot.entrySet().iterator(), true);
+    }
+
+
+    /**
+     * Retire les contenus les moins récemment utilisés d'une des deux listes, tant que le cache dépasse sa limite totale.
+     */
+    private static void evict(Iterator<Map.Entry<Note, Entry>> entries, boolean hotEntries) {
+        while (hotBytes + coldBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<Note, Entry> eldest = entries.next();
+            if (isPinned(eldest.getKey())) {
+                continue;
+            }
+            entries.remove();
+            if (hotEntries) {
+                hotBytes -= eldest.getValue().weight();
+            } else {
+                coldBytes -= eldest.getValue().weight();
+            }
+            stats.evictions.increment();
+        }
+    }
+
+
+    /**
+     * Indique si le contenu d'une note ne doit pas être retiré du cache : la note est ouverte dans l'éditeur,
+     * ou une sauvegarde de la note est en attente, dont l'écriture calculera la modification à partir de ce contenu.
+     */
+    private static boolean isPinned(Note note) {
+        return note == NoteArea.getNote() || NoteAutosave.getPendingContent(note) != null;
+    }
+
+
+    /**
+     * Compresse un contenu, ou renvoie null si sa forme compressée n'est pas plus petite.
+     */
+    private static byte[] compress(String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = NoteContentCodec.deflate(raw, Deflater.BEST_SPEED);
+        return compressed.length < 2L * content.length() ? compressed : null;
+    }
+
+
+    /**
+     * Décompresse un contenu, ou renvoie null s'il est illisible.
+     */
+    private static String decompress(byte[] compressed) {
+        try {
+            return new String(NoteContentCodec.inflate(compressed), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            System.out.println("Erreur : contenu du cache illisible : " + e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Publie les statistiques du cache dans le serveur JMX de la plateforme.
+     */
+    private static CacheStats register(CacheStats cacheStats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("fr.serfa.notesmanager:type=NoteContentCache");
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(cacheStats, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Publication JMX impossible pour NoteContentCache : " + e);
+        }
+        return cacheStats;
+    }
+
+}
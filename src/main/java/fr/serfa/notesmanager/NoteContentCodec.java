@@ -0,0 +1,390 @@
+package fr.serfa.notesmanager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * La classe NoteContentCodec compresse le contenu HTML des notes avant son écriture dans notes.note_content.
+ * Un contenu d'au moins noteCompressionThreshold octets (1024 par défaut) est compressé avec Deflate, encodé en Base64
+ * pour rester un texte valide dans la colonne LONGTEXT, et précédé de l'en-tête de format "NMZ1:".
+ * Un contenu sans en-tête est lu tel quel, si bien que les lignes écrites avant la compression restent lisibles.
+ * Une migration en arrière-plan compresse les contenus existants de l'utilisateur connecté.
+ * Le taux de compression est publié en JMX sous fr.serfa.notesmanager:type=NoteContentCodec.
+ */
+public abstract class NoteContentCodec {
+
+
+    /**
+     * Interface JMX des statistiques de compression.
+     */
+    public interface CompressionStatsMXBean {
+
+        /**
+         * @return Le nombre de contenus écrits.
+         */
+        long getEncodedCount();
+
+        /**
+         * @return Le nombre de contenus écrits sous forme compressée.
+         */
+        long getCompressedCount();
+
+        /**
+         * @return Le nombre d'octets des contenus écrits, avant compression.
+         */
+        long getRawBytes();
+
+        /**
+         * @return Le nombre d'octets des contenus écrits, tels que stockés.
+         */
+        long getStoredBytes();
+
+        /**
+         * @return Le rapport entre la taille stockée et la taille d'origine des contenus écrits (1 sans compression).
+         */
+        double getCompressionRatio();
+
+        /**
+         * @return Le nombre de contenus compressés lus.
+         */
+        long getDecodedCount();
+
+        /**
+         * @return Le nombre de notes compressées par la migration.
+         */
+        long getMigratedCount();
+    }
+
+
+    /**
+     * Les statistiques de compression.
+     */
+    private static final class CompressionStats implements CompressionStatsMXBean {
+
+        private final LongAdder encoded = new LongAdder();
+        private final LongAdder compressed = new LongAdder();
+        private final LongAdder rawBytes = new LongAdder();
+        private final LongAdder storedBytes = new LongAdder();
+        private final LongAdder decoded = new LongAdder();
+        private final LongAdder migrated = new LongAdder();
+
+        @Override
+        public long getEncodedCount() {
+            return encoded.sum();
+        }
+
+        @Override
+        public long getCompressedCount() {
+            return compressed.sum();
+        }
+
+        @Override
+        public long getRawBytes() {
+            return rawBytes.sum();
+        }
+
+        @Override
+        public long getStoredBytes() {
+            return storedBytes.sum();
+        }
+
+        @Override
+        public double getCompressionRatio() {
+            long raw = rawBytes.sum();
+            return raw == 0 ? 1 : (double) storedBytes.sum() / raw;
+        }
+
+        @Override
+        public long getDecodedCount() {
+            return decoded.sum();
+        }
+
+        @Override
+        public long getMigratedCount() {
+            return migrated.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d contenus écrits dont %d compressés, %d octets stockés pour %d octets (ratio %.2f), %d contenus décompressés, %d notes migrées",
+                    getEncodedCount(), getCompressedCount(), getStoredBytes(), getRawBytes(), getCompressionRatio(), getDecodedCount(), getMigratedCount());
+        }
+    }
+
+
+    /**
+     * Le contenu stocké d'une note, lu par la migration, et sa version (notes.content_version).
+     */
+    private record StoredContent(int noteID, String content, int contentVersion) {
+    }
+
+
+    /**
+     * L'en-tête des contenus compressés, suivi du contenu compressé en Base64.
+     */
+    static final String HEADER = "NMZ1:";
+
+
+    /**
+     * La taille en octets à partir de laquelle un contenu est compressé, lue dans les propriétés au premier encodage :
+     * le chargement de NoteContentCodec ne dépend pas ainsi de celui de DatabaseManager.
+     */
+    private static final class Threshold {
+        private static final int bytes = (int) Math.max(0, DatabaseManager.longProperty("noteCompressionThreshold", 1_024));
+    }
+
+
+    /**
+     * Les statistiques de compression, publiées en JMX.
+     */
+    private static final CompressionStats stats = register(new CompressionStats());
+
+
+    /**
+     * Le thread de la migration en cours, ou null.
+     */
+    private static volatile Thread migrationThread;
+
+
+    /**
+     * Encode le contenu d'une note pour son écriture en base de données.
+     * Le contenu est compressé s'il atteint le seuil et si sa forme compressée est plus courte,
+     * ou s'il commence lui-même par l'en-tête de format, pour être relu à l'identique.
+     *
+     * @param content Le contenu HTML de la note.
+     * @return Le contenu à stocker.
+     */
+    public static String encode(String content) {
+        return content == null ? null : encode(content, Threshold.bytes);
+    }
+
+
+    /**
+     * Encode le contenu d'une note avec le seuil de compression fourni.
+     *
+     * @param content   Le contenu HTML de la note.
+     * @param threshold La taille en octets à partir de laquelle le contenu est compressé.
+     * @return Le contenu à stocker.
+     */
+    static String encode(String content, int threshold) {
+        if (content == null) {
+            return null;
+        }
+
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        stats.encoded.increment();
+        stats.rawBytes.add(raw.length);
+
+        boolean startsWithHeader = content.startsWith(HEADER);
+        if (raw.length >= threshold || startsWithHeader) {
+            String encoded = HEADER + Base64.getEncoder().encodeToString(deflate(raw, Deflater.BEST_COMPRESSION));
+            if (encoded.length() < raw.length || startsWithHeader) {
+                stats.compressed.increment();
+                stats.storedBytes.add(encoded.length());
+                return encoded;
+            }
+        }
+        stats.storedBytes.add(raw.length);
+        return content;
+    }
+
+
+    /**
+     * Décode le contenu d'une note lu en base de données. Un contenu sans en-tête de format est renvoyé tel quel.
+     *
+     * @param stored Le contenu stocké.
+     * @return Le contenu HTML de la note, ou null si le contenu compressé est illisible.
+     */
+    public static String decode(String stored) {
+        if (stored == null || !stored.startsWith(HEADER)) {
+            return stored;
+        }
+
+        try {
+            byte[] compressed = Base64.getDecoder().decode(stored.substring(HEADER.length()));
+            stats.decoded.increment();
+            return new String(inflate(compressed), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException | DataFormatException e) {
+            System.out.println("Erreur : contenu compressé illisible : " + e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Démarre en arrière-plan la migration des contenus non compressés des notes d'un utilisateur, si elle est activée
+     * (propriété noteCompressionMigration, true par défaut). Les notes sont traitées par lots de noteCompressionMigrationBatch
+     * (50 par défaut), espacés de noteCompressionMigrationPauseMs (200 ms par défaut) pour ne pas concurrencer l'utilisateur.
+     *
+     * @param userID L'ID de l'utilisateur.
+     */
+    public static synchronized void startMigration(int userID) {
+        if (!Boolean.parseBoolean(DatabaseManager.stringProperty("noteCompressionMigration", "true")) || migrationThread != null) {
+            return;
+        }
+
+        int batchSize = (int) Math.max(1, DatabaseManager.longProperty("noteCompressionMigrationBatch", 50));
+        long pauseMs = DatabaseManager.longProperty("noteCompressionMigrationPauseMs", 200);
+        migrationThread = Thread.ofVirtual().name("note-compression-migration").start(() -> {
+            try {
+                int migrated = migrate(userID, batchSize, pauseMs);
+                System.out.println("Migration de la compression terminée : " + migrated + " notes compressées");
+            } catch (InterruptedException e) {
+                System.out.println("Migration de la compression interrompue");
+            } finally {
+                synchronized (NoteContentCodec.class) {
+                    migrationThread = null;
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Arrête la migration en cours, à la déconnexion ou à la fermeture de l'application.
+     */
+    public static synchronized void stopMigration() {
+        if (migrationThread != null) {
+            migrationThread.interrupt();
+        }
+    }
+
+
+    /**
+     * Récupère les statistiques de compression.
+     *
+     * @return Les statistiques de compression.
+     */
+    public static CompressionStatsMXBean getStats() {
+        return stats;
+    }
+
+
+    /**
+     * Résume les statistiques de compression, pour la console.
+     *
+     * @return Le résumé des statistiques.
+     */
+    public static String getStatsSummary() {
+        return stats.toString();
+    }
+
+
+    /**
+     * Compresse les contenus non compressés des notes d'un utilisateur, par lots, dans l'ordre des ID.
+     * Une note n'est réécrite que si son contenu n'a pas changé depuis sa lecture : sa version est la même et elle n'a pas de modification en attente.
+     * Les notes qui ont des modifications en attente sont ignorées, leur contenu étant compressé par l'intégration des modifications
+     * (Note.compactDeltas), qui réécrit le contenu de base sans changer sa version.
+     *
+     * @return Le nombre de notes compressées.
+     * @throws InterruptedException Si la migration est interrompue.
+     */
+    private static int migrate(int userID, int batchSize, long pauseMs) throws InterruptedException {
+        int migrated = 0;
+        int lastNoteID = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<StoredContent> batch = TypedQuery.of(QueryTemplate.NOTE_SELECT_UNCOMPRESSED)
+                    .setInt(userID)
+                    .setInt(lastNoteID)
+                    .setInt(Threshold.bytes)
+                    .setInt(batchSize)
+                    .list(row -> new StoredContent(row.getInt(1), row.getString(2), row.getInt(3)));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+
+            for (StoredContent row : batch) {
+                lastNoteID = row.noteID();
+
+                String encoded = encode(row.content());
+                if (!encoded.equals(row.content())) {
+                    int result = TypedQuery.of(QueryTemplate.NOTE_UPDATE_CONTENT_IF_UNCHANGED)
+                            .setString(encoded)
+                            .setInt(row.noteID())
+                            .setInt(row.contentVersion())
+                            .execute();
+                    if (result > 0) {
+                        migrated++;
+                        stats.migrated.increment();
+                    }
+                }
+            }
+            Thread.sleep(pauseMs);
+        }
+        return migrated;
+    }
+
+
+    /**
+     * Compresse des octets avec Deflate, au niveau de compression indiqué.
+     * Également utilisée par NoteContentCache pour les contenus peu utilisés.
+     */
+    static byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8_192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Décompresse des octets compressés par deflate.
+     */
+    static byte[] inflate(byte[] compressed) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8_192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Contenu compressé tronqué");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+
+    /**
+     * Publie les statistiques de compression dans le serveur JMX de la plateforme.
+     */
+    private static CompressionStats register(CompressionStats compressionStats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("fr.serfa.notesmanager:type=NoteContentCodec");
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(compressionStats, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Publication JMX impossible pour NoteContentCodec : " + e);
+        }
+        return compressionStats;
+    }
+
+}
@@ -0,0 +1,364 @@
+package fr.serfa.notesmanager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * La classe NoteContentPrefetcher lit en arrière-plan le contenu des notes que l'utilisateur ouvrira le plus probablement ensuite,
+ * pour que leur ouverture n'attende pas la base de données : les voisines de la note ouverte dans son onglet,
+ * les dernières notes ouvertes dont le contenu a été invalidé ou retiré de NoteContentCache, et les premières notes d'un onglet qui vient d'être déplié.
+ * Les lectures sont limitées à notePrefetchConcurrency lectures simultanées (2 par défaut) ; les lectures en attente sont abandonnées
+ * dès qu'une autre note est ouverte. Les succès et échecs du préchargement sont publiés en JMX sous fr.serfa.notesmanager:type=NoteContentPrefetcher.
+ */
+public abstract class NoteContentPrefetcher {
+
+
+    /**
+     * Interface JMX des statistiques de préchargement.
+     */
+    public interface PrefetchStatsMXBean {
+
+        /**
+         * @return Le nombre de notes ouvertes dont le contenu était déjà en mémoire.
+         */
+        long getHitCount();
+
+        /**
+         * @return Le nombre de notes ouvertes pendant la lecture anticipée de leur contenu.
+         */
+        long getLateCount();
+
+        /**
+         * @return Le nombre de notes ouvertes dont le contenu a dû être lu à l'ouverture.
+         */
+        long getMissCount();
+
+        /**
+         * @return La part des ouvertures servies sans attendre la base de données.
+         */
+        double getHitRatio();
+
+        /**
+         * @return Le nombre de contenus lus par anticipation.
+         */
+        long getPrefetchedCount();
+
+        /**
+         * @return Le nombre de lectures anticipées abandonnées avant leur début.
+         */
+        long getCancelledCount();
+    }
+
+
+    /**
+     * Les statistiques de préchargement.
+     */
+    private static final class PrefetchStats implements PrefetchStatsMXBean {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder late = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder prefetched = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+
+        @Override
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        @Override
+        public long getLateCount() {
+            return late.sum();
+        }
+
+        @Override
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        @Override
+        public double getHitRatio() {
+            long hitCount = hits.sum();
+            long total = hitCount + late.sum() + misses.sum();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        @Override
+        public long getPrefetchedCount() {
+            return prefetched.sum();
+        }
+
+        @Override
+        public long getCancelledCount() {
+            return cancelled.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ouvertures instantanées, %d pendant la lecture anticipée, %d avec lecture (taux %.0f %%), %d contenus préchargés, %d lectures abandonnées",
+                    getHitCount(), getLateCount(), getMissCount(), getHitRatio() * 100, getPrefetchedCount(), getCancelledCount());
+        }
+    }
+
+
+    /**
+     * Le nombre maximal de lectures anticipées simultanées.
+     */
+    private static final int maxConcurrent = (int) Math.max(1, DatabaseManager.longProperty("notePrefetchConcurrency", 2));
+
+
+    /**
+     * Le nombre de voisines préchargées de chaque côté de la note ouverte.
+     */
+    private static final int siblingCount = (int) Math.max(0, DatabaseManager.longProperty("notePrefetchSiblings", 2));
+
+
+    /**
+     * Le nombre de premières notes préchargées au dépliage d'un onglet.
+     */
+    private static final int tabNoteCount = (int) Math.max(0, DatabaseManager.longProperty("notePrefetchTabNotes", 3));
+
+
+    /**
+     * Le nombre de dernières notes ouvertes mémorisées.
+     */
+    private static final int recentCount = (int) Math.max(0, DatabaseManager.longProperty("notePrefetchRecent", 8));
+
+
+    /**
+     * Les statistiques de préchargement, publiées en JMX.
+     */
+    private static final PrefetchStats stats = register(new PrefetchStats());
+
+
+    /**
+     * Les notes en attente de lecture, dans l'ordre de priorité.
+     */
+    private static final Deque<Note> pending = new ArrayDeque<>();
+
+
+    /**
+     * Les notes dont le contenu est en cours de lecture anticipée.
+     */
+    private static final Set<Note> inFlight = new HashSet<>();
+
+
+    /**
+     * Les dernières notes ouvertes, de la plus ancienne à la plus récente.
+     */
+    private static final Map<Integer, Note> recentNotes = new LinkedHashMap<>(16, 0.75f, true);
+
+
+    /**
+     * Le nombre de lectures anticipées en cours.
+     */
+    private static int running;
+
+
+    /**
+     * Enregistre l'ouverture d'une note, avant l'affichage de son contenu, pour les statistiques de préchargement.
+     *
+     * @param note La note ouverte.
+     */
+    public static void recordOpen(Note note) {
+        if (note.isContentLoaded()) {
+            stats.hits.increment();
+            return;
+        }
+        synchronized (NoteContentPrefetcher.class) {
+            if (inFlight.contains(note)) {
+                stats.late.increment();
+                return;
+            }
+        }
+        stats.misses.increment();
+    }
+
+
+    /**
+     * Précharge le contenu des notes susceptibles d'être ouvertes après une note : ses voisines dans l'onglet, les plus proches d'abord,
+     * puis les dernières notes ouvertes dont le contenu n'est plus en mémoire. Les lectures en attente pour la note précédente sont abandonnées.
+     * Appelée sur le thread de l'interface après l'ouverture de la note.
+     *
+     * @param note La note ouverte.
+     */
+    public static void noteOpened(Note note) {
+        List<Note> candidates = new ArrayList<>(siblingCount * 2 + recentCount);
+
+        List<Note> siblings = displayedNotes(note.getTab());
+        int index = siblings.indexOf(note);
+        if (index >= 0) {
+            for (int distance = 1; distance <= siblingCount; distance++) {
+                if (index + distance < siblings.size()) {
+                    candidates.add(siblings.get(index + distance));
+                }
+                if (index - distance >= 0) {
+                    candidates.add(siblings.get(index - distance));
+                }
+            }
+        }
+
+        synchronized (NoteContentPrefetcher.class) {
+            // Les notes retirées du carnet de notes (pages évincées, synchronisation) sont remplacées par leur objet actuel
+            Notebook notebook = note.getTab().getBinder().getNotebook();
+            List<Note> recent = new ArrayList<>(recentNotes.values());
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                Note current = notebook.getNoteByID(recent.get(i).getNoteID());
+                if (current != null) {
+                    candidates.add(current);
+                }
+            }
+
+            recentNotes.put(note.getNoteID(), note);
+            while (recentNotes.size() > recentCount) {
+                recentNotes.remove(recentNotes.keySet().iterator().next());
+            }
+
+            stats.cancelled.add(pending.size());
+            pending.clear();
+            enqueue(candidates);
+        }
+    }
+
+
+    /**
+     * Précharge le contenu des premières notes affichées d'un onglet qui vient d'être déplié, après les lectures déjà en attente.
+     *
+     * @param tab L'onglet déplié.
+     */
+    public static void tabExpanded(Tab tab) {
+        List<Note> notes = displayedNotes(tab);
+        synchronized (NoteContentPrefetcher.class) {
+            enqueue(notes.subList(0, Math.min(tabNoteCount, notes.size())));
+        }
+    }
+
+
+    /**
+     * Abandonne les lectures en attente et oublie les dernières notes ouvertes, à la déconnexion.
+     */
+    public static synchronized void cancelAll() {
+        stats.cancelled.add(pending.size());
+        pending.clear();
+        recentNotes.clear();
+    }
+
+
+    /**
+     * Récupère les statistiques de préchargement.
+     *
+     * @return Les statistiques de préchargement.
+     */
+    public static PrefetchStatsMXBean getStats() {
+        return stats;
+    }
+
+
+    /**
+     * Résume les statistiques de préchargement, pour la console.
+     *
+     * @return Le résumé des statistiques.
+     */
+    public static String getStatsSummary() {
+        return stats.toString();
+    }
+
+
+    /**
+     * Récupère les notes affichées d'un onglet : la fenêtre de pages si ses notes sont lues page par page, sinon toutes ses notes.
+     */
+    private static List<Note> displayedNotes(Tab tab) {
+        NotePager pager = tab.getPager();
+        return pager == null ? tab.getNotes() : pager.getNotes();
+    }
+
+
+    /**
+     * Ajoute à la file les notes dont le contenu n'est ni en mémoire, ni déjà demandé, puis démarre les lectures dans la limite autorisée.
+     * Appelée en tenant le verrou de la classe.
+     */
+    private static void enqueue(List<Note> notes) {
+        for (Note note : notes) {
+            if (!note.isContentLoaded() && !inFlight.contains(note) && !pending.contains(note)
+                    && NoteAutosave.getPendingContent(note) == null) {
+                pending.addLast(note);
+            }
+        }
+        while (running < maxConcurrent && !pending.isEmpty()) {
+            running++;
+            AsyncDatabaseManager.supplyAsync(NoteContentPrefetcher::drain, Runnable::run)
+                    .exceptionally(e -> {
+                        System.out.println("Erreur : préchargement du contenu des notes : " + e);
+                        return null;
+                    });
+        }
+    }
+
+
+    /**
+     * Lit le contenu des notes de la file jusqu'à ce qu'elle soit vide.
+     * Une note ouverte pendant sa lecture attend la fin de celle-ci (Note.fetchNoteContent ne lit qu'une fois à la fois le contenu d'une note) au lieu de relancer la requête.
+     *
+     * @return Le nombre de contenus lus.
+     */
+    private static Integer drain() {
+        int fetched = 0;
+        try {
+            while (true) {
+                Note note;
+                synchronized (NoteContentPrefetcher.class) {
+                    note = pending.pollFirst();
+                    if (note == null) {
+                        return fetched;
+                    }
+                    inFlight.add(note);
+                }
+                try {
+                    if (!note.isContentLoaded() && note.fetchNoteContent() != null) {
+                        stats.prefetched.increment();
+                        fetched++;
+                    }
+                } finally {
+                    synchronized (NoteContentPrefetcher.class) {
+                        inFlight.remove(note);
+                    }
+                }
+            }
+        } finally {
+            synchronized (NoteContentPrefetcher.class) {
+                running--;
+            }
+        }
+    }
+
+
+    /**
+     * Publie les statistiques de préchargement dans le serveur JMX de la plateforme.
+     */
+    private static PrefetchStats register(PrefetchStats prefetchStats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("fr.serfa.notesmanager:type=NoteContentPrefetcher");
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(prefetchStats, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Publication JMX impossible pour NoteContentPrefetcher : " + e);
+        }
+        return prefetchStats;
+    }
+
+}
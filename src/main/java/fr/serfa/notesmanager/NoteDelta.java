@@ -0,0 +1,124 @@
+package fr.serfa.notesmanager;
+
+import java.util.List;
+
+
+/**
+ * Une modification du contenu d'une note, enregistrée dans la table note_deltas à la place du contenu complet.
+ * Elle remplace deleteLength caractères à partir de la position offset par le texte text, dans un contenu de baseLength caractères.
+ * Les positions et les longueurs sont comptées en caractères Java (UTF-16), à l'écriture comme à la lecture.
+ *
+ * @param deltaID      L'ID de la modification, qui donne l'ordre d'application (0 pour une modification pas encore enregistrée).
+ * @param offset       La position du premier caractère remplacé.
+ * @param deleteLength Le nombre de caractères remplacés.
+ * @param baseLength   La longueur du contenu auquel la modification s'applique.
+ * @param text         Le texte inséré à la place des caractères remplacés.
+ * @param baseVersion  La version du contenu (notes.content_version) à partir de laquelle la modification a été calculée,
+ *                     ou 0 pour une modification enregistrée avant l'ajout des versions.
+ */
+public record NoteDelta(int deltaID, int offset, int deleteLength, int baseLength, String text, int baseVersion) {
+
+    public static final Column<Integer> DELTA_ID = Column.ofInt(1, "delta_id");
+    public static final Column<Integer> DELTA_OFFSET = Column.ofInt(2, "delta_offset");
+    public static final Column<Integer> DELTA_DELETE_LENGTH = Column.ofInt(3, "delta_delete_length");
+    public static final Column<Integer> DELTA_BASE_LENGTH = Column.ofInt(4, "delta_base_length");
+    public static final Column<String> DELTA_TEXT = Column.ofString(5, "delta_text");
+    public static final Column<Integer> DELTA_BASE_VERSION = Column.ofInt(6, "delta_base_version");
+
+
+    /**
+     * Convertit la ligne courante du résultat de QueryTemplate.NOTE_DELTA_SELECT en NoteDelta.
+     */
+    public static final DatabaseManager.RowMapper<NoteDelta> MAPPER = row -> new NoteDelta(
+            DELTA_ID.getInt(row),
+            DELTA_OFFSET.getInt(row),
+            DELTA_DELETE_LENGTH.getInt(row),
+            DELTA_BASE_LENGTH.getInt(row),
+            DELTA_TEXT.get(row),
+            DELTA_BASE_VERSION.getInt(row)
+    );
+
+
+    /**
+     * Calcule la modification qui transforme un contenu en un autre : la partie comprise entre le plus long préfixe commun
+     * et le plus long suffixe commun. Sa taille est proportionnelle à la partie modifiée, et non à la taille de la note.
+     * Les bornes ne coupent jamais une paire de substitution, pour que le texte inséré reste encodable en UTF-8.
+     *
+     * @param oldText Le contenu enregistré.
+     * @param newText Le nouveau contenu.
+     * @return La modification, ou null si les deux contenus sont identiques. Sa version de base est fixée à son enregistrement.
+     */
+    public static NoteDelta diff(String oldText, String newText) {
+        if (oldText.equals(newText)) {
+            return null;
+        }
+
+        int maxCommon = Math.min(oldText.length(), newText.length());
+        int prefix = 0;
+        while (prefix < maxCommon && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix > 0 && Character.isHighSurrogate(oldText.charAt(prefix - 1))) {
+            prefix--;
+        }
+
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(oldText.charAt(oldText.length() - suffix))) {
+            suffix--;
+        }
+
+        return new NoteDelta(
+                0,
+                prefix,
+                oldText.length() - prefix - suffix,
+                oldText.length(),
+                newText.substring(prefix, newText.length() - suffix),
+                0
+        );
+    }
+
+
+    /**
+     * Applique la modification à un contenu.
+     *
+     * @param base Le contenu auquel la modification s'applique.
+     * @return Le contenu modifié.
+     * @throws IllegalStateException Si le contenu ne correspond pas à celui sur lequel la modification a été calculée.
+     */
+    public String apply(String base) {
+        if (base.length() != baseLength || offset + deleteLength > base.length()) {
+            throw new IllegalStateException("La modification " + deltaID + " s'applique à un contenu de " + baseLength
+                    + " caractères, et non de " + base.length());
+        }
+        return base.substring(0, offset) + text + base.substring(offset + deleteLength);
+    }
+
+
+    /**
+     * Applique des modifications à un contenu, dans l'ordre de leurs ID. Les versions de base des modifications
+     * doivent se suivre : un écart révèle une modification calculée à partir d'un autre contenu que celui qui la précède.
+     *
+     * @param base   Le contenu de base.
+     * @param deltas Les modifications, dans l'ordre de QueryTemplate.NOTE_DELTA_SELECT.
+     * @return Le contenu modifié.
+     * @throws IllegalStateException Si une modification ne s'applique pas au contenu qui la précède.
+     */
+    public static String applyAll(String base, List<NoteDelta> deltas) {
+        String content = base;
+        int previousBaseVersion = 0;
+        for (NoteDelta delta : deltas) {
+            if (previousBaseVersion != 0 && delta.baseVersion() != 0 && delta.baseVersion() != previousBaseVersion + 1) {
+                throw new IllegalStateException("La modification " + delta.deltaID() + " a été calculée sur la version " + delta.baseVersion()
+                        + " du contenu, et non sur la version " + (previousBaseVersion + 1));
+            }
+            previousBaseVersion = delta.baseVersion();
+            content = delta.apply(content);
+        }
+        return content;
+    }
+
+}
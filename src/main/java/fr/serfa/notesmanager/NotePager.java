@@ -0,0 +1,424 @@
+package fr.serfa.notesmanager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * La classe NotePager lit les notes d'un onglet page par page, dans l'ordre de leur nom puis de leur ID,
+ * pour les onglets du carnet de notes chargé à la demande, qui peuvent contenir des dizaines de milliers de notes.
+ * Les pages sont lues par pagination par clé sur (tab_id, note_name, note_id), avec l'index IDX_notes_tab_name :
+ * chaque page reprend après la dernière note de la précédente (ou avant la première, en arrière), si bien que le coût
+ * d'une page ne dépend pas de sa position dans l'onglet.
+ * Seules les pages de la fenêtre affichée (notePageWindow pages, 3 par défaut) sont présentes dans l'onglet ; une page qui sort
+ * de la fenêtre en est retirée. Les lignes des dernières pages lues (notePageCacheSize pages, 16 par défaut) sont gardées en cache,
+ * pour revenir en arrière ou en avant sans relecture. La mémoire et les lectures restent ainsi bornées quelle que soit la taille de l'onglet.
+ */
+public class NotePager {
+
+
+    /**
+     * Une ligne d'une page de notes.
+     */
+    private record NoteRow(int noteID, String noteName, String label1Name, String label2Name) {
+    }
+
+
+    /**
+     * La position d'une page : la note après laquelle (ou avant laquelle, en arrière) elle commence, ou null pour la première page.
+     */
+    private record PageKey(boolean forward, String noteName, int noteID) {
+    }
+
+
+    /**
+     * Une page lue : ses lignes, dans l'ordre de l'onglet, et l'existence d'autres notes au-delà, dans le sens de la lecture.
+     */
+    private record PageRows(List<NoteRow> rows, boolean hasMore) {
+    }
+
+
+    /**
+     * Le nombre de notes par page.
+     */
+    private static final int pageSize = (int) Math.max(1, DatabaseManager.longProperty("notePageSize", 200));
+
+
+    /**
+     * Le nombre maximal de pages présentes dans l'onglet et affichées dans l'arborescence.
+     */
+    private static final int windowPages = (int) Math.max(1, DatabaseManager.longProperty("notePageWindow", 3));
+
+
+    /**
+     * Le nombre maximal de pages gardées en cache.
+     */
+    private static final int cachePages = (int) Math.max(1, DatabaseManager.longProperty("notePageCacheSize", 16));
+
+
+    /**
+     * L'onglet dont les notes sont lues.
+     */
+    private final Tab tab;
+
+
+    /**
+     * Les pages de la fenêtre, dans l'ordre de l'onglet.
+     */
+    private final Deque<List<Note>> window = new ArrayDeque<>();
+
+
+    /**
+     * Les notes créées dans l'onglet pendant la session, affichées après la fenêtre jusqu'à ce qu'une page lue les contienne.
+     * Elles ne servent pas de position de page, puisque leur place dans l'ordre des noms n'est connue que de la base de données.
+     */
+    private final List<Note> createdNotes = new ArrayList<>();
+
+
+    /**
+     * Le cache des dernières pages lues, de la moins récemment utilisée à la plus récemment utilisée.
+     * Il peut être rempli par le préchargement sur un autre thread : ses accès sont synchronisés sur lui-même.
+     */
+    private final Map<PageKey, PageRows> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PageKey, PageRows> eldest) {
+            return size() > cachePages;
+        }
+    };
+
+
+    /**
+     * Indique si la première page a été lue.
+     */
+    private boolean started;
+
+
+    /**
+     * Indique s'il existe des notes avant la première page et après la dernière page de la fenêtre.
+     */
+    private boolean hasPrevious;
+    private boolean hasNext;
+
+
+    /**
+     * Constructeur de la classe NotePager.
+     *
+     * @param tab L'onglet dont les notes sont lues.
+     */
+    NotePager(Tab tab) {
+        this.tab = tab;
+    }
+
+
+    /**
+     * Indique si la première page a été lue.
+     *
+     * @return true si la fenêtre a été remplie au moins une fois.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+
+    /**
+     * Indique s'il existe des notes avant la fenêtre.
+     *
+     * @return true si une page précédente peut être lue.
+     */
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+
+    /**
+     * Indique s'il existe des notes après la fenêtre.
+     *
+     * @return true si une page suivante peut être lue.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+
+    /**
+     * Récupère les notes de la fenêtre, dans l'ordre de l'onglet.
+     *
+     * @return Les notes affichées.
+     */
+    public List<Note> getNotes() {
+        List<Note> notes = new ArrayList<>(window.size() * pageSize);
+        for (List<Note> page : window) {
+            notes.addAll(page);
+        }
+        notes.addAll(createdNotes);
+        return notes;
+    }
+
+
+    /**
+     * Lit la première page de l'onglet et en fait la seule page de la fenêtre.
+     * Si l'onglet tient dans une page, toutes ses notes sont lues : l'onglet est alors marqué comme chargé et n'utilise plus de pagination.
+     *
+     * @return Le nombre de notes lues, ou -1 en cas d'erreur.
+     */
+    public int loadFirst() {
+        PageRows page = readPage(new PageKey(true, null, 0));
+        if (page == null) {
+            return -1;
+        }
+
+        evictWindow();
+        started = true;
+        hasPrevious = false;
+        hasNext = page.hasMore();
+        window.addLast(attach(page.rows()));
+
+        if (!hasNext) {
+            createdNotes.clear();
+            tab.completePaging();
+        }
+        return page.rows().size();
+    }
+
+
+    /**
+     * Lit la page qui suit la fenêtre et l'ajoute à la fin de la fenêtre. Si la fenêtre dépasse sa taille maximale,
+     * sa première page est retirée de l'onglet.
+     *
+     * @return Le nombre de notes lues, ou -1 en cas d'erreur.
+     */
+    public int loadNext() {
+        if (!hasNext || window.isEmpty() || window.getLast().isEmpty()) {
+            return 0;
+        }
+
+        Note last = window.getLast().getLast();
+        PageRows page = readPage(new PageKey(true, last.getNoteName(), last.getNoteID()));
+        if (page == null) {
+            return -1;
+        }
+
+        hasNext = page.hasMore();
+        List<Note> notes = attach(page.rows());
+        if (notes.isEmpty()) {
+            return 0;
+        }
+        window.addLast(notes);
+        if (window.size() > windowPages) {
+            evict(window.removeFirst());
+            hasPrevious = true;
+        }
+        return page.rows().size();
+    }
+
+
+    /**
+     * Lit la page qui précède la fenêtre et l'ajoute au début de la fenêtre. Si la fenêtre dépasse sa taille maximale,
+     * sa dernière page est retirée de l'onglet.
+     *
+     * @return Le nombre de notes lues, ou -1 en cas d'erreur.
+     */
+    public int loadPrevious() {
+        if (!hasPrevious || window.isEmpty() || window.getFirst().isEmpty()) {
+            return 0;
+        }
+
+        Note first = window.getFirst().getFirst();
+        PageRows page = readPage(new PageKey(false, first.getNoteName(), first.getNoteID()));
+        if (page == null) {
+            return -1;
+        }
+
+        hasPrevious = page.hasMore();
+        List<Note> notes = attach(page.rows());
+        if (notes.isEmpty()) {
+            return 0;
+        }
+        window.addFirst(notes);
+        if (window.size() > windowPages) {
+            evict(window.removeLast());
+            hasNext = true;
+        }
+        return page.rows().size();
+    }
+
+
+    /**
+     * Lit en cache la première page de l'onglet, si elle n'y est pas déjà, pour que son affichage ne demande aucune lecture.
+     * Ne modifie pas l'onglet, et peut donc être appelée sur un autre thread que celui de l'interface.
+     *
+     * @return true si la page est en cache.
+     */
+    boolean prefetchFirstPage() {
+        return readPage(new PageKey(true, null, 0)) != null;
+    }
+
+
+    /**
+     * Ajoute à la fin de la fenêtre une note créée dans l'onglet, pour qu'elle soit affichée sans relecture.
+     * Elle reprendra sa place dans l'ordre des noms à la prochaine lecture de sa page.
+     *
+     * @param note La note créée.
+     */
+    void noteCreated(Note note) {
+        invalidate();
+        createdNotes.add(note);
+    }
+
+
+    /**
+     * Retire de la fenêtre une note retirée de l'onglet.
+     *
+     * @param note La note retirée.
+     */
+    void noteRemoved(Note note) {
+        invalidate();
+        for (List<Note> page : window) {
+            page.remove(note);
+        }
+        createdNotes.remove(note);
+    }
+
+
+    /**
+     * Vide le cache des pages, après une modification des notes de l'onglet. La fenêtre affichée est conservée.
+     */
+    void invalidate() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+
+    /**
+     * Retire de l'onglet toutes les pages de la fenêtre.
+     */
+    private void evictWindow() {
+        while (!window.isEmpty()) {
+            evict(window.removeFirst());
+        }
+        evict(createdNotes);
+        createdNotes.clear();
+    }
+
+
+    /**
+     * Retire de l'onglet les notes d'une page sortie de la fenêtre, sauf la note ouverte dans l'éditeur.
+     */
+    private void evict(List<Note> page) {
+        Note openNote = NoteArea.getNote();
+        for (Note note : page) {
+            if (note != openNote) {
+                tab.evictNote(note);
+            }
+        }
+    }
+
+
+    /**
+     * Ajoute à l'onglet les notes d'une page lue. Une note déjà présente dans l'onglet est réutilisée telle quelle,
+     * et une note déjà affichée (par exemple renommée depuis la lecture de sa page) ne l'est pas une seconde fois.
+     */
+    private List<Note> attach(List<NoteRow> rows) {
+        Set<Integer> shownNoteIDs = new HashSet<>();
+        for (List<Note> page : window) {
+            for (Note note : page) {
+                shownNoteIDs.add(note.getNoteID());
+            }
+        }
+
+        List<Note> page = new ArrayList<>(rows.size());
+        for (NoteRow row : rows) {
+            if (shownNoteIDs.contains(row.noteID())) {
+                continue;
+            }
+            Note note = tab.attachNote(new Note(tab, row.noteID(), row.noteName(), Notebook.createLabels(row.label1Name(), row.label2Name())));
+            createdNotes.remove(note);
+            page.add(note);
+        }
+        return page;
+    }
+
+
+    /**
+     * Récupère une page dans le cache, ou la lit en base de données et la met en cache.
+     *
+     * @return La page, ou null en cas d'erreur.
+     */
+    private PageRows readPage(PageKey key) {
+        synchronized (cache) {
+            PageRows cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Une ligne de plus que la taille de la page indique s'il existe d'autres notes au-delà.
+        // Les notes sans nom, placées avant les autres, sont lues à part, pour ne pas dépendre du tri des NULL par la base de données.
+        List<NoteRow> rows = new ArrayList<>(pageSize + 1);
+        boolean read = QueryMetrics.time("NotePager.readPage", () -> {
+            if (key.forward() && key.noteName() == null) {
+                boolean unnamedRead = readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_UNNAMED_NOTES_AFTER).setInt(tab.getTabID()).setInt(key.noteID()));
+                return unnamedRead && (rows.size() > pageSize
+                        || readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_NAMED_NOTES_FIRST).setInt(tab.getTabID())));
+            } else if (key.forward()) {
+                return readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_NAMED_NOTES_AFTER)
+                        .setInt(tab.getTabID())
+                        .setString(key.noteName())
+                        .setString(key.noteName())
+                        .setInt(key.noteID()));
+            } else if (key.noteName() == null) {
+                return readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_UNNAMED_NOTES_BEFORE).setInt(tab.getTabID()).setInt(key.noteID()));
+            } else {
+                boolean namedRead = readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_NAMED_NOTES_BEFORE)
+                        .setInt(tab.getTabID())
+                        .setString(key.noteName())
+                        .setString(key.noteName())
+                        .setInt(key.noteID()));
+                return namedRead && (rows.size() > pageSize
+                        || readRows(rows, TypedQuery.of(QueryTemplate.TAB_SELECT_UNNAMED_NOTES_BEFORE).setInt(tab.getTabID()).setLong(Long.MAX_VALUE)));
+            }
+        });
+        if (!read) {
+            System.out.println("Erreur : une page des notes de l'onglet " + tab.getTabName() + " n'a pas pu être lue");
+            return null;
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NoteRow> pageRows = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        // Les pages lues en arrière arrivent dans l'ordre inverse de l'onglet
+        if (!key.forward()) {
+            Collections.reverse(pageRows);
+        }
+
+        PageRows page = new PageRows(List.copyOf(pageRows), hasMore);
+        synchronized (cache) {
+            cache.put(key, page);
+        }
+        return page;
+    }
+
+
+    /**
+     * Complète une page avec les lignes d'une requête, au plus le nombre de lignes qui manquent pour dépasser la taille d'une page.
+     *
+     * @return false en cas d'erreur SQL.
+     */
+    private static boolean readRows(List<NoteRow> rows, TypedQuery query) {
+        List<NoteRow> read = query.setInt(pageSize + 1 - rows.size())
+                .list(row -> new NoteRow(row.getInt(1), row.getString(2), row.getString(3), row.getString(4)));
+        if (read == null) {
+            return false;
+        }
+        rows.addAll(read);
+        return true;
+    }
+
+}
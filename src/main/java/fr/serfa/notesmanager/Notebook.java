@@ -1,21 +1,132 @@
 package fr.serfa.notesmanager;
 
-import java.sql.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
  * La classe Notebook représente un carnet de notes dans l'application.
  * Un carnet de notes est associé à un utilisateur unique et contient plusieurs classeurs (Binder).
  * Chaque classeur peut contenir plusieurs onglets (Tab) et chaque onglet peut contenir plusieurs notes (Note).
+ * Le contenu est chargé entièrement une seule fois, puis synchronisé : seules les lignes modifiées ou supprimées
+ * depuis la dernière synchronisation sont relues et fusionnées dans les objets existants.
  */
 public class Notebook {
 
 
     /**
-     * Une liste d'objets Binder représentant les classeurs dans le carnet de notes.
+     * Un classeur modifié, lu par la synchronisation.
      */
-    private ArrayList<Binder> binders = new ArrayList<>();
+    private record BinderChange(int binderID, String binderName, int binderColorID) {
+    }
+
+
+    /**
+     * Un onglet modifié, lu par la synchronisation.
+     */
+    private record TabChange(int tabID, int binderID, String tabName, int tabColorID) {
+    }
+
+
+    /**
+     * Une note modifiée, lue par la synchronisation.
+     */
+    private record NoteChange(int noteID, int tabID, String noteName, String label1Name, String label2Name, int contentVersion) {
+    }
+
+
+    /**
+     * Une suppression enregistrée dans deleted_rows : B pour un classeur, T pour un onglet, N pour une note.
+     */
+    private record Deletion(String entityType, int entityID) {
+    }
+
+
+    /**
+     * Les modifications lues par une synchronisation, et l'heure du serveur à laquelle elles ont été lues.
+     */
+    record Changes(Timestamp readAt, List<BinderChange> binders, List<TabChange> tabs, List<NoteChange> notes, List<Deletion> deletions) {
+    }
+
+
+    /**
+     * Les notes portant une étiquette lues en chargement à la demande, et les onglets lus pour ceux de leurs classeurs qui n'en avaient pas.
+     */
+    record LabelNotes(List<NotebookRow> rows, Map<Binder, ArrayList<Tab>> tabs) {
+    }
+
+
+    /**
+     * Le contenu du carnet de notes lu par fetchNotebookContent() : le filtre d'étiquette de la lecture, l'heure du serveur
+     * lue avant le contenu complet (null pour un contenu filtré, qui n'est pas synchronisé), et les lignes lues.
+     */
+    record NotebookContent(String labelNameFilter, Timestamp readAt, List<NotebookRow> rows) {
+    }
+
+
+    /**
+     * La marge de relecture des modifications, en millisecondes : chaque synchronisation relit aussi les lignes modifiées
+     * peu avant la précédente, pour ne pas manquer celles des transactions validées après sa lecture.
+     */
+    private static final long syncOverlapMs = DatabaseManager.longProperty("syncOverlapMs", 5_000);
+
+
+    /**
+     * Indique si le carnet de notes est chargé à la demande (propriété notebookLazyLoading, false par défaut) :
+     * seuls les classeurs sont lus à la connexion, puis les onglets d'un classeur et les notes d'un onglet à leur dépliage
+     * dans l'arborescence. Le temps d'affichage ne dépend alors plus du nombre total de notes.
+     */
+    private static final boolean lazyLoading = Boolean.parseBoolean(DatabaseManager.stringProperty("notebookLazyLoading", "false"));
+
+
+    /**
+     * Tous les classeurs de l'utilisateur, tenus à jour par la synchronisation.
+     */
+    private ArrayList<Binder> allBinders = new ArrayList<>();
+
+
+    /**
+     * Une liste d'objets Binder représentant les classeurs affichés dans le carnet de notes :
+     * tous les classeurs, ou une copie limitée aux notes portant l'étiquette du filtre.
+     */
+    private ArrayList<Binder> binders = allBinders;
+
+
+    /**
+     * L'heure du serveur de la dernière synchronisation, ou null si le contenu n'a pas encore été chargé.
+     * Elle est lue par fetchChanges() sur un autre thread, d'où sa déclaration volatile.
+     */
+    private volatile Timestamp syncWatermark;
+
+
+    /**
+     * L'index des étiquettes : pour chaque nom d'étiquette, les notes de tous les classeurs qui la portent.
+     * Il est tenu à jour par le chargement, la synchronisation, l'ajout et le retrait d'étiquettes, et le renommage
+     * ou la suppression d'étiquettes, si bien que le filtre par étiquette n'a besoin d'aucune lecture.
+     * En chargement à la demande, il ne contient que les notes déjà lues.
+     */
+    private final Map<String, Set<Note>> notesByLabel = new HashMap<>();
+
+
+    /**
+     * Les index de tous les classeurs, onglets et notes de l'utilisateur, tenus à jour à chaque chargement, synchronisation,
+     * création, renommage et suppression. Les noms de classeurs et d'onglets sont indexés sans tenir compte de la casse.
+     * Les noms de notes sont indexés par onglet (Tab.findNoteByName), et ceux des onglets aussi par classeur (Binder.findTabByName).
+     */
+    private final Map<Integer, Binder> bindersByID = new HashMap<>();
+    private final Map<String, Binder> bindersByName = new HashMap<>();
+    private final Map<Integer, Tab> tabsByID = new HashMap<>();
+    private final Map<String, List<Tab>> tabsByName = new HashMap<>();
+    private final Map<Integer, Note> notesByID = new HashMap<>();
 
 
     /**
@@ -26,13 +137,23 @@ public class Notebook {
 
     /**
      * Constructeur de la classe Notebook.
-     * Il initialise l'ID de l'utilisateur avec l'ID de l'utilisateur passé en paramètre et remplit le contenu du carnet de notes.
+     * Il initialise l'ID de l'utilisateur avec l'ID de l'utilisateur passé en paramètre, sans lire le contenu du carnet de notes :
+     * celui-ci est chargé par setNotebookContent(), ou lu par fetchNotebookContent() sur un autre thread puis appliqué par applyNotebookContent().
      *
      * @param user L'utilisateur associé à ce carnet de notes.
      */
     public Notebook(User user) {
         this.userID = user.getUserID();
-        setNotebookContent();
+    }
+
+
+    /**
+     * Indique si le carnet de notes est chargé à la demande, classeur par classeur et onglet par onglet.
+     *
+     * @return true si les onglets et les notes sont lus au dépliage de leur parent dans l'arborescence.
+     */
+    public boolean isLazyLoading() {
+        return lazyLoading;
     }
 
 
@@ -57,19 +178,23 @@ public class Notebook {
 
 
     /**
-     * Récupère une note spécifique en fonction de son ID.
-     * Parcourt tous les classeurs, onglets et notes jusqu'à trouver la note avec l'ID correspondant.
+     * Récupère une note spécifique en fonction de son ID, à partir de l'index des notes.
      *
      * @param noteID L'ID de la note à récupérer.
      * @return L'objet Note correspondant à l'ID donné, ou null si aucune note avec cet ID n'est trouvée.
      */
     public Note getNoteByID(int noteID) {
+        Note note = notesByID.get(noteID);
+        if (note != null || !isDisplayingLoadedSubset()) {
+            return note;
+        }
+
+        // Notes lues par le filtre côté serveur, absentes des index
         for (Binder binder : binders) {
             for (Tab tab : binder.getTabs()) {
-                for (Note note : tab.getNotes()) {
-                    if (note.getNoteID() == noteID) {
-                        return note;
-                    }
+                note = tab.findNoteByID(noteID);
+                if (note != null) {
+                    return note;
                 }
             }
         }
@@ -78,53 +203,187 @@ public class Notebook {
 
 
     /**
-     * Ajoute un classeur à la liste des classeurs du carnet de notes.
+     * Ajoute un classeur à la liste des classeurs du carnet de notes et à ses index.
      *
      * @param binder L'objet Binder à ajouter à la liste.
      */
     public void addBinderToList(Binder binder) {
-        binders.add(binder);
+        if (binders != allBinders) {
+            binders.add(binder);
+        }
+        allBinders.add(binder);
+        registerBinder(binder);
+    }
+
+
+    /**
+     * Ajoute un classeur, et ses onglets et notes, aux index du carnet de notes.
+     */
+    private void registerBinder(Binder binder) {
+        bindersByID.put(binder.getBinderID(), binder);
+        bindersByName.put(nameKey(binder.getBinderName()), binder);
+        for (Tab tab : binder.getTabs()) {
+            registerTab(binder, tab);
+        }
+    }
+
+
+    /**
+     * Retire un classeur, et ses onglets et notes, des index du carnet de notes.
+     */
+    private void unregisterBinder(Binder binder) {
+        if (bindersByID.remove(binder.getBinderID(), binder)) {
+            bindersByName.remove(nameKey(binder.getBinderName()), binder);
+            for (Tab tab : binder.getTabs()) {
+                unregisterTab(tab);
+            }
+        }
+    }
+
+
+    /**
+     * Ajoute un onglet, et ses notes, aux index du carnet de notes, si son classeur en fait partie.
+     * Les copies de classeurs et d'onglets du filtre par étiquette ne sont donc jamais indexées.
+     *
+     * @param binder Le classeur de l'onglet.
+     * @param tab    L'onglet ajouté.
+     */
+    void registerTab(Binder binder, Tab tab) {
+        if (bindersByID.get(binder.getBinderID()) != binder) {
+            return;
+        }
+        tabsByID.put(tab.getTabID(), tab);
+        tabsByName.computeIfAbsent(nameKey(tab.getTabName()), name -> new ArrayList<>(1)).add(tab);
+        for (Note note : tab.getNotes()) {
+            registerNote(tab, note);
+        }
+    }
+
+
+    /**
+     * Retire un onglet, et ses notes, des index du carnet de notes.
+     *
+     * @param tab L'onglet retiré.
+     */
+    void unregisterTab(Tab tab) {
+        if (tabsByID.remove(tab.getTabID(), tab)) {
+            removeTabName(tab, tab.getTabName());
+            for (Note note : tab.getNotes()) {
+                unregisterNote(note);
+            }
+        }
+    }
+
+
+    /**
+     * Ajoute une note à l'index des notes et à l'index des étiquettes, si son onglet fait partie des index.
+     *
+     * @param tab  L'onglet de la note.
+     * @param note La note ajoutée.
+     */
+    void registerNote(Tab tab, Note note) {
+        if (tabsByID.get(tab.getTabID()) == tab) {
+            notesByID.put(note.getNoteID(), note);
+            indexNote(note);
+        }
+    }
+
+
+    /**
+     * Retire une note de l'index des notes et de l'index des étiquettes.
+     *
+     * @param note La note retirée.
+     */
+    void unregisterNote(Note note) {
+        if (notesByID.remove(note.getNoteID(), note)) {
+            unindexNote(note);
+        }
+    }
+
+
+    /**
+     * Met à jour l'index des classeurs par nom après le renommage d'un classeur.
+     *
+     * @param binder  Le classeur renommé.
+     * @param oldName L'ancien nom du classeur.
+     */
+    void binderRenamed(Binder binder, String oldName) {
+        if (bindersByID.get(binder.getBinderID()) == binder) {
+            bindersByName.remove(nameKey(oldName), binder);
+            bindersByName.put(nameKey(binder.getBinderName()), binder);
+        }
+    }
+
+
+    /**
+     * Met à jour l'index des onglets par nom après le renommage d'un onglet.
+     *
+     * @param tab     L'onglet renommé.
+     * @param oldName L'ancien nom de l'onglet.
+     */
+    void tabRenamed(Tab tab, String oldName) {
+        if (tabsByID.get(tab.getTabID()) == tab) {
+            removeTabName(tab, oldName);
+            tabsByName.computeIfAbsent(nameKey(tab.getTabName()), name -> new ArrayList<>(1)).add(tab);
+        }
+    }
+
+
+    private void removeTabName(Tab tab, String tabName) {
+        List<Tab> tabs = tabsByName.get(nameKey(tabName));
+        if (tabs != null) {
+            tabs.remove(tab);
+            if (tabs.isEmpty()) {
+                tabsByName.remove(nameKey(tabName));
+            }
+        }
+    }
+
+
+    /**
+     * Vide les index des classeurs, onglets, notes et étiquettes.
+     */
+    private void clearIndexes() {
+        bindersByID.clear();
+        bindersByName.clear();
+        tabsByID.clear();
+        tabsByName.clear();
+        notesByID.clear();
+        notesByLabel.clear();
+    }
+
+
+    /**
+     * Indique si les classeurs affichés ont été lus par le filtre côté serveur, sans charger le contenu complet :
+     * ils ne font alors pas partie des index, qui sont complétés par un parcours des classeurs affichés.
+     */
+    private boolean isDisplayingLoadedSubset() {
+        return syncWatermark == null && binders != allBinders;
+    }
+
+
+    /**
+     * La clé d'index d'un nom de classeur ou d'onglet, insensible à la casse comme les recherches par nom.
+     */
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
     }
 
 
     /**
      * Cette méthode récupère tout le contenu du carnet de notes à partir de la base de données.
      * Elle effectue une requête SQL SELECT pour récupérer les informations sur les classeurs, les onglets, les notes et les étiquettes associées à l'utilisateur.
-     * Les informations récupérées sont ensuite renvoyées sous forme de ResultSet pour être traitées ultérieurement.
+     * Les informations récupérées sont ensuite renvoyées sous forme de NotebookRow pour être traitées ultérieurement.
      *
-     * @return Un ResultSet contenant les informations sur les classeurs, les onglets, les notes et les étiquettes de l'utilisateur.
+     * @return Les lignes décrivant les classeurs, les onglets, les notes et les étiquettes de l'utilisateur, ou null en cas d'erreur.
      */
-    public ResultSet fetchAllNotebookContent() {
+    public List<NotebookRow> fetchAllNotebookContent() {
 
         System.out.println("\n***");
         System.out.println("getContentTree() for userID " + userID);
 
-        String[] fields = {
-                "binders.binder_id",
-                "binders.binder_name",
-                "binders.binder_color_id",
-                "tabs.tab_id",
-                "tabs.tab_name",
-                "tabs.tab_color_id",
-                "notes.note_id",
-                "notes.note_name",
-                "label1.label_name",
-                "label2.label_name"
-        };
-        String[] conditionFields = {"users.user_id"};
-        String[] conditionValues = {String.valueOf(userID)};
-
-        return DatabaseManager.select(
-                "binders "
-                        + "LEFT JOIN users ON binders.user_id = users.user_id "
-                        + "LEFT JOIN tabs ON tabs.binder_id = binders.binder_id "
-                        + "LEFT JOIN notes ON notes.tab_id = tabs.tab_id "
-                        + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
-                        + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id ",
-                fields,
-                conditionFields,
-                conditionValues
-        );
+        return QueryMetrics.time("Notebook.fetchAllNotebookContent",
+                () -> TypedQuery.of(QueryTemplate.NOTEBOOK_SELECT_CONTENT).setInt(userID).list(NotebookRow.MAPPER));
     }
 
 
@@ -138,84 +397,659 @@ public class Notebook {
 
 
     /**
-     * Cette méthode initialise le contenu du carnet de notes en fonction d'un filtre de nom d'étiquette.
-     * Elle récupère tout le contenu lié au carnet de notes à partir de la base de données et initialise les ID du classeur et de l'onglet actuels.
-     * Elle parcourt ensuite chaque ligne du ResultSet, récupère les données de la ligne actuelle et ajoute les objets Binder, Tab et Note appropriés à la liste des classeurs.
-     * Si un filtre de nom d'étiquette est fourni, elle ne saute pas la ligne actuelle si les étiquettes de la note ne correspondent pas au filtre.
+     * Cette méthode met à jour le contenu du carnet de notes en fonction d'un filtre de nom d'étiquette.
+     * Au premier appel, tout le contenu est chargé. Ensuite, seules les modifications faites depuis la dernière synchronisation
+     * sont lues et fusionnées, si bien que le coût dépend du volume de modifications et non de la taille du carnet de notes.
+     * Si un filtre de nom d'étiquette est fourni, seules les notes portant cette étiquette, et leurs classeurs et onglets, sont affichées.
      *
      * @param labelNameFilter Le nom de l'étiquette à utiliser comme filtre, ou null si aucun filtre ne doit être appliqué.
      */
     public void setNotebookContent(String labelNameFilter) {
-        // Vide la liste des classeurs
-        binders = new ArrayList<>();
-
-        // Récupère tout le contenu lié au carnet de notes à partir de la base de données
-        ResultSet notebookContent = fetchAllNotebookContent();
-
-        // Initialise les ID du classeur et de l'onglet actuels
-        int currentBinderID = 0;
-        int currentTabID = 0;
-
-        try {
-            // Parcourt chaque ligne du ResultSet
-            while (notebookContent.next()) {
-                // Récupère les données de la ligne actuelle du ResultSet
-                int binderID = notebookContent.getInt(1);
-                String binderName = notebookContent.getString(2);
-                int binderColorID = notebookContent.getInt(3);
-                int tabID = notebookContent.getInt(4);
-                String tabName = notebookContent.getString(5);
-                int tabColorID = notebookContent.getInt(6);
-                int noteID = notebookContent.getInt(7);
-                String noteName = notebookContent.getString(8);
-                String noteLabel1 = notebookContent.getString(9);
-                String noteLabel2 = notebookContent.getString(10);
-
-                // Si un labelNameFilter est fourni, ne pas sauter la ligne actuelle si les étiquettes de la note ne correspondent pas au filtre
-                if (labelNameFilter != null) {
-                    // Si ni label1 ni label2 ne correspondent au filtre, sauter la ligne actuelle
-                    if (!labelNameFilter.equals(noteLabel1) && !labelNameFilter.equals(noteLabel2)) {
-                        continue;
-                    }
-                }
+        System.out.println("\n***");
+        System.out.println("setNotebookContent() for userID " + userID);
 
-                // Si l'ID du classeur correspond à un nouveau classeur, crée un nouvel objet Binder et l'ajoute à la liste des classeurs
-                if (binderID != currentBinderID) {
-                    addBinderToList(new Binder(this, binderID, binderName, binderColorID));
-                    currentBinderID = binderID;
-                }
+        // Contenu déjà chargé et synchronisé : le filtre est appliqué en mémoire, sans autre lecture
+        if (syncWatermark != null && syncChanges() >= 0) {
+            binders = labelNameFilter == null ? allBinders : filterByLabel(labelNameFilter);
+            return;
+        }
+
+        // Sinon, seules les notes portant l'étiquette du filtre sont lues ; tout le contenu est chargé sans filtre
+        applyNotebookContent(fetchNotebookContent(labelNameFilter));
+    }
+
+
+    /**
+     * Applique un filtre d'étiquette aux classeurs affichés, à partir de l'index des étiquettes, sans lecture en base de données.
+     * Si le contenu n'a pas encore été chargé, il est lu par setNotebookContent().
+     *
+     * @param labelNameFilter Le nom de l'étiquette à utiliser comme filtre, ou null pour afficher toutes les notes.
+     */
+    public void applyLabelFilter(String labelNameFilter) {
+        if (syncWatermark == null) {
+            setNotebookContent(labelNameFilter);
+            return;
+        }
+        binders = labelNameFilter == null ? allBinders : filterByLabel(labelNameFilter);
+    }
+
+
+    /**
+     * Applique un filtre d'étiquette comme applyLabelFilter(String), à partir des notes lues par fetchNotesWithLabel(),
+     * par exemple sur un autre thread. Doit être appelée sur le thread de l'interface.
+     *
+     * Si le contenu n'a pas encore été chargé, rien n'est lu : il doit l'être par fetchNotebookContent() puis applyNotebookContent().
+     *
+     * @param labelNameFilter Le nom de l'étiquette à utiliser comme filtre, ou null pour afficher toutes les notes.
+     * @param labelNotes      Les notes lues pour l'étiquette, ou null si aucune lecture n'a été faite ou en cas d'erreur.
+     * @return true si le filtre a été appliqué, false si le contenu doit d'abord être chargé.
+     */
+    boolean applyLabelFilter(String labelNameFilter, LabelNotes labelNotes) {
+        if (syncWatermark == null) {
+            return false;
+        }
+        applyNotesWithLabel(labelNotes);
+        binders = labelNameFilter == null ? allBinders : filterLoadedByLabel(labelNameFilter);
+        return true;
+    }
+
+
+    /**
+     * Récupère les notes de tous les classeurs qui portent une étiquette, à partir de l'index des étiquettes.
+     *
+     * @param labelName Le nom de l'étiquette.
+     * @return Les notes portant l'étiquette, en lecture seule.
+     */
+    public Set<Note> getNotesByLabel(String labelName) {
+        Set<Note> notes = notesByLabel.get(labelName);
+        return notes == null ? Set.of() : Collections.unmodifiableSet(notes);
+    }
+
+
+    /**
+     * Ajoute une note à l'index des étiquettes, pour une étiquette qu'elle porte désormais.
+     *
+     * @param note      La note.
+     * @param labelName Le nom de l'étiquette.
+     */
+    void indexLabel(Note note, String labelName) {
+        notesByLabel.computeIfAbsent(labelName, name -> new LinkedHashSet<>()).add(note);
+    }
+
+
+    /**
+     * Retire une note de l'index des étiquettes, pour une étiquette qu'elle ne porte plus.
+     *
+     * @param note      La note.
+     * @param labelName Le nom de l'étiquette.
+     */
+    void unindexLabel(Note note, String labelName) {
+        Set<Note> notes = notesByLabel.get(labelName);
+        if (notes != null) {
+            notes.remove(note);
+            if (notes.isEmpty()) {
+                notesByLabel.remove(labelName);
+            }
+        }
+    }
+
+
+    /**
+     * Renomme une étiquette dans les notes et dans l'index des étiquettes, après son renommage dans la base de données.
+     *
+     * @param labelName    Le nom actuel de l'étiquette.
+     * @param newLabelName Le nouveau nom de l'étiquette.
+     */
+    public void renameLabel(String labelName, String newLabelName) {
+        Set<Note> notes = notesByLabel.remove(labelName);
+        if (notes != null) {
+            for (Note note : notes) {
+                note.renameLabel(labelName, newLabelName);
+            }
+            notesByLabel.computeIfAbsent(newLabelName, name -> new LinkedHashSet<>()).addAll(notes);
+        }
+    }
+
+
+    /**
+     * Retire une étiquette des notes et de l'index des étiquettes, après sa suppression dans la base de données.
+     *
+     * @param labelName Le nom de l'étiquette supprimée.
+     */
+    public void removeLabel(String labelName) {
+        Set<Note> notes = notesByLabel.remove(labelName);
+        if (notes != null) {
+            for (Note note : notes) {
+                note.getLabels().removeIf(label -> label.getLabelName().equals(labelName));
+            }
+        }
+    }
+
+
+    /**
+     * Lit les classeurs, onglets et notes modifiés ou supprimés depuis la dernière synchronisation et les fusionne dans le carnet de notes.
+     * Les lectures sont faites dans une seule transaction, donc sur le primaire et sur un même instantané.
+     *
+     * @return Le nombre de modifications fusionnées, ou -1 si le contenu doit être rechargé entièrement
+     * (aucun chargement préalable, erreur SQL ou modification dont le classeur ou l'onglet est inconnu).
+     */
+    public int syncChanges() {
+        return mergeFetchedChanges(fetchChanges());
+    }
+
+
+    /**
+     * Met à jour le contenu du carnet de notes comme setNotebookContent(), à partir des modifications lues par fetchChanges(),
+     * par exemple sur un autre thread. Si les modifications n'ont pas pu être fusionnées, rien n'est lu :
+     * le contenu doit être rechargé entièrement par fetchNotebookContent() puis applyNotebookContent().
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param changes         Les modifications lues, ou null en cas d'erreur de lecture.
+     * @param labelNameFilter Le nom de l'étiquette à utiliser comme filtre, ou null si aucun filtre ne doit être appliqué.
+     * @return true si les modifications ont été fusionnées, false si le contenu doit être rechargé.
+     */
+    boolean applyFetchedChanges(Changes changes, String labelNameFilter) {
+        if (syncWatermark == null || mergeFetchedChanges(changes) < 0) {
+            return false;
+        }
+        binders = labelNameFilter == null ? allBinders : filterByLabel(labelNameFilter);
+        return true;
+    }
+
+
+    /**
+     * Lit les classeurs, onglets et notes modifiés ou supprimés depuis la dernière synchronisation, sans les fusionner.
+     * Peut être appelée sur un autre thread que celui de l'interface : elle ne modifie pas le carnet de notes.
+     *
+     * @return Les modifications lues, ou null si le contenu n'a pas encore été chargé ou en cas d'erreur SQL.
+     */
+    Changes fetchChanges() {
+        Timestamp watermark = syncWatermark;
+        if (watermark == null) {
+            return null;
+        }
+
+        Timestamp since = new Timestamp(watermark.getTime() - syncOverlapMs);
+        return QueryMetrics.time("Notebook.syncChanges", () -> DatabaseManager.transaction(Connection.TRANSACTION_REPEATABLE_READ, () -> {
+            Timestamp readAt = TypedQuery.of(QueryTemplate.SYNC_SELECT_NOW).first(row -> row.getTimestamp(1));
+            List<BinderChange> binderChanges = TypedQuery.of(QueryTemplate.SYNC_SELECT_BINDERS)
+                    .setInt(userID)
+                    .setTimestamp(since)
+                    .list(row -> new BinderChange(row.getInt(1), row.getString(2), row.getInt(3)));
+            List<TabChange> tabChanges = TypedQuery.of(QueryTemplate.SYNC_SELECT_TABS)
+                    .setInt(userID)
+                    .setTimestamp(since)
+                    .list(row -> new TabChange(row.getInt(1), row.getInt(2), row.getString(3), row.getInt(4)));
+            List<NoteChange> noteChanges = TypedQuery.of(QueryTemplate.SYNC_SELECT_NOTES)
+                    .setInt(userID)
+                    .setTimestamp(since)
+                    .list(row -> new NoteChange(row.getInt(1), row.getInt(2), row.getString(3), row.getString(4), row.getString(5), row.getInt(6)));
+            List<Deletion> deletions = TypedQuery.of(QueryTemplate.SYNC_SELECT_DELETIONS)
+                    .setInt(userID)
+                    .setTimestamp(since)
+                    .list(row -> new Deletion(row.getString(1), row.getInt(2)));
+
+            if (readAt == null || binderChanges == null || tabChanges == null || noteChanges == null || deletions == null) {
+                throw new SQLException("Modifications du carnet de notes illisibles");
+            }
+            return new Changes(readAt, binderChanges, tabChanges, noteChanges, deletions);
+        }));
+    }
+
+
+    /**
+     * Fusionne les modifications lues par fetchChanges() et avance l'heure de la dernière synchronisation.
+     * L'heure n'est jamais reculée : des modifications lues avant une synchronisation plus récente sont fusionnées à nouveau sans effet.
+     *
+     * @return Le nombre de modifications fusionnées, ou -1 si le contenu doit être rechargé entièrement.
+     */
+    private int mergeFetchedChanges(Changes changes) {
+        if (changes == null || syncWatermark == null) {
+            return -1;
+        }
+
+        int applied = mergeChanges(changes);
+        if (applied >= 0) {
+            if (changes.readAt().after(syncWatermark)) {
+                syncWatermark = changes.readAt();
+            }
+            System.out.println("syncChanges() : " + applied + " modifications fusionnées");
+        }
+        return applied;
+    }
 
-                // Si l'ID de l'onglet correspond à un nouvel onglet et n'est pas nul, crée un nouvel objet Tab et l'ajoute à la liste des onglets du dernier classeur
-                if (tabID != currentTabID && tabID != 0) {
-                    binders.getLast().addTabToList(new Tab(binders.getLast(), tabID, tabName, tabColorID));
-                    currentTabID = tabID;
+
+    /**
+     * Fusionne les modifications lues dans les classeurs, onglets et notes existants.
+     * Les lignes relues à cause de la marge de relecture sont fusionnées à nouveau sans effet.
+     *
+     * @return Le nombre de modifications fusionnées, ou -1 si un onglet ou une note appartient à un classeur ou un onglet inconnu.
+     */
+    private int mergeChanges(Changes changes) {
+        for (BinderChange change : changes.binders()) {
+            Binder binder = findBinderByID(change.binderID());
+            if (binder == null) {
+                Binder newBinder = new Binder(this, change.binderID(), change.binderName(), change.binderColorID());
+                allBinders.add(newBinder);
+                registerBinder(newBinder);
+            } else {
+                binder.applyChange(change.binderName(), change.binderColorID());
+            }
+        }
+
+        for (TabChange change : changes.tabs()) {
+            Binder binder = findBinderByID(change.binderID());
+            if (binder == null) {
+                return -1;
+            }
+            // Les onglets d'un classeur pas encore lu le seront, à jour, à son dépliage
+            if (!binder.isTabsLoaded()) {
+                continue;
+            }
+            Tab tab = binder.findTabByID(change.tabID());
+            if (tab == null) {
+                binder.addTabToList(new Tab(binder, change.tabID(), change.tabName(), change.tabColorID()));
+            } else {
+                tab.applyChange(change.tabName(), change.tabColorID());
+            }
+        }
+
+        for (NoteChange change : changes.notes()) {
+            Tab tab = findTabByID(change.tabID());
+            if (tab == null && lazyLoading) {
+                // Onglet d'un classeur pas encore lu
+                continue;
+            }
+            if (tab == null) {
+                return -1;
+            }
+            ArrayList<NoteLabel> labels = createLabels(change.label1Name(), change.label2Name());
+            Note note = tab.findNoteByID(change.noteID());
+            // Une note pas encore lue d'un onglet lu page par page le sera, à jour, avec sa page
+            if (!tab.isNotesLoaded()) {
+                tab.notesChanged();
+                if (note == null) {
+                    continue;
                 }
+            }
+            if (note == null) {
+                tab.addNoteToList(new Note(tab, change.noteID(), change.noteName(), labels));
+            } else {
+                unindexNote(note);
+                note.applyChange(change.noteName(), labels, change.contentVersion());
+                indexNote(note);
+            }
+        }
 
-                // Si l'ID de la note n'est pas nul, crée un nouvel objet Note et l'ajoute à la liste des notes du dernier onglet du dernier classeur
-                if (noteID != 0) {
-                    // Crée une liste d'objets LabelNote pour stocker les étiquettes de la note
-                    ArrayList<NoteLabel> labels = new ArrayList<>();
-                    if (noteLabel1 != null) {
-                        labels.add(new NoteLabel(noteLabel1));
+        // Les suppressions sont appliquées en dernier : une ligne supprimée après sa modification n'est pas conservée
+        for (Deletion deletion : changes.deletions()) {
+            switch (deletion.entityType()) {
+                case "B" -> {
+                    Binder binder = findBinderByID(deletion.entityID());
+                    if (binder != null) {
+                        unregisterBinder(binder);
+                        allBinders.remove(binder);
                     }
-                    if (noteLabel2 != null) {
-                        labels.add(new NoteLabel(noteLabel2));
+                }
+                case "T" -> {
+                    Tab tab = findTabByID(deletion.entityID());
+                    if (tab != null) {
+                        tab.getBinder().removeTabFromList(tab.getTabID());
                     }
+                }
+                case "N" -> {
+                    Note note = notesByID.get(deletion.entityID());
+                    if (note != null) {
+                        note.getTab().removeNoteFromList(note.getNoteID());
+                    }
+                }
+                default -> System.out.println("Suppression de type inconnu : " + deletion.entityType());
+            }
+        }
+
+        return changes.binders().size() + changes.tabs().size() + changes.notes().size() + changes.deletions().size();
+    }
+
+
+    /**
+     * Lit le contenu du carnet de notes, sans le modifier : tout le contenu, avec l'heure du serveur lue avant lui
+     * comme point de départ de la prochaine synchronisation, ou seulement les notes portant l'étiquette du filtre.
+     * Le contenu est lu en flux, si bien que le pilote ne garde que quelques lignes à la fois en plus des lignes retenues.
+     * En chargement à la demande, seuls les classeurs sont lus pour le contenu complet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param labelNameFilter Le nom de l'étiquette du filtre, ou null pour lire tout le contenu.
+     * @return Le contenu lu, ou null en cas d'erreur SQL.
+     */
+    NotebookContent fetchNotebookContent(String labelNameFilter) {
+        System.out.println("\n***");
+        System.out.println("fetchNotebookContent() for userID " + userID);
+
+        int fetchSize = (int) DatabaseManager.longProperty("streamFetchSize", 500);
+        List<NotebookRow> rows = new ArrayList<>();
+
+        // Seules les notes portant l'étiquette du filtre sont lues (index IDX_notes_label1 et IDX_notes_label2)
+        if (labelNameFilter != null) {
+            int labelID = LabelManager.getLabelID(labelNameFilter);
+            if (labelID < 0) {
+                return new NotebookContent(labelNameFilter, null, rows);
+            }
+            int rowCount = QueryMetrics.time("Notebook.loadNotebookContentByLabel", () -> TypedQuery.of(QueryTemplate.NOTEBOOK_SELECT_CONTENT_BY_LABEL)
+                    .setInt(userID)
+                    .setInt(labelID)
+                    .setInt(labelID)
+                    .forEach(fetchSize, NotebookRow.MAPPER, rows::add));
+            if (rowCount < 0) {
+                System.out.println("Erreur : les notes de l'étiquette " + labelNameFilter + " n'ont pas pu être chargées");
+                return null;
+            }
+            return new NotebookContent(labelNameFilter, null, rows);
+        }
+
+        return QueryMetrics.time("Notebook.loadAllNotebookContent", () -> {
+            Timestamp readAt = TypedQuery.of(QueryTemplate.SYNC_SELECT_NOW).first(row -> row.getTimestamp(1));
+
+            int rowCount;
+            if (lazyLoading) {
+                rowCount = TypedQuery.of(QueryTemplate.NOTEBOOK_SELECT_BINDERS)
+                        .setInt(userID)
+                        .forEach(fetchSize, row -> new NotebookRow(row.getInt(1), row.getString(2), row.getInt(3), null, null, 0, null, null, null, null), rows::add);
+            } else {
+                rowCount = TypedQuery.of(QueryTemplate.NOTEBOOK_SELECT_CONTENT)
+                        .setInt(userID)
+                        .forEach(fetchSize, NotebookRow.MAPPER, rows::add);
+            }
+
+            if (rowCount < 0) {
+                System.out.println("Erreur : le contenu du carnet de notes n'a pas pu être chargé");
+                return null;
+            }
+            return new NotebookContent(null, readAt, rows);
+        });
+    }
 
-                    binders.getLast().getTabs().getLast().addNoteToList(new Note(
-                            binders.getLast().getTabs().getLast(),
-                            noteID,
-                            noteName,
-                            labels
-                    ));
+
+    /**
+     * Remplace le contenu du carnet de notes par celui lu par fetchNotebookContent(), par exemple sur un autre thread.
+     * Un contenu complet remplace tous les classeurs et les index, et sert de point de départ à la synchronisation ;
+     * un contenu filtré ne remplace que les classeurs affichés. Sans effet en cas d'erreur de lecture.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param content Le contenu lu, ou null en cas d'erreur de lecture.
+     */
+    void applyNotebookContent(NotebookContent content) {
+        if (content == null) {
+            return;
+        }
+
+        if (content.labelNameFilter() != null) {
+            ArrayList<Binder> filteredBinders = new ArrayList<>();
+            for (NotebookRow row : content.rows()) {
+                addNotebookContentRow(filteredBinders, row);
+            }
+            binders = filteredBinders;
+            return;
+        }
+
+        allBinders = new ArrayList<>();
+        syncWatermark = null;
+        clearIndexes();
+        for (NotebookRow row : content.rows()) {
+            addNotebookContentRow(allBinders, row);
+        }
+        if (lazyLoading) {
+            for (Binder binder : allBinders) {
+                binder.markTabsNotLoaded();
+            }
+        }
+        syncWatermark = content.readAt();
+        binders = allBinders;
+    }
+
+
+    /**
+     * Ajoute une note à l'index des étiquettes, pour chacune de ses étiquettes.
+     */
+    void indexNote(Note note) {
+        for (NoteLabel label : note.getLabels()) {
+            indexLabel(note, label.getLabelName());
+        }
+    }
+
+
+    /**
+     * Retire une note de l'index des étiquettes, pour chacune de ses étiquettes.
+     */
+    void unindexNote(Note note) {
+        for (NoteLabel label : note.getLabels()) {
+            unindexLabel(note, label.getLabelName());
+        }
+    }
+
+
+    /**
+     * Ajoute au carnet de notes les objets Binder, Tab et Note décrits par une ligne du contenu du carnet de notes.
+     * Les lignes arrivent regroupées par classeur puis par onglet : un nouveau classeur ou onglet est créé
+     * lorsque son ID diffère de celui du dernier classeur ou onglet ajouté.
+     *
+     * @param targetBinders La liste de classeurs à compléter.
+     * @param row           La ligne à ajouter.
+     */
+    private void addNotebookContentRow(ArrayList<Binder> targetBinders, NotebookRow row) {
+        int binderID = row.binderID();
+        Integer tabID = row.tabID();
+        Integer noteID = row.noteID();
+
+        // Si l'ID du classeur correspond à un nouveau classeur, crée un nouvel objet Binder et l'ajoute à la liste des classeurs
+        if (targetBinders.isEmpty() || targetBinders.getLast().getBinderID() != binderID) {
+            Binder newBinder = new Binder(this, binderID, row.binderName(), row.binderColorID());
+            targetBinders.add(newBinder);
+            // Seul le contenu complet est indexé ; ses onglets et notes le sont à leur ajout
+            if (targetBinders == allBinders) {
+                registerBinder(newBinder);
+            }
+        }
+        Binder binder = targetBinders.getLast();
+
+        // Si l'ID de l'onglet correspond à un nouvel onglet et n'est pas nul, crée un nouvel objet Tab et l'ajoute à la liste des onglets du dernier classeur
+        if (tabID != null && (binder.getTabs().isEmpty() || binder.getTabs().getLast().getTabID() != tabID)) {
+            binder.addTabToList(new Tab(binder, tabID, row.tabName(), row.tabColorID()));
+        }
+
+        // Si l'ID de la note n'est pas nul, crée un nouvel objet Note et l'ajoute à la liste des notes du dernier onglet du dernier classeur
+        if (noteID != null) {
+            Tab tab = binder.getTabs().getLast();
+            tab.addNoteToList(new Note(tab, noteID, row.noteName(), createLabels(row.label1Name(), row.label2Name())));
+        }
+    }
+
+
+    /**
+     * Crée la liste des étiquettes d'une note à partir des noms de ses deux étiquettes.
+     */
+    static ArrayList<NoteLabel> createLabels(String label1Name, String label2Name) {
+        ArrayList<NoteLabel> labels = new ArrayList<>();
+        if (label1Name != null) {
+            labels.add(new NoteLabel(label1Name));
+        }
+        if (label2Name != null) {
+            labels.add(new NoteLabel(label2Name));
+        }
+        return labels;
+    }
+
+
+    /**
+     * Construit la liste des classeurs affichés pour un filtre d'étiquette à partir de l'index des étiquettes :
+     * des copies des classeurs et des onglets parents des notes qui portent l'étiquette, dans l'ordre du carnet de notes.
+     * Seuls les classeurs et onglets contenant de telles notes sont parcourus. Les notes ne sont pas copiées,
+     * pour conserver leur contenu en mémoire.
+     *
+     * @param labelNameFilter Le nom de l'étiquette du filtre.
+     * @return Les classeurs contenant au moins une note portant l'étiquette.
+     */
+    private ArrayList<Binder> filterByLabel(String labelNameFilter) {
+        if (lazyLoading) {
+            loadNotesWithLabel(labelNameFilter);
+        }
+        return filterLoadedByLabel(labelNameFilter);
+    }
+
+
+    /**
+     * Construit la liste des classeurs affichés pour un filtre d'étiquette comme filterByLabel(), à partir des seules notes déjà lues.
+     */
+    private ArrayList<Binder> filterLoadedByLabel(String labelNameFilter) {
+        ArrayList<Binder> filteredBinders = new ArrayList<>();
+        Set<Note> labelledNotes = notesByLabel.get(labelNameFilter);
+        if (labelledNotes == null) {
+            return filteredBinders;
+        }
+
+        // Les onglets et classeurs parents des notes de l'étiquette
+        Set<Tab> labelledTabs = new LinkedHashSet<>();
+        Set<Binder> labelledBinders = new LinkedHashSet<>();
+        for (Note note : labelledNotes) {
+            labelledTabs.add(note.getTab());
+            labelledBinders.add(note.getTab().getBinder());
+        }
+
+        for (Binder binder : allBinders) {
+            if (!labelledBinders.contains(binder)) {
+                continue;
+            }
+            Binder filteredBinder = new Binder(this, binder.getBinderID(), binder.getBinderName(), binder.getBinderColorID());
+            for (Tab tab : binder.getTabs()) {
+                if (!labelledTabs.contains(tab)) {
+                    continue;
+                }
+                Tab filteredTab = new Tab(filteredBinder, tab.getTabID(), tab.getTabName(), tab.getTabColorID());
+                for (Note note : tab.getNotes()) {
+                    if (labelledNotes.contains(note)) {
+                        filteredTab.addNoteToList(note);
+                    }
+                }
+                filteredBinder.addTabToList(filteredTab);
+            }
+            filteredBinders.add(filteredBinder);
+        }
+        return filteredBinders;
+    }
+
+
+    /**
+     * En chargement à la demande, lit les notes qui portent l'étiquette, et les onglets de leurs classeurs,
+     * pour que l'index des étiquettes contienne toutes ses notes : fetchNotesWithLabel(), puis applyNotesWithLabel().
+     *
+     * @param labelName Le nom de l'étiquette.
+     */
+    private void loadNotesWithLabel(String labelName) {
+        applyNotesWithLabel(fetchNotesWithLabel(labelName, getBindersWithoutTabs()));
+    }
+
+
+    /**
+     * Récupère les classeurs dont les onglets n'ont pas encore été lus, à transmettre à fetchNotesWithLabel().
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @return Une copie de la liste de ces classeurs, vide sans chargement à la demande.
+     */
+    List<Binder> getBindersWithoutTabs() {
+        if (!lazyLoading) {
+            return List.of();
+        }
+        List<Binder> bindersWithoutTabs = new ArrayList<>();
+        for (Binder binder : allBinders) {
+            if (!binder.isTabsLoaded()) {
+                bindersWithoutTabs.add(binder);
+            }
+        }
+        return bindersWithoutTabs;
+    }
+
+
+    /**
+     * En chargement à la demande, lit les notes qui portent l'étiquette (index IDX_notes_label1 et IDX_notes_label2),
+     * et les onglets de ceux de leurs classeurs qui n'ont pas encore été lus, sans modifier le carnet de notes.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param labelName          Le nom de l'étiquette.
+     * @param bindersWithoutTabs Les classeurs dont les onglets n'ont pas encore été lus (getBindersWithoutTabs()).
+     * @return Les notes et les onglets lus, vides sans chargement à la demande ou si l'étiquette n'existe pas, ou null en cas d'erreur SQL.
+     */
+    LabelNotes fetchNotesWithLabel(String labelName, List<Binder> bindersWithoutTabs) {
+        int labelID = LabelManager.getLabelID(labelName);
+        if (!lazyLoading || labelID < 0) {
+            return new LabelNotes(List.of(), Map.of());
+        }
+
+        return QueryMetrics.time("Notebook.loadNotesWithLabel", () -> {
+            List<NotebookRow> rows = TypedQuery.of(QueryTemplate.NOTEBOOK_SELECT_CONTENT_BY_LABEL)
+                    .setInt(userID)
+                    .setInt(labelID)
+                    .setInt(labelID)
+                    .list(NotebookRow.MAPPER);
+            if (rows == null) {
+                System.out.println("Erreur : les notes de l'étiquette " + labelName + " n'ont pas pu être lues");
+                return null;
+            }
+
+            // Les onglets des classeurs de ces notes, s'ils n'ont pas encore été lus
+            Map<Binder, ArrayList<Tab>> tabs = new HashMap<>();
+            for (Binder binder : bindersWithoutTabs) {
+                if (rows.stream().anyMatch(row -> row.binderID() == binder.getBinderID())) {
+                    tabs.put(binder, binder.fetchAllTabs());
                 }
             }
-        } catch (Exception e) {
-            System.out.println("Erreur : " + e);
+            return new LabelNotes(rows, tabs);
+        });
+    }
+
+
+    /**
+     * Ajoute les notes lues par fetchNotesWithLabel() à leurs onglets, sans lire les autres notes de ces onglets,
+     * si bien que la mémoire utilisée dépend du nombre de notes portant l'étiquette et non de la taille des onglets.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param labelNotes Les notes et les onglets lus, ou null en cas d'erreur de lecture.
+     */
+    private void applyNotesWithLabel(LabelNotes labelNotes) {
+        if (labelNotes == null) {
+            return;
+        }
+        for (Map.Entry<Binder, ArrayList<Tab>> entry : labelNotes.tabs().entrySet()) {
+            entry.getKey().applyFetchedTabs(entry.getValue());
+        }
+
+        for (NotebookRow row : labelNotes.rows()) {
+            Binder binder = findBinderByID(row.binderID());
+            if (binder == null || !binder.isTabsLoaded()) {
+                continue;
+            }
+            Tab tab = binder.findTabByID(row.tabID());
+            if (tab != null && !tab.isNotesLoaded()) {
+                tab.attachNote(new Note(tab, row.noteID(), row.noteName(), createLabels(row.label1Name(), row.label2Name())));
+            }
         }
     }
 
 
+    /**
+     * Recherche un classeur par son ID parmi tous les classeurs de l'utilisateur.
+     */
+    private Binder findBinderByID(int binderID) {
+        return bindersByID.get(binderID);
+    }
+
+
+    /**
+     * Recherche un onglet par son ID parmi tous les classeurs de l'utilisateur.
+     */
+    private Tab findTabByID(int tabID) {
+        return tabsByID.get(tabID);
+    }
+
+
     /**
      * Cette méthode crée un nouveau classeur et l'ajoute à la liste des classeurs du carnet de notes.
      * Elle effectue une requête SQL INSERT pour ajouter le nouveau classeur à la base de données.
@@ -226,16 +1060,88 @@ public class Notebook {
      * @return L'objet Binder du nouveau classeur.
      */
     public Binder createBinder(String binderName, int binderColorID) {
+        return binderCreated(insertBinder(binderName, binderColorID), binderName, binderColorID);
+    }
+
+
+    /**
+     * Insère un nouveau classeur dans la base de données, sans l'ajouter au carnet de notes.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param binderName    Le nom du nouveau classeur.
+     * @param binderColorID L'ID de la couleur du nouveau classeur.
+     * @return L'ID du nouveau classeur, ou une valeur inférieure ou égale à 0 en cas d'échec.
+     */
+    int insertBinder(String binderName, int binderColorID) {
         System.out.println("\n***");
         System.out.println("createBinder() : " + binderName + " / userID " + userID + " / colorID " + binderColorID);
 
-        String[] fields = {"binder_name", "user_id", "binder_color_id"};
-        String[] values = {binderName, String.valueOf(userID), String.valueOf(binderColorID)};
+        return TypedQuery.of(QueryTemplate.NOTEBOOK_INSERT_BINDER)
+                .setString(binderName)
+                .setInt(userID)
+                .setInt(binderColorID)
+                .insert();
+    }
 
-        int binderID = DatabaseManager.insert("binders", fields, values);
 
+    /**
+     * Ajoute au carnet de notes un classeur inséré par insertBinder(). Doit être appelée sur le thread de l'interface.
+     *
+     * @param binderID      L'ID du nouveau classeur.
+     * @param binderName    Le nom du nouveau classeur.
+     * @param binderColorID L'ID de la couleur du nouveau classeur.
+     * @return L'objet Binder du nouveau classeur.
+     */
+    Binder binderCreated(int binderID, String binderName, int binderColorID) {
         Binder binder = new Binder(this, binderID, binderName, binderColorID);
-        binders.add(binder);
+        if (syncWatermark != null) {
+            addBinderToList(binder);
+        } else {
+            binders.add(binder);
+        }
+
+        return binder;
+    }
+
+
+    /**
+     * Cette méthode crée un classeur et ses onglets dans une seule transaction.
+     * Soit le classeur et tous ses onglets sont créés, soit rien n'est créé, ni dans la base de données ni dans le carnet de notes.
+     *
+     * @param binderName    Le nom du classeur à créer.
+     * @param binderColorID L'ID de la couleur du classeur.
+     * @param tabNames      Les noms des onglets à créer dans le classeur.
+     * @param tabColorID    L'ID de la couleur des onglets.
+     * @return Le classeur créé, ou null en cas d'échec.
+     */
+    public Binder createBinderWithTabs(String binderName, int binderColorID, List<String> tabNames, int tabColorID) {
+        int binderCount = binders.size();
+        int allBinderCount = allBinders.size();
+
+        Binder binder = QueryMetrics.time("Notebook.createBinderWithTabs", () -> DatabaseManager.transaction(() -> {
+            Binder newBinder = createBinder(binderName, binderColorID);
+            if (newBinder.getBinderID() <= 0) {
+                throw new SQLException("Le classeur " + binderName + " n'a pas pu être créé");
+            }
+
+            for (String tabName : tabNames) {
+                Tab tab = newBinder.createTab(tabName, tabColorID);
+                if (tab == null || tab.getTabID() <= 0) {
+                    throw new SQLException("L'onglet " + tabName + " n'a pas pu être créé");
+                }
+            }
+            return newBinder;
+        }));
+
+        // En cas d'annulation, retire le classeur ajouté au carnet de notes pendant la transaction
+        if (binder == null) {
+            while (binders.size() > binderCount) {
+                unregisterBinder(binders.removeLast());
+            }
+            while (allBinders.size() > allBinderCount) {
+                unregisterBinder(allBinders.removeLast());
+            }
+        }
 
         return binder;
     }
@@ -243,40 +1149,72 @@ public class Notebook {
 
     /**
      * Cette méthode supprime un classeur de la liste des classeurs du carnet de notes.
-     * Elle effectue une requête SQL DELETE pour supprimer le classeur de la base de données.
+     * Elle effectue une requête SQL DELETE pour supprimer le classeur de la base de données,
+     * et enregistre la suppression dans deleted_rows dans la même transaction, pour la synchronisation des autres sessions.
      * Si la requête est réussie, elle supprime l'objet Binder correspondant de la liste des classeurs.
      *
      * @param binderID L'ID du classeur à supprimer.
      * @return Le nombre de lignes affectées par la requête SQL DELETE, ou 0 en cas d'échec.
      */
     public int deleteBinder(int binderID) {
+        return binderDeleted(binderID, deleteBinderRows(binderID));
+    }
+
+
+    /**
+     * Supprime un classeur de la base de données et enregistre sa suppression dans deleted_rows, sans le retirer du carnet de notes.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param binderID L'ID du classeur à supprimer.
+     * @return Le nombre de lignes affectées par la requête SQL DELETE, ou -1 en cas d'échec.
+     */
+    int deleteBinderRows(int binderID) {
         System.out.println("\n***");
         System.out.println("deleteBinder() : " + " binderID " + binderID);
 
-        int result = DatabaseManager.delete("binders", "binder_id", String.valueOf(binderID));
+        Integer deleted = DatabaseManager.transaction(() -> {
+            TypedQuery.of(QueryTemplate.SYNC_RECORD_BINDER_DELETION).setInt(binderID).execute();
+            return TypedQuery.of(QueryTemplate.NOTEBOOK_DELETE_BINDER).setInt(binderID).execute();
+        });
+        return deleted == null ? -1 : deleted;
+    }
 
-        // Si la requête est réussie, supprime l'objet Binder de la liste des classeurs
-        if (result > 0) {
 
-            for (Binder binder : binders) {
-                if (binder.getBinderID() == binderID) {
-                    binders.remove(binder);
-                    break;
-                }
+    /**
+     * Retire du carnet de notes un classeur supprimé par deleteBinderRows(), si la suppression a réussi.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param binderID L'ID du classeur supprimé.
+     * @param result   Le résultat de deleteBinderRows().
+     * @return Le résultat de la suppression.
+     */
+    int binderDeleted(int binderID, int result) {
+        // Si la requête est réussie, supprime l'objet Binder de la liste des classeurs affichés et de tous les classeurs
+        if (result > 0) {
+            Binder deletedBinder = findBinderByID(binderID);
+            if (deletedBinder != null) {
+                unregisterBinder(deletedBinder);
+                allBinders.remove(deletedBinder);
             }
+            binders.removeIf(binder -> binder.getBinderID() == binderID);
         }
         return result;
     }
 
 
     /**
-     * Cette méthode récupère un classeur spécifique en fonction de son nom.
-     * Elle parcourt tous les classeurs jusqu'à trouver le classeur avec le nom correspondant.
+     * Cette méthode récupère un classeur spécifique en fonction de son nom, sans tenir compte de la casse,
+     * à partir de l'index des classeurs par nom.
      *
      * @param binderName Le nom du classeur à récupérer.
      * @return L'objet Binder correspondant au nom donné, ou null si aucun classeur avec ce nom n'est trouvé.
      */
     public Binder getBinderByName(String binderName) {
+        Binder indexed = bindersByName.get(nameKey(binderName));
+        if (indexed != null || !isDisplayingLoadedSubset()) {
+            return indexed;
+        }
+
         for (Binder binder : this.binders) {
             if (binder.getBinderName().equalsIgnoreCase(binderName)) {
                 return binder;
@@ -287,13 +1225,21 @@ public class Notebook {
 
 
     /**
-     * Cette méthode récupère un onglet spécifique en fonction de son nom.
-     * Elle parcourt tous les classeurs et onglets jusqu'à trouver l'onglet avec le nom correspondant.
+     * Cette méthode récupère un onglet spécifique en fonction de son nom, sans tenir compte de la casse,
+     * à partir de l'index des onglets par nom. Si plusieurs classeurs ont un onglet de ce nom, renvoie le premier indexé.
      *
      * @param tabName Le nom de l'onglet à récupérer.
      * @return L'objet Tab correspondant au nom donné, ou null si aucun onglet avec ce nom n'est trouvé.
      */
     public Tab getTabByName(String tabName) {
+        List<Tab> indexed = tabsByName.get(nameKey(tabName));
+        if (indexed != null) {
+            return indexed.getFirst();
+        }
+        if (!isDisplayingLoadedSubset()) {
+            return null;
+        }
+
         for (Binder binder : binders) {
             for (Tab tab : binder.getTabs()) {
                 if (tab.getTabName().equalsIgnoreCase(tabName)) {
@@ -307,7 +1253,7 @@ public class Notebook {
 
     /**
      * Cette méthode récupère une note spécifique en fonction de son nom, du nom de l'onglet et du nom du classeur.
-     * Elle parcourt tous les classeurs, onglets et notes jusqu'à trouver la note avec le nom correspondant dans l'onglet et le classeur spécifiés.
+     * Le classeur est trouvé par l'index des classeurs par nom, puis l'onglet et la note par les index de leur classeur et de leur onglet.
      *
      * @param noteName   Le nom de la note à récupérer.
      * @param tabName    Le nom de l'onglet contenant la note.
@@ -315,6 +1261,14 @@ public class Notebook {
      * @return L'objet Note correspondant aux noms donnés, ou null si aucune note avec ce nom n'est trouvée dans l'onglet et le classeur spécifiés.
      */
     public Note getNoteFromBinderTabNoteName(String noteName, String tabName, String binderName) {
+        Binder indexed = bindersByName.get(nameKey(binderName));
+        if (indexed != null && indexed.getBinderName().equals(binderName)) {
+            Tab tab = indexed.findTabByName(tabName);
+            return tab == null ? null : tab.findNoteByName(noteName);
+        }
+        if (!isDisplayingLoadedSubset()) {
+            return null;
+        }
 
         ArrayList<Binder> binders = this.getBinders();
         for (Binder binder : binders) {
@@ -4,10 +4,8 @@ import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 
-import java.sql.ResultSet;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Cette classe représente les couleurs d'un carnet de notes.
@@ -17,59 +15,71 @@ public class NotebookColor {
 
 
     /**
-     * Un booléen pour vérifier si toutes les couleurs ont été récupérées de la base de données.
-     * Si la valeur est false, les couleurs n'ont pas encore été récupérées.
-     * Si la valeur est true, les couleurs ont déjà été récupérées.
+     * Les couleurs récupérées de la base de données : l'index des noms et l'index des valeurs hexadécimales, par ID de couleur.
+     *
+     * @param names L'index des noms des couleurs, qui sert aussi à retrouver l'ID d'une couleur par son nom.
+     * @param hexes L'index des valeurs hexadécimales des couleurs.
      */
-    private static boolean colorsFetched = false;
+    private record Colors(IdNameIndex names, IdNameIndex hexes) {
+    }
 
 
     /**
-     * Une Map pour stocker les noms des couleurs récupérées de la base de données.
-     * La clé est l'ID de la couleur et la valeur est le nom de la couleur.
+     * Les couleurs récupérées de la base de données, ou null si elles n'ont pas encore été récupérées.
+     * Elles sont publiées d'un seul coup une fois récupérées, si bien que les lectures ne prennent aucun verrou.
      */
-    private static Map<Integer, String> colorNames;
+    private static volatile Colors colors;
 
 
     /**
-     * Une Map pour stocker les valeurs hexadécimales des couleurs récupérées de la base de données.
-     * La clé est l'ID de la couleur et la valeur est la valeur hexadécimale de la couleur.
+     * Cette méthode récupère toutes les couleurs de la base de données, si elles n'ont pas encore été récupérées.
      */
-    private static Map<Integer, String> colorHexes;
+    public static void fetchAllColors() {
+        colors();
+    }
 
 
     /**
-     * Cette méthode récupère toutes les couleurs de la base de données.
-     * Elle effectue une requête SQL SELECT pour récupérer toutes les couleurs et les stocke dans des Map pour une utilisation ultérieure.
+     * Cette méthode récupère à nouveau toutes les couleurs de la base de données.
+     * Elle effectue une requête SQL SELECT pour récupérer toutes les couleurs et les indexe par ID et par nom.
+     * Les nouveaux index remplacent les anciens d'un seul coup, une fois complets.
      */
-    public static void fetchAllColors() {
-        if (!colorsFetched) {
-            colorNames = new HashMap<>();
-            colorHexes = new HashMap<>();
-
-            System.out.println("\nFetching all colors...");
-            ResultSet resultSet = DatabaseManager.select(
-                    "colors",
-                    new String[]{"*"},
-                    null,
-                    null
-            );
-
-            colorsFetched = true;
-
-            try {
-                while (resultSet.next()) {
-                    int colorID = resultSet.getInt("color_id");
-                    String colorName = resultSet.getString("color_name");
-                    String colorHex = resultSet.getString("color_hex");
-                    colorNames.put(colorID, colorName);
-                    colorHexes.put(colorID, colorHex);
-                    System.out.println("Color ID: " + colorID + " / Name: " + colorName + " / Hex: " + colorHex);
+    public static synchronized void refreshColors() {
+        System.out.println("\nFetching all colors...");
+
+        List<ColorRow> rows = null;
+        try {
+            rows = QueryMetrics.time("NotebookColor.fetchAllColors", () -> {
+                List<ColorRow> colorRows = TypedQuery.of(QueryTemplate.COLOR_SELECT_ALL).list(ColorRow.MAPPER);
+                for (ColorRow color : colorRows) {
+                    System.out.println("Color ID: " + color.colorID() + " / Name: " + color.colorName() + " / Hex: " + color.colorHex());
+                }
+                return colorRows;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        colors = new Colors(
+                IdNameIndex.of(rows, ColorRow::colorID, ColorRow::colorName),
+                IdNameIndex.of(rows, ColorRow::colorID, ColorRow::colorHex)
+        );
+    }
+
+
+    /**
+     * Récupère les couleurs, en les récupérant de la base de données au premier appel.
+     */
+    private static Colors colors() {
+        Colors current = colors;
+        if (current == null) {
+            synchronized (NotebookColor.class) {
+                if (colors == null) {
+                    refreshColors();
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                current = colors;
             }
         }
+        return current;
     }
 
     /**
@@ -79,8 +89,7 @@ public class NotebookColor {
      * @return La valeur hexadécimale de la couleur.
      */
     public static String getHexColorByID(int colorID) {
-        fetchAllColors();
-        return colorHexes.get(colorID);
+        return colors().hexes().get(colorID);
     }
 
 
@@ -91,8 +100,7 @@ public class NotebookColor {
      * @return Le nom de la couleur.
      */
     public static String getColorNameByID(int colorID) {
-        fetchAllColors();
-        return colorNames.get(colorID);
+        return colors().names().get(colorID);
     }
 
 
@@ -103,13 +111,7 @@ public class NotebookColor {
      * @return L'ID de la couleur, ou 0 si aucune couleur avec ce nom n'est trouvée.
      */
     public static int getColorIDByName(String colorName) {
-        fetchAllColors();
-        for (Map.Entry<Integer, String> entry : colorNames.entrySet()) {
-            if (entry.getValue().equals(colorName)) {
-                return entry.getKey();
-            }
-        }
-        return 0;
+        return colors().names().idOf(colorName, 0);
     }
 
 
@@ -119,8 +121,7 @@ public class NotebookColor {
      * @return Une ArrayList contenant tous les noms de couleurs.
      */
     public static ArrayList<String> getAllColorNames() {
-        fetchAllColors();
-        return new ArrayList<>(colorNames.values());
+        return new ArrayList<>(colors().names().names());
     }
 
     public static Node getColorCircle(String colorHex) {
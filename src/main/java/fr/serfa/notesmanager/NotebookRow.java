@@ -0,0 +1,59 @@
+package fr.serfa.notesmanager;
+
+/**
+ * Une ligne du contenu d'un carnet de notes (requête QueryTemplate.NOTEBOOK_SELECT_CONTENT).
+ * Les colonnes des onglets et des notes sont null pour un classeur sans onglet ou un onglet sans note ; une couleur absente est lue comme 0.
+ *
+ * @param binderID      L'ID du classeur.
+ * @param binderName    Le nom du classeur.
+ * @param binderColorID L'ID de la couleur du classeur.
+ * @param tabID         L'ID de l'onglet.
+ * @param tabName       Le nom de l'onglet.
+ * @param tabColorID    L'ID de la couleur de l'onglet.
+ * @param noteID        L'ID de la note.
+ * @param noteName      Le nom de la note.
+ * @param label1Name    Le nom de la première étiquette de la note.
+ * @param label2Name    Le nom de la seconde étiquette de la note.
+ */
+public record NotebookRow(
+        int binderID,
+        String binderName,
+        int binderColorID,
+        Integer tabID,
+        String tabName,
+        int tabColorID,
+        Integer noteID,
+        String noteName,
+        String label1Name,
+        String label2Name
+) {
+
+    public static final Column<Integer> BINDER_ID = Column.ofInt(1, "binder_id");
+    public static final Column<String> BINDER_NAME = Column.ofString(2, "binder_name");
+    public static final Column<Integer> BINDER_COLOR_ID = Column.ofInt(3, "binder_color_id");
+    public static final Column<Integer> TAB_ID = Column.ofInt(4, "tab_id");
+    public static final Column<String> TAB_NAME = Column.ofString(5, "tab_name");
+    public static final Column<Integer> TAB_COLOR_ID = Column.ofInt(6, "tab_color_id");
+    public static final Column<Integer> NOTE_ID = Column.ofInt(7, "note_id");
+    public static final Column<String> NOTE_NAME = Column.ofString(8, "note_name");
+    public static final Column<String> LABEL1_NAME = Column.ofString(9, "label1.label_name");
+    public static final Column<String> LABEL2_NAME = Column.ofString(10, "label2.label_name");
+
+
+    /**
+     * Convertit la ligne courante du résultat en NotebookRow.
+     */
+    public static final DatabaseManager.RowMapper<NotebookRow> MAPPER = row -> new NotebookRow(
+            BINDER_ID.getInt(row),
+            BINDER_NAME.get(row),
+            BINDER_COLOR_ID.getInt(row),
+            TAB_ID.get(row),
+            TAB_NAME.get(row),
+            TAB_COLOR_ID.getInt(row),
+            NOTE_ID.get(row),
+            NOTE_NAME.get(row),
+            LABEL1_NAME.get(row),
+            LABEL2_NAME.get(row)
+    );
+
+}
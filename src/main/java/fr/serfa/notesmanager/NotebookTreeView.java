@@ -1,17 +1,183 @@
 package fr.serfa.notesmanager;
 
+import javafx.collections.ObservableList;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Cette classe représente la vue en arborescence d'un carnet de notes.
  * Elle contient des méthodes pour créer la vue en arborescence et obtenir un cercle de couleur pour représenter les couleurs des classeurs, onglets et notes.
+ * Les éléments des onglets et des notes ne sont créés qu'au premier dépliage de leur parent. Si le carnet de notes est chargé
+ * à la demande, les onglets et les notes sont aussi lus à ce moment-là, et ceux du prochain dépliage probable sont préchargés.
  */
 public class NotebookTreeView {
 
 
+    /**
+     * L'élément d'un classeur, dont les éléments des onglets sont créés à son premier dépliage.
+     */
+    private final class BinderTreeItem extends TreeItem<String> {
+
+        private final Binder binder;
+        private boolean childrenCreated;
+
+        private BinderTreeItem(Binder binder) {
+            super(binder.getBinderName());
+            this.binder = binder;
+            setGraphic(NotebookColor.getColorCircle(binder.getColorHex()));
+
+            // Au dépliage du classeur, l'utilisateur ouvre ensuite le plus souvent son premier onglet
+            expandedProperty().addListener((observable, wasExpanded, isExpanded) -> {
+                if (isExpanded && !getChildren().isEmpty()) {
+                    prefetchNotes(binder.getTabs().getFirst());
+                }
+            });
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return binder.isTabsLoaded() && binder.getTabs().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<String>> getChildren() {
+            ObservableList<TreeItem<String>> children = super.getChildren();
+            if (!childrenCreated) {
+                childrenCreated = true;
+                if (binder.loadTabs() < 0) {
+                    System.out.println("Erreur : les onglets du classeur " + binder.getBinderName() + " n'ont pas pu être lus");
+                }
+                List<TreeItem<String>> tabItems = new ArrayList<>(binder.getTabs().size());
+                for (Tab tab : binder.getTabs()) {
+                    tabItems.add(new TabTreeItem(tab));
+                }
+                children.setAll(tabItems);
+            }
+            return children;
+        }
+    }
+
+
+    /**
+     * L'élément d'un onglet, dont les éléments des notes sont créés à son premier dépliage.
+     * Les notes d'un onglet pas encore lu sont lues page par page (NotePager) : seules les notes de la fenêtre de pages
+     * sont affichées, entre des éléments qui lisent la page précédente ou la page suivante lorsqu'on clique dessus.
+     */
+    private final class TabTreeItem extends TreeItem<String> {
+
+        private final Tab tab;
+        private boolean childrenCreated;
+
+        private TabTreeItem(Tab tab) {
+            super(tab.getTabName());
+            this.tab = tab;
+            setGraphic(NotebookColor.getColorCircle(tab.getColorHex()));
+
+            // Au dépliage de l'onglet, l'utilisateur ouvre ensuite le plus souvent l'une de ses premières notes, ou l'onglet suivant
+            expandedProperty().addListener((observable, wasExpanded, isExpanded) -> {
+                if (isExpanded) {
+                    getChildren();
+                    NoteContentPrefetcher.tabExpanded(tab);
+                    List<Tab> tabs = tab.getBinder().getTabs();
+                    int next = tabs.indexOf(tab) + 1;
+                    if (next > 0 && next < tabs.size()) {
+                        prefetchNotes(tabs.get(next));
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return tab.isNotesLoaded() && tab.getNotes().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<String>> getChildren() {
+            ObservableList<TreeItem<String>> children = super.getChildren();
+            if (!childrenCreated) {
+                childrenCreated = true;
+                NotePager pager = tab.getPager();
+                if (pager != null && !pager.isStarted() && pager.loadFirst() < 0) {
+                    System.out.println("Erreur : les notes de l'onglet " + tab.getTabName() + " n'ont pas pu être lues");
+                }
+                createNoteItems(children);
+            }
+            return children;
+        }
+
+        /**
+         * Crée les éléments des notes affichées : toutes les notes de l'onglet, ou la fenêtre de pages entre ses éléments de navigation.
+         */
+        private void createNoteItems(ObservableList<TreeItem<String>> children) {
+            NotePager pager = tab.getPager();
+            List<Note> notes = pager == null ? tab.getNotes() : pager.getNotes();
+
+            List<TreeItem<String>> noteItems = new ArrayList<>(notes.size() + 2);
+            if (pager != null && pager.hasPrevious()) {
+                noteItems.add(new PageTreeItem(this, false));
+            }
+            for (Note note : notes) {
+                TreeItem<String> noteItem = new TreeItem<>(note.getNoteName());
+
+                // Affiche le contenu de la note dans la zone de texte lorsqu'on clique sur la note.
+                noteItem.addEventHandler(TreeItem.treeNotificationEvent(), event -> {
+                    System.out.println("Clicked on note: " + note.getNoteName());
+                });
+
+                noteItems.add(noteItem);
+            }
+            if (pager != null && pager.hasNext()) {
+                noteItems.add(new PageTreeItem(this, true));
+            }
+            children.setAll(noteItems);
+        }
+
+        /**
+         * Lit la page suivante ou précédente des notes de l'onglet et met à jour les éléments affichés.
+         */
+        private void loadPage(boolean next) {
+            NotePager pager = tab.getPager();
+            if (pager == null) {
+                return;
+            }
+            int loaded = next ? pager.loadNext() : pager.loadPrevious();
+            if (loaded < 0) {
+                System.out.println("Erreur : une page des notes de l'onglet " + tab.getTabName() + " n'a pas pu être lue");
+            }
+            createNoteItems(super.getChildren());
+        }
+    }
+
+
+    /**
+     * L'élément de navigation placé avant ou après la fenêtre de pages d'un onglet, qui lit la page précédente ou suivante.
+     */
+    private static final class PageTreeItem extends TreeItem<String> {
+
+        private final TabTreeItem tabItem;
+        private final boolean next;
+
+        private PageTreeItem(TabTreeItem tabItem, boolean next) {
+            super(next ? "Notes suivantes…" : "Notes précédentes…");
+            this.tabItem = tabItem;
+            this.next = next;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+
+        private void load() {
+            tabItem.loadPage(next);
+        }
+    }
+
+
     /**
      * L'arbre de classeurs à afficher.
      */
@@ -44,7 +210,7 @@ public class NotebookTreeView {
 
     /**
      * Cette méthode crée la vue en arborescence du carnet de notes.
-     * Elle parcourt tous les classeurs, onglets et notes du carnet de notes et les ajoute à l'arbre de classeurs.
+     * Elle ajoute un élément par classeur à l'arbre de classeurs ; les éléments des onglets et des notes sont créés au dépliage.
      */
     public void createTreeView() {
 
@@ -58,39 +224,26 @@ public class NotebookTreeView {
         // Clear the tree view from the previous content
         rootItem.getChildren().clear();
 
+        List<TreeItem<String>> binderItems = new ArrayList<>(binders.size());
         for (Binder binder : binders) {
-            String binderColorHex = binder.getColorHex();
-            TreeItem<String> binderItem = new TreeItem<>(binder.getBinderName());
-            binderItem.setGraphic(NotebookColor.getColorCircle(binderColorHex));
-
-            ArrayList<Tab> tabs = binder.getTabs();
-            for (Tab tab : tabs) {
-
-                TreeItem<String> tabItem = new TreeItem<>(tab.getTabName());
-                tabItem.setGraphic(NotebookColor.getColorCircle(tab.getColorHex()));
-
-                ArrayList<Note> notes = tab.getNotes();
-
-                for (Note note : notes) {
-
-                    TreeItem<String> noteItem = new TreeItem<>(note.getNoteName());
-
-                    // Affiche le contenu de la note dans la zone de texte lorsqu'on clique sur la note.
-                    noteItem.addEventHandler(TreeItem.treeNotificationEvent(), event -> {
-                        System.out.println("Clicked on note: " + note.getNoteName());
-                    });
+            binderItems.add(new BinderTreeItem(binder));
+        }
+        rootItem.getChildren().setAll(binderItems);
 
-                    tabItem.getChildren().add(noteItem);
-                }
-                binderItem.getChildren().add(tabItem);
-            }
-            rootItem.getChildren().add(binderItem);
+        // Le premier classeur est le plus susceptible d'être déplié en premier
+        if (!binders.isEmpty()) {
+            prefetchTabs(binders.getFirst());
         }
 
 
         binderTree.setOnMouseClicked(event -> {
             if (event.getClickCount() == 1) {
                 TreeItem<String> item = binderTree.getSelectionModel().getSelectedItem();
+                if (item instanceof PageTreeItem pageItem) {
+                    binderTree.getSelectionModel().clearSelection();
+                    pageItem.load();
+                    return;
+                }
                 if (item != null && item.getParent() != null && item.getParent().getParent() != null) {
                     TreeItem<String> parent = item.getParent();
                     TreeItem<String> grandParent = parent.getParent();
@@ -112,4 +265,38 @@ public class NotebookTreeView {
         });
     }
 
+
+    /**
+     * Lit en arrière-plan les onglets d'un classeur pas encore lus, puis les ajoute au classeur sur le thread de l'interface.
+     * Si le classeur est déplié avant la fin de la lecture, ses onglets sont lus directement et la lecture anticipée est ignorée.
+     */
+    private void prefetchTabs(Binder binder) {
+        if (binder.isTabsLoaded()) {
+            return;
+        }
+        AsyncDatabaseManager.supplyAsync(binder::fetchAllTabs)
+                .thenAccept(binder::applyFetchedTabs)
+                .exceptionally(e -> {
+                    System.out.println("Erreur : préchargement des onglets du classeur " + binder.getBinderName() + " : " + e);
+                    return null;
+                });
+    }
+
+
+    /**
+     * Lit en arrière-plan la première page des notes d'un onglet pas encore lu, dans le cache de sa lecture page par page.
+     * Au dépliage de l'onglet, la page est alors affichée sans lecture.
+     */
+    private void prefetchNotes(Tab tab) {
+        NotePager pager = tab.getPager();
+        if (pager == null || pager.isStarted()) {
+            return;
+        }
+        AsyncDatabaseManager.supplyAsync(pager::prefetchFirstPage)
+                .exceptionally(e -> {
+                    System.out.println("Erreur : préchargement des notes de l'onglet " + tab.getTabName() + " : " + e);
+                    return null;
+                });
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+package fr.serfa.notesmanager;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * La classe QueryLog est le journal des requêtes de DatabaseManager.
+ * Les messages sont fournis sous forme de Supplier et ne sont construits que si leur niveau est activé
+ * (propriété queryLogLevel, INFO par défaut) et s'ils sont retenus par l'échantillonnage de leur opération
+ * (propriété queryLogSampleEvery.&lt;opération&gt; ou queryLogSampleEvery : un message sur N, 1 par défaut).
+ * Les avertissements et les erreurs ne sont jamais échantillonnés.
+ * Les lignes sont écrites dans la console par un thread dédié : l'appelant ne fait que les déposer dans une file bornée,
+ * et les lignes sont abandonnées (et comptées) si la file est pleine.
+ */
+public abstract class QueryLog {
+
+
+    /**
+     * Les niveaux du journal, du plus détaillé au plus important.
+     */
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+
+    /**
+     * Le niveau minimal des messages écrits.
+     */
+    private static volatile Level level = parseLevel(DatabaseManager.stringProperty("queryLogLevel", "INFO"));
+
+
+    /**
+     * L'échantillonnage par défaut : un message sur N.
+     */
+    private static final long defaultSampleEvery = Math.max(1, DatabaseManager.longProperty("queryLogSampleEvery", 1));
+
+
+    /**
+     * L'échantillonnage de chaque opération : un message sur N.
+     */
+    private static final ConcurrentMap<String, Long> sampleEvery = new ConcurrentHashMap<>();
+
+
+    /**
+     * Le nombre de messages proposés pour chaque opération, utilisé par l'échantillonnage.
+     */
+    private static final ConcurrentMap<String, AtomicLong> sampleCounters = new ConcurrentHashMap<>();
+
+
+    /**
+     * La file des lignes en attente d'écriture.
+     */
+    private static final BlockingQueue<String> queue = new ArrayBlockingQueue<>((int) Math.max(16, DatabaseManager.longProperty("queryLogQueueSize", 8_192)));
+
+
+    /**
+     * Le nombre de lignes abandonnées parce que la file était pleine.
+     */
+    private static final AtomicLong dropped = new AtomicLong();
+
+
+    static {
+        startAppender();
+    }
+
+
+    /**
+     * Modifie le niveau minimal des messages écrits.
+     *
+     * @param newLevel Le nouveau niveau.
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+
+    /**
+     * Indique si les messages d'un niveau sont écrits. Permet d'éviter de préparer les données d'un message désactivé.
+     *
+     * @param messageLevel Le niveau du message.
+     * @return true si les messages de ce niveau sont écrits.
+     */
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+
+    /**
+     * Écrit un message de niveau TRACE.
+     *
+     * @param operation L'opération concernée.
+     * @param message   Le fournisseur du message.
+     */
+    public static void trace(String operation, Supplier<String> message) {
+        log(Level.TRACE, operation, message);
+    }
+
+
+    /**
+     * Écrit un message de niveau DEBUG.
+     *
+     * @param operation L'opération concernée.
+     * @param message   Le fournisseur du message.
+     */
+    public static void debug(String operation, Supplier<String> message) {
+        log(Level.DEBUG, operation, message);
+    }
+
+
+    /**
+     * Écrit un message de niveau INFO.
+     *
+     * @param operation L'opération concernée.
+     * @param message   Le fournisseur du message.
+     */
+    public static void info(String operation, Supplier<String> message) {
+        log(Level.INFO, operation, message);
+    }
+
+
+    /**
+     * Écrit un message de niveau WARN.
+     *
+     * @param operation L'opération concernée.
+     * @param message   Le fournisseur du message.
+     */
+    public static void warn(String operation, Supplier<String> message) {
+        log(Level.WARN, operation, message);
+    }
+
+
+    /**
+     * Écrit un message de niveau ERROR.
+     *
+     * @param operation L'opération concernée.
+     * @param message   Le fournisseur du message.
+     */
+    public static void error(String operation, Supplier<String> message) {
+        log(Level.ERROR, operation, message);
+    }
+
+
+    /**
+     * Écrit un message dans le journal, si son niveau est activé et s'il est retenu par l'échantillonnage de son opération.
+     * Le message est construit sur le thread appelant, puis écrit par le thread du journal.
+     *
+     * @param messageLevel Le niveau du message.
+     * @param operation    L'opération concernée, par exemple le nom de la requête.
+     * @param message      Le fournisseur du message, appelé uniquement si le message est écrit.
+     */
+    public static void log(Level messageLevel, String operation, Supplier<String> message) {
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+        if (messageLevel.compareTo(Level.WARN) < 0 && !isSampled(operation)) {
+            return;
+        }
+
+        String line = Instant.now() + " " + messageLevel + " [" + Thread.currentThread().getName() + "] op=" + operation + " " + message.get();
+        if (!queue.offer(line)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Décrit les paramètres d'une requête sans leurs valeurs, qui peuvent contenir un mot de passe ou le contenu complet d'une note.
+     *
+     * @param parameters Les valeurs des paramètres.
+     * @return Le nombre de paramètres et la longueur de chacun.
+     */
+    public static String describeParameters(String[] parameters) {
+        StringBuilder description = new StringBuilder("params=").append(parameters.length).append(" lengths=[");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(parameters[i] == null ? "null" : String.valueOf(parameters[i].length()));
+        }
+        return description.append(']').toString();
+    }
+
+
+    /**
+     * Décrit des paramètres typés : la valeur des entiers et la longueur des textes.
+     *
+     * @param parameters Les paramètres.
+     * @return Le nombre de paramètres et la description de chacun.
+     */
+    public static String describeParameters(SqlParam[] parameters) {
+        StringBuilder description = new StringBuilder("params=").append(parameters.length).append(" [");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(parameters[i].describe());
+        }
+        return description.append(']').toString();
+    }
+
+
+    /**
+     * Récupère le nombre de lignes abandonnées parce que la file était pleine.
+     *
+     * @return Le nombre de lignes abandonnées.
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+
+    /**
+     * Attend que les lignes en file soient écrites, dans la limite du délai fourni. Appelée à l'arrêt de l'application.
+     *
+     * @param timeoutMs Le délai maximal d'attente, en millisecondes.
+     */
+    public static void flush(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (dropped.get() > 0) {
+            System.out.println("Journal des requêtes : " + dropped.get() + " lignes abandonnées");
+        }
+    }
+
+
+    /**
+     * Indique si le message d'une opération est retenu par l'échantillonnage.
+     */
+    private static boolean isSampled(String operation) {
+        long every = sampleEvery.computeIfAbsent(operation,
+                key -> Math.max(1, DatabaseManager.longProperty("queryLogSampleEvery." + key, defaultSampleEvery)));
+        if (every == 1) {
+            return true;
+        }
+        return sampleCounters.computeIfAbsent(operation, key -> new AtomicLong()).getAndIncrement() % every == 0;
+    }
+
+
+    /**
+     * Lit le niveau du journal, INFO si la valeur est invalide.
+     */
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Propriété queryLogLevel invalide : " + value);
+            return Level.INFO;
+        }
+    }
+
+
+    /**
+     * Démarre le thread qui écrit les lignes de la file dans la console.
+     */
+    private static void startAppender() {
+        Thread thread = new Thread(() -> {
+            while (true) {
+                try {
+                    System.out.println(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "query-log-appender");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+}
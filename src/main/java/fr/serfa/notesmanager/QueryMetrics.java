@@ -0,0 +1,445 @@
+package fr.serfa.notesmanager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+
+/**
+ * La classe QueryMetrics mesure les requêtes exécutées par DatabaseManager.
+ * Chaque requête est comptée sous son nom (le nom de la QueryTemplate ou le type de requête et la table),
+ * et les opérations logiques de l'application (par exemple Note.editContent) sont mesurées de bout en bout
+ * en passant leur travail à time(). Les statistiques (histogramme des durées, lignes, erreurs, octets lus)
+ * sont publiées en JMX sous fr.serfa.notesmanager:type=QueryStats et fr.serfa.notesmanager:type=OperationStats.
+ */
+public abstract class QueryMetrics {
+
+
+    /**
+     * Interface JMX des statistiques d'une requête ou d'une opération.
+     */
+    public interface QueryStatsMXBean {
+
+        /**
+         * @return Le nom de la requête ou de l'opération.
+         */
+        String getName();
+
+        /**
+         * @return Le nombre d'exécutions.
+         */
+        long getCount();
+
+        /**
+         * @return Le nombre d'exécutions en échec.
+         */
+        long getErrorCount();
+
+        /**
+         * @return Le nombre total de lignes lues ou affectées.
+         */
+        long getRowCount();
+
+        /**
+         * @return Le nombre approximatif d'octets lus, compté seulement si la propriété queryMetricsBytes est activée.
+         */
+        long getBytesRead();
+
+        /**
+         * @return La durée moyenne, en millisecondes.
+         */
+        double getMeanMillis();
+
+        /**
+         * @return La durée médiane, en millisecondes.
+         */
+        double getP50Millis();
+
+        /**
+         * @return Le 95e centile des durées, en millisecondes.
+         */
+        double getP95Millis();
+
+        /**
+         * @return Le 99e centile des durées, en millisecondes.
+         */
+        double getP99Millis();
+
+        /**
+         * @return La durée maximale, en millisecondes.
+         */
+        double getMaxMillis();
+
+        /**
+         * Remet les statistiques à zéro.
+         */
+        void reset();
+    }
+
+
+    /**
+     * Les statistiques d'une requête ou d'une opération.
+     * L'histogramme des durées utilise des intervalles logarithmiques en microsecondes : quatre intervalles par puissance de deux,
+     * soit une erreur relative inférieure à 25 % sur les centiles, pour une taille fixe quel que soit le nombre de mesures.
+     */
+    public static final class QueryStats implements QueryStatsMXBean {
+
+        private static final int BUCKET_COUNT = 248;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        private QueryStats(String name) {
+            this.name = name;
+        }
+
+        private void record(long micros, long rowCount, long byteCount, boolean error) {
+            buckets.incrementAndGet(bucketIndex(micros));
+            count.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            if (byteCount > 0) {
+                bytes.add(byteCount);
+            }
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getRowCount() {
+            return rows.sum();
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytes.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long total = count.sum();
+            return total == 0 ? 0 : totalMicros.sum() / 1000.0 / total;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentileMillis(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return percentileMillis(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentileMillis(0.99);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            errors.reset();
+            rows.reset();
+            bytes.reset();
+            totalMicros.reset();
+            maxMicros.set(0);
+        }
+
+        /**
+         * Calcule un centile à partir de l'histogramme : la borne supérieure de l'intervalle qui le contient, limitée au maximum observé.
+         */
+        private double percentileMillis(double percentile) {
+            long[] snapshot = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile * total);
+            long cumulated = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulated += snapshot[i];
+                if (cumulated >= rank) {
+                    return Math.min(bucketUpperBound(i), maxMicros.get()) / 1000.0;
+                }
+            }
+            return maxMicros.get() / 1000.0;
+        }
+
+        private static int bucketIndex(long micros) {
+            if (micros < 4) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int subBucket = (int) ((micros >>> (exponent - 2)) & 3);
+            return Math.min(BUCKET_COUNT - 1, (exponent - 1) * 4 + subBucket);
+        }
+
+        private static long bucketUpperBound(int index) {
+            if (index < 4) {
+                return index;
+            }
+            int exponent = index / 4 + 1;
+            int subBucket = index % 4;
+            return ((5L + subBucket) << (exponent - 2)) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s : %d appels, %d erreurs, %d lignes, %d octets, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    name, getCount(), getErrorCount(), getRowCount(), getBytesRead(),
+                    getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+        }
+    }
+
+
+    /**
+     * La portée d'une opération logique, ouverte et fermée par time() autour du travail de l'opération.
+     * Les requêtes exécutées pendant la portée sont additionnées aux statistiques de l'opération.
+     */
+    private static final class Scope {
+
+        private final QueryStats stats;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long bytes;
+        private boolean error;
+        private boolean closed;
+
+        private Scope(QueryStats stats) {
+            this.stats = stats;
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            Deque<Scope> scopes = currentScopes.get();
+            scopes.remove(this);
+            if (scopes.isEmpty()) {
+                currentScopes.remove();
+            }
+            stats.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), rows, bytes, error);
+        }
+    }
+
+
+    /**
+     * Le domaine JMX des statistiques.
+     */
+    private static final String jmxDomain = "fr.serfa.notesmanager";
+
+
+    /**
+     * Indique si les octets lus par les requêtes sont comptés. Le comptage parcourt une seconde fois chaque résultat copié,
+     * il est donc désactivé par défaut et réservé aux diagnostics (propriété queryMetricsBytes).
+     */
+    private static final boolean bytesEnabled = Boolean.parseBoolean(DatabaseManager.stringProperty("queryMetricsBytes", "false"));
+
+
+    /**
+     * Les statistiques par requête.
+     */
+    private static final ConcurrentMap<String, QueryStats> queryStats = new ConcurrentHashMap<>();
+
+
+    /**
+     * Les statistiques par opération logique.
+     */
+    private static final ConcurrentMap<String, QueryStats> operationStats = new ConcurrentHashMap<>();
+
+
+    /**
+     * Les portées d'opération ouvertes sur chaque thread, la plus récente en tête.
+     */
+    private static final ThreadLocal<Deque<Scope>> currentScopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+
+    /**
+     * Mesure une opération logique sur le thread courant : sa durée et les requêtes exécutées par son travail
+     * sont ajoutées aux statistiques de l'opération, même si le travail lève une exception.
+     *
+     * @param operation Le nom de l'opération, par exemple "Note.editContent".
+     * @param work      Le travail de l'opération.
+     * @return Le résultat du travail.
+     */
+    public static <T> T time(String operation, Supplier<T> work) {
+        Scope scope = new Scope(statsFor(operationStats, "OperationStats", operation));
+        currentScopes.get().push(scope);
+        try {
+            return work.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+
+    /**
+     * Indique si les octets lus par les requêtes doivent être comptés.
+     */
+    static boolean isBytesEnabled() {
+        return bytesEnabled;
+    }
+
+
+    /**
+     * Enregistre l'exécution d'une requête dans ses statistiques et dans celles des opérations en cours sur le thread.
+     *
+     * @param statement  Le nom de la requête.
+     * @param startNanos L'instant de début de la requête (System.nanoTime()).
+     * @param rows       Le nombre de lignes lues ou affectées.
+     * @param bytes      Le nombre approximatif d'octets lus.
+     * @param error      Indique si la requête a échoué.
+     */
+    static void recordStatement(String statement, long startNanos, long rows, long bytes, boolean error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        statsFor(queryStats, "QueryStats", statement).record(micros, rows, bytes, error);
+
+        Deque<Scope> scopes = currentScopes.get();
+        for (Scope scope : scopes) {
+            scope.rows += Math.max(0, rows);
+            scope.bytes += bytes;
+            scope.error |= error;
+        }
+        if (scopes.isEmpty()) {
+            currentScopes.remove();
+        }
+    }
+
+
+    /**
+     * Récupère les statistiques d'une requête.
+     *
+     * @param statement Le nom de la requête.
+     * @return Les statistiques de la requête, ou null si elle n'a jamais été exécutée.
+     */
+    public static QueryStats getQueryStats(String statement) {
+        return queryStats.get(statement);
+    }
+
+
+    /**
+     * Récupère les statistiques d'une opération logique.
+     *
+     * @param operation Le nom de l'opération.
+     * @return Les statistiques de l'opération, ou null si elle n'a jamais été exécutée.
+     */
+    public static QueryStats getOperationStats(String operation) {
+        return operationStats.get(operation);
+    }
+
+
+    /**
+     * Remet toutes les statistiques à zéro.
+     */
+    public static void resetAll() {
+        queryStats.values().forEach(QueryStats::reset);
+        operationStats.values().forEach(QueryStats::reset);
+    }
+
+
+    /**
+     * Affiche dans la console les statistiques des opérations et des requêtes, de la plus lente à la plus rapide (p95).
+     */
+    public static void printSummary() {
+        System.out.println("Statistiques des opérations :");
+        sortedByP95(operationStats).forEach(stats -> System.out.println("   > " + stats));
+        System.out.println("Statistiques des requêtes :");
+        sortedByP95(queryStats).forEach(stats -> System.out.println("   > " + stats));
+    }
+
+
+    private static List<QueryStats> sortedByP95(ConcurrentMap<String, QueryStats> statsMap) {
+        List<QueryStats> sorted = new ArrayList<>(statsMap.values());
+        sorted.sort(Comparator.comparingDouble(QueryStats::getP95Millis).reversed());
+        return sorted;
+    }
+
+
+    /**
+     * Récupère ou crée les statistiques d'un nom, en les publiant en JMX à leur création.
+     */
+    private static QueryStats statsFor(ConcurrentMap<String, QueryStats> statsMap, String type, String name) {
+        QueryStats stats = statsMap.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        return statsMap.computeIfAbsent(name, key -> {
+            QueryStats newStats = new QueryStats(key);
+            register(type, newStats);
+            return newStats;
+        });
+    }
+
+
+    /**
+     * Publie des statistiques dans le serveur JMX de la plateforme.
+     */
+    private static void register(String type, QueryStats stats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String name = stats.getName().matches("[\\w.\\-]+") ? stats.getName() : ObjectName.quote(stats.getName());
+            ObjectName objectName = new ObjectName(jmxDomain + ":type=" + type + ",name=" + name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(stats, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Publication JMX impossible pour " + stats.getName() + " : " + e);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package fr.serfa.notesmanager;
+
+/**
+ * L'énumération QueryTemplate regroupe les requêtes SQL fixes de l'application.
+ * Leur texte est construit une seule fois, ce qui permet au cache d'instructions de chaque connexion
+ * et aux instructions préparées côté serveur de réutiliser l'analyse et le plan d'exécution de MariaDB.
+ */
+public enum QueryTemplate {
+
+    // Notebook
+    NOTEBOOK_SELECT_CONTENT(
+            "SELECT binders.binder_id, binders.binder_name, binders.binder_color_id, "
+                    + "tabs.tab_id, tabs.tab_name, tabs.tab_color_id, "
+                    + "notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM binders "
+                    + "LEFT JOIN users ON binders.user_id = users.user_id "
+                    + "LEFT JOIN tabs ON tabs.binder_id = binders.binder_id "
+                    + "LEFT JOIN notes ON notes.tab_id = tabs.tab_id "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE users.user_id = ?"
+    ),
+    NOTEBOOK_SELECT_CONTENT_BY_LABEL(
+            "SELECT binders.binder_id, binders.binder_name, binders.binder_color_id, "
+                    + "tabs.tab_id, tabs.tab_name, tabs.tab_color_id, "
+                    + "notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "JOIN tabs ON notes.tab_id = tabs.tab_id "
+                    + "JOIN binders ON tabs.binder_id = binders.binder_id "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE binders.user_id = ? AND (notes.note_label1_id = ? OR notes.note_label2_id = ?) "
+                    + "ORDER BY binders.binder_id, tabs.tab_id, notes.note_id"
+    ),
+    NOTEBOOK_SELECT_BINDERS(
+            "SELECT binders.binder_id, binders.binder_name, binders.binder_color_id "
+                    + "FROM binders WHERE binders.user_id = ? ORDER BY binders.binder_id"
+    ),
+    NOTEBOOK_INSERT_BINDER("INSERT INTO binders (binder_name, user_id, binder_color_id) VALUES (?, ?, ?)"),
+    NOTEBOOK_DELETE_BINDER("DELETE FROM binders WHERE binder_id = ?"),
+
+    // Synchronisation incrémentale du carnet de notes
+    SYNC_SELECT_NOW("SELECT CURRENT_TIMESTAMP(3)"),
+    SYNC_SELECT_BINDERS("SELECT binder_id, binder_name, binder_color_id FROM binders WHERE user_id = ? AND updated_at >= ? ORDER BY binder_id"),
+    SYNC_SELECT_TABS(
+            "SELECT tabs.tab_id, tabs.binder_id, tabs.tab_name, tabs.tab_color_id "
+                    + "FROM tabs "
+                    + "JOIN binders ON tabs.binder_id = binders.binder_id "
+                    + "WHERE binders.user_id = ? AND tabs.updated_at >= ? "
+                    + "ORDER BY tabs.tab_id"
+    ),
+    SYNC_SELECT_NOTES(
+            "SELECT notes.note_id, notes.tab_id, notes.note_name, label1.label_name, label2.label_name, notes.content_version "
+                    + "FROM notes "
+                    + "JOIN tabs ON notes.tab_id = tabs.tab_id "
+                    + "JOIN binders ON tabs.binder_id = binders.binder_id "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE binders.user_id = ? AND notes.updated_at >= ? "
+                    + "ORDER BY notes.note_id"
+    ),
+    SYNC_SELECT_DELETIONS("SELECT entity_type, entity_id FROM deleted_rows WHERE user_id = ? AND deleted_at >= ? ORDER BY deletion_id"),
+    SYNC_RECORD_BINDER_DELETION("INSERT INTO deleted_rows (user_id, entity_type, entity_id) SELECT user_id, 'B', binder_id FROM binders WHERE binder_id = ?"),
+    SYNC_RECORD_TAB_DELETION(
+            "INSERT INTO deleted_rows (user_id, entity_type, entity_id) "
+                    + "SELECT binders.user_id, 'T', tabs.tab_id FROM tabs JOIN binders ON tabs.binder_id = binders.binder_id WHERE tabs.tab_id = ?"
+    ),
+    SYNC_RECORD_NOTE_DELETION(
+            "INSERT INTO deleted_rows (user_id, entity_type, entity_id) "
+                    + "SELECT binders.user_id, 'N', notes.note_id FROM notes "
+                    + "JOIN tabs ON notes.tab_id = tabs.tab_id JOIN binders ON tabs.binder_id = binders.binder_id WHERE notes.note_id = ?"
+    ),
+
+    // Binder
+    BINDER_SELECT_TABS("SELECT tabs.tab_id, tabs.tab_name, tabs.tab_color_id FROM tabs WHERE binder_id = ?"),
+    BINDER_UPDATE_NAME("UPDATE binders SET binder_name = ? WHERE binder_id = ?"),
+    BINDER_UPDATE_COLOR("UPDATE binders SET binder_color_id = ? WHERE binder_id = ?"),
+    BINDER_INSERT_TAB("INSERT INTO tabs (tab_name, binder_id, tab_color_id) VALUES (?, ?, ?)"),
+    BINDER_DELETE_TAB("DELETE FROM tabs WHERE tab_id = ?"),
+
+    // Tab
+    TAB_UPDATE_NAME("UPDATE tabs SET tab_name = ? WHERE tab_id = ?"),
+    TAB_UPDATE_COLOR("UPDATE tabs SET tab_color_id = ? WHERE tab_id = ?"),
+    TAB_SELECT_NOTES(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? ORDER BY notes.note_id"
+    ),
+    // Pages de notes, par clé sur (tab_id, note_name, note_id) : les notes sans nom forment un bloc placé avant les autres
+    TAB_SELECT_UNNAMED_NOTES_AFTER(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? AND notes.note_name IS NULL AND notes.note_id > ? "
+                    + "ORDER BY notes.note_id LIMIT ?"
+    ),
+    TAB_SELECT_UNNAMED_NOTES_BEFORE(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? AND notes.note_name IS NULL AND notes.note_id < ? "
+                    + "ORDER BY notes.note_id DESC LIMIT ?"
+    ),
+    TAB_SELECT_NAMED_NOTES_FIRST(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? AND notes.note_name IS NOT NULL "
+                    + "ORDER BY notes.note_name, notes.note_id LIMIT ?"
+    ),
+    TAB_SELECT_NAMED_NOTES_AFTER(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? AND (notes.note_name > ? OR (notes.note_name = ? AND notes.note_id > ?)) "
+                    + "ORDER BY notes.note_name, notes.note_id LIMIT ?"
+    ),
+    TAB_SELECT_NAMED_NOTES_BEFORE(
+            "SELECT notes.note_id, notes.note_name, label1.label_name, label2.label_name "
+                    + "FROM notes "
+                    + "LEFT JOIN labels AS label1 ON notes.note_label1_id = label1.label_id "
+                    + "LEFT JOIN labels AS label2 ON notes.note_label2_id = label2.label_id "
+                    + "WHERE notes.tab_id = ? AND (notes.note_name < ? OR (notes.note_name = ? AND notes.note_id < ?)) "
+                    + "ORDER BY notes.note_name DESC, notes.note_id DESC LIMIT ?"
+    ),
+    TAB_INSERT_NOTE("INSERT INTO notes (note_name, tab_id) VALUES (?, ?)"),
+    TAB_DELETE_NOTE("DELETE FROM notes WHERE note_id = ?"),
+
+    // Note
+    NOTE_SELECT_CONTENT("SELECT note_content, content_version FROM notes WHERE note_id = ?"),
+    NOTE_SELECT_CONTENT_VERSION("SELECT content_version FROM notes WHERE note_id = ?"),
+    NOTE_SELECT_VERSION(
+            "SELECT notes.content_version, COUNT(note_deltas.delta_id), COALESCE(MAX(note_deltas.delta_id), 0) "
+                    + "FROM notes "
+                    + "LEFT JOIN note_deltas ON note_deltas.note_id = notes.note_id "
+                    + "WHERE notes.note_id = ? "
+                    + "GROUP BY notes.note_id, notes.content_version"
+    ),
+    NOTE_SELECT_VERSION_WITHOUT_DELTAS("SELECT content_version, 0, 0 FROM notes WHERE note_id = ?"),
+    NOTE_UPDATE_NAME("UPDATE notes SET note_name = ? WHERE note_id = ?"),
+    NOTE_UPDATE_CONTENT("UPDATE notes SET note_content = ?, content_version = content_version + 1 WHERE note_id = ?"),
+    NOTE_UPDATE_BASE_CONTENT("UPDATE notes SET note_content = ? WHERE note_id = ? AND content_version = ?"),
+    NOTE_INCREMENT_CONTENT_VERSION("UPDATE notes SET content_version = content_version + 1 WHERE note_id = ? AND content_version = ?"),
+    NOTE_UPDATE_CONTENT_IF_UNCHANGED(
+            "UPDATE notes SET note_content = ? "
+                    + "WHERE note_id = ? AND content_version = ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM note_deltas WHERE note_deltas.note_id = notes.note_id)"
+    ),
+    NOTE_SELECT_UNCOMPRESSED(
+            "SELECT notes.note_id, notes.note_content, notes.content_version "
+                    + "FROM notes "
+                    + "JOIN tabs ON notes.tab_id = tabs.tab_id "
+                    + "JOIN binders ON tabs.binder_id = binders.binder_id "
+                    + "WHERE binders.user_id = ? AND notes.note_id > ? "
+                    + "AND notes.note_content NOT LIKE 'NMZ1:%' AND CHAR_LENGTH(notes.note_content) >= ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM note_deltas WHERE note_deltas.note_id = notes.note_id) "
+                    + "ORDER BY notes.note_id LIMIT ?"
+    ),
+    NOTE_DELTA_SELECT("SELECT delta_id, delta_offset, delta_delete_length, delta_base_length, delta_text, delta_base_version FROM note_deltas WHERE note_id = ? ORDER BY delta_id"),
+    NOTE_DELTA_INSERT("INSERT INTO note_deltas (note_id, delta_offset, delta_delete_length, delta_base_length, delta_text, delta_base_version) VALUES (?, ?, ?, ?, ?, ?)"),
+    NOTE_DELTA_DELETE_UP_TO("DELETE FROM note_deltas WHERE note_id = ? AND delta_id <= ?"),
+    NOTE_DELTA_DELETE_ALL("DELETE FROM note_deltas WHERE note_id = ?"),
+    NOTE_ATTACH_LABEL("{CALL UpdateNoteLabelToNewValue(?, ?, ?)}"),
+    NOTE_DETACH_LABEL("{CALL UpdateNoteLabelToNull(?, ?, ?)}"),
+
+    // LabelManager
+    LABEL_SELECT_ALL("SELECT label_id, label_name FROM labels"),
+    LABEL_INSERT("INSERT INTO labels (label_name) VALUES (?)"),
+    LABEL_UPDATE_NAME("UPDATE labels SET label_name = ? WHERE label_name = ?"),
+    LABEL_DELETE("DELETE FROM labels WHERE label_name = ?"),
+    LABEL_TOUCH_NOTES(
+            "UPDATE notes SET updated_at = CURRENT_TIMESTAMP(3) "
+                    + "WHERE note_label1_id IN (SELECT label_id FROM labels WHERE label_name = ?) "
+                    + "OR note_label2_id IN (SELECT label_id FROM labels WHERE label_name = ?)"
+    ),
+
+    // NotebookColor
+    COLOR_SELECT_ALL("SELECT color_id, color_name, color_hex FROM colors");
+
+
+    /**
+     * Le texte SQL de la requête.
+     */
+    private final String sql;
+
+
+    /**
+     * Constructeur de l'énumération QueryTemplate.
+     *
+     * @param sql Le texte SQL de la requête.
+     */
+    QueryTemplate(String sql) {
+        this.sql = sql;
+    }
+
+
+    /**
+     * Récupère le texte SQL de la requête.
+     *
+     * @return Le texte SQL de la requête.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+}
@@ -127,7 +127,7 @@ public class RegisterWindow extends Application {
         String userConfirmPassword = inputRegisterConfirmPassword.getText();
 
         System.out.println("Create account button clicked");
-        System.out.println("Registering user with the following information :" + userEmail + " " + userName + " " + userPassword + " " + userConfirmPassword);
+        System.out.println("Registering user with the following information :" + userEmail + " " + userName);
 
         // Si le format de tous les champs est correct et que les deux mots de passe entrés correspondent
         if (FormatChecker.checkEmailFormat(userEmail)
@@ -0,0 +1,296 @@
+package fr.serfa.notesmanager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * La classe ReplicaSet regroupe les répliques en lecture de la base de données, chacune avec son stockage et son pool de connexions.
+ * DatabaseManager lui demande une réplique pour chaque lecture hors transaction : les répliques disponibles sont choisies à tour de rôle,
+ * et aucune n'est choisie (la lecture va alors au primaire) pendant la fenêtre de lecture de ses propres écritures qui suit une écriture,
+ * ou si toutes les répliques sont en panne ou en retard.
+ * Une réplique en échec de connexion est écartée pendant un délai, et le retard de réplication de chaque réplique est mesuré périodiquement.
+ */
+public final class ReplicaSet {
+
+
+    /**
+     * Une réplique en lecture : son stockage, son pool de connexions et son état.
+     */
+    public static final class Replica {
+
+        private final String name;
+        private final StorageBackend backend;
+        private final ConnectionPool pool;
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long unavailableUntilNanos;
+        private volatile long lagSeconds;
+
+        /**
+         * Constructeur de la classe Replica.
+         *
+         * @param name    Le nom de la réplique, utilisé dans les propriétés replica.&lt;nom&gt;.*.
+         * @param backend Le stockage de la réplique, déjà préparé.
+         * @param pool    Le pool de connexions de la réplique.
+         */
+        public Replica(String name, StorageBackend backend, ConnectionPool pool) {
+            this.name = name;
+            this.backend = backend;
+            this.pool = pool;
+        }
+
+        /**
+         * @return Le nom de la réplique.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Le pool de connexions de la réplique.
+         */
+        public ConnectionPool getPool() {
+            return pool;
+        }
+
+        /**
+         * @return Le dernier retard de réplication mesuré, en secondes, ou -1 si la réplication est arrêtée.
+         */
+        public long getLagSeconds() {
+            return lagSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + backend.getName() + ") : " + reads.get() + " lectures, " + failures.get() + " échecs, retard "
+                    + (lagSeconds < 0 ? "inconnu" : lagSeconds + " s")
+                    + (unavailableUntilNanos - System.nanoTime() > 0 ? ", écartée" : "");
+        }
+    }
+
+
+    /**
+     * Les répliques, dans l'ordre de la propriété dbReplicas.
+     */
+    private final List<Replica> replicas;
+
+
+    /**
+     * Le retard de réplication maximal accepté pour une lecture, en secondes.
+     */
+    private final long maxLagSeconds;
+
+
+    /**
+     * La durée pendant laquelle une réplique en échec est écartée, en nanosecondes.
+     */
+    private final long retryAfterNanos;
+
+
+    /**
+     * La durée pendant laquelle les lectures vont au primaire après une écriture, en nanosecondes.
+     */
+    private final long readYourWritesNanos;
+
+
+    /**
+     * L'instant (System.nanoTime()) jusqu'auquel les lectures vont au primaire après la dernière écriture.
+     */
+    private final AtomicLong primaryUntilNanos = new AtomicLong(System.nanoTime());
+
+
+    /**
+     * La position de la prochaine réplique à essayer.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+
+    /**
+     * Le nombre de lectures envoyées au primaire alors que des répliques sont configurées.
+     */
+    private final AtomicLong primaryReads = new AtomicLong();
+
+
+    /**
+     * La tâche qui mesure le retard de réplication.
+     */
+    private final ScheduledExecutorService lagMonitor;
+
+
+    /**
+     * Constructeur de la classe ReplicaSet.
+     *
+     * @param replicas           Les répliques en lecture.
+     * @param maxLagSeconds      Le retard de réplication maximal accepté pour une lecture, en secondes.
+     * @param retryAfterMs       La durée pendant laquelle une réplique en échec est écartée, en millisecondes.
+     * @param readYourWritesMs   La durée pendant laquelle les lectures vont au primaire après une écriture, en millisecondes.
+     * @param lagCheckPeriodMs   La période de mesure du retard de réplication, en millisecondes.
+     */
+    public ReplicaSet(List<Replica> replicas, long maxLagSeconds, long retryAfterMs, long readYourWritesMs, long lagCheckPeriodMs) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagSeconds = maxLagSeconds;
+        this.retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMs);
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMs);
+
+        this.lagMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!this.replicas.isEmpty()) {
+            this.lagMonitor.scheduleWithFixedDelay(this::checkLag, 0, lagCheckPeriodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    /**
+     * Indique si des répliques sont configurées.
+     *
+     * @return true si au moins une réplique est configurée.
+     */
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+
+    /**
+     * Ouvre à l'avance les connexions minimales du pool de chaque réplique.
+     */
+    public void warmUp() {
+        for (Replica replica : replicas) {
+            replica.pool.warmUp();
+        }
+    }
+
+
+    /**
+     * Choisit la réplique d'une lecture, à tour de rôle parmi les répliques disponibles et à jour.
+     *
+     * @return La réplique choisie, ou null si la lecture doit aller au primaire.
+     */
+    public Replica choose() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - primaryUntilNanos.get() < 0) {
+            primaryReads.incrementAndGet();
+            return null;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (now - replica.unavailableUntilNanos >= 0 && replica.lagSeconds >= 0 && replica.lagSeconds <= maxLagSeconds) {
+                replica.reads.incrementAndGet();
+                return replica;
+            }
+        }
+        primaryReads.incrementAndGet();
+        return null;
+    }
+
+
+    /**
+     * Enregistre une écriture : les lectures suivantes vont au primaire pendant la fenêtre de lecture de ses propres écritures,
+     * pour que l'utilisateur relise ce qu'il vient d'écrire même si les répliques ne l'ont pas encore reçu.
+     */
+    public void recordWrite() {
+        if (!replicas.isEmpty()) {
+            primaryUntilNanos.accumulateAndGet(System.nanoTime() + readYourWritesNanos, (current, candidate) -> candidate - current > 0 ? candidate : current);
+        }
+    }
+
+
+    /**
+     * Signale l'échec d'une lecture sur une réplique. Une erreur de connexion écarte la réplique pendant le délai configuré.
+     *
+     * @param replica La réplique en échec.
+     * @param e       L'erreur de la lecture.
+     */
+    public void recordFailure(Replica replica, SQLException e) {
+        replica.failures.incrementAndGet();
+        if (isConnectionError(e)) {
+            replica.unavailableUntilNanos = System.nanoTime() + retryAfterNanos;
+            QueryLog.warn("replica", () -> "Réplique " + replica.name + " écartée pendant " + TimeUnit.NANOSECONDS.toMillis(retryAfterNanos) + " ms : " + e);
+        }
+    }
+
+
+    /**
+     * Résume l'état des répliques, pour la console ou le journal.
+     *
+     * @return Le nombre de lectures envoyées au primaire, suivi de l'état de chaque réplique.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(primaryReads.get() + " lectures au primaire");
+        for (Replica replica : replicas) {
+            summary.append(" | ").append(replica);
+        }
+        return summary.toString();
+    }
+
+
+    /**
+     * Ferme les pools et les stockages des répliques. Appelée à l'arrêt de l'application.
+     */
+    public void close() {
+        lagMonitor.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+            replica.backend.close();
+        }
+    }
+
+
+    /**
+     * Mesure le retard de réplication de chaque réplique disponible.
+     * Une réplique qui ne répond pas est écartée, comme après l'échec d'une lecture.
+     */
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            if (System.nanoTime() - replica.unavailableUntilNanos < 0) {
+                continue;
+            }
+            Connection connection = null;
+            try {
+                connection = replica.pool.borrow();
+                long lag = replica.backend.replicationLagSeconds(connection);
+                if (lag != replica.lagSeconds) {
+                    QueryLog.info("replica", () -> "Réplique " + replica.name + " : retard de réplication " + (lag < 0 ? "inconnu" : lag + " s"));
+                }
+                replica.lagSeconds = lag;
+            } catch (SQLException e) {
+                recordFailure(replica, e);
+            } finally {
+                if (connection != null) {
+                    replica.pool.release(connection);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Indique si une erreur SQL vient de la connexion à la réplique plutôt que de la requête elle-même.
+     */
+    private static boolean isConnectionError(SQLException e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException || e instanceof SQLTimeoutException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState == null || sqlState.startsWith("08");
+    }
+
+}
@@ -0,0 +1,156 @@
+package fr.serfa.notesmanager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+
+/**
+ * La classe SqlParam représente un paramètre typé d'une requête préparée.
+ * Les entiers sont liés avec setInt ou setLong et non sous forme de texte, si bien que MariaDB compare
+ * les colonnes d'ID à des entiers sans conversion implicite et peut utiliser leurs index.
+ */
+public final class SqlParam {
+
+
+    /**
+     * Les types de paramètres.
+     */
+    private enum Kind {
+        INT, LONG, STRING, TIMESTAMP, NULL
+    }
+
+
+    private final Kind kind;
+    private final long longValue;
+    private final String stringValue;
+    private final int sqlType;
+
+
+    private SqlParam(Kind kind, long longValue, String stringValue, int sqlType) {
+        this.kind = kind;
+        this.longValue = longValue;
+        this.stringValue = stringValue;
+        this.sqlType = sqlType;
+    }
+
+
+    /**
+     * Crée un paramètre entier.
+     *
+     * @param value La valeur du paramètre.
+     * @return Le paramètre.
+     */
+    public static SqlParam ofInt(int value) {
+        return new SqlParam(Kind.INT, value, null, Types.INTEGER);
+    }
+
+
+    /**
+     * Crée un paramètre entier long.
+     *
+     * @param value La valeur du paramètre.
+     * @return Le paramètre.
+     */
+    public static SqlParam ofLong(long value) {
+        return new SqlParam(Kind.LONG, value, null, Types.BIGINT);
+    }
+
+
+    /**
+     * Crée un paramètre texte. Une valeur null est liée comme NULL.
+     *
+     * @param value La valeur du paramètre.
+     * @return Le paramètre.
+     */
+    public static SqlParam ofString(String value) {
+        return value == null ? ofNull(Types.VARCHAR) : new SqlParam(Kind.STRING, 0, value, Types.VARCHAR);
+    }
+
+
+    /**
+     * Crée un paramètre horodatage, lié avec setTimestamp. Une valeur null est liée comme NULL.
+     *
+     * @param value La valeur du paramètre.
+     * @return Le paramètre.
+     */
+    public static SqlParam ofTimestamp(Timestamp value) {
+        return value == null ? ofNull(Types.TIMESTAMP) : new SqlParam(Kind.TIMESTAMP, value.getTime(), null, Types.TIMESTAMP);
+    }
+
+
+    /**
+     * Crée un paramètre NULL.
+     *
+     * @param sqlType Le type SQL du paramètre (constantes java.sql.Types).
+     * @return Le paramètre.
+     */
+    public static SqlParam ofNull(int sqlType) {
+        return new SqlParam(Kind.NULL, 0, null, sqlType);
+    }
+
+
+    /**
+     * Convertit des valeurs texte en paramètres, pour les méthodes de DatabaseManager qui reçoivent des chaînes.
+     *
+     * @param values Les valeurs texte.
+     * @return Les paramètres texte correspondants.
+     */
+    static SqlParam[] ofStrings(String[] values) {
+        SqlParam[] parameters = new SqlParam[values.length];
+        for (int i = 0; i < values.length; i++) {
+            parameters[i] = ofString(values[i]);
+        }
+        return parameters;
+    }
+
+
+    /**
+     * Lie le paramètre à une requête préparée avec la méthode de son type.
+     *
+     * @param statement La requête préparée.
+     * @param index     La position du paramètre, à partir de 1.
+     * @throws SQLException Si le paramètre ne peut pas être lié.
+     */
+    public void bind(PreparedStatement statement, int index) throws SQLException {
+        switch (kind) {
+            case INT -> statement.setInt(index, (int) longValue);
+            case LONG -> statement.setLong(index, longValue);
+            case STRING -> statement.setString(index, stringValue);
+            case TIMESTAMP -> statement.setTimestamp(index, new Timestamp(longValue));
+            case NULL -> statement.setNull(index, sqlType);
+        }
+    }
+
+
+    /**
+     * Récupère la valeur du paramètre sous forme de texte, pour les stockages qui exécutent eux-mêmes les procédures.
+     *
+     * @return La valeur texte, ou null pour un paramètre NULL.
+     */
+    public String asString() {
+        return switch (kind) {
+            case INT, LONG -> String.valueOf(longValue);
+            case STRING -> stringValue;
+            case TIMESTAMP -> new Timestamp(longValue).toString();
+            case NULL -> null;
+        };
+    }
+
+
+    /**
+     * Décrit le paramètre pour le journal sans sa valeur texte, qui peut contenir un mot de passe ou le contenu d'une note.
+     *
+     * @return Le type du paramètre, suivi de la valeur d'un entier ou de la longueur d'un texte.
+     */
+    public String describe() {
+        return switch (kind) {
+            case INT, LONG -> kind + "=" + longValue;
+            case STRING -> "STRING(" + stringValue.length() + ")";
+            case TIMESTAMP -> kind + "=" + new Timestamp(longValue);
+            case NULL -> "NULL";
+        };
+    }
+
+}
@@ -0,0 +1,88 @@
+package fr.serfa.notesmanager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+
+/**
+ * L'interface StorageBackend est le point d'extension du stockage des données.
+ * Une implémentation fournit les connexions JDBC de DatabaseManager vers un moteur de base de données,
+ * prépare ce moteur si nécessaire et exécute les procédures stockées qu'il ne connaît pas.
+ * Les implémentations sont découvertes par ServiceLoader et choisies par leur nom (propriété storageBackend, mariadb par défaut).
+ * Les classes du modèle continuent d'utiliser DatabaseManager, qui délègue au stockage choisi.
+ */
+public interface StorageBackend {
+
+
+    /**
+     * Récupère le nom du stockage, utilisé par la propriété storageBackend.
+     *
+     * @return Le nom du stockage.
+     */
+    String getName();
+
+
+    /**
+     * Prépare le stockage à partir des propriétés de la base de données. Appelée une fois, avant la première connexion.
+     *
+     * @param properties Les propriétés de la base de données.
+     * @throws SQLException Si le stockage ne peut pas être préparé.
+     */
+    void initialize(Properties properties) throws SQLException;
+
+
+    /**
+     * Ouvre une nouvelle connexion physique au stockage. Appelée par le pool de connexions.
+     *
+     * @return La nouvelle connexion.
+     * @throws SQLException Si la connexion ne peut pas être ouverte.
+     */
+    Connection openConnection() throws SQLException;
+
+
+    /**
+     * Indique si le moteur exécute lui-même les procédures stockées de l'application.
+     *
+     * @return true si les appels de procédure sont envoyés au moteur, false s'ils passent par callProcedure().
+     */
+    default boolean supportsStoredProcedures() {
+        return true;
+    }
+
+
+    /**
+     * Exécute une procédure stockée de l'application, pour un moteur qui ne la connaît pas.
+     * La procédure est exécutée sur la connexion fournie, dans la transaction en cours s'il y en a une.
+     *
+     * @param connection    La connexion à utiliser.
+     * @param procedureName Le nom de la procédure stockée.
+     * @param inParameters  Les paramètres d'entrée de la procédure.
+     * @return La valeur du paramètre de sortie entier de la procédure.
+     * @throws SQLException Si la procédure est inconnue ou échoue.
+     */
+    default int callProcedure(Connection connection, String procedureName, String[] inParameters) throws SQLException {
+        throw new SQLException("Procédure " + procedureName + " non prise en charge par le stockage " + getName());
+    }
+
+
+    /**
+     * Mesure le retard de réplication du moteur, lorsqu'il est utilisé comme réplique en lecture (propriété dbReplicas).
+     * Un moteur qui n'est pas répliqué, par exemple une base locale servant de réplique de substitution, n'a pas de retard.
+     *
+     * @param connection Une connexion à la réplique.
+     * @return Le retard de réplication en secondes, ou -1 si la réplication est arrêtée.
+     * @throws SQLException Si le retard ne peut pas être mesuré.
+     */
+    default long replicationLagSeconds(Connection connection) throws SQLException {
+        return 0;
+    }
+
+
+    /**
+     * Libère les ressources du stockage. Appelée à l'arrêt de l'application, après la fermeture du pool de connexions.
+     */
+    default void close() {
+    }
+
+}
@@ -2,6 +2,10 @@ package fr.serfa.notesmanager;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 
 /**
@@ -17,6 +21,38 @@ public class Tab {
     private ArrayList<Note> notes = new ArrayList<>();
 
 
+    /**
+     * Les notes de cet onglet indexées par ID, tenues à jour avec la liste des notes.
+     */
+    private final Map<Integer, Note> notesByID = new HashMap<>();
+
+
+    /**
+     * Les notes de cet onglet indexées par nom, tenues à jour avec la liste des notes et le renommage des notes.
+     */
+    private final Map<String, Note> notesByName = new HashMap<>();
+
+
+    /**
+     * Le classeur parent de cet onglet.
+     */
+    private final Binder binder;
+
+
+    /**
+     * Indique si les notes de cet onglet ont été lues en base de données. Un onglet lu par le chargement à la demande
+     * du carnet de notes n'a pas encore ses notes, qui sont lues à son dépliage dans l'arborescence (loadNotes).
+     */
+    private boolean notesLoaded = true;
+
+
+    /**
+     * La lecture page par page des notes de cet onglet, créée au premier dépliage d'un onglet dont les notes n'ont pas été lues,
+     * ou null si toutes les notes sont lues.
+     */
+    private NotePager pager;
+
+
     /**
      * L'identifiant unique de cet onglet.
      */
@@ -57,6 +93,7 @@ public class Tab {
             int tabColorID
     ) {
         this.tabID = tabID;
+        this.binder = binder;
         this.binderID = binder.getBinderID();
         this.tabName = tabName;
         this.tabColorID = tabColorID;
@@ -73,6 +110,16 @@ public class Tab {
     }
 
 
+    /**
+     * Récupère le classeur parent de cet onglet.
+     *
+     * @return Le classeur parent.
+     */
+    public Binder getBinder() {
+        return binder;
+    }
+
+
     /**
      * Récupère l'identifiant unique de cet onglet.
      *
@@ -110,6 +157,235 @@ public class Tab {
      */
     public void addNoteToList(Note note) {
         notes.add(note);
+        notesByID.put(note.getNoteID(), note);
+        notesByName.put(note.getNoteName(), note);
+        binder.getNotebook().registerNote(this, note);
+    }
+
+
+    /**
+     * Indique si les notes de cet onglet ont été lues en base de données.
+     *
+     * @return true si la liste des notes est complète.
+     */
+    public boolean isNotesLoaded() {
+        return notesLoaded;
+    }
+
+
+    /**
+     * Marque les notes de cet onglet comme pas encore lues, pour le chargement à la demande du carnet de notes.
+     */
+    void markNotesNotLoaded() {
+        this.notesLoaded = false;
+    }
+
+
+    /**
+     * Récupère la lecture page par page des notes de cet onglet, en la créant au premier appel.
+     *
+     * @return La lecture page par page, ou null si toutes les notes de l'onglet sont déjà lues.
+     */
+    public NotePager getPager() {
+        if (notesLoaded) {
+            return null;
+        }
+        if (pager == null) {
+            pager = new NotePager(this);
+        }
+        return pager;
+    }
+
+
+    /**
+     * Marque les notes de cet onglet comme toutes lues, lorsque sa première page contient toutes ses notes.
+     */
+    void completePaging() {
+        notesLoaded = true;
+        pager = null;
+    }
+
+
+    /**
+     * Ajoute à cet onglet une note lue page par page, ou réutilise la note de même ID déjà présente.
+     *
+     * @param note La note lue.
+     * @return La note présente dans l'onglet.
+     */
+    Note attachNote(Note note) {
+        Note existing = notesByID.get(note.getNoteID());
+        if (existing != null) {
+            return existing;
+        }
+        addNoteToList(note);
+        return note;
+    }
+
+
+    /**
+     * Vide le cache des pages de notes de cet onglet, après une modification lue par la synchronisation du carnet de notes.
+     */
+    void notesChanged() {
+        if (pager != null) {
+            pager.invalidate();
+        }
+    }
+
+
+    /**
+     * Retire de cet onglet une note d'une page sortie de la fenêtre de pagination, pour libérer la mémoire.
+     * Contrairement à removeNoteFromList, la note n'est pas supprimée : elle sera relue avec sa page.
+     *
+     * @param note La note à retirer.
+     */
+    void evictNote(Note note) {
+        if (notesByID.remove(note.getNoteID(), note)) {
+            notesByName.remove(note.getNoteName(), note);
+            notes.remove(note);
+            binder.getNotebook().unregisterNote(note);
+            NoteContentCache.remove(note);
+        }
+    }
+
+
+    /**
+     * Lit les notes de cet onglet en base de données, si elles n'ont pas encore été lues.
+     *
+     * @return Le nombre de notes de l'onglet, ou -1 en cas d'erreur.
+     */
+    public int loadNotes() {
+        if (notesLoaded) {
+            return notes.size();
+        }
+        return applyFetchedNotes(fetchAllNotes());
+    }
+
+
+    /**
+     * Récupère toutes les notes de cet onglet, avec leurs étiquettes, à partir de la base de données, sans les ajouter à l'onglet.
+     * Ne modifie pas l'onglet, et peut donc être appelée sur un autre thread que celui de l'interface.
+     *
+     * @return Les notes de l'onglet, ou null en cas d'erreur.
+     */
+    List<Note> fetchAllNotes() {
+        System.out.println("\n***");
+        System.out.println("fetchAllNotes() for tab " + tabID);
+
+        // Exécute la requête SELECT et crée un objet Note pour chaque ligne (note_id, note_name, label1.label_name, label2.label_name)
+        return TypedQuery.of(QueryTemplate.TAB_SELECT_NOTES)
+                .setInt(tabID)
+                .list(row -> new Note(this, row.getInt(1), row.getString(2), Notebook.createLabels(row.getString(3), row.getString(4))));
+    }
+
+
+    /**
+     * Ajoute à cet onglet les notes lues par fetchAllNotes(), par exemple sur un autre thread par le préchargement de l'arborescence.
+     * Les notes déjà présentes, créées pendant la session, ne sont pas ajoutées une seconde fois.
+     * Sans effet si les notes ont déjà été lues entre-temps. Doit être appelée sur le thread de l'interface.
+     *
+     * @param fetchedNotes Les notes lues, ou null en cas d'erreur de lecture.
+     * @return Le nombre de notes de l'onglet, ou -1 en cas d'erreur.
+     */
+    int applyFetchedNotes(List<Note> fetchedNotes) {
+        if (notesLoaded) {
+            return notes.size();
+        }
+        if (fetchedNotes == null) {
+            return -1;
+        }
+        for (Note note : fetchedNotes) {
+            if (!notesByID.containsKey(note.getNoteID())) {
+                addNoteToList(note);
+            }
+        }
+        completePaging();
+        return notes.size();
+    }
+
+
+    /**
+     * Met à jour le nom et la couleur de cet onglet à partir d'une ligne lue par la synchronisation du carnet de notes.
+     *
+     * @param tabName    Le nom de l'onglet.
+     * @param tabColorID L'identifiant de la couleur de l'onglet.
+     */
+    void applyChange(String tabName, int tabColorID) {
+        rename(tabName);
+        this.tabColorID = tabColorID;
+    }
+
+
+    /**
+     * Recherche une note de cet onglet par son identifiant.
+     *
+     * @param noteID L'identifiant de la note à rechercher.
+     * @return La note trouvée, ou null si aucune note n'a cet identifiant.
+     */
+    public Note findNoteByID(int noteID) {
+        return notesByID.get(noteID);
+    }
+
+
+    /**
+     * Recherche une note de cet onglet par son nom.
+     *
+     * @param noteName Le nom de la note à rechercher.
+     * @return La note trouvée, ou null si aucune note n'a ce nom.
+     */
+    public Note findNoteByName(String noteName) {
+        return notesByName.get(noteName);
+    }
+
+
+    /**
+     * Retire une note de la liste des notes de cet onglet, sans la supprimer de la base de données.
+     *
+     * @param noteID L'identifiant de la note à retirer.
+     * @return true si la note a été retirée.
+     */
+    boolean removeNoteFromList(int noteID) {
+        Note note = notesByID.remove(noteID);
+        if (note == null) {
+            return false;
+        }
+        notesByName.remove(note.getNoteName(), note);
+        notes.remove(note);
+        binder.getNotebook().unregisterNote(note);
+        NoteContentCache.remove(note);
+        LocalContentStore.remove(noteID);
+        if (pager != null) {
+            pager.noteRemoved(note);
+        }
+        return true;
+    }
+
+
+    /**
+     * Met à jour l'index des notes par nom après le renommage d'une note de cet onglet.
+     *
+     * @param note    La note renommée.
+     * @param oldName L'ancien nom de la note.
+     */
+    void noteRenamed(Note note, String oldName) {
+        if (notesByID.get(note.getNoteID()) == note) {
+            notesByName.remove(oldName, note);
+            notesByName.put(note.getNoteName(), note);
+            if (pager != null) {
+                pager.invalidate();
+            }
+        }
+    }
+
+
+    /**
+     * Renomme cet onglet en mémoire et met à jour les index par nom de son classeur et du carnet de notes.
+     */
+    private void rename(String newName) {
+        String oldName = this.tabName;
+        this.tabName = newName;
+        if (!Objects.equals(newName, oldName)) {
+            binder.tabRenamed(this, oldName);
+        }
     }
 
 
@@ -120,18 +396,36 @@ public class Tab {
      * @return Le nombre de lignes affectées par l'opération de mise à jour dans la base de données.
      */
     public int editName(String newName) {
-        int result = DatabaseManager.update(
-                "tabs",
-                "tab_name",
-                newName,
-                "tab_id",
-                String.valueOf(this.tabID)
-        );
+        return nameEdited(newName, updateName(newName));
+    }
+
+
+    /**
+     * Modifie le nom de cet onglet dans la base de données, sans le modifier dans l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param newName Le nouveau nom de l'onglet.
+     * @return Le nombre de lignes affectées par l'opération de mise à jour dans la base de données.
+     */
+    int updateName(String newName) {
+        return TypedQuery.of(QueryTemplate.TAB_UPDATE_NAME)
+                .setString(newName)
+                .setInt(this.tabID)
+                .execute();
+    }
 
+
+    /**
+     * Renomme cet onglet dans l'objet après updateName(), si la mise à jour a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param newName Le nouveau nom de l'onglet.
+     * @param result  Le résultat de updateName().
+     * @return Le résultat de la mise à jour.
+     */
+    int nameEdited(String newName, int result) {
         if (result > 0) {
-            this.tabName = newName;
+            rename(newName);
         }
-
         return result;
     }
 
@@ -143,18 +437,37 @@ public class Tab {
      * @return Le nombre de lignes affectées par l'opération de mise à jour dans la base de données.
      */
     public int editColor(int newColorID) {
-        int result = DatabaseManager.update(
-                "tabs",
-                "tab_color_id",
-                String.valueOf(newColorID),
-                "tab_id",
-                String.valueOf(this.tabID)
-        );
+        return colorEdited(newColorID, updateColor(newColorID));
+    }
 
+
+    /**
+     * Modifie l'identifiant de couleur de cet onglet dans la base de données, sans le modifier dans l'objet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param newColorID Le nouvel identifiant de couleur de l'onglet.
+     * @return Le nombre de lignes affectées par l'opération de mise à jour dans la base de données.
+     */
+    int updateColor(int newColorID) {
+        return TypedQuery.of(QueryTemplate.TAB_UPDATE_COLOR)
+                .setInt(newColorID)
+                .setInt(this.tabID)
+                .execute();
+    }
+
+
+    /**
+     * Modifie l'identifiant de couleur de cet onglet dans l'objet après updateColor(), si la mise à jour a réussi.
+     * Doit être appelée sur le thread de l'interface.
+     *
+     * @param newColorID Le nouvel identifiant de couleur de l'onglet.
+     * @param result     Le résultat de updateColor().
+     * @return Le résultat de la mise à jour.
+     */
+    int colorEdited(int newColorID, int result) {
         if (result > 0) {
             this.tabColorID = newColorID;
         }
-
         return result;
     }
 
@@ -166,41 +479,118 @@ public class Tab {
      * @return L'objet Note nouvellement créé.
      */
     public Note createNote(String noteName) {
+        return noteCreated(insertNote(noteName), noteName);
+    }
+
+
+    /**
+     * Insère une nouvelle note dans la base de données, sans l'ajouter à cet onglet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param noteName Le nom de la nouvelle note.
+     * @return L'identifiant de la nouvelle note, ou une valeur inférieure ou égale à 0 en cas d'échec.
+     */
+    int insertNote(String noteName) {
         System.out.println("\n***");
         System.out.println("createNote() : " + noteName + " / tabID " + tabID);
 
-        String[] fields = {"note_name", "tab_id"};
-        String[] values = {noteName, String.valueOf(tabID)};
+        return TypedQuery.of(QueryTemplate.TAB_INSERT_NOTE).setString(noteName).setInt(tabID).insert();
+    }
 
-        int noteID = DatabaseManager.insert("notes", fields, values);
 
+    /**
+     * Ajoute à cet onglet une note insérée par insertNote(). Doit être appelée sur le thread de l'interface.
+     *
+     * @param noteID   L'identifiant de la nouvelle note.
+     * @param noteName Le nom de la nouvelle note.
+     * @return L'objet Note nouvellement créé.
+     */
+    Note noteCreated(int noteID, String noteName) {
         Note note = new Note(this, noteID, noteName, new ArrayList<NoteLabel>());
-        notes.add(note);
+        addNoteToList(note);
+        if (pager != null) {
+            pager.noteCreated(note);
+        }
 
         return note;
     }
 
 
+    /**
+     * Crée plusieurs notes en une seule insertion par lots et les ajoute à la liste des notes de cet onglet.
+     *
+     * @param noteNames Les noms des nouvelles notes.
+     * @return Les objets Note nouvellement créés, dans l'ordre des noms. Retourne une liste vide si l'insertion a échoué.
+     */
+    public ArrayList<Note> createNotes(List<String> noteNames) {
+        System.out.println("\n***");
+        System.out.println("createNotes() : " + noteNames.size() + " notes / tabID " + tabID);
+
+        List<String[]> rows = new ArrayList<>(noteNames.size());
+        for (String noteName : noteNames) {
+            rows.add(new String[]{noteName, String.valueOf(tabID)});
+        }
+
+        int[] noteIDs = DatabaseManager.insertBatch("notes", new String[]{"note_name", "tab_id"}, rows);
+
+        ArrayList<Note> createdNotes = new ArrayList<>();
+        if (noteIDs != null) {
+            for (int i = 0; i < noteIDs.length; i++) {
+                Note note = new Note(this, noteIDs[i], noteNames.get(i), new ArrayList<NoteLabel>());
+                addNoteToList(note);
+                if (pager != null) {
+                    pager.noteCreated(note);
+                }
+                createdNotes.add(note);
+            }
+        }
+
+        return createdNotes;
+    }
+
+
     /**
      * Supprime une note avec l'identifiant spécifié de la base de données et de la liste des notes de cet onglet.
+     * La suppression est enregistrée dans deleted_rows dans la même transaction, pour la synchronisation des autres sessions.
      *
      * @param noteID L'identifiant de la note à supprimer.
      * @return Le nombre de lignes affectées par l'opération de suppression dans la base de données.
      */
     public int deleteNote(int noteID) {
+        return noteDeleted(noteID, deleteNoteRows(noteID));
+    }
+
+
+    /**
+     * Supprime une note de la base de données et enregistre sa suppression dans deleted_rows, sans la retirer de cet onglet.
+     * Peut être appelée sur un autre thread que celui de l'interface.
+     *
+     * @param noteID L'identifiant de la note à supprimer.
+     * @return Le nombre de lignes affectées par l'opération de suppression dans la base de données, ou -1 en cas d'échec.
+     */
+    int deleteNoteRows(int noteID) {
         System.out.println("\n***");
         System.out.println("deleteNote() : " + " noteID " + noteID);
 
-        int result = DatabaseManager.delete("notes", "note_id", String.valueOf(noteID));
+        Integer deleted = DatabaseManager.transaction(() -> {
+            TypedQuery.of(QueryTemplate.SYNC_RECORD_NOTE_DELETION).setInt(noteID).execute();
+            return TypedQuery.of(QueryTemplate.TAB_DELETE_NOTE).setInt(noteID).execute();
+        });
+        return deleted == null ? -1 : deleted;
+    }
 
-        // Si la suppression a réussi, supprime la note de la liste des notes de cet onglet
+
+    /**
+     * Retire de cet onglet une note supprimée par deleteNoteRows(), si la suppression a réussi. Doit être appelée sur le thread de l'interface.
+     *
+     * @param noteID L'identifiant de la note supprimée.
+     * @param result Le résultat de deleteNoteRows().
+     * @return Le résultat de la suppression.
+     */
+    int noteDeleted(int noteID, int result) {
+        // Si la suppression a réussi, supprime la note de la liste des notes de cet onglet et des index du carnet de notes
         if (result > 0) {
-            for (Note note : notes) {
-                if (note.getNoteID() == noteID) {
-                    notes.remove(note);
-                    break;
-                }
-            }
+            removeNoteFromList(noteID);
         }
         return result;
     }
@@ -0,0 +1,185 @@
+package fr.serfa.notesmanager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+/**
+ * La classe TypedQuery prépare l'exécution d'une QueryTemplate avec des paramètres typés.
+ * Les paramètres sont ajoutés dans l'ordre des points d'interrogation de la requête, puis la requête est exécutée
+ * par l'une des méthodes terminales, qui renvoient les mêmes codes d'erreur que DatabaseManager.
+ *
+ * <pre>
+ * List&lt;ColorRow&gt; colors = TypedQuery.of(QueryTemplate.COLOR_SELECT_ALL).list(ColorRow.MAPPER);
+ * int result = TypedQuery.of(QueryTemplate.TAB_DELETE_NOTE).setInt(noteID).execute();
+ * </pre>
+ */
+public final class TypedQuery {
+
+
+    /**
+     * La requête à exécuter.
+     */
+    private final QueryTemplate template;
+
+
+    /**
+     * Les paramètres de la requête, dans l'ordre.
+     */
+    private final List<SqlParam> parameters = new ArrayList<>(4);
+
+
+    private TypedQuery(QueryTemplate template) {
+        this.template = template;
+    }
+
+
+    /**
+     * Prépare l'exécution d'une requête.
+     *
+     * @param template La requête à exécuter.
+     * @return La requête à paramétrer.
+     */
+    public static TypedQuery of(QueryTemplate template) {
+        return new TypedQuery(template);
+    }
+
+
+    /**
+     * Ajoute un paramètre entier, lié avec setInt.
+     *
+     * @param value La valeur du paramètre.
+     * @return Cette requête.
+     */
+    public TypedQuery setInt(int value) {
+        parameters.add(SqlParam.ofInt(value));
+        return this;
+    }
+
+
+    /**
+     * Ajoute un paramètre entier facultatif, lié avec setInt ou comme NULL.
+     *
+     * @param value La valeur du paramètre, ou null.
+     * @return Cette requête.
+     */
+    public TypedQuery setInt(Integer value) {
+        parameters.add(value == null ? SqlParam.ofNull(Types.INTEGER) : SqlParam.ofInt(value));
+        return this;
+    }
+
+
+    /**
+     * Ajoute un paramètre entier long, lié avec setLong.
+     *
+     * @param value La valeur du paramètre.
+     * @return Cette requête.
+     */
+    public TypedQuery setLong(long value) {
+        parameters.add(SqlParam.ofLong(value));
+        return this;
+    }
+
+
+    /**
+     * Ajoute un paramètre texte, lié avec setString ou comme NULL.
+     *
+     * @param value La valeur du paramètre.
+     * @return Cette requête.
+     */
+    public TypedQuery setString(String value) {
+        parameters.add(SqlParam.ofString(value));
+        return this;
+    }
+
+
+    /**
+     * Ajoute un paramètre horodatage, lié avec setTimestamp ou comme NULL.
+     *
+     * @param value La valeur du paramètre.
+     * @return Cette requête.
+     */
+    public TypedQuery setTimestamp(Timestamp value) {
+        parameters.add(SqlParam.ofTimestamp(value));
+        return this;
+    }
+
+
+    /**
+     * Exécute la requête SELECT et convertit chaque ligne avec la fonction fournie.
+     *
+     * @param mapper La fonction convertissant chaque ligne en objet, par exemple ColorRow.MAPPER.
+     * @param <T>    Le type des objets produits.
+     * @return La liste des objets produits. Retourne null si une exception SQL se produit.
+     */
+    public <T> List<T> list(DatabaseManager.RowMapper<T> mapper) {
+        return DatabaseManager.query(template, mapper, parameters());
+    }
+
+
+    /**
+     * Exécute la requête SELECT et convertit sa première ligne avec la fonction fournie.
+     *
+     * @param mapper La fonction convertissant la ligne en objet.
+     * @param <T>    Le type de l'objet produit.
+     * @return L'objet produit. Retourne null si la requête ne renvoie aucune ligne ou si une exception SQL se produit.
+     */
+    public <T> T first(DatabaseManager.RowMapper<T> mapper) {
+        List<T> rows = list(mapper);
+        return rows == null || rows.isEmpty() ? null : rows.getFirst();
+    }
+
+
+    /**
+     * Exécute la requête SELECT en flux et transmet chaque ligne convertie au consommateur fourni,
+     * sans conserver le résultat en mémoire.
+     *
+     * @param fetchSize Le nombre de lignes récupérées par aller-retour réseau.
+     * @param mapper    La fonction convertissant chaque ligne en objet.
+     * @param consumer  Le consommateur appelé pour chaque objet.
+     * @param <T>       Le type des objets produits.
+     * @return Le nombre de lignes lues. Retourne -1 si une exception SQL se produit.
+     */
+    public <T> int forEach(int fetchSize, DatabaseManager.RowMapper<T> mapper, Consumer<? super T> consumer) {
+        return DatabaseManager.forEachRow(template, fetchSize, row -> consumer.accept(mapper.map(row)), parameters());
+    }
+
+
+    /**
+     * Exécute la requête INSERT.
+     *
+     * @return L'ID de la ligne insérée. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public int insert() {
+        return DatabaseManager.insert(template, parameters());
+    }
+
+
+    /**
+     * Exécute la requête UPDATE ou DELETE.
+     *
+     * @return Le nombre de lignes affectées. Retourne 0 si une violation de contrainte d'intégrité SQL se produit, -1 si une exception SQL se produit.
+     */
+    public int execute() {
+        return DatabaseManager.execute(template, parameters());
+    }
+
+
+    /**
+     * Appelle la procédure stockée. Le paramètre de sortie entier est ajouté automatiquement.
+     *
+     * @return La valeur du paramètre de sortie de la procédure stockée. Retourne -1 si une exception SQL se produit.
+     */
+    public int call() {
+        return DatabaseManager.call(template, parameters());
+    }
+
+
+    private SqlParam[] parameters() {
+        return parameters.toArray(new SqlParam[0]);
+    }
+
+}
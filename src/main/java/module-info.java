@@ -10,8 +10,15 @@ module com.example.notesmanager {
     requires org.kordamp.bootstrapfx.core;
     requires com.almasb.fxgl.all;
     requires java.sql;
+    requires java.sql.rowset;
+    requires java.management;
     requires java.desktop;
 
     opens fr.serfa.notesmanager to javafx.fxml;
     exports fr.serfa.notesmanager;
+
+    uses fr.serfa.notesmanager.StorageBackend;
+    provides fr.serfa.notesmanager.StorageBackend with
+            fr.serfa.notesmanager.MariaDbBackend,
+            fr.serfa.notesmanager.EmbeddedBackend;
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package fr.serfa.notesmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests de NoteContentCodec : aller-retour de l'encodage avec l'en-tête "NMZ1:", contenus non compressés et contenus illisibles.
+ */
+class NoteContentCodecTest {
+
+
+    /**
+     * Le seuil de compression utilisé par les tests, celui des propriétés par défaut.
+     */
+    private static final int THRESHOLD = 1_024;
+
+
+    @Test
+    void shortContentIsStoredAsIs() {
+        String content = "<p>Une note courte</p>";
+
+        assertEquals(content, NoteContentCodec.encode(content, THRESHOLD));
+        assertEquals(content, NoteContentCodec.decode(content));
+    }
+
+
+    @Test
+    void emptyContentIsStoredAsIs() {
+        assertEquals("", NoteContentCodec.encode("", 0));
+        assertEquals("", NoteContentCodec.decode(""));
+    }
+
+
+    @Test
+    void nullContentIsKeptNull() {
+        assertNull(NoteContentCodec.encode(null, THRESHOLD));
+        assertNull(NoteContentCodec.decode(null));
+    }
+
+
+    @Test
+    void largeContentIsCompressedWithHeader() {
+        String content = "<p>Une ligne de note répétée</p>\n".repeat(200);
+
+        String encoded = NoteContentCodec.encode(content, THRESHOLD);
+
+        assertTrue(encoded.startsWith(NoteContentCodec.HEADER));
+        assertTrue(encoded.length() < content.length());
+        assertEquals(content, NoteContentCodec.decode(encoded));
+    }
+
+
+    @Test
+    void multibyteContentRoundTrips() {
+        String content = "<p>Crème brûlée, 日本語, emoji 😀 et ligature ﬁ</p>".repeat(50);
+
+        String encoded = NoteContentCodec.encode(content, THRESHOLD);
+
+        assertTrue(encoded.startsWith(NoteContentCodec.HEADER));
+        assertEquals(content, NoteContentCodec.decode(encoded));
+    }
+
+
+    @Test
+    void incompressibleContentIsStoredAsIs() {
+        // Des caractères aléatoires ne se compressent pas assez pour compenser l'encodage en Base64
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 4_096; i++) {
+            builder.append((char) (' ' + random.nextInt(95)));
+        }
+        String content = builder.toString();
+
+        assertEquals(content, NoteContentCodec.encode(content, THRESHOLD));
+    }
+
+
+    @Test
+    void contentStartingWithHeaderIsAlwaysEncoded() {
+        // Un contenu court qui commence par l'en-tête doit être encodé pour ne pas être pris pour un contenu compressé
+        String content = NoteContentCodec.HEADER + "pas compressé";
+
+        String encoded = NoteContentCodec.encode(content, THRESHOLD);
+
+        assertTrue(encoded.startsWith(NoteContentCodec.HEADER));
+        assertEquals(content, NoteContentCodec.decode(encoded));
+    }
+
+
+    @Test
+    void unreadableCompressedContentDecodesToNull() {
+        assertNull(NoteContentCodec.decode(NoteContentCodec.HEADER + "pas du Base64 !"));
+        assertNull(NoteContentCodec.decode(NoteContentCodec.HEADER + "AAAA"));
+    }
+
+}
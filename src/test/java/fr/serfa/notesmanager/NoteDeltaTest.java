@@ -0,0 +1,153 @@
+package fr.serfa.notesmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * Tests de NoteDelta : calcul des modifications par diff(), application par apply() et applyAll(),
+ * et refus des modifications qui ne correspondent pas au contenu auquel elles s'appliquent.
+ */
+class NoteDeltaTest {
+
+
+    /**
+     * Calcule la modification entre deux contenus, vérifie qu'elle transforme l'un en l'autre et la renvoie.
+     */
+    private static NoteDelta roundTrip(String oldText, String newText) {
+        NoteDelta delta = NoteDelta.diff(oldText, newText);
+        assertEquals(newText, delta.apply(oldText));
+        return delta;
+    }
+
+
+    /**
+     * Fixe la version de base d'une modification, comme à son enregistrement.
+     */
+    private static NoteDelta withBaseVersion(NoteDelta delta, int deltaID, int baseVersion) {
+        return new NoteDelta(deltaID, delta.offset(), delta.deleteLength(), delta.baseLength(), delta.text(), baseVersion);
+    }
+
+
+    @Test
+    void identicalContentsHaveNoDelta() {
+        assertNull(NoteDelta.diff("", ""));
+        assertNull(NoteDelta.diff("<p>Note</p>", "<p>Note</p>"));
+    }
+
+
+    @Test
+    void deltaCoversOnlyTheChangedPart() {
+        NoteDelta delta = roundTrip("<p>Bonjour le monde</p>", "<p>Bonjour tout le monde</p>");
+
+        assertEquals(11, delta.offset());
+        assertEquals(0, delta.deleteLength());
+        assertEquals("tout ", delta.text());
+        assertEquals(23, delta.baseLength());
+    }
+
+
+    @Test
+    void insertionDeletionAndReplacementRoundTrip() {
+        roundTrip("abcdef", "abcXYZdef");
+        roundTrip("abcdef", "abf");
+        roundTrip("abcdef", "aXYZf");
+        roundTrip("abcdef", "Xabcdef");
+        roundTrip("abcdef", "abcdefX");
+        roundTrip("aaaa", "aaaaa");
+    }
+
+
+    @Test
+    void emptyContentsRoundTrip() {
+        NoteDelta fromEmpty = roundTrip("", "<p>Première ligne</p>");
+        assertEquals(0, fromEmpty.offset());
+        assertEquals(0, fromEmpty.baseLength());
+
+        NoteDelta toEmpty = roundTrip("<p>Dernière ligne</p>", "");
+        assertEquals("", toEmpty.text());
+        assertEquals(toEmpty.baseLength(), toEmpty.deleteLength());
+    }
+
+
+    @Test
+    void multibyteBoundariesDoNotSplitSurrogatePairs() {
+        // Les deux emoji partagent leur premier caractère de substitution : la modification doit contenir la paire entière
+        NoteDelta delta = roundTrip("a😀b", "a😃b");
+        assertEquals(1, delta.offset());
+        assertEquals("😃", delta.text());
+
+        // Même chose avec un second caractère de substitution commun, en fin de modification
+        roundTrip("x😀", "x🨀");
+        roundTrip("Crème brûlée 日本語", "Crème brûlée 日本 語 ✓");
+    }
+
+
+    @Test
+    void overlappingEditsApplyInOrder() {
+        String version1 = "<p>Liste : pommes, poires</p>";
+        String version2 = "<p>Liste : pommes, prunes, poires</p>";
+        String version3 = "<p>Liste : pêches, prunes</p>";
+
+        // La seconde modification réécrit une partie déjà modifiée par la première
+        List<NoteDelta> deltas = List.of(
+                withBaseVersion(NoteDelta.diff(version1, version2), 1, 1),
+                withBaseVersion(NoteDelta.diff(version2, version3), 2, 2)
+        );
+
+        assertEquals(version3, NoteDelta.applyAll(version1, deltas));
+    }
+
+
+    @Test
+    void noDeltaLeavesBaseUnchanged() {
+        assertEquals("<p>Note</p>", NoteDelta.applyAll("<p>Note</p>", List.of()));
+    }
+
+
+    @Test
+    void baseLengthMismatchIsRejected() {
+        NoteDelta delta = NoteDelta.diff("abcdef", "abcXdef");
+
+        assertThrows(IllegalStateException.class, () -> delta.apply("abcdefg"));
+        assertThrows(IllegalStateException.class, () -> delta.apply(""));
+    }
+
+
+    @Test
+    void offsetBeyondBaseIsRejected() {
+        // La longueur de base correspond, mais la partie supprimée dépasse la fin du contenu
+        NoteDelta delta = new NoteDelta(1, 5, 3, 6, "x", 1);
+
+        assertThrows(IllegalStateException.class, () -> delta.apply("abcdef"));
+    }
+
+
+    @Test
+    void deltaComputedOnAnotherContentIsRejected() {
+        // La seconde modification a été calculée sur un autre contenu que celui produit par la première
+        List<NoteDelta> deltas = List.of(
+                withBaseVersion(NoteDelta.diff("abc", "abcd"), 1, 1),
+                withBaseVersion(NoteDelta.diff("xyz", "xy"), 2, 2)
+        );
+
+        assertThrows(IllegalStateException.class, () -> NoteDelta.applyAll("abc", deltas));
+    }
+
+
+    @Test
+    void nonConsecutiveBaseVersionsAreRejected() {
+        List<NoteDelta> deltas = List.of(
+                withBaseVersion(NoteDelta.diff("abc", "abcd"), 1, 1),
+                withBaseVersion(NoteDelta.diff("abcd", "abcde"), 2, 3)
+        );
+
+        assertThrows(IllegalStateException.class, () -> NoteDelta.applyAll("abc", deltas));
+    }
+
+}